@@ -0,0 +1,46 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+/**
+ * Converts the value of an attribute from a string to the type of the
+ * field that holds it.
+ *
+ * <p>Converters for the built-in types, and for any class that has a
+ * constructor that takes a string, are supplied by
+ * {@link AttributeConverters#get(String)}. To convert a type in some other
+ * way, implement this interface and call
+ * {@link AttributeConverters#register(String, AttributeConverter)} before
+ * the classes of the model are loaded.
+ *
+ * <p>Converters are shared by all threads, so must be thread-safe.
+ *
+ * @author jhyde
+ */
+public interface AttributeConverter {
+    /**
+     * Converts the value of an attribute.
+     *
+     * @param value Value, never null
+     * @return Converted value
+     * @throws XOMException if the value is not valid for the type
+     */
+    Object convert(String value) throws XOMException;
+}
+
+// End AttributeConverter.java
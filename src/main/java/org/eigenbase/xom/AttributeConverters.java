@@ -0,0 +1,222 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link AttributeConverter}s, by the name of the type they
+ * produce.
+ *
+ * <p>Generated code looks up the converter of each attribute once, when
+ * its class is initialized, and passes it to
+ * {@link DOMElementParser#getAttribute(String, AttributeConverter, String, String[], boolean)}.
+ *
+ * @author jhyde
+ */
+public final class AttributeConverters {
+    /** Converter to {@link String}; returns the value unchanged. */
+    public static final AttributeConverter STRING =
+        new AttributeConverter() {
+            public Object convert(String value) {
+                return value;
+            }
+        };
+
+    /** Converter to {@link Integer}. */
+    public static final AttributeConverter INTEGER =
+        new AttributeConverter() {
+            public Object convert(String value) throws XOMException {
+                try {
+                    return Integer.valueOf(value);
+                } catch (NumberFormatException e) {
+                    throw fail("java.lang.Integer", value, e);
+                }
+            }
+        };
+
+    /** Converter to {@link Long}. */
+    public static final AttributeConverter LONG =
+        new AttributeConverter() {
+            public Object convert(String value) throws XOMException {
+                try {
+                    return Long.valueOf(value);
+                } catch (NumberFormatException e) {
+                    throw fail("java.lang.Long", value, e);
+                }
+            }
+        };
+
+    /** Converter to {@link Double}. */
+    public static final AttributeConverter DOUBLE =
+        new AttributeConverter() {
+            public Object convert(String value) throws XOMException {
+                try {
+                    return Double.valueOf(value);
+                } catch (NumberFormatException e) {
+                    throw fail("java.lang.Double", value, e);
+                }
+            }
+        };
+
+    /** Converter to {@link Boolean}. As with
+     * {@link Boolean#valueOf(String)}, any value other than "true", in any
+     * case, is false. */
+    public static final AttributeConverter BOOLEAN =
+        new AttributeConverter() {
+            public Object convert(String value) {
+                return Boolean.valueOf(value);
+            }
+        };
+
+    /** Converters, by fully-qualified type name. */
+    private static final ConcurrentHashMap/*<String, AttributeConverter>*/
+        CONVERTERS = new ConcurrentHashMap();
+
+    static {
+        CONVERTERS.put("java.lang.String", STRING);
+        CONVERTERS.put("java.lang.Integer", INTEGER);
+        CONVERTERS.put("java.lang.Long", LONG);
+        CONVERTERS.put("java.lang.Double", DOUBLE);
+        CONVERTERS.put("java.lang.Boolean", BOOLEAN);
+    }
+
+    private AttributeConverters() {
+    }
+
+    /**
+     * Registers a converter for a type, replacing any converter already
+     * registered for it.
+     *
+     * @param attrType Name of the type; if it contains no '.', it is in
+     *   <code>java.lang</code>
+     * @param converter Converter
+     */
+    public static void register(String attrType, AttributeConverter converter)
+    {
+        CONVERTERS.put(qualify(attrType), converter);
+    }
+
+    /**
+     * Returns the converter for a type.
+     *
+     * <p>If no converter has been registered for the type, and it has a
+     * public constructor that takes a string, returns a converter that
+     * calls that constructor. Otherwise returns a converter that throws,
+     * so that, as before converters existed, an invalid type is reported
+     * when an attribute of that type is read, not when the model's classes
+     * are loaded.
+     *
+     * @param attrType Name of the type; if it contains no '.', it is in
+     *   <code>java.lang</code>
+     * @return Converter, never null
+     */
+    public static AttributeConverter get(String attrType) {
+        final String typeName = qualify(attrType);
+        AttributeConverter converter =
+            (AttributeConverter) CONVERTERS.get(typeName);
+        if (converter == null) {
+            converter = constructorConverter(typeName);
+            final Object previous = CONVERTERS.putIfAbsent(typeName, converter);
+            if (previous != null) {
+                converter = (AttributeConverter) previous;
+            }
+        }
+        return converter;
+    }
+
+    private static String qualify(String attrType) {
+        return attrType.indexOf('.') == -1
+            ? "java.lang." + attrType
+            : attrType;
+    }
+
+    /**
+     * Creates a converter that calls a type's constructor that takes a
+     * string.
+     */
+    private static AttributeConverter constructorConverter(
+        final String typeName)
+    {
+        final Class typeClass;
+        try {
+            typeClass = Class.forName(typeName);
+        } catch (ClassNotFoundException ex) {
+            return error(
+                "Class could not be found for attribute "
+                    + "type: " + typeName + ": "
+                    + ex.getMessage());
+        }
+        final MethodHandle constructor;
+        try {
+            constructor =
+                MethodHandles.publicLookup()
+                    .findConstructor(
+                        typeClass,
+                        MethodType.methodType(void.class, String.class))
+                    .asType(
+                        MethodType.methodType(Object.class, String.class));
+        } catch (NoSuchMethodException ex) {
+            return error(
+                "Attribute type class " + typeName + " does not have a "
+                    + "constructor which takes a String: "
+                    + ex.getMessage());
+        } catch (IllegalAccessException ex) {
+            return error(
+                "Attribute type class " + typeName + " does not have a "
+                    + "constructor which takes a String: "
+                    + ex.getMessage());
+        }
+        return new AttributeConverter() {
+            public Object convert(String value) throws XOMException {
+                try {
+                    return (Object) constructor.invokeExact(value);
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw fail(typeName, value, e);
+                }
+            }
+        };
+    }
+
+    /** Creates a converter that always throws. */
+    private static AttributeConverter error(final String message) {
+        return new AttributeConverter() {
+            public Object convert(String value) throws XOMException {
+                throw new XOMException(message);
+            }
+        };
+    }
+
+    private static XOMException fail(
+        String typeName,
+        String value,
+        Throwable e)
+    {
+        return new XOMException(
+            "Unable to construct a " + typeName
+                + " from value \"" + value + "\": "
+                + e.getMessage());
+    }
+}
+
+// End AttributeConverters.java
@@ -0,0 +1,474 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Holds the elements of a document that have been bound to
+ * {@link ElementDef}s while it is still being parsed.
+ *
+ * <p>A parser that binds as it goes, such as
+ * {@link org.eigenbase.xom.wrappers.StaxDOMParser#bind(String, StreamingBinder)},
+ * calls {@link #bind(StreamingBinder, DOMWrapper)} at the end of each
+ * element, by which time its children have already been bound. The
+ * generated constructor of the element's class reads its children as
+ * usual, but {@link ElementDef#constructElement(DOMWrapper, Class)} finds
+ * each child in the context, and returns the child's definition rather than
+ * building it a second time.
+ *
+ * <p>A context can also bind a document that has already been parsed, using
+ * several threads. Call {@link #setPool(ForkJoinPool)}, then
+ * {@link #construct(DOMWrapper, Class)}; wherever an element has at least
+ * {@link #setParallelThreshold(int) parallelThreshold} children of the same
+ * kind, such as the elements of an array, the children are constructed by
+ * tasks in the pool. The resulting arrays are in document order, as usual.
+ * If several children are invalid, the error thrown is the one that a
+ * sequential binding would have thrown, that is, the error of the first
+ * invalid child.
+ *
+ * <p>Only trees that can be read by several threads at once are bound in
+ * parallel, such as those built by
+ * {@link org.eigenbase.xom.wrappers.StaxDOMParser}. W3C DOM implementations
+ * make no such promise (Xerces, for instance, expands nodes lazily), so a
+ * tree of {@link org.eigenbase.xom.wrappers.W3CDOMWrapper}s is bound by the
+ * calling thread alone.
+ *
+ * <p>A context can also reuse definitions from a previous binding. Call
+ * {@link #setRecorder(Map)} to record the definition of each element that
+ * is constructed, and {@link #reuse(DOMWrapper, NodeDef)} to offer a
+ * definition to a later binding of a tree that shares some elements;
+ * {@link org.eigenbase.xom.wrappers.IncrementalDocument} does this after
+ * each edit.
+ *
+ * <p>A context can bind documents that are known to be valid, such as
+ * documents that an application wrote itself, without checking them again.
+ * If {@link #setTrusted(boolean) trusted} is set, {@link DOMElementParser}
+ * does not check the sizes of arrays, the allowable values of attributes,
+ * or that a required element is of the expected class; it still matches
+ * names wherever it has to, to find where an optional element or an array
+ * ends. The binding of an invalid document in trusted mode is undefined:
+ * it may succeed with missing or misplaced content, or throw an unchecked
+ * exception.
+ *
+ * <p>A context can share the structurally identical subtrees of the
+ * documents it binds. If it has a
+ * {@link #setCanonicalizer(Canonicalizer) canonicalizer}, each element is
+ * {@link Canonicalizer#intern(ElementDef) interned} as soon as it is
+ * constructed, after its children, so a duplicate subtree is garbage as
+ * soon as its root has been constructed.
+ *
+ * <p>A context belongs to one parse or binding at a time, and apart from
+ * the tasks that it starts itself, is not thread-safe.
+ *
+ * @author jhyde
+ */
+public final class BindingContext {
+    /** Default value of {@link #getParallelThreshold()}. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 64;
+
+    /** The context whose binder is running on each thread. */
+    private static final ThreadLocal/*<BindingContext>*/ ACTIVE =
+        new ThreadLocal();
+
+    /** Definitions of elements that have been bound but not yet claimed by
+     * their parent. */
+    private final Map/*<DOMWrapper, NodeDef>*/ bound = new IdentityHashMap();
+
+    /** Receives the definition of each element constructed; may be
+     * null. */
+    private Map/*<DOMWrapper, NodeDef>*/ recorder;
+
+    private ForkJoinPool pool;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    /** Whether the tree currently being bound is bound in parallel. */
+    private boolean parallel;
+    private boolean trusted;
+    private Canonicalizer canonicalizer;
+
+    /** Creates a BindingContext. */
+    public BindingContext() {
+    }
+
+    /**
+     * Sets the pool in which to construct children in parallel. If null,
+     * the default, all elements are constructed by the calling thread.
+     *
+     * @param pool Pool, or null
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the pool in which to construct children in parallel, or null.
+     *
+     * @return Pool, or null
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the least number of children for which it is worth constructing
+     * children in parallel. The default is
+     * {@link #DEFAULT_PARALLEL_THRESHOLD}.
+     *
+     * @param parallelThreshold Least number of children to construct in
+     *   parallel
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+    }
+
+    /**
+     * Returns the least number of children for which it is worth
+     * constructing children in parallel.
+     *
+     * @return Least number of children to construct in parallel
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets a map that is to receive the definition of each element
+     * constructed while this context is active, keyed by the element's
+     * wrapper. The map should compare keys by identity.
+     *
+     * @param recorder Map, or null
+     */
+    public void setRecorder(Map/*<DOMWrapper, NodeDef>*/ recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Sets whether documents bound by this context are trusted to be valid,
+     * and need not be checked. The default is false.
+     *
+     * @param trusted Whether to skip validation
+     */
+    public void setTrusted(boolean trusted) {
+        this.trusted = trusted;
+    }
+
+    /**
+     * Returns whether documents bound by this context are trusted to be
+     * valid.
+     *
+     * @return Whether to skip validation
+     */
+    public boolean isTrusted() {
+        return trusted;
+    }
+
+    /**
+     * Sets the canonicalizer with which to intern each element constructed
+     * by this context. If null, the default, elements are not interned.
+     *
+     * @param canonicalizer Canonicalizer, or null
+     */
+    public void setCanonicalizer(Canonicalizer canonicalizer) {
+        this.canonicalizer = canonicalizer;
+    }
+
+    /**
+     * Returns the canonicalizer with which to intern each element
+     * constructed by this context, or null.
+     *
+     * @return Canonicalizer, or null
+     */
+    public Canonicalizer getCanonicalizer() {
+        return canonicalizer;
+    }
+
+    /**
+     * Offers a definition for an element, to be used instead of
+     * constructing one if a parent asks for the element.
+     *
+     * @param wrapper Element
+     * @param def Definition
+     */
+    public void reuse(DOMWrapper wrapper, NodeDef def) {
+        bound.put(wrapper, def);
+    }
+
+    /**
+     * Constructs the definition of an element and everything inside it, in
+     * parallel if this context has a pool.
+     *
+     * @param wrapper Element
+     * @param elemClass Class of the definition, for example
+     *   <code>MetaDef.Model.class</code>
+     * @return Definition
+     * @throws XOMException if the element is not valid
+     */
+    public NodeDef construct(DOMWrapper wrapper, Class elemClass)
+        throws XOMException
+    {
+        final Object previous = ACTIVE.get();
+        ACTIVE.set(this);
+        parallel = pool != null
+            && !(wrapper instanceof org.eigenbase.xom.wrappers.W3CDOMWrapper);
+        try {
+            return ElementDef.constructElement(wrapper, elemClass);
+        } finally {
+            parallel = false;
+            ACTIVE.set(previous);
+        }
+    }
+
+    /**
+     * Binds an element whose children have all been seen.
+     *
+     * @param binder Binder
+     * @param wrapper Element
+     * @return Whether the element's children are no longer needed, because
+     *   it was bound and its definition does not keep its wrapper
+     * @throws XOMException if the element is not valid
+     */
+    public boolean bind(StreamingBinder binder, DOMWrapper wrapper)
+        throws XOMException
+    {
+        final int index = binder.index(wrapper.getTagName());
+        if (index < 0) {
+            return false;
+        }
+        final Object previous = ACTIVE.get();
+        ACTIVE.set(this);
+        NodeDef def;
+        try {
+            def = binder.construct(index, wrapper);
+        } finally {
+            ACTIVE.set(previous);
+        }
+        if (def == null) {
+            return false;
+        }
+        if (canonicalizer != null && def instanceof ElementDef) {
+            def = canonicalizer.intern((ElementDef) def);
+        }
+        bound.put(wrapper, def);
+        return !binder.keepsWrapper(index);
+    }
+
+    /**
+     * Removes and returns the definition to which an element was bound.
+     *
+     * @param wrapper Element
+     * @return Definition, or null if the element has not been bound
+     */
+    public NodeDef take(DOMWrapper wrapper) {
+        return (NodeDef) bound.remove(wrapper);
+    }
+
+    /**
+     * Returns the definition to which an element was bound by the context
+     * active on this thread, if it is of a given class. Called by
+     * {@link ElementDef#constructElement(DOMWrapper, Class)}.
+     */
+    static NodeDef take(DOMWrapper wrapper, Class elemClass) {
+        final BindingContext context = (BindingContext) ACTIVE.get();
+        if (context == null || context.bound.isEmpty()) {
+            return null;
+        }
+        // Tasks of a parallel binding may claim elements at the same time.
+        synchronized (context.bound) {
+            final NodeDef def = (NodeDef) context.bound.get(wrapper);
+            if (def == null || !elemClass.isInstance(def)) {
+                return null;
+            }
+            context.bound.remove(wrapper);
+            return def;
+        }
+    }
+
+    /**
+     * Returns whether the context active on this thread trusts the document
+     * it is binding. Called by {@link DOMElementParser}.
+     */
+    static boolean isActiveTrusted() {
+        final BindingContext context = (BindingContext) ACTIVE.get();
+        return context != null && context.trusted;
+    }
+
+    /**
+     * Interns the definition constructed for an element, if the context
+     * active on this thread has a canonicalizer, and records it, if the
+     * context has a recorder. Called by
+     * {@link ElementDef#constructElement(DOMWrapper, Class)}.
+     *
+     * @return The definition to use: the canonical definition, or
+     *   <code>def</code>
+     */
+    static ElementDef constructed(DOMWrapper wrapper, ElementDef def) {
+        final BindingContext context = (BindingContext) ACTIVE.get();
+        if (context == null) {
+            return def;
+        }
+        if (context.canonicalizer != null) {
+            def = context.canonicalizer.intern(def);
+        }
+        if (context.recorder != null) {
+            synchronized (context.recorder) {
+                context.recorder.put(wrapper, def);
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Constructs the definitions of several elements, in parallel if the
+     * context active on this thread allows it. Called by
+     * {@link DOMElementParser} and {@link ElementDef} wherever an element's
+     * children are constructed in a loop.
+     *
+     * @param wrappers Elements
+     * @param enclosure Enclosing class of the model
+     * @param prefix Prefix of tag names
+     * @param defs Array to receive the definitions, as long as
+     *   <code>wrappers</code>
+     * @return <code>defs</code>
+     */
+    static NodeDef[] constructAll(
+        DOMWrapper[] wrappers,
+        Class enclosure,
+        String prefix,
+        NodeDef[] defs)
+        throws XOMException
+    {
+        final BindingContext context = (BindingContext) ACTIVE.get();
+        if (context == null
+            || !context.parallel
+            || wrappers.length < context.parallelThreshold)
+        {
+            for (int i = 0; i < wrappers.length; i++) {
+                defs[i] =
+                    ElementDef.constructElement(wrappers[i], enclosure, prefix);
+            }
+            return defs;
+        }
+        final Throwable[] errors = new Throwable[wrappers.length];
+        final int grain =
+            Math.max(1, wrappers.length / (4 * context.pool.getParallelism()));
+        final ConstructTask task =
+            new ConstructTask(
+                context, wrappers, enclosure, prefix, defs, errors,
+                0, wrappers.length, grain);
+        if (ForkJoinTask.getPool() == context.pool) {
+            // Already in one of the pool's threads; fork from here.
+            task.invoke();
+        } else {
+            context.pool.invoke(task);
+        }
+        for (int i = 0; i < errors.length; i++) {
+            final Throwable e = errors[i];
+            if (e == null) {
+                continue;
+            }
+            if (e instanceof XOMException) {
+                throw (XOMException) e;
+            } else if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else if (e instanceof Error) {
+                throw (Error) e;
+            } else {
+                throw new XOMException(e, "Error while binding");
+            }
+        }
+        return defs;
+    }
+
+    /**
+     * Task that constructs the definitions of a range of elements, splitting
+     * itself if the range is large.
+     *
+     * <p>Each leaf stops at its first error, and records it against the
+     * element's index, so that the caller can throw the error of the first
+     * invalid element.
+     */
+    private static class ConstructTask extends RecursiveAction {
+        private final BindingContext context;
+        private final DOMWrapper[] wrappers;
+        private final Class enclosure;
+        private final String prefix;
+        private final NodeDef[] defs;
+        private final Throwable[] errors;
+        private final int start;
+        private final int end;
+        private final int grain;
+
+        ConstructTask(
+            BindingContext context,
+            DOMWrapper[] wrappers,
+            Class enclosure,
+            String prefix,
+            NodeDef[] defs,
+            Throwable[] errors,
+            int start,
+            int end,
+            int grain)
+        {
+            this.context = context;
+            this.wrappers = wrappers;
+            this.enclosure = enclosure;
+            this.prefix = prefix;
+            this.defs = defs;
+            this.errors = errors;
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        protected void compute() {
+            if (end - start > grain) {
+                final int middle = (start + end) >>> 1;
+                invokeAll(
+                    new ConstructTask(
+                        context, wrappers, enclosure, prefix, defs, errors,
+                        start, middle, grain),
+                    new ConstructTask(
+                        context, wrappers, enclosure, prefix, defs, errors,
+                        middle, end, grain));
+                return;
+            }
+            // Children of these elements may fork tasks of their own.
+            final Object previous = ACTIVE.get();
+            ACTIVE.set(context);
+            try {
+                for (int i = start; i < end; i++) {
+                    try {
+                        defs[i] = ElementDef.constructElement(
+                            wrappers[i], enclosure, prefix);
+                    } catch (Throwable e) {
+                        errors[i] = e;
+                        return;
+                    }
+                }
+            } finally {
+                ACTIVE.set(previous);
+            }
+        }
+    }
+}
+
+// End BindingContext.java
@@ -0,0 +1,330 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the tags of a model to the classes that define them, and the classes
+ * to their constructors.
+ *
+ * <p>Binding an element used to look up its class with
+ * {@link Class#forName(String)}, and then find its constructor by scanning
+ * {@link Class#getDeclaredConstructors()}, every time. A registry does that
+ * work once for each enclosing class, such as {@link MetaDef}, and each
+ * element class, and caches the results in {@link ClassValue}s, so that
+ * they are released if the model's class loader is.
+ *
+ * <p>If the enclosing class was generated with a <code>_construct</code>
+ * method, the registry calls that instead, and the generated code calls
+ * the element's constructor directly.
+ *
+ * <p>Constructors and <code>_construct</code> methods are found with this
+ * package's {@link MethodHandles.Lookup}, so they need be no more visible
+ * than they were when elements were constructed by reflection. A
+ * constructor that cannot be called through a method handle, such as that
+ * of an abstract class, is still called by reflection, and fails with the
+ * same error as before.
+ *
+ * @author jhyde
+ */
+final class BindingRegistry {
+    /** Most tags that are not elements of the model whose lookups are
+     * remembered. Beyond this, such tags are looked up each time. */
+    private static final int MAX_MISSES = 1024;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /** Marks a tag that has no class, or a class that has no enclosure. */
+    private static final Object NONE = new Object();
+
+    private static final ClassValue/*<BindingRegistry>*/ REGISTRIES =
+        new ClassValue() {
+            protected Object computeValue(Class enclosure) {
+                return new BindingRegistry(enclosure);
+            }
+        };
+
+    /** Constructor of each element class, as a {@link MethodHandle} of type
+     * <code>(DOMWrapper)Object</code>, or as a {@link Constructor} if it must
+     * be called by reflection, or the message of the error to throw if it
+     * has none. */
+    private static final ClassValue/*<Object>*/ CONSTRUCTORS =
+        new ClassValue() {
+            protected Object computeValue(Class elemClass) {
+                return constructorHandle(elemClass);
+            }
+        };
+
+    /** Outermost class enclosing each class, or {@link #NONE} if the class
+     * is not nested. */
+    private static final ClassValue/*<Object>*/ ENCLOSURES =
+        new ClassValue() {
+            protected Object computeValue(Class clazz) {
+                final String className = clazz.getName();
+                final int dollarPos = className.indexOf('$');
+                if (dollarPos < 0) {
+                    return NONE;
+                }
+                final String encName = className.substring(0, dollarPos);
+                try {
+                    return Class.forName(
+                        encName, false, clazz.getClassLoader());
+                } catch (ClassNotFoundException ex) {
+                    throw new AssertFailure("Enclosure class " + encName
+                                     + " not found.");
+                }
+            }
+        };
+
+    /** Member classes of the enclosure, by simple name. */
+    private final Map/*<String, Class>*/ classes = new HashMap();
+
+    /** Handle to the enclosure's generated <code>_construct</code> method,
+     * of type <code>(DOMWrapper)ElementDef</code>; null if it has none. */
+    private final MethodHandle factory;
+
+    /** Prefix of the tags that {@link #factory} recognizes. */
+    private final String factoryPrefix;
+
+    /** Class of each tag that has been looked up, or {@link #NONE}. Tags
+     * here have had the prefix removed, but are not capitalized. */
+    private final ConcurrentHashMap/*<String, Object>*/ tags =
+        new ConcurrentHashMap();
+
+    private BindingRegistry(Class enclosure) {
+        final Class[] memberClasses = enclosure.getDeclaredClasses();
+        for (int i = 0; i < memberClasses.length; i++) {
+            classes.put(memberClasses[i].getSimpleName(), memberClasses[i]);
+            tags.put(memberClasses[i].getSimpleName(), memberClasses[i]);
+        }
+        MethodHandle factory = null;
+        String factoryPrefix = null;
+        try {
+            factory = LOOKUP.findStatic(
+                enclosure, "_construct",
+                MethodType.methodType(ElementDef.class, DOMWrapper.class));
+            factoryPrefix =
+                (String) enclosure.getDeclaredField("_prefix").get(null);
+        } catch (NoSuchMethodException e) {
+            // Generated by an older version of MetaGenerator.
+        } catch (NoSuchFieldException e) {
+            factory = null;
+        } catch (IllegalAccessException e) {
+            factory = null;
+        }
+        this.factory = factory;
+        this.factoryPrefix = factoryPrefix;
+    }
+
+    /**
+     * Returns the registry of a model.
+     *
+     * @param enclosure Class that encloses the classes of the model's
+     *   elements, for example <code>MetaDef.class</code>
+     * @return Registry
+     */
+    static BindingRegistry of(Class enclosure) {
+        return (BindingRegistry) REGISTRIES.get(enclosure);
+    }
+
+    /**
+     * Returns the class that defines a tag. As in the generated code, the
+     * first letter of the tag is capitalized.
+     *
+     * @param name Tag, without the model's prefix
+     * @return Class, or null if the model has no such class
+     */
+    Class getElementClass(String name) {
+        Object clazz = tags.get(name);
+        if (clazz == null) {
+            clazz = classes.get(XOMUtil.capitalize(name));
+            if (clazz == null) {
+                clazz = NONE;
+            }
+            if (clazz != NONE || tags.size() < classes.size() + MAX_MISSES) {
+                tags.put(name, clazz);
+            }
+        }
+        return clazz == NONE ? null : (Class) clazz;
+    }
+
+    /**
+     * Constructs the definition of an element using the enclosure's
+     * generated <code>_construct</code> method.
+     *
+     * @param wrapper Element
+     * @param prefix Prefix of tag names
+     * @return Definition, or null if the enclosure has no such method, it
+     *   uses a different prefix, or it does not recognize the tag
+     * @throws XOMException if the element is not valid
+     */
+    ElementDef construct(DOMWrapper wrapper, String prefix)
+        throws XOMException
+    {
+        if (factory == null
+            || !factoryPrefix.equals(prefix == null ? "" : prefix))
+        {
+            return null;
+        }
+        try {
+            return (ElementDef) factory.invokeExact(wrapper);
+        } catch (XOMException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new XOMException(
+                "Unexpected exception while "
+                    + "instantiating object: "
+                    + e.toString());
+        }
+    }
+
+    /**
+     * Returns the outermost class that encloses a class, or
+     * <code>fallback</code> if the class is not nested.
+     */
+    static Class getEnclosure(Class clazz, Class fallback) {
+        final Object enclosure = ENCLOSURES.get(clazz);
+        return enclosure == NONE ? fallback : (Class) enclosure;
+    }
+
+    /**
+     * Creates a definition by calling the constructor of an element class
+     * that takes a {@link DOMWrapper}.
+     *
+     * @param elemClass Class of the definition
+     * @param wrapper Element
+     * @return Definition
+     * @throws XOMException if the class has no such constructor, or if the
+     *   constructor fails
+     */
+    static ElementDef construct(Class elemClass, DOMWrapper wrapper)
+        throws XOMException
+    {
+        final Object constructor = CONSTRUCTORS.get(elemClass);
+        if (constructor instanceof String) {
+            throw new XOMException((String) constructor);
+        }
+        if (constructor instanceof Constructor) {
+            return reflectConstruct(
+                elemClass, (Constructor) constructor, wrapper);
+        }
+        try {
+            return (ElementDef)
+                (Object) ((MethodHandle) constructor).invokeExact(wrapper);
+        } catch (XOMException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new XOMException(
+                "Unexpected exception while "
+                    + "instantiating object: "
+                    + e.toString());
+        }
+    }
+
+    /**
+     * Creates a definition by calling a constructor by reflection.
+     */
+    private static ElementDef reflectConstruct(
+        Class elemClass, Constructor elemConstructor, DOMWrapper wrapper)
+        throws XOMException
+    {
+        Object[] args = new Object[1];
+        args[0] = wrapper;
+        try {
+            return (ElementDef) elemConstructor.newInstance(args);
+        } catch (InstantiationException ex) {
+            throw new XOMException("Unable to instantiate object of class "
+                                      + elemClass.getName() + ": "
+                                      + ex.getMessage());
+        } catch (InvocationTargetException ex) {
+            // the Element constructor can only throw XOMException or
+            // RuntimeException or Error, so cast to whichever type is
+            // appropriate and throw here.
+            Throwable target = ex.getTargetException();
+            if (target instanceof XOMException) {
+                throw (XOMException) target;
+            } else if (target instanceof RuntimeException) {
+                throw (RuntimeException) target;
+            } else if (target instanceof Error) {
+                throw (Error) target;
+            } else {
+                throw new XOMException(
+                    "Unexpected exception while "
+                        + "instantiating object: "
+                        + target.toString());
+            }
+        } catch (IllegalAccessException ex) {
+            throw new XOMException("Unable to instantiate object of class "
+                                      + elemClass.getName() + ": "
+                                      + ex.getMessage());
+        }
+    }
+
+    /**
+     * Finds the constructor of a class that takes a {@link DOMWrapper}, and
+     * returns a handle to it, or the constructor itself if it can only be
+     * called by reflection, or if there is none, the message of the error
+     * to throw.
+     */
+    private static Object constructorHandle(Class elemClass) {
+        Constructor[] constructors = elemClass.getDeclaredConstructors();
+        Constructor elemConstructor = null;
+        for (int i = 0; i < constructors.length; i++) {
+            Class[] params = constructors[i].getParameterTypes();
+            if (params.length == 1 && params[0] == DOMWrapper.class) {
+                elemConstructor = constructors[i];
+                break;
+            }
+        }
+        if (elemConstructor == null) {
+            return "No constructor taking class DOMWrapper "
+                + "could be found in class "
+                + elemClass.getName();
+        }
+        if (Modifier.isAbstract(elemClass.getModifiers())) {
+            // Reflection reports the error.
+            return elemConstructor;
+        }
+        try {
+            return LOOKUP.unreflectConstructor(elemConstructor)
+                .asType(
+                    MethodType.methodType(Object.class, DOMWrapper.class));
+        } catch (IllegalAccessException ex) {
+            return elemConstructor;
+        }
+    }
+}
+
+// End BindingRegistry.java
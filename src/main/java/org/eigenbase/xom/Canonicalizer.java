@@ -0,0 +1,142 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A <code>Canonicalizer</code> shares structurally identical subtrees of
+ * models, so that a model in which the same elements occur many times holds
+ * only one copy of them.
+ *
+ * <p>It keeps a table of canonical elements. {@link #intern(ElementDef)}
+ * returns the element in the table that is equal to a given element, or
+ * adds the element to the table if there is none; {@link #canonicalize}
+ * does the same for each element of a tree, starting from the leaves, and
+ * replaces each child with its canonical equivalent. Elements are
+ * compared using {@link ElementDef#equals(Object)} and
+ * {@link ElementDef#hashCode()}, which look at the elements' fields, not
+ * their XML; because the children of a canonical element are canonical,
+ * comparing two candidates compares their children by identity.
+ *
+ * <p>The table holds its elements weakly, so an element is removed once no
+ * model uses it, and a canonicalizer may be kept for as long as the
+ * application runs and shared by any number of models and threads.
+ *
+ * <p>A {@link BindingContext} can canonicalize as it binds (see
+ * {@link BindingContext#setCanonicalizer(Canonicalizer)}); each element is
+ * interned as soon as it is constructed, so duplicates become garbage
+ * straight away, rather than after the whole model is built.
+ *
+ * <p>Canonical elements are shared, so they must not be modified; they
+ * are {@link ElementDef#freeze() frozen} when they are interned. An element
+ * that is shared occurs in several places in a model but has only one
+ * parent, wrapper and location: those of the first occurrence to be
+ * interned.
+ *
+ * @author jhyde
+ */
+public class Canonicalizer
+{
+    /** Canonical elements. Each maps to a weak reference to itself, so that
+     * the value does not keep the key alive. */
+    private final Map/*<ElementDef, WeakReference<ElementDef>>*/ table =
+        new WeakHashMap();
+
+    /** Creates a Canonicalizer. */
+    public Canonicalizer()
+    {
+    }
+
+    /**
+     * Returns the canonical element that is equal to a given element. If
+     * there is none, the element is frozen and becomes canonical. The
+     * element's children are not interned; use {@link #canonicalize} if
+     * they might not be canonical.
+     *
+     * <p>An element is only ever replaced by an element of the same class.
+     *
+     * @param def Element
+     * @return Canonical element equal to <code>def</code>
+     */
+    public ElementDef intern(ElementDef def)
+    {
+        def.freeze();
+        // Compute the hash, and cache it, outside the lock.
+        def.hashCode();
+        synchronized (table) {
+            final ElementDef canonical = lookup(def);
+            if (canonical != null) {
+                return canonical.getClass() == def.getClass()
+                    ? canonical
+                    : def;
+            }
+            table.put(def, new WeakReference(def));
+            return def;
+        }
+    }
+
+    /**
+     * Interns each element of a tree, starting from the leaves, replacing
+     * each child with its canonical equivalent, and returns the canonical
+     * equivalent of the root. Subtrees that are already canonical are not
+     * visited.
+     *
+     * @param def Root of tree, or null
+     * @return Canonical equivalent of <code>def</code>, or null
+     */
+    public ElementDef canonicalize(ElementDef def)
+    {
+        if (def == null) {
+            return null;
+        }
+        if (def.isFrozen()) {
+            synchronized (table) {
+                if (lookup(def) == def) {
+                    return def;
+                }
+            }
+        }
+        def.canonicalizeChildren(this);
+        return intern(def);
+    }
+
+    /**
+     * Returns the number of canonical elements that are still in use.
+     *
+     * @return Number of canonical elements
+     */
+    public int size()
+    {
+        synchronized (table) {
+            return table.size();
+        }
+    }
+
+    /** Returns the element in the table equal to a given element, or
+     * null. */
+    private ElementDef lookup(ElementDef def)
+    {
+        final WeakReference ref = (WeakReference) table.get(def);
+        return ref == null ? null : (ElementDef) ref.get();
+    }
+}
+
+// End Canonicalizer.java
@@ -0,0 +1,202 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+
+/**
+ * A <code>ChildBuilder</code> adds children to an element one at a time,
+ * for models that are built in code rather than parsed.
+ *
+ * <p>{@link XOMUtil#addChildren} replaces the element's array of children
+ * with a new, longer array every time it is called, so adding children one
+ * at a time costs time proportional to the square of their number. A
+ * builder instead collects the children in a buffer that doubles in size
+ * when it is full, and stores the children in the element, as an array of
+ * exactly the right length and type, only when {@link #finish()} is called.
+ * It decides where to store the children, using the same rules as
+ * {@link XOMUtil#addChildren}, once, when it is created:
+ *
+ * <ul>
+ * <li>the children of a {@link GenericDef} are added to it immediately,
+ *     because it stores them in a growable collection already;</li>
+ * <li>the children of an {@link Any} are set using
+ *     {@link Any#setChildren(NodeDef[])};</li>
+ * <li>the children of any other element are stored in its first public
+ *     array field.</li>
+ * </ul>
+ *
+ * <p>The builder starts with the element's existing children, so the new
+ * children follow them. Until {@link #finish()} is called, the element does
+ * not see the new children; after, the builder can be used again, and the
+ * next call to {@link #finish()} publishes all the children added so far.
+ * For example,
+ *
+ * <blockquote><pre>ChildBuilder builder = new ChildBuilder(parent);
+ * for (int i = 0; i &lt; 100000; i++) {
+ *     builder.add(new GenericDef("row"));
+ * }
+ * builder.finish();</pre></blockquote>
+ *
+ * <p>A builder is not thread-safe.
+ *
+ * @author jhyde
+ */
+public class ChildBuilder {
+    private final ElementDef parent;
+    /** Field that holds the children, or null if the parent is an
+     * {@link Any} or a {@link GenericDef}. */
+    private final Field field;
+    /** Buffer of children, whose component type is that of the array
+     * {@link #finish()} publishes; null if the parent is a
+     * {@link GenericDef}. */
+    private Object[] buffer;
+    private int size;
+
+    /**
+     * Creates a ChildBuilder.
+     *
+     * @param parent Element to add children to
+     * @throws XOMException if the element has nowhere to store children
+     */
+    public ChildBuilder(ElementDef parent) throws XOMException
+    {
+        this.parent = parent;
+        final Object[] children;
+        if (parent instanceof GenericDef) {
+            this.field = null;
+            return;
+        } else if (parent instanceof Any) {
+            this.field = null;
+            children = ((Any) parent).getChildren();
+        } else {
+            this.field = XOMUtil.getChildArrayField(parent.getClass());
+            try {
+                children = (Object[]) field.get(parent);
+            } catch (IllegalAccessException e) {
+                throw new XOMException(e, "in ChildBuilder");
+            }
+        }
+        final Class componentType;
+        if (field != null) {
+            componentType = field.getType().getComponentType();
+        } else if (children != null) {
+            componentType = children.getClass().getComponentType();
+        } else {
+            componentType = NodeDef.class;
+        }
+        this.size = children == null ? 0 : children.length;
+        this.buffer =
+            (Object[]) Array.newInstance(componentType, Math.max(size, 8));
+        if (size > 0) {
+            System.arraycopy(children, 0, buffer, 0, size);
+        }
+    }
+
+    /**
+     * Adds a child.
+     *
+     * @param child Child
+     * @throws ArrayStoreException if the element cannot hold a child of
+     *   this type
+     */
+    public void add(NodeDef child)
+    {
+        if (buffer == null) {
+            ((GenericDef) parent).addChild(child);
+            return;
+        }
+        if (size == buffer.length) {
+            grow(size + 1);
+        }
+        buffer[size++] = child;
+    }
+
+    /**
+     * Adds several children.
+     *
+     * @param children Children
+     * @throws ArrayStoreException if the element cannot hold a child of
+     *   one of these types
+     */
+    public void addAll(NodeDef[] children)
+    {
+        if (buffer == null) {
+            for (int i = 0; i < children.length; i++) {
+                ((GenericDef) parent).addChild(children[i]);
+            }
+            return;
+        }
+        if (size + children.length > buffer.length) {
+            grow(size + children.length);
+        }
+        System.arraycopy(children, 0, buffer, size, children.length);
+        size += children.length;
+    }
+
+    /**
+     * Returns the number of children the element will have after
+     * {@link #finish()}; for a {@link GenericDef}, the number it has now.
+     */
+    public int size()
+    {
+        return buffer == null
+            ? parent.getChildCount()
+            : size;
+    }
+
+    /**
+     * Stores the children in the element.
+     *
+     * @return The element's children
+     * @throws XOMException if the children cannot be stored
+     */
+    public NodeDef[] finish() throws XOMException
+    {
+        if (buffer == null) {
+            return parent.getChildren();
+        }
+        final NodeDef[] children = (NodeDef[]) Array.newInstance(
+            buffer.getClass().getComponentType(), size);
+        System.arraycopy(buffer, 0, children, 0, size);
+        if (field == null) {
+            ((Any) parent).setChildren(children);
+        } else {
+            try {
+                field.set(parent, children);
+            } catch (IllegalAccessException e) {
+                throw new XOMException(e, "in ChildBuilder.finish");
+            }
+        }
+        return children;
+    }
+
+    /** Enlarges the buffer to hold at least <code>minCapacity</code>
+     * children, at least doubling its size. */
+    private void grow(int minCapacity)
+    {
+        final Object[] newBuffer = (Object[]) Array.newInstance(
+            buffer.getClass().getComponentType(),
+            Math.max(minCapacity, buffer.length * 2));
+        System.arraycopy(buffer, 0, newBuffer, 0, size);
+        buffer = newBuffer;
+    }
+}
+
+// End ChildBuilder.java
@@ -17,11 +17,11 @@
 */
 package org.eigenbase.xom;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DOMElementParser is a utility wrapper around DOMWrapper.
@@ -30,6 +30,32 @@ import java.util.Vector;
  */
 public class DOMElementParser {
 
+    /** Plugin classes registered by
+     * {@link #registerPluginClass(String, String, Class)}, by the full name
+     * of their manager class. */
+    private static final ConcurrentHashMap/*<String, Class>*/
+        registeredPluginClasses = new ConcurrentHashMap();
+
+    /** Manager classes found by {@link #getPluginClass(String, String)},
+     * by full name. Names are always resolved by this class's loader, so
+     * one map suffices. */
+    private static final ConcurrentHashMap/*<String, Class>*/
+        pluginManagerClasses = new ConcurrentHashMap();
+
+    /** Plugin class of each manager class. Keyed by class, so a plugin
+     * loaded by another class loader is released with its loader. */
+    private static final ClassValue/*<Class>*/ pluginClasses =
+        new ClassValue() {
+            protected Object computeValue(Class managerClass) {
+                try {
+                    return findPluginClass(managerClass);
+                } catch (XOMException e) {
+                    // Not cached; the next call will try again.
+                    throw new PluginLookupException(e);
+                }
+            }
+        };
+
     private DOMWrapper wrapper;
     private DOMWrapper[] children;
     private int currentIndex;
@@ -38,6 +64,9 @@ public class DOMElementParser {
     private int optionIndex;
     private String prefix;
     private Class enclosure;
+    /** Whether the document is trusted to be valid; see
+     * {@link BindingContext#setTrusted(boolean)}. */
+    private final boolean trusted;
 
     /**
      * Constructs a new ElementParser based on an Element of the XML parse
@@ -60,6 +89,7 @@ public class DOMElementParser {
             this.prefix = "";
         }
         this.enclosure = enclosure;
+        this.trusted = BindingContext.isActiveTrusted();
     }
 
     /**
@@ -76,6 +106,23 @@ public class DOMElementParser {
         }
     }
 
+    /**
+     * Private helper function to determine if the current element has a
+     * given name, ignoring case. Compares symbols if it can, and strings
+     * only if the symbol table is full.
+     * @param namePrefix prefix of the name.
+     * @param name the name, without prefix.
+     * @return true if there is a current element and its name matches.
+     */
+    private boolean currentNameMatches(String namePrefix, String name)
+    {
+        if (currentChild == null) {
+            return false;
+        }
+        return TagSymbols.matches(
+            namePrefix, name, currentChild.getTagName());
+    }
+
     /**
      * Private helper function to verify that the next element matches a
      * specific name.
@@ -86,13 +133,15 @@ public class DOMElementParser {
     private void requiredName(String name)
         throws XOMException
     {
-        String augName = prefix + name;
+        if (trusted && currentChild != null) {
+            return;
+        }
         if (currentChild == null) {
             throw new XOMException(
-                "Expected <" + augName + "> but found " + "nothing.");
-        } else if (!augName.equalsIgnoreCase(currentChild.getTagName())) {
+                "Expected <" + prefix + name + "> but found " + "nothing.");
+        } else if (!currentNameMatches(prefix, name)) {
             throw new XOMException(
-                "Expected <" + augName + "> but found <"
+                "Expected <" + prefix + name + "> but found <"
                     + currentChild.getTagName() + ">");
         }
     }
@@ -106,14 +155,7 @@ public class DOMElementParser {
      */
     private boolean optionalName(String name)
     {
-        String augName = prefix + name;
-        if (currentChild == null) {
-            return false;
-        } else if (augName.equalsIgnoreCase(currentChild.getTagName())) {
-            return true;
-        } else {
-            return false;
-        }
+        return currentNameMatches(prefix, name);
     }
 
     /**
@@ -124,19 +166,7 @@ public class DOMElementParser {
     {
         // Instead of using a fixed enclosure, derive it from the given Class.
         // If we can't figure it out, just use the given enclosure instead.
-        Class thisEnclosure = enclosure;
-        String className = clazz.getName();
-        int dollarPos = className.indexOf('$');
-        if (dollarPos >= 0) {
-            String encName = className.substring(0, dollarPos);
-            try {
-                thisEnclosure = Class.forName(encName);
-            } catch (ClassNotFoundException ex) {
-                throw new AssertFailure("Enclosure class " + encName
-                                 + " not found.");
-            }
-        }
-        return thisEnclosure;
+        return BindingRegistry.getEnclosure(clazz, enclosure);
     }
 
     /**
@@ -151,10 +181,20 @@ public class DOMElementParser {
      */
     private boolean nameMatchesClass(Class clazz)
         throws XOMException
+    {
+        return nameMatchesClass(clazz, getEnclosureClass(clazz));
+    }
+
+    /**
+     * Private helper function to determine if the next element's
+     * corresponding definition class, in a given enclosure class, is a
+     * subclass of the given class.
+     */
+    private boolean nameMatchesClass(Class clazz, Class thisEnclosure)
+        throws XOMException
     {
         // Get the next name.  It must start with the set prefix, and it must
         // match a definition in the enclosure class.
-        Class thisEnclosure = getEnclosureClass(clazz);
         Class nextClass = ElementDef.getElementClass(currentChild,
                                                      thisEnclosure,
                                                      prefix);
@@ -280,9 +320,7 @@ public class DOMElementParser {
                                       + " but found nothing.");
         } else {
             for (int i = 0; i < elementNames.length; i++) {
-                String augName = "DM" + elementNames[i];
-                if (augName.equalsIgnoreCase(
-                    currentChild.getTagName().toString())) {
+                if (currentNameMatches("DM", elementNames[i])) {
                     DOMWrapper prevWrapper = currentChild;
                     getNextElement();
                     optionIndex = i;
@@ -308,22 +346,18 @@ public class DOMElementParser {
         throws XOMException
     {
         // The name must match the class.
-        if (!nameMatchesClass(classTemplate)) {
+        if (!trusted && !nameMatchesClass(classTemplate)) {
             throw new XOMException("element <" + currentChild.getTagName()
                                       + "> does not match expected class "
                                       + classTemplate.getName());
         }
 
-        // Get the class corresponding to the current tag
-        Class currentClass = ElementDef.getElementClass(currentChild,
-                                                        enclosure, prefix);
-
         // Get the element
         DOMWrapper prevWrapper = currentChild;
         getNextElement();
 
-        // Construct an ElementDef of the correct class from the element
-        return ElementDef.constructElement(prevWrapper, currentClass);
+        // Construct an ElementDef of the class corresponding to the tag
+        return ElementDef.constructElement(prevWrapper, enclosure, prefix);
     }
 
     /**
@@ -528,22 +562,14 @@ public class DOMElementParser {
     {
         // First, read the appropriate elements into a vector.
         Vector vec = new Vector();
-        String augName = "DM" + elemName;
-        while (currentChild != null &&
-              augName.equalsIgnoreCase(currentChild.getTagName())) {
+        while (currentNameMatches("DM", elemName)) {
             vec.addElement(currentChild);
             getNextElement();
         }
 
         // Now, check for size violations
-        if (min > 0 && vec.size() < min) {
-            throw new XOMException("Expecting at least " + min + " <"
-                                      + elemName + "> but found " + vec.size());
-        }
-        if (max > 0 && vec.size() > max) {
-            throw new XOMException("Expecting at most " + max + " <"
-                                      + elemName + "> but found " +
-                                      vec.size());
+        if (!trusted) {
+            checkCount(elemName, vec.size(), min, max);
         }
 
         // Finally, convert to an array and return.
@@ -577,32 +603,21 @@ public class DOMElementParser {
         // First, read the appropriate elements into a vector.
         Vector vec = new Vector();
         while (currentChild != null &&
-              nameMatchesClass(elemClass)) {
+              nameMatchesClass(elemClass, thisEnclosure)) {
             vec.addElement(currentChild);
             getNextElement();
         }
 
         // Now, check for size violations
-        if (min > 0 && vec.size() < min) {
-            throw new XOMException("Expecting at least " + min + " <"
-                                      + elemClass.getName()
-                                      + "> but found " + vec.size());
-        }
-        if (max > 0 && vec.size() > max) {
-            throw new XOMException("Expecting at most " + max + " <"
-                                      + elemClass.getName()
-                                      + "> but found " +
-                                      vec.size());
+        if (!trusted) {
+            checkCount(elemClass.getName(), vec.size(), min, max);
         }
 
         // Finally, convert to an array and return.
-        NodeDef[] retval = new NodeDef[vec.size()];
-        for (int i = 0; i < retval.length; i++) {
-            retval[i] =
-                ElementDef.constructElement((DOMWrapper)(vec.elementAt(i)),
-                                            thisEnclosure, prefix);
-        }
-        return retval;
+        DOMWrapper[] wrappers = new DOMWrapper[vec.size()];
+        vec.copyInto(wrappers);
+        return BindingContext.constructAll(
+            wrappers, thisEnclosure, prefix, new NodeDef[wrappers.length]);
     }
 
     /**
@@ -629,8 +644,17 @@ public class DOMElementParser {
             return null;
         }
 
-        // Check if the name matches the class
-        if (!nameMatchesClass(elementClass)) {
+        // Construct the class corresponding to the current tag.  This will
+        // be equal to elementClass if the current content was declared
+        // using an Element, but not if the current content was declared
+        // using a Class.
+        Class thisEnclosure = getEnclosureClass(elementClass);
+
+        // Check if the name matches the class. A required element of a
+        // trusted document must be the current one.
+        if (!(trusted && required)
+            && !nameMatchesClass(elementClass, thisEnclosure))
+        {
             if (required) {
                 throw new XOMException("element <" + currentChild.getTagName()
                                           + "> is not of expected type "
@@ -640,22 +664,12 @@ public class DOMElementParser {
             }
         }
 
-
-
-        // Get the class corresponding to the current tag.  This will be
-        // equal to elementClass if the current content was declared using
-        // an Element, but not if the current content was declared using
-        // a Class.
-        Class thisEnclosure = getEnclosureClass(elementClass);
-        Class currentClass = ElementDef.getElementClass(currentChild,
-                                                        thisEnclosure, prefix);
-
         // Get the element
         DOMWrapper prevChild = currentChild;
         getNextElement();
 
         // Construct an ElementDef of the correct class from the element
-        return ElementDef.constructElement(prevChild, currentClass);
+        return ElementDef.constructElement(prevChild, thisEnclosure, prefix);
     }
 
     /**
@@ -724,22 +738,14 @@ public class DOMElementParser {
     {
         // First, read the appropriate elements into a vector.
         Vector vec = new Vector();
-        String augName = prefix + elemName;
-        while (currentChild != null &&
-              augName.equalsIgnoreCase(currentChild.getTagName().toString())) {
+        while (currentNameMatches(prefix, elemName)) {
             vec.addElement(currentChild);
             getNextElement();
         }
 
         // Now, check for size violations
-        if (min > 0 && vec.size() < min) {
-            throw new XOMException("Expecting at least " + min + " <"
-                                      + elemName + "> but found " + vec.size());
-        }
-        if (max > 0 && vec.size() > max) {
-            throw new XOMException("Expecting at most " + max + " <"
-                                      + elemName + "> but found " +
-                                      vec.size());
+        if (!trusted) {
+            checkCount(elemName, vec.size(), min, max);
         }
 
         // Finally, convert to an array, retrieve the text from each
@@ -752,7 +758,7 @@ public class DOMElementParser {
     }
 
     // Determine if a String is present anywhere in a given array.
-    private boolean stringInArray(String str, String[] array)
+    private static boolean stringInArray(String str, String[] array)
     {
         for (int i = 0; i < array.length; i++) {
             if (str.equals(array[i])) {
@@ -763,7 +769,7 @@ public class DOMElementParser {
     }
 
     // Convert an array of Strings into a single String for display.
-    private String arrayToString(String[] array)
+    private static String arrayToString(String[] array)
     {
         StringBuffer sbuf = new StringBuffer();
         sbuf.append("{");
@@ -782,6 +788,8 @@ public class DOMElementParser {
      * directly by a Java package and Java class name, or indirectly
      * by a Java package and Java class which defines a method called
      * getXMLDefClass() to return the appropriate class.
+     * Classes registered by {@link #registerPluginClass} are returned
+     * directly; other results are cached.
      * @param packageName the name of the Java package containing the
      * plugin class.
      * @param className the name of the plugin definition class.
@@ -792,27 +800,87 @@ public class DOMElementParser {
                                        String className)
         throws XOMException
     {
-        Class managerClass = null;
-        try {
-            managerClass = Class.forName(packageName + "." + className);
-        } catch (ClassNotFoundException ex) {
-            throw new XOMException("Unable to locate plugin class "
-                                      + packageName + "."
-                                      + className + ": "
-                                      + ex.getMessage());
+        final String name = packageName + "." + className;
+        final Class registered = (Class) registeredPluginClasses.get(name);
+        if (registered != null) {
+            return registered;
+        }
+        Class managerClass = (Class) pluginManagerClasses.get(name);
+        if (managerClass == null) {
+            try {
+                managerClass = Class.forName(name);
+            } catch (ClassNotFoundException ex) {
+                throw new XOMException("Unable to locate plugin class "
+                                          + packageName + "."
+                                          + className + ": "
+                                          + ex.getMessage());
+            }
+            pluginManagerClasses.put(name, managerClass);
         }
 
         return getPluginClass(managerClass);
     }
 
+    /**
+     * Registers the plugin class of a manager class, so that
+     * {@link #getPluginClass(String, String)} returns it without loading
+     * the manager class or calling its <code>getXMLDefClass()</code>
+     * method.
+     *
+     * <p>A registration holds the plugin class, and therefore its class
+     * loader, until it is removed by
+     * {@link #unregisterPluginClass(String, String)}.
+     *
+     * @param packageName the name of the Java package containing the
+     * manager class.
+     * @param className the name of the manager class.
+     * @param pluginClass the plugin class; the enclosure of the plugin's
+     * element classes.
+     */
+    public static void registerPluginClass(String packageName,
+                                           String className,
+                                           Class pluginClass)
+    {
+        registeredPluginClasses.put(
+            packageName + "." + className, pluginClass);
+    }
+
+    /**
+     * Removes a registration made by
+     * {@link #registerPluginClass(String, String, Class)}.
+     *
+     * @param packageName the name of the Java package containing the
+     * manager class.
+     * @param className the name of the manager class.
+     */
+    public static void unregisterPluginClass(String packageName,
+                                             String className)
+    {
+        registeredPluginClasses.remove(packageName + "." + className);
+    }
+
     /**
      * Get a Class object representing a plugin class, given a manager
      * class that implements the static method getXMLDefClass().
+     * The result is cached for each manager class.
      * @param managerClass any Class that implements getXMLDefClass.
      * @return the plugin Class.
      */
     public static Class getPluginClass(Class managerClass)
         throws XOMException
+    {
+        try {
+            return (Class) pluginClasses.get(managerClass);
+        } catch (PluginLookupException e) {
+            throw e.cause;
+        }
+    }
+
+    /**
+     * Calls the getXMLDefClass() method of a manager class.
+     */
+    private static Class findPluginClass(Class managerClass)
+        throws XOMException
     {
         // Look for a static method called getXMLDefClass which returns
         // type Class.  If we find this method, call it to produce the
@@ -852,6 +920,18 @@ public class DOMElementParser {
                                   + "getXMLDefClass() is not defined.");
     }
 
+    /**
+     * Carries an error out of {@link #pluginClasses}, whose compute method
+     * cannot throw checked exceptions.
+     */
+    private static class PluginLookupException extends RuntimeException {
+        private final XOMException cause;
+
+        PluginLookupException(XOMException cause) {
+            this.cause = cause;
+        }
+    }
+
     /**
      * Retrieve an Attribute from the parser.  The Attribute may be of any
      * Java class, provided that the class supports a constructor from the
@@ -882,82 +962,153 @@ public class DOMElementParser {
                                boolean required)
         throws XOMException
     {
-        // Retrieve the attribute type class
-        if (attrType.indexOf('.') == -1) {
-            attrType = "java.lang." + attrType;
-        }
-        Class typeClass = null;
-        try {
-            typeClass = Class.forName(attrType);
-        } catch (ClassNotFoundException ex) {
-            throw new XOMException("Class could not be found for attribute "
-                                      + "type: " + attrType + ": "
-                                      + ex.getMessage());
-        }
-
-        // Get a constructor from the type class which takes a String as
-        // input.  If one does not exist, throw an exception.
-        Class[] classArray = new Class[1];
-        classArray[0] = java.lang.String.class;
-        Constructor stringConstructor = null;
-        try {
-            stringConstructor = typeClass.getConstructor(classArray);
-        } catch (NoSuchMethodException ex) {
-            throw new XOMException("Attribute type class " +
-                                      attrType + " does not have a "
-                                      + "constructor which takes a String: "
-                                      + ex.getMessage());
-        }
+        return getAttribute(
+            attrName, AttributeConverters.get(attrType), defaultValue,
+            values, required);
+    }
 
+    /**
+     * Retrieves an Attribute from the parser, converting it with a given
+     * converter. Generated code calls this method, with a converter that
+     * each class looks up once, rather than
+     * {@link #getAttribute(String, String, String, String[], boolean)},
+     * which looks up the converter each time.
+     *
+     * @param attrName the name of the attribute to retrieve.
+     * @param converter converts the attribute's value from a String.
+     * @param defaultValue the default value for this attribute, or null.
+     * @param values an array of possible values for the attribute, or
+     * null.
+     * @param required if set, then this function will throw an exception
+     * if the attribute has no value and defaultValue is null.
+     * @return the Attribute's value, as converted.
+     */
+    public Object getAttribute(String attrName, AttributeConverter converter,
+                               String defaultValue, String[] values,
+                               boolean required)
+        throws XOMException
+    {
         // Get the Attribute of the given name
-        Object attrVal = wrapper.getAttribute(attrName);
+        String attrVal = wrapper.getAttribute(attrName);
         if (attrVal == null) {
             attrVal = defaultValue;
         }
         // Check for null
         if (attrVal == null) {
-            if (required) {
-                throw new XOMException(
-                    "Attribute '" + attrName +
-                    "' is unset and has no default value.");
-            } else {
+            checkUnset(attrName, required);
+            return null;
+        }
+
+        // Make sure it is on the list of acceptable values
+        if (!trusted) {
+            checkValue(attrName, attrVal, values);
+        }
+
+        return converter.convert(attrVal);
+    }
+
+    /**
+     * Checks the value of an attribute of an element that is being built in
+     * code, rather than parsed, using the same rules as
+     * {@link #getAttribute(String, AttributeConverter, String, String[],
+     * boolean)}. Generated builders call this method.
+     *
+     * @param attrName the name of the attribute.
+     * @param value the value that has been set, or null.
+     * @param converter converts the default value from a String.
+     * @param defaultValue the default value for this attribute, or null.
+     * @param values an array of possible values for the attribute, or
+     * null.
+     * @param required if set, then this function will throw an exception
+     * if the attribute has no value and defaultValue is null.
+     * @return the value, or the converted default value if the value is
+     * null.
+     */
+    public static Object checkAttribute(
+        String attrName, Object value, AttributeConverter converter,
+        String defaultValue, String[] values, boolean required)
+        throws XOMException
+    {
+        if (value == null) {
+            if (defaultValue == null) {
+                checkUnset(attrName, required);
                 return null;
             }
+            checkValue(attrName, defaultValue, values);
+            return converter.convert(defaultValue);
         }
+        checkValue(attrName, value.toString(), values);
+        return value;
+    }
 
-        // Make sure it is on the list of acceptable values
+    /**
+     * Checks that a required element of an element that is being built in
+     * code has been set. Generated builders call this method.
+     *
+     * @param elemName the name of the element's type.
+     * @param value the element, or null.
+     * @return the element.
+     */
+    public static Object checkRequired(String elemName, Object value)
+        throws XOMException
+    {
+        if (value == null) {
+            throw new XOMException(
+                "Expected <" + elemName + "> but found nothing.");
+        }
+        return value;
+    }
+
+    /**
+     * Checks that an array of an element that is being built in code has an
+     * allowable number of elements, using the same rules as
+     * {@link #getArray(Class, int, int)}. Generated builders call this
+     * method.
+     *
+     * @param elemName the name of the elements' type.
+     * @param count the number of elements.
+     * @param min the minimum number of elements, or 0.
+     * @param max the maximum number of elements, or 0 for no limit.
+     */
+    public static void checkCount(String elemName, int count, int min, int max)
+        throws XOMException
+    {
+        if (min > 0 && count < min) {
+            throw new XOMException("Expecting at least " + min + " <"
+                                      + elemName + "> but found " + count);
+        }
+        if (max > 0 && count > max) {
+            throw new XOMException("Expecting at most " + max + " <"
+                                      + elemName + "> but found " + count);
+        }
+    }
+
+    // Throw if an attribute that has no value is required.
+    private static void checkUnset(String attrName, boolean required)
+        throws XOMException
+    {
+        if (required) {
+            throw new XOMException(
+                "Attribute '" + attrName +
+                "' is unset and has no default value.");
+        }
+    }
+
+    // Throw if an attribute's value is not on the list of acceptable values.
+    private static void checkValue(
+        String attrName, String attrVal, String[] values)
+        throws XOMException
+    {
         if (values != null) {
-            if (!stringInArray(attrVal.toString(), values)) {
+            if (!stringInArray(attrVal, values)) {
                 throw new XOMException(
-                    "Value '" + attrVal.toString()
+                    "Value '" + attrVal
                         + "' of attribute '"
                         + attrName + "' has illegal value '"
                         + attrVal + "'.  Legal values: "
                         + arrayToString(values));
             }
         }
-
-        // Invoke the constructor to get the final object
-        Object[] args = new Object[1];
-        args[0] = attrVal.toString();
-        try {
-            return stringConstructor.newInstance(args);
-        } catch (InstantiationException ex) {
-            throw new XOMException(
-                "Unable to construct a " + attrType
-                    + " from value \"" + attrVal + "\": "
-                    + ex.getMessage());
-        } catch (InvocationTargetException ex) {
-            throw new XOMException(
-                "Unable to construct a " + attrType
-                    + " from value \"" + attrVal + "\": "
-                    + ex.getMessage());
-        } catch (IllegalAccessException ex) {
-            throw new XOMException(
-                "Unable to construct a " + attrType
-                    + " from value \"" + attrVal + "\": "
-                    + ex.getMessage());
-        }
     }
 }
 
@@ -18,9 +18,11 @@
 package org.eigenbase.xom;
 
 import java.io.*;
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.util.*;
 
 /**
@@ -29,6 +31,11 @@ import java.util.*;
  */
 public abstract class ElementDef implements NodeDef, Serializable, Cloneable
 {
+    /** Whether this element and its descendants have been frozen; see
+     * {@link #freeze()}. */
+    private transient boolean frozen;
+    /** Hash code of a frozen element, or 0 if it has not been computed. */
+    private transient int hash;
 
     /**
      * getElementClass is a static helper function which finds the XMLDef class
@@ -66,19 +73,11 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
                 + tag + " is invalid.");
         }
 
-        // Remove the prefix and look for the name in the _elements field
-        // of the enclosure class.  Note that the lookup is case-sensitive
+        // Remove the prefix and look for the name among the classes of the
+        // enclosure class.  Note that the lookup is case-sensitive
         // even though XML tags are not.
-        String className = tag.substring(prefix.length(), tag.length());
-        className = XOMUtil.capitalize(className);
-        Class elemClass = null;
-        try {
-            elemClass = Class.forName(enclosure.getName() + "$"
-                                      + className);
-        } catch (ClassNotFoundException ex) {
-            return null;
-        }
-        return elemClass;
+        return BindingRegistry.of(enclosure).getElementClass(
+            tag.substring(prefix.length(), tag.length()));
     }
 
     /**
@@ -87,6 +86,10 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
      * an Element and a Class object specifying the exact class to use in
      * constructing the element.
      *
+     * <p>If the element has already been bound by the
+     * {@link BindingContext} of a parse in progress, returns its
+     * definition.
+     *
      * @param wrapper the DOM Element wrapper from which to build this class.
      * @param elemClass the Class to use to construct this class.  It must have
      * a constructor which takes the Element type.
@@ -99,54 +102,14 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
                                            Class elemClass)
         throws XOMException
     {
-        // Find a constructor of this class which takes an "Element" object
-        Constructor[] constructors = elemClass.getDeclaredConstructors();
-        Constructor elemConstructor = null;
-        for (int i = 0; i < constructors.length; i++) {
-            Class[] params = constructors[i].getParameterTypes();
-            if (params.length == 1 && params[0] == DOMWrapper.class) {
-                elemConstructor = constructors[i];
-                break;
-            }
-        }
-        if (elemConstructor == null) {
-            throw new XOMException(
-                "No constructor taking class DOMWrapper "
-                    + "could be found in class "
-                    + elemClass.getName());
+        // If the element was bound while it was being parsed, use that.
+        final NodeDef bound = BindingContext.take(wrapper, elemClass);
+        if (bound != null) {
+            return bound;
         }
 
-        // Call the constructor to instantiate the object
-        Object[] args = new Object[1];
-        args[0] = wrapper;
-        try {
-            return (ElementDef)(elemConstructor.newInstance(args));
-        } catch (InstantiationException ex) {
-            throw new XOMException("Unable to instantiate object of class "
-                                      + elemClass.getName() + ": "
-                                      + ex.getMessage());
-        } catch (InvocationTargetException ex) {
-            // the Element constructor can only throw XOMException or
-            // RuntimeException or Error, so cast to whichever type is appropriate
-            // and throw here.
-            Throwable target = ex.getTargetException();
-            if (target instanceof XOMException) {
-                throw (XOMException) target;
-            } else if (target instanceof RuntimeException) {
-                throw (RuntimeException) target;
-            } else if (target instanceof Error) {
-                throw (Error) target;
-            } else {
-                throw new XOMException(
-                    "Unexpected exception while "
-                        + "instantiating object: "
-                        + target.toString());
-            }
-        } catch (IllegalAccessException ex) {
-            throw new XOMException("Unable to instantiate object of class "
-                                      + elemClass.getName() + ": "
-                                      + ex.getMessage());
-        }
+        final ElementDef def = BindingRegistry.construct(elemClass, wrapper);
+        return BindingContext.constructed(wrapper, def);
     }
 
     /**
@@ -168,6 +131,21 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
     {
         switch (wrapper.getType()) {
         case DOMWrapper.ELEMENT:
+            if (enclosure != null) {
+                // If the element was bound while it was being parsed, use
+                // that. Otherwise the generated factory, if there is one,
+                // calls the constructor directly.
+                final NodeDef bound =
+                    BindingContext.take(wrapper, ElementDef.class);
+                if (bound != null) {
+                    return bound;
+                }
+                final ElementDef def =
+                    BindingRegistry.of(enclosure).construct(wrapper, prefix);
+                if (def != null) {
+                    return BindingContext.constructed(wrapper, def);
+                }
+            }
             Class elemClass = getElementClass(wrapper, enclosure, prefix);
             if (elemClass == null) {
                 if (true) {
@@ -754,6 +732,10 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
      * The diff function compares this element against another, determining if
      * they are exactly equal.  If so, the function returns null.  If not,
      * it returns a String describing the differences.
+     *
+     * <p>To get the differences in a form that a program can use, such as
+     * the elements inserted into and deleted from each array, use a
+     * {@link TreeDiff}.
      */
     public String diff(ElementDef other)
     {
@@ -771,26 +753,280 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
      * Determines if this ElementDef is equal to other (deeply), returning true
      * if the two are equal.
      * @return true if this equals other, false if not.
-     * @throws ClassCastException if other is not an ElementDef.
      */
     public boolean equals(Object other)
     {
         try {
-            return displayDiff((ElementDef)other, null, 0);
+            return structurallyEquals((ElementDef)other);
         } catch (ClassCastException ex) {
             return false;
         }
     }
 
     /**
-     * Returns a unique hash of this instance.
-     * @return hash of the toXML() return value
+     * Determines if this ElementDef is equal to other (deeply). Returns the
+     * same result as {@link #displayDiff(ElementDef, PrintWriter, int)}
+     * would, but generated classes override this method to stop at the
+     * first difference and to allocate nothing; <code>displayDiff</code> is
+     * for reporting differences.
+     * @param other the ElementDef to which to compare this element.
+     * @return true if this equals other, false if not.
+     */
+    public boolean structurallyEquals(ElementDef other)
+    {
+        return displayDiff(other, null, 0);
+    }
+
+    /**
+     * Returns a hash of this instance, consistent with {@link #equals}.
+     *
+     * <p>If the element has been {@link #freeze() frozen}, the hash is
+     * computed once and cached; otherwise it is computed on each call.
+     * @return hash computed by {@link #computeHashCode()}
      */
     public int hashCode()
+    {
+        if (!frozen) {
+            return computeHashCode();
+        }
+        // Benign race: several threads may compute the same hash.
+        int h = hash;
+        if (h == 0) {
+            h = computeHashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Computes the hash of this instance. Generated classes override this
+     * method to combine the hashes of the fields that
+     * {@link #displayDiff(ElementDef, PrintWriter, int)} compares, using
+     * {@link #hashAttribute(Object)} and its siblings.
+     * @return hash of the toXML() return value
+     */
+    protected int computeHashCode()
     {
         return this.toXML().hashCode();
     }
 
+    /**
+     * Marks this element and its descendants as frozen, promising that none
+     * of them will be modified again. A frozen element caches its hash
+     * code. Freezing is not undone by any method; a copy made by
+     * {@link #deepCopy()} is not frozen.
+     */
+    public void freeze()
+    {
+        if (frozen) {
+            return;
+        }
+        final NodeDef[] children = getChildren();
+        if (children != null) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] instanceof ElementDef) {
+                    ((ElementDef) children[i]).freeze();
+                }
+            }
+        }
+        frozen = true;
+    }
+
+    /**
+     * Replaces each child of this element that is an {@link ElementDef}
+     * with its canonical equivalent, by calling
+     * {@link Canonicalizer#canonicalize(ElementDef)}. Arrays of children are
+     * modified in place.
+     *
+     * <p>This implementation sets the fields that hold children, which it
+     * finds by reflection once per class.
+     */
+    void canonicalizeChildren(Canonicalizer canonicalizer)
+    {
+        final Field[] fields = fields().children;
+        for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            try {
+                if (field.getType().isArray()) {
+                    NodeDef[] nodes = (NodeDef[]) field.get(this);
+                    if (nodes != null) {
+                        for (int j = 0; j < nodes.length; j++) {
+                            if (nodes[j] instanceof ElementDef) {
+                                nodes[j] = canonicalizer.canonicalize(
+                                    (ElementDef) nodes[j]);
+                            }
+                        }
+                    }
+                } else {
+                    Object node = field.get(this);
+                    if (node instanceof ElementDef) {
+                        field.set(
+                            this,
+                            canonicalizer.canonicalize((ElementDef) node));
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(
+                    "Error while accessing field '" + field + "'", e);
+            }
+        }
+    }
+
+    /**
+     * Returns whether this element has been frozen.
+     * @return whether {@link #freeze()} has been called on this element or
+     * an ancestor
+     */
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    /**
+     * Returns whether two attribute values are equal, as
+     * {@link #displayAttributeDiff} decides.
+     */
+    protected static boolean attributeEquals(Object value1, Object value2)
+    {
+        if (value1 == null || value2 == null) {
+            return value1 == value2;
+        }
+        return value1.getClass() == value2.getClass()
+            && value1.equals(value2);
+    }
+
+    /**
+     * Returns whether two strings are equal, as {@link #displayStringDiff}
+     * decides.
+     */
+    protected static boolean stringEquals(String value1, String value2)
+    {
+        return value1 == null ? value2 == null : value1.equals(value2);
+    }
+
+    /**
+     * Returns whether two elements are equal, as
+     * {@link #displayElementDiff} decides. An element equals itself, so
+     * comparing trees whose subtrees have been shared by a
+     * {@link Canonicalizer} does not descend into the shared subtrees.
+     */
+    protected static boolean elementEquals(NodeDef value1, NodeDef value2)
+    {
+        if (value1 == value2) {
+            return true;
+        }
+        if (value1 == null || value2 == null) {
+            return false;
+        }
+        return value1.getClass() == value2.getClass()
+            && ((ElementDef) value1).structurallyEquals((ElementDef) value2);
+    }
+
+    /**
+     * Returns whether two arrays of elements are equal, as
+     * {@link #displayElementArrayDiff} decides; a null array equals an empty
+     * one.
+     */
+    protected static boolean elementArrayEquals(
+        NodeDef[] values1,
+        NodeDef[] values2)
+    {
+        if (values1 == values2) {
+            return true;
+        }
+        final int length1 = values1 == null ? 0 : values1.length;
+        final int length2 = values2 == null ? 0 : values2.length;
+        if (length1 != length2) {
+            return false;
+        }
+        for (int i = 0; i < length1; i++) {
+            if (!elementEquals(values1[i], values2[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether two arrays of strings are equal, as
+     * {@link #displayStringArrayDiff} decides; a null array, which that
+     * method does not allow, equals an empty one.
+     */
+    protected static boolean stringArrayEquals(
+        String[] values1,
+        String[] values2)
+    {
+        final int length1 = values1 == null ? 0 : values1.length;
+        final int length2 = values2 == null ? 0 : values2.length;
+        if (length1 != length2) {
+            return false;
+        }
+        for (int i = 0; i < length1; i++) {
+            if (!stringEquals(values1[i], values2[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash of an attribute value, consistent with
+     * {@link #displayAttributeDiff}.
+     */
+    protected static int hashAttribute(Object value)
+    {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    /**
+     * Returns the hash of a string, consistent with
+     * {@link #displayStringDiff}.
+     */
+    protected static int hashString(String value)
+    {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    /**
+     * Returns the hash of an element, consistent with
+     * {@link #displayElementDiff}.
+     */
+    protected static int hashElement(NodeDef value)
+    {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    /**
+     * Returns the hash of an array of elements, consistent with
+     * {@link #displayElementArrayDiff}; a null array has the same hash as
+     * an empty one.
+     */
+    protected static int hashElementArray(NodeDef[] values)
+    {
+        int h = 1;
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                h = 31 * h + hashElement(values[i]);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns the hash of an array of strings, consistent with
+     * {@link #displayStringArrayDiff}.
+     */
+    protected static int hashStringArray(String[] values)
+    {
+        int h = 1;
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                h = 31 * h + hashString(values[i]);
+            }
+        }
+        return h;
+    }
+
     /**
      * Verifies that this ElementDef is equal to other, throwing a
      * XOMException with a lengthy explanation if equality
@@ -813,8 +1049,7 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
     }
 
     /**
-     * Clone an ElementDef.  Because all ElementDefs are serializable, we can
-     * clone through a memory buffer.
+     * Clone an ElementDef. Returns a deep copy, made by {@link #deepCopy()}.
      */
     protected Object clone()
         throws CloneNotSupportedException
@@ -830,20 +1065,165 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
 
     /**
      * Public version of clone(); returns a deep copy of this ElementDef.
+     *
+     * <p>The copy has new elements, text nodes and arrays, but shares
+     * immutable values such as strings, numbers and enums, and shares the
+     * DOM wrapper and location of each element, which are never modified.
+     * The copy is not frozen.
+     *
+     * <p>Generated classes override this method to copy their fields
+     * directly. This implementation, used by hand-written classes, copies by
+     * reflection: it creates an instance using the class's no-argument
+     * constructor, then copies each field that is neither static nor
+     * transient. The fields of each class are found once. A class that has
+     * no no-argument constructor is copied by serialization.
      */
     public ElementDef deepCopy()
         throws XOMException
+    {
+        return (ElementDef) reflectiveCopy(this);
+    }
+
+    /**
+     * Returns a deep copy of a node, or null if the node is null.
+     * Elements are copied by calling {@link #deepCopy()}.
+     */
+    protected static NodeDef copyNode(NodeDef node)
+        throws XOMException
+    {
+        if (node == null) {
+            return null;
+        } else if (node instanceof ElementDef) {
+            return ((ElementDef) node).deepCopy();
+        } else {
+            return (NodeDef) reflectiveCopy(node);
+        }
+    }
+
+    /**
+     * Returns a deep copy of an array of nodes, or null if the array is
+     * null. The copy has the same component type as the array.
+     */
+    protected static NodeDef[] copyNodes(NodeDef[] nodes)
+        throws XOMException
+    {
+        if (nodes == null) {
+            return null;
+        }
+        final NodeDef[] copy =
+            (NodeDef[]) Array.newInstance(
+                nodes.getClass().getComponentType(), nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            copy[i] = copyNode(nodes[i]);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a copy of an array of strings, or null if the array is null.
+     * The strings themselves are shared.
+     */
+    protected static String[] copyStrings(String[] strings)
+    {
+        return strings == null ? null : (String[]) strings.clone();
+    }
+
+    /**
+     * Copies an object by reflection, using the fields found by
+     * {@link CopyFields}.
+     */
+    private static Object reflectiveCopy(Object o)
+        throws XOMException
+    {
+        final CopyFields copyFields =
+            (CopyFields) COPY_FIELDS.get(o.getClass());
+        if (copyFields.constructor == null) {
+            return serializeCopy(o);
+        }
+        final Object copy;
+        try {
+            copy = copyFields.constructor.newInstance(new Object[0]);
+            for (int i = 0; i < copyFields.fields.length; i++) {
+                final Field field = copyFields.fields[i];
+                field.set(copy, copyValue(field.get(o)));
+            }
+        } catch (InstantiationException ex) {
+            throw new XOMException(ex, "Failed to copy " + o.getClass());
+        } catch (IllegalAccessException ex) {
+            throw new XOMException(ex, "Failed to copy " + o.getClass());
+        } catch (InvocationTargetException ex) {
+            throw new XOMException(ex, "Failed to copy " + o.getClass());
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the value of a field: copies nodes and arrays, shares
+     * immutable values, and copies other values by serialization, or shares
+     * them if they are not serializable.
+     */
+    private static Object copyValue(Object value)
+        throws XOMException
+    {
+        if (value == null
+            || value instanceof String
+            || value instanceof Boolean
+            || value instanceof Character
+            || value instanceof Integer
+            || value instanceof Long
+            || value instanceof Double
+            || value instanceof Float
+            || value instanceof Short
+            || value instanceof Byte
+            || value instanceof java.math.BigDecimal
+            || value instanceof java.math.BigInteger
+            || value instanceof Enum
+            || value instanceof Class
+            || value instanceof DOMWrapper
+            || value instanceof Location)
+        {
+            return value;
+        } else if (value instanceof NodeDef) {
+            return copyNode((NodeDef) value);
+        } else if (value instanceof NodeDef[]) {
+            return copyNodes((NodeDef[]) value);
+        } else if (value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            final Class componentType = value.getClass().getComponentType();
+            final Object copy = Array.newInstance(componentType, length);
+            if (componentType.isPrimitive()
+                || componentType == String.class)
+            {
+                System.arraycopy(value, 0, copy, 0, length);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    Array.set(copy, i, copyValue(Array.get(value, i)));
+                }
+            }
+            return copy;
+        } else if (value instanceof Serializable) {
+            return serializeCopy(value);
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Copies an object by writing it to a memory buffer and reading it
+     * back.
+     */
+    private static Object serializeCopy(Object o)
+        throws XOMException
     {
         try {
             ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
             ObjectOutputStream objOut = new ObjectOutputStream(byteBuffer);
-            objOut.writeObject(this);
+            objOut.writeObject(o);
             objOut.flush();
             ByteArrayInputStream byteIn = new
                 ByteArrayInputStream(byteBuffer.toByteArray());
             ObjectInputStream objIn = new ObjectInputStream(byteIn);
-            ElementDef def = (ElementDef)(objIn.readObject());
-            return def;
+            return objIn.readObject();
         } catch (IOException ex) {
             throw new XOMException(ex, "Failed to serialize-copy ElementDef");
         } catch (ClassNotFoundException ex) {
@@ -851,14 +1231,68 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
         }
     }
 
+    /** Copyable fields of each class; see {@link CopyFields}. */
+    private static final ClassValue/*<CopyFields>*/ COPY_FIELDS =
+        new ClassValue() {
+            protected Object computeValue(Class clazz) {
+                return new CopyFields(clazz);
+            }
+        };
+
+    /**
+     * The no-argument constructor of a class, and the fields that
+     * {@link #deepCopy()} copies by reflection, found once per class.
+     */
+    private static class CopyFields
+    {
+        /** The no-argument constructor, or null if there is none. */
+        final Constructor constructor;
+        /** Fields, declared in the class or a superclass, that are neither
+         * static nor transient. */
+        final Field[] fields;
+
+        CopyFields(Class clazz)
+        {
+            Constructor constructor;
+            try {
+                constructor = clazz.getDeclaredConstructor(new Class[0]);
+                constructor.setAccessible(true);
+            } catch (NoSuchMethodException ex) {
+                constructor = null;
+            }
+            if (Modifier.isAbstract(clazz.getModifiers())) {
+                constructor = null;
+            }
+            this.constructor = constructor;
+            List fieldList = new ArrayList();
+            for (Class c = clazz; c != null && c != Object.class;
+                 c = c.getSuperclass())
+            {
+                final Field[] fields = c.getDeclaredFields();
+                for (int i = 0; i < fields.length; i++) {
+                    final int modifiers = fields[i].getModifiers();
+                    if (!Modifier.isStatic(modifiers)
+                        && !Modifier.isTransient(modifiers))
+                    {
+                        fields[i].setAccessible(true);
+                        fieldList.add(fields[i]);
+                    }
+                }
+            }
+            this.fields =
+                (Field[]) fieldList.toArray(new Field[fieldList.size()]);
+        }
+    }
+
     // implement NodeDef
     public DOMWrapper getWrapper()
     {
+        final Field field = fields().wrapper;
+        if (field == null) {
+            return null;
+        }
         try {
-            Field field = getClass().getField("_def");
             return (DOMWrapper) field.get(this);
-        } catch (NoSuchFieldException ex) {
-            return null;
         } catch (IllegalAccessException ex) {
             throw new Error(ex.toString() + " in getWrapper");
         }
@@ -868,18 +1302,15 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
     public NodeDef[] getChildren()
     {
         List childrenList = new ArrayList();
-        final Field[] fields = getClass().getFields();
+        final Field[] fields = fields().children;
         for (int i = 0; i < fields.length; i++) {
             Field field = fields[i];
             try {
-                final Class type = field.getType();
-                if (NodeDef.class.isAssignableFrom(type)) {
-                    childrenList.add((NodeDef) field.get(this));
-                } else if (type.isArray()
-                    && NodeDef.class.isAssignableFrom(
-                    type.getComponentType())) {
+                if (field.getType().isArray()) {
                     NodeDef[] nodes = (NodeDef[]) field.get(this);
                     childrenList.addAll(Arrays.asList(nodes));
+                } else {
+                    childrenList.add((NodeDef) field.get(this));
                 }
             } catch (IllegalAccessException e) {
                 throw new RuntimeException(
@@ -890,6 +1321,76 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
             (NodeDef[]) childrenList.toArray(new NodeDef[childrenList.size()]);
     }
 
+    /**
+     * Returns the number of children of this element; the length of the
+     * array that {@link #getChildren()} would return.
+     *
+     * <p>Generated classes override this method, and {@link #getChildren()}
+     * and {@link #getWrapper()}, to read their fields directly. This
+     * implementation, like theirs, uses reflection only to find the fields,
+     * once per class.
+     */
+    public int getChildCount()
+    {
+        final NodeDef[] children = getChildren();
+        return children == null ? 0 : children.length;
+    }
+
+    /**
+     * Returns the fields of this element's class that hold its wrapper and
+     * its children.
+     */
+    private ElementFields fields()
+    {
+        return (ElementFields) ELEMENT_FIELDS.get(getClass());
+    }
+
+    /** Fields of each element class; see {@link ElementFields}. */
+    private static final ClassValue/*<ElementFields>*/ ELEMENT_FIELDS =
+        new ClassValue() {
+            protected Object computeValue(Class clazz) {
+                return new ElementFields(clazz);
+            }
+        };
+
+    /**
+     * The public fields of an element class that hold its wrapper and its
+     * children, found by reflection once per class.
+     */
+    private static class ElementFields
+    {
+        /** The <code>_def</code> field, or null. */
+        final Field wrapper;
+        /** Fields of type {@link NodeDef} or an array of it, in the order
+         * that {@link Class#getFields()} returns them. */
+        final Field[] children;
+
+        ElementFields(Class clazz)
+        {
+            Field wrapper;
+            try {
+                wrapper = clazz.getField("_def");
+            } catch (NoSuchFieldException ex) {
+                wrapper = null;
+            }
+            this.wrapper = wrapper;
+            List childFields = new ArrayList();
+            final Field[] fields = clazz.getFields();
+            for (int i = 0; i < fields.length; i++) {
+                final Class type = fields[i].getType();
+                if (NodeDef.class.isAssignableFrom(type)
+                    || type.isArray()
+                    && NodeDef.class.isAssignableFrom(
+                        type.getComponentType()))
+                {
+                    childFields.add(fields[i]);
+                }
+            }
+            this.children =
+                (Field[]) childFields.toArray(new Field[childFields.size()]);
+        }
+    }
+
     public void addChild(NodeDef child) throws XOMException
     {
         XOMUtil.addChild(this, child);
@@ -938,11 +1439,8 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
         DOMWrapper _def, Class clazz, String prefix) throws XOMException
     {
         DOMWrapper[] _elts = _def.getChildren();
-        NodeDef[] children = new NodeDef[_elts.length];
-        for (int i = 0; i < _elts.length; i++) {
-            children[i] = constructElement(_elts[i], clazz, prefix);
-        }
-        return children;
+        return BindingContext.constructAll(
+            _elts, clazz, prefix, new NodeDef[_elts.length]);
     }
 
     protected static ElementDef[] getElementChildren(
@@ -950,10 +1448,7 @@ public abstract class ElementDef implements NodeDef, Serializable, Cloneable
     {
         DOMWrapper[] _elts = _def.getElementChildren();
         ElementDef[] children = new ElementDef[_elts.length];
-        for (int i = 0; i < children.length; i++) {
-            children[i] = (ElementDef) constructElement(
-                _elts[i], clazz, prefix);
-        }
+        BindingContext.constructAll(_elts, clazz, prefix, children);
         return children;
     }
 
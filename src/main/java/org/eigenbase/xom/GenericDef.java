@@ -99,6 +99,32 @@ public class GenericDef extends ElementDef {
         return a;
     }
 
+    // override ElementDef
+    public ElementDef deepCopy() throws XOMException
+    {
+        GenericDef copy = new GenericDef(tagName);
+        for (int i = 0, count = attributes.size(); i < count; i++) {
+            copy.attributes.put(attributes.keyAt(i), attributes.valueAt(i));
+        }
+        for (int i = 0, count = children.size(); i < count; i++) {
+            copy.children.addElement(
+                copyNode((NodeDef) children.elementAt(i)));
+        }
+        return copy;
+    }
+
+    // override ElementDef
+    void canonicalizeChildren(Canonicalizer canonicalizer)
+    {
+        for (int i = 0, count = children.size(); i < count; i++) {
+            Object child = children.elementAt(i);
+            if (child instanceof ElementDef) {
+                children.setElementAt(
+                    canonicalizer.canonicalize((ElementDef) child), i);
+            }
+        }
+    }
+
     public void setAttribute(String key, Object value)
     {
         attributes.put(key, value);
@@ -1,7 +1,7 @@
 /*
 // This java file was automatically generated
 // from XOM model 'meta'
-// on Tue Jul 17 18:03:43 PDT 2012
+// on Sat Oct 17 02:16:34 UTC 2026
 // Do not edit this file by hand.
 */
 
@@ -9,7 +9,7 @@ package org.eigenbase.xom;
 /**
  * This model is the XOM Meta Model.  It is the specification of the model used
  * to define new XML-based models.  It is also an instance of itself.
- * <p>This class was generated from XOM model 'meta' on Tue Jul 17 18:03:43 PDT 2012
+ * <p>This class was generated from XOM model 'meta' on Sat Oct 17 02:16:34 UTC 2026
  */
 public class MetaDef {
 
@@ -56,15 +56,15 @@ public class MetaDef {
 			try {
 				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", MetaDef.class);
 				org.eigenbase.xom.NodeDef[] _tempArray;
-				name = (String)_parser.getAttribute("name", "String", null, null, true);
-				dtdName = (String)_parser.getAttribute("dtdName", "String", null, null, false);
-				className = (String)_parser.getAttribute("className", "String", null, null, false);
-				packageName = (String)_parser.getAttribute("packageName", "String", null, null, false);
-				importName = (String)_parser.getAttribute("importName", "String", null, null, false);
-				root = (String)_parser.getAttribute("root", "String", null, null, true);
-				prefix = (String)_parser.getAttribute("prefix", "String", null, null, false);
-				version = (Double)_parser.getAttribute("version", "Double", null, null, true);
-				defaultKeepDef = (Boolean)_parser.getAttribute("defaultKeepDef", "Boolean", "false", null, false);
+				name = (String)_parser.getAttribute("name", _name_converter, null, null, true);
+				dtdName = (String)_parser.getAttribute("dtdName", _dtdName_converter, null, null, false);
+				className = (String)_parser.getAttribute("className", _className_converter, null, null, false);
+				packageName = (String)_parser.getAttribute("packageName", _packageName_converter, null, null, false);
+				importName = (String)_parser.getAttribute("importName", _importName_converter, null, null, false);
+				root = (String)_parser.getAttribute("root", _root_converter, null, null, true);
+				prefix = (String)_parser.getAttribute("prefix", _prefix_converter, null, null, false);
+				version = (Double)_parser.getAttribute("version", _version_converter, null, null, true);
+				defaultKeepDef = (Boolean)_parser.getAttribute("defaultKeepDef", _defaultKeepDef_converter, "false", null, false);
 				doc = _parser.getString(Doc, false);
 				_tempArray = _parser.getArray(Definition.class, 1, 0);
 				elements = new Definition[_tempArray.length];
@@ -75,14 +75,41 @@ public class MetaDef {
 			}
 		}
 
+		/** Converter for {@link #name}. */
+		public static final org.eigenbase.xom.AttributeConverter _name_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String name;  // required attribute
+		/** Converter for {@link #dtdName}. */
+		public static final org.eigenbase.xom.AttributeConverter _dtdName_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String dtdName;  // optional attribute
+		/** Converter for {@link #className}. */
+		public static final org.eigenbase.xom.AttributeConverter _className_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String className;  // optional attribute
+		/** Converter for {@link #packageName}. */
+		public static final org.eigenbase.xom.AttributeConverter _packageName_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String packageName;  // optional attribute
+		/** Converter for {@link #importName}. */
+		public static final org.eigenbase.xom.AttributeConverter _importName_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String importName;  // optional attribute
+		/** Converter for {@link #root}. */
+		public static final org.eigenbase.xom.AttributeConverter _root_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String root;  // required attribute
+		/** Converter for {@link #prefix}. */
+		public static final org.eigenbase.xom.AttributeConverter _prefix_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String prefix;  // optional attribute
+		/** Converter for {@link #version}. */
+		public static final org.eigenbase.xom.AttributeConverter _version_converter =
+			org.eigenbase.xom.AttributeConverters.get("Double");
 		public Double version;  // required attribute
+		/** Converter for {@link #defaultKeepDef}. */
+		public static final org.eigenbase.xom.AttributeConverter _defaultKeepDef_converter =
+			org.eigenbase.xom.AttributeConverters.get("Boolean");
 		public Boolean defaultKeepDef;  // attribute default: false
 		public org.eigenbase.xom.DOMWrapper _def;
 
@@ -98,6 +125,206 @@ public class MetaDef {
 			return "Model";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return (elements == null ? 0 : elements.length);
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			final org.eigenbase.xom.NodeDef[] _children =
+				new org.eigenbase.xom.NodeDef[(elements == null ? 0 : elements.length)];
+			int _n = 0;
+			if (elements != null) {
+				java.lang.System.arraycopy(elements, 0, _children, _n, elements.length);
+				_n += elements.length;
+			}
+			return _children;
+		}
+
+		/** Creates a builder for {@link Model}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Model} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String name;
+			private String dtdName;
+			private String className;
+			private String packageName;
+			private String importName;
+			private String root;
+			private String prefix;
+			private Double version;
+			private Boolean defaultKeepDef;
+			private String doc;
+			private final java.util.ArrayList elements = new java.util.ArrayList();
+
+			/** Sets {@link Model#name}. */
+			public Builder name(String value)
+			{
+				this.name = value;
+				return this;
+			}
+
+			/** Sets {@link Model#dtdName}. */
+			public Builder dtdName(String value)
+			{
+				this.dtdName = value;
+				return this;
+			}
+
+			/** Sets {@link Model#className}. */
+			public Builder className(String value)
+			{
+				this.className = value;
+				return this;
+			}
+
+			/** Sets {@link Model#packageName}. */
+			public Builder packageName(String value)
+			{
+				this.packageName = value;
+				return this;
+			}
+
+			/** Sets {@link Model#importName}. */
+			public Builder importName(String value)
+			{
+				this.importName = value;
+				return this;
+			}
+
+			/** Sets {@link Model#root}. */
+			public Builder root(String value)
+			{
+				this.root = value;
+				return this;
+			}
+
+			/** Sets {@link Model#prefix}. */
+			public Builder prefix(String value)
+			{
+				this.prefix = value;
+				return this;
+			}
+
+			/** Sets {@link Model#version}. */
+			public Builder version(Double value)
+			{
+				this.version = value;
+				return this;
+			}
+
+			/** Sets {@link Model#defaultKeepDef}. */
+			public Builder defaultKeepDef(Boolean value)
+			{
+				this.defaultKeepDef = value;
+				return this;
+			}
+
+			/** Sets {@link Model#doc}. */
+			public Builder doc(String value)
+			{
+				this.doc = value;
+				return this;
+			}
+
+			/** Adds to {@link Model#elements}. */
+			public Builder addElements(Definition value)
+			{
+				this.elements.add(value);
+				return this;
+			}
+
+			/** Adds to {@link Model#elements}. */
+			public Builder addElements(Definition[] values)
+			{
+				this.elements.addAll(java.util.Arrays.asList(values));
+				return this;
+			}
+
+			/** Presizes {@link Model#elements}. */
+			public Builder ensureElementsCapacity(int capacity)
+			{
+				this.elements.ensureCapacity(capacity);
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Model}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Model build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Model _element = new Model();
+				try {
+					_element.name = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"name", name, _name_converter, null, null, true);
+					_element.dtdName = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"dtdName", dtdName, _dtdName_converter, null, null, false);
+					_element.className = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"className", className, _className_converter, null, null, false);
+					_element.packageName = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"packageName", packageName, _packageName_converter, null, null, false);
+					_element.importName = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"importName", importName, _importName_converter, null, null, false);
+					_element.root = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"root", root, _root_converter, null, null, true);
+					_element.prefix = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"prefix", prefix, _prefix_converter, null, null, false);
+					_element.version = (Double) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"version", version, _version_converter, null, null, true);
+					_element.defaultKeepDef = (Boolean) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"defaultKeepDef", defaultKeepDef, _defaultKeepDef_converter, "false", null, false);
+					_element.doc = doc;
+					org.eigenbase.xom.DOMElementParser.checkCount(
+						"Definition", elements.size(), 1, 0);
+					_element.elements = (Definition[]) elements.toArray(
+						new Definition[elements.size()]);
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Model.class) {
+				return super.deepCopy();
+			}
+			Model _copy = new Model();
+			_copy.name = name;
+			_copy.dtdName = dtdName;
+			_copy.className = className;
+			_copy.packageName = packageName;
+			_copy.importName = importName;
+			_copy.root = root;
+			_copy.prefix = prefix;
+			_copy.version = version;
+			_copy.defaultKeepDef = defaultKeepDef;
+			_copy.doc = doc;
+			_copy.elements = (Definition[]) copyNodes(elements);
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -146,6 +373,40 @@ public class MetaDef {
 			_diff = _diff && displayElementArrayDiff("elements", elements, _cother.elements, _out, _indent+1);
 			return _diff;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Model)) {
+				return false;
+			}
+			Model _cother = (Model)_other;
+			return attributeEquals(name, _cother.name)
+				&& attributeEquals(dtdName, _cother.dtdName)
+				&& attributeEquals(className, _cother.className)
+				&& attributeEquals(packageName, _cother.packageName)
+				&& attributeEquals(importName, _cother.importName)
+				&& attributeEquals(root, _cother.root)
+				&& attributeEquals(prefix, _cother.prefix)
+				&& attributeEquals(version, _cother.version)
+				&& attributeEquals(defaultKeepDef, _cother.defaultKeepDef)
+				&& stringEquals(doc, _cother.doc)
+				&& elementArrayEquals(elements, _cother.elements);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(name);
+			_h = 31 * _h + hashAttribute(dtdName);
+			_h = 31 * _h + hashAttribute(className);
+			_h = 31 * _h + hashAttribute(packageName);
+			_h = 31 * _h + hashAttribute(importName);
+			_h = 31 * _h + hashAttribute(root);
+			_h = 31 * _h + hashAttribute(prefix);
+			_h = 31 * _h + hashAttribute(version);
+			_h = 31 * _h + hashAttribute(defaultKeepDef);
+			_h = 31 * _h + hashString(doc);
+			_h = 31 * _h + hashElementArray(elements);
+			return _h;
+		}
 	}
 
 	/**
@@ -185,12 +446,12 @@ public class MetaDef {
 			try {
 				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", MetaDef.class);
 				org.eigenbase.xom.NodeDef[] _tempArray;
-				type = (String)_parser.getAttribute("type", "String", null, null, true);
-				_class = (String)_parser.getAttribute("class", "String", null, null, false);
-				dtdName = (String)_parser.getAttribute("dtdName", "String", null, null, false);
-				_abstract = (Boolean)_parser.getAttribute("abstract", "Boolean", "false", null, false);
-				contentModel = (String)_parser.getAttribute("contentModel", "String", "sequential", _contentModel_values, false);
-				keepDef = (Boolean)_parser.getAttribute("keepDef", "Boolean", null, null, false);
+				type = (String)_parser.getAttribute("type", _type_converter, null, null, true);
+				_class = (String)_parser.getAttribute("class", __class_converter, null, null, false);
+				dtdName = (String)_parser.getAttribute("dtdName", _dtdName_converter, null, null, false);
+				_abstract = (Boolean)_parser.getAttribute("abstract", __abstract_converter, "false", null, false);
+				contentModel = (String)_parser.getAttribute("contentModel", _contentModel_converter, "sequential", _contentModel_values, false);
+				keepDef = (Boolean)_parser.getAttribute("keepDef", _keepDef_converter, null, null, false);
 				doc = _parser.getString(Doc, false);
 				_tempArray = _parser.getArray(Attribute.class, 0, 0);
 				attributes = new Attribute[_tempArray.length];
@@ -210,11 +471,29 @@ public class MetaDef {
 
 		/** Allowable values for {@link #contentModel}. */
 		public static final String[] _contentModel_values = {"sequential", "random", "mixed", "any", "cdata"};
+		/** Converter for {@link #contentModel}. */
+		public static final org.eigenbase.xom.AttributeConverter _contentModel_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String contentModel;  // attribute default: sequential
+		/** Converter for {@link #keepDef}. */
+		public static final org.eigenbase.xom.AttributeConverter _keepDef_converter =
+			org.eigenbase.xom.AttributeConverters.get("Boolean");
 		public Boolean keepDef;  // optional attribute
+		/** Converter for {@link #type}. */
+		public static final org.eigenbase.xom.AttributeConverter _type_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String type;  // required attribute
+		/** Converter for {@link #_class}. */
+		public static final org.eigenbase.xom.AttributeConverter __class_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String _class;  // optional attribute
+		/** Converter for {@link #dtdName}. */
+		public static final org.eigenbase.xom.AttributeConverter _dtdName_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String dtdName;  // optional attribute
+		/** Converter for {@link #_abstract}. */
+		public static final org.eigenbase.xom.AttributeConverter __abstract_converter =
+			org.eigenbase.xom.AttributeConverters.get("Boolean");
 		public Boolean _abstract;  // attribute default: false
 		public org.eigenbase.xom.DOMWrapper _def;
 
@@ -250,6 +529,236 @@ public class MetaDef {
 			return "Element";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return 2 + (attributes == null ? 0 : attributes.length) + (content == null ? 0 : content.length);
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			final org.eigenbase.xom.NodeDef[] _children =
+				new org.eigenbase.xom.NodeDef[2 + (attributes == null ? 0 : attributes.length) + (content == null ? 0 : content.length)];
+			int _n = 0;
+			if (attributes != null) {
+				java.lang.System.arraycopy(attributes, 0, _children, _n, attributes.length);
+				_n += attributes.length;
+			}
+			if (content != null) {
+				java.lang.System.arraycopy(content, 0, _children, _n, content.length);
+				_n += content.length;
+			}
+			_children[_n++] = any;
+			_children[_n++] = cdata;
+			return _children;
+		}
+
+		/** Creates a builder for {@link Element}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Element} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String type;
+			private String _class;
+			private String dtdName;
+			private Boolean _abstract;
+			private String contentModel;
+			private Boolean keepDef;
+			private String doc;
+			private final java.util.ArrayList attributes = new java.util.ArrayList();
+			private final java.util.ArrayList content = new java.util.ArrayList();
+			private Any any;
+			private CData cdata;
+			private String code;
+
+			/** Sets {@link Element#type}. */
+			public Builder type(String value)
+			{
+				this.type = value;
+				return this;
+			}
+
+			/** Sets {@link Element#_class}. */
+			public Builder _class(String value)
+			{
+				this._class = value;
+				return this;
+			}
+
+			/** Sets {@link Element#dtdName}. */
+			public Builder dtdName(String value)
+			{
+				this.dtdName = value;
+				return this;
+			}
+
+			/** Sets {@link Element#_abstract}. */
+			public Builder _abstract(Boolean value)
+			{
+				this._abstract = value;
+				return this;
+			}
+
+			/** Sets {@link Element#contentModel}. */
+			public Builder contentModel(String value)
+			{
+				this.contentModel = value;
+				return this;
+			}
+
+			/** Sets {@link Element#keepDef}. */
+			public Builder keepDef(Boolean value)
+			{
+				this.keepDef = value;
+				return this;
+			}
+
+			/** Sets {@link Element#doc}. */
+			public Builder doc(String value)
+			{
+				this.doc = value;
+				return this;
+			}
+
+			/** Adds to {@link Element#attributes}. */
+			public Builder addAttributes(Attribute value)
+			{
+				this.attributes.add(value);
+				return this;
+			}
+
+			/** Adds to {@link Element#attributes}. */
+			public Builder addAttributes(Attribute[] values)
+			{
+				this.attributes.addAll(java.util.Arrays.asList(values));
+				return this;
+			}
+
+			/** Presizes {@link Element#attributes}. */
+			public Builder ensureAttributesCapacity(int capacity)
+			{
+				this.attributes.ensureCapacity(capacity);
+				return this;
+			}
+
+			/** Adds to {@link Element#content}. */
+			public Builder addContent(Content value)
+			{
+				this.content.add(value);
+				return this;
+			}
+
+			/** Adds to {@link Element#content}. */
+			public Builder addContent(Content[] values)
+			{
+				this.content.addAll(java.util.Arrays.asList(values));
+				return this;
+			}
+
+			/** Presizes {@link Element#content}. */
+			public Builder ensureContentCapacity(int capacity)
+			{
+				this.content.ensureCapacity(capacity);
+				return this;
+			}
+
+			/** Sets {@link Element#any}. */
+			public Builder any(Any value)
+			{
+				this.any = value;
+				return this;
+			}
+
+			/** Sets {@link Element#cdata}. */
+			public Builder cdata(CData value)
+			{
+				this.cdata = value;
+				return this;
+			}
+
+			/** Sets {@link Element#code}. */
+			public Builder code(String value)
+			{
+				this.code = value;
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Element}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Element build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Element _element = new Element();
+				try {
+					_element.type = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"type", type, _type_converter, null, null, true);
+					_element._class = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"class", _class, __class_converter, null, null, false);
+					_element.dtdName = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"dtdName", dtdName, _dtdName_converter, null, null, false);
+					_element._abstract = (Boolean) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"abstract", _abstract, __abstract_converter, "false", null, false);
+					_element.contentModel = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"contentModel", contentModel, _contentModel_converter, "sequential", _contentModel_values, false);
+					_element.keepDef = (Boolean) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"keepDef", keepDef, _keepDef_converter, null, null, false);
+					_element.doc = doc;
+					org.eigenbase.xom.DOMElementParser.checkCount(
+						"Attribute", attributes.size(), 0, 0);
+					_element.attributes = (Attribute[]) attributes.toArray(
+						new Attribute[attributes.size()]);
+					org.eigenbase.xom.DOMElementParser.checkCount(
+						"Content", content.size(), 0, 0);
+					_element.content = (Content[]) content.toArray(
+						new Content[content.size()]);
+					_element.any = any;
+					_element.cdata = cdata;
+					_element.code = code;
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Element.class) {
+				return super.deepCopy();
+			}
+			Element _copy = new Element();
+			_copy.type = type;
+			_copy._class = _class;
+			_copy.dtdName = dtdName;
+			_copy._abstract = _abstract;
+			_copy.contentModel = contentModel;
+			_copy.keepDef = keepDef;
+			_copy.doc = doc;
+			_copy.attributes = (Attribute[]) copyNodes(attributes);
+			_copy.content = (Content[]) copyNodes(content);
+			_copy.any = (Any) copyNode(any);
+			_copy.cdata = (CData) copyNode(cdata);
+			_copy.code = code;
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -291,6 +800,8 @@ public class MetaDef {
 			_diff = _diff && displayAttributeDiff("class", _class, _cother._class, _out, _indent+1);
 			_diff = _diff && displayAttributeDiff("dtdName", dtdName, _cother.dtdName, _out, _indent+1);
 			_diff = _diff && displayAttributeDiff("abstract", _abstract, _cother._abstract, _out, _indent+1);
+			_diff = _diff && displayAttributeDiff("contentModel", contentModel, _cother.contentModel, _out, _indent+1);
+			_diff = _diff && displayAttributeDiff("keepDef", keepDef, _cother.keepDef, _out, _indent+1);
 			_diff = _diff && displayStringDiff("doc", doc, _cother.doc, _out, _indent+1);
 			_diff = _diff && displayElementArrayDiff("attributes", attributes, _cother.attributes, _out, _indent+1);
 			_diff = _diff && displayElementArrayDiff("content", content, _cother.content, _out, _indent+1);
@@ -299,6 +810,42 @@ public class MetaDef {
 			_diff = _diff && displayStringDiff("code", code, _cother.code, _out, _indent+1);
 			return _diff;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Element)) {
+				return false;
+			}
+			Element _cother = (Element)_other;
+			return attributeEquals(type, _cother.type)
+				&& attributeEquals(_class, _cother._class)
+				&& attributeEquals(dtdName, _cother.dtdName)
+				&& attributeEquals(_abstract, _cother._abstract)
+				&& attributeEquals(contentModel, _cother.contentModel)
+				&& attributeEquals(keepDef, _cother.keepDef)
+				&& stringEquals(doc, _cother.doc)
+				&& elementArrayEquals(attributes, _cother.attributes)
+				&& elementArrayEquals(content, _cother.content)
+				&& elementEquals(any, _cother.any)
+				&& elementEquals(cdata, _cother.cdata)
+				&& stringEquals(code, _cother.code);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(type);
+			_h = 31 * _h + hashAttribute(_class);
+			_h = 31 * _h + hashAttribute(dtdName);
+			_h = 31 * _h + hashAttribute(_abstract);
+			_h = 31 * _h + hashAttribute(contentModel);
+			_h = 31 * _h + hashAttribute(keepDef);
+			_h = 31 * _h + hashString(doc);
+			_h = 31 * _h + hashElementArray(attributes);
+			_h = 31 * _h + hashElementArray(content);
+			_h = 31 * _h + hashElement(any);
+			_h = 31 * _h + hashElement(cdata);
+			_h = 31 * _h + hashString(code);
+			return _h;
+		}
 	}
 
 	/**
@@ -319,10 +866,10 @@ public class MetaDef {
 			try {
 				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", MetaDef.class);
 				org.eigenbase.xom.NodeDef[] _tempArray;
-				_class = (String)_parser.getAttribute("class", "String", null, null, true);
-				superclass = (String)_parser.getAttribute("superclass", "String", null, null, false);
-				contentModel = (String)_parser.getAttribute("contentModel", "String", "sequential", _contentModel_values, false);
-				keepDef = (Boolean)_parser.getAttribute("keepDef", "Boolean", null, null, false);
+				_class = (String)_parser.getAttribute("class", __class_converter, null, null, true);
+				superclass = (String)_parser.getAttribute("superclass", _superclass_converter, null, null, false);
+				contentModel = (String)_parser.getAttribute("contentModel", _contentModel_converter, "sequential", _contentModel_values, false);
+				keepDef = (Boolean)_parser.getAttribute("keepDef", _keepDef_converter, null, null, false);
 				doc = _parser.getString(Doc, false);
 				_tempArray = _parser.getArray(Attribute.class, 0, 0);
 				attributes = new Attribute[_tempArray.length];
@@ -342,9 +889,21 @@ public class MetaDef {
 
 		/** Allowable values for {@link #contentModel}. */
 		public static final String[] _contentModel_values = {"sequential", "random", "mixed", "any", "cdata"};
+		/** Converter for {@link #contentModel}. */
+		public static final org.eigenbase.xom.AttributeConverter _contentModel_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String contentModel;  // attribute default: sequential
+		/** Converter for {@link #keepDef}. */
+		public static final org.eigenbase.xom.AttributeConverter _keepDef_converter =
+			org.eigenbase.xom.AttributeConverters.get("Boolean");
 		public Boolean keepDef;  // optional attribute
+		/** Converter for {@link #_class}. */
+		public static final org.eigenbase.xom.AttributeConverter __class_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String _class;  // required attribute
+		/** Converter for {@link #superclass}. */
+		public static final org.eigenbase.xom.AttributeConverter _superclass_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String superclass;  // optional attribute
 		public org.eigenbase.xom.DOMWrapper _def;
 
@@ -380,6 +939,214 @@ public class MetaDef {
 			return "Class";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return 2 + (attributes == null ? 0 : attributes.length) + (content == null ? 0 : content.length);
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			final org.eigenbase.xom.NodeDef[] _children =
+				new org.eigenbase.xom.NodeDef[2 + (attributes == null ? 0 : attributes.length) + (content == null ? 0 : content.length)];
+			int _n = 0;
+			if (attributes != null) {
+				java.lang.System.arraycopy(attributes, 0, _children, _n, attributes.length);
+				_n += attributes.length;
+			}
+			if (content != null) {
+				java.lang.System.arraycopy(content, 0, _children, _n, content.length);
+				_n += content.length;
+			}
+			_children[_n++] = any;
+			_children[_n++] = cdata;
+			return _children;
+		}
+
+		/** Creates a builder for {@link Class}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Class} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String _class;
+			private String superclass;
+			private String contentModel;
+			private Boolean keepDef;
+			private String doc;
+			private final java.util.ArrayList attributes = new java.util.ArrayList();
+			private final java.util.ArrayList content = new java.util.ArrayList();
+			private Any any;
+			private CData cdata;
+			private String code;
+
+			/** Sets {@link Class#_class}. */
+			public Builder _class(String value)
+			{
+				this._class = value;
+				return this;
+			}
+
+			/** Sets {@link Class#superclass}. */
+			public Builder superclass(String value)
+			{
+				this.superclass = value;
+				return this;
+			}
+
+			/** Sets {@link Class#contentModel}. */
+			public Builder contentModel(String value)
+			{
+				this.contentModel = value;
+				return this;
+			}
+
+			/** Sets {@link Class#keepDef}. */
+			public Builder keepDef(Boolean value)
+			{
+				this.keepDef = value;
+				return this;
+			}
+
+			/** Sets {@link Class#doc}. */
+			public Builder doc(String value)
+			{
+				this.doc = value;
+				return this;
+			}
+
+			/** Adds to {@link Class#attributes}. */
+			public Builder addAttributes(Attribute value)
+			{
+				this.attributes.add(value);
+				return this;
+			}
+
+			/** Adds to {@link Class#attributes}. */
+			public Builder addAttributes(Attribute[] values)
+			{
+				this.attributes.addAll(java.util.Arrays.asList(values));
+				return this;
+			}
+
+			/** Presizes {@link Class#attributes}. */
+			public Builder ensureAttributesCapacity(int capacity)
+			{
+				this.attributes.ensureCapacity(capacity);
+				return this;
+			}
+
+			/** Adds to {@link Class#content}. */
+			public Builder addContent(Content value)
+			{
+				this.content.add(value);
+				return this;
+			}
+
+			/** Adds to {@link Class#content}. */
+			public Builder addContent(Content[] values)
+			{
+				this.content.addAll(java.util.Arrays.asList(values));
+				return this;
+			}
+
+			/** Presizes {@link Class#content}. */
+			public Builder ensureContentCapacity(int capacity)
+			{
+				this.content.ensureCapacity(capacity);
+				return this;
+			}
+
+			/** Sets {@link Class#any}. */
+			public Builder any(Any value)
+			{
+				this.any = value;
+				return this;
+			}
+
+			/** Sets {@link Class#cdata}. */
+			public Builder cdata(CData value)
+			{
+				this.cdata = value;
+				return this;
+			}
+
+			/** Sets {@link Class#code}. */
+			public Builder code(String value)
+			{
+				this.code = value;
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Class}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Class build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Class _element = new Class();
+				try {
+					_element._class = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"class", _class, __class_converter, null, null, true);
+					_element.superclass = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"superclass", superclass, _superclass_converter, null, null, false);
+					_element.contentModel = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"contentModel", contentModel, _contentModel_converter, "sequential", _contentModel_values, false);
+					_element.keepDef = (Boolean) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"keepDef", keepDef, _keepDef_converter, null, null, false);
+					_element.doc = doc;
+					org.eigenbase.xom.DOMElementParser.checkCount(
+						"Attribute", attributes.size(), 0, 0);
+					_element.attributes = (Attribute[]) attributes.toArray(
+						new Attribute[attributes.size()]);
+					org.eigenbase.xom.DOMElementParser.checkCount(
+						"Content", content.size(), 0, 0);
+					_element.content = (Content[]) content.toArray(
+						new Content[content.size()]);
+					_element.any = any;
+					_element.cdata = cdata;
+					_element.code = code;
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Class.class) {
+				return super.deepCopy();
+			}
+			Class _copy = new Class();
+			_copy._class = _class;
+			_copy.superclass = superclass;
+			_copy.contentModel = contentModel;
+			_copy.keepDef = keepDef;
+			_copy.doc = doc;
+			_copy.attributes = (Attribute[]) copyNodes(attributes);
+			_copy.content = (Content[]) copyNodes(content);
+			_copy.any = (Any) copyNode(any);
+			_copy.cdata = (CData) copyNode(cdata);
+			_copy.code = code;
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -415,6 +1182,8 @@ public class MetaDef {
 			Class _cother = (Class)_other;
 			boolean _diff = displayAttributeDiff("class", _class, _cother._class, _out, _indent+1);
 			_diff = _diff && displayAttributeDiff("superclass", superclass, _cother.superclass, _out, _indent+1);
+			_diff = _diff && displayAttributeDiff("contentModel", contentModel, _cother.contentModel, _out, _indent+1);
+			_diff = _diff && displayAttributeDiff("keepDef", keepDef, _cother.keepDef, _out, _indent+1);
 			_diff = _diff && displayStringDiff("doc", doc, _cother.doc, _out, _indent+1);
 			_diff = _diff && displayElementArrayDiff("attributes", attributes, _cother.attributes, _out, _indent+1);
 			_diff = _diff && displayElementArrayDiff("content", content, _cother.content, _out, _indent+1);
@@ -423,6 +1192,38 @@ public class MetaDef {
 			_diff = _diff && displayStringDiff("code", code, _cother.code, _out, _indent+1);
 			return _diff;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Class)) {
+				return false;
+			}
+			Class _cother = (Class)_other;
+			return attributeEquals(_class, _cother._class)
+				&& attributeEquals(superclass, _cother.superclass)
+				&& attributeEquals(contentModel, _cother.contentModel)
+				&& attributeEquals(keepDef, _cother.keepDef)
+				&& stringEquals(doc, _cother.doc)
+				&& elementArrayEquals(attributes, _cother.attributes)
+				&& elementArrayEquals(content, _cother.content)
+				&& elementEquals(any, _cother.any)
+				&& elementEquals(cdata, _cother.cdata)
+				&& stringEquals(code, _cother.code);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(_class);
+			_h = 31 * _h + hashAttribute(superclass);
+			_h = 31 * _h + hashAttribute(contentModel);
+			_h = 31 * _h + hashAttribute(keepDef);
+			_h = 31 * _h + hashString(doc);
+			_h = 31 * _h + hashElementArray(attributes);
+			_h = 31 * _h + hashElementArray(content);
+			_h = 31 * _h + hashElement(any);
+			_h = 31 * _h + hashElement(cdata);
+			_h = 31 * _h + hashString(code);
+			return _h;
+		}
 	}
 
 	/**
@@ -443,13 +1244,16 @@ public class MetaDef {
 			this._def = _def;
 			try {
 				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", MetaDef.class);
-				type = (String)_parser.getAttribute("type", "String", null, null, true);
+				type = (String)_parser.getAttribute("type", _type_converter, null, null, true);
 				doc = _parser.getString(Doc, false);
 			} catch(org.eigenbase.xom.XOMException _ex) {
 				throw new org.eigenbase.xom.XOMException("In " + getName() + ": " + _ex.getMessage());
 			}
 		}
 
+		/** Converter for {@link #type}. */
+		public static final org.eigenbase.xom.AttributeConverter _type_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String type;  // required attribute
 		public org.eigenbase.xom.DOMWrapper _def;
 
@@ -466,6 +1270,84 @@ public class MetaDef {
 			return "StringElement";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return 0;
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			return new org.eigenbase.xom.NodeDef[0];
+		}
+
+		/** Creates a builder for {@link StringElement}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link StringElement} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String type;
+			private String doc;
+
+			/** Sets {@link StringElement#type}. */
+			public Builder type(String value)
+			{
+				this.type = value;
+				return this;
+			}
+
+			/** Sets {@link StringElement#doc}. */
+			public Builder doc(String value)
+			{
+				this.doc = value;
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link StringElement}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public StringElement build()
+				throws org.eigenbase.xom.XOMException
+			{
+				StringElement _element = new StringElement();
+				try {
+					_element.type = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"type", type, _type_converter, null, null, true);
+					_element.doc = doc;
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != StringElement.class) {
+				return super.deepCopy();
+			}
+			StringElement _copy = new StringElement();
+			_copy.type = type;
+			_copy.doc = doc;
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -487,6 +1369,22 @@ public class MetaDef {
 			_diff = _diff && displayStringDiff("doc", doc, _cother.doc, _out, _indent+1);
 			return _diff;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof StringElement)) {
+				return false;
+			}
+			StringElement _cother = (StringElement)_other;
+			return attributeEquals(type, _cother.type)
+				&& stringEquals(doc, _cother.doc);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(type);
+			_h = 31 * _h + hashString(doc);
+			return _h;
+		}
 	}
 
 	/**
@@ -510,8 +1408,8 @@ public class MetaDef {
 			try {
 				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", MetaDef.class);
 				org.eigenbase.xom.NodeDef[] _tempArray;
-				type = (String)_parser.getAttribute("type", "String", null, null, true);
-				_class = (String)_parser.getAttribute("class", "String", null, null, false);
+				type = (String)_parser.getAttribute("type", _type_converter, null, null, true);
+				_class = (String)_parser.getAttribute("class", __class_converter, null, null, false);
 				doc = _parser.getString(Doc, false);
 				_tempArray = _parser.getArray(Attribute.class, 0, 0);
 				attributes = new Attribute[_tempArray.length];
@@ -523,7 +1421,13 @@ public class MetaDef {
 			}
 		}
 
+		/** Converter for {@link #type}. */
+		public static final org.eigenbase.xom.AttributeConverter _type_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String type;  // required attribute
+		/** Converter for {@link #_class}. */
+		public static final org.eigenbase.xom.AttributeConverter __class_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String _class;  // optional attribute
 		public org.eigenbase.xom.DOMWrapper _def;
 
@@ -542,6 +1446,139 @@ public class MetaDef {
 			return "Plugin";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return (attributes == null ? 0 : attributes.length);
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			final org.eigenbase.xom.NodeDef[] _children =
+				new org.eigenbase.xom.NodeDef[(attributes == null ? 0 : attributes.length)];
+			int _n = 0;
+			if (attributes != null) {
+				java.lang.System.arraycopy(attributes, 0, _children, _n, attributes.length);
+				_n += attributes.length;
+			}
+			return _children;
+		}
+
+		/** Creates a builder for {@link Plugin}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Plugin} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String type;
+			private String _class;
+			private String doc;
+			private final java.util.ArrayList attributes = new java.util.ArrayList();
+			private String code;
+
+			/** Sets {@link Plugin#type}. */
+			public Builder type(String value)
+			{
+				this.type = value;
+				return this;
+			}
+
+			/** Sets {@link Plugin#_class}. */
+			public Builder _class(String value)
+			{
+				this._class = value;
+				return this;
+			}
+
+			/** Sets {@link Plugin#doc}. */
+			public Builder doc(String value)
+			{
+				this.doc = value;
+				return this;
+			}
+
+			/** Adds to {@link Plugin#attributes}. */
+			public Builder addAttributes(Attribute value)
+			{
+				this.attributes.add(value);
+				return this;
+			}
+
+			/** Adds to {@link Plugin#attributes}. */
+			public Builder addAttributes(Attribute[] values)
+			{
+				this.attributes.addAll(java.util.Arrays.asList(values));
+				return this;
+			}
+
+			/** Presizes {@link Plugin#attributes}. */
+			public Builder ensureAttributesCapacity(int capacity)
+			{
+				this.attributes.ensureCapacity(capacity);
+				return this;
+			}
+
+			/** Sets {@link Plugin#code}. */
+			public Builder code(String value)
+			{
+				this.code = value;
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Plugin}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Plugin build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Plugin _element = new Plugin();
+				try {
+					_element.type = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"type", type, _type_converter, null, null, true);
+					_element._class = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"class", _class, __class_converter, null, null, false);
+					_element.doc = doc;
+					org.eigenbase.xom.DOMElementParser.checkCount(
+						"Attribute", attributes.size(), 0, 0);
+					_element.attributes = (Attribute[]) attributes.toArray(
+						new Attribute[attributes.size()]);
+					_element.code = code;
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Plugin.class) {
+				return super.deepCopy();
+			}
+			Plugin _copy = new Plugin();
+			_copy.type = type;
+			_copy._class = _class;
+			_copy.doc = doc;
+			_copy.attributes = (Attribute[]) copyNodes(attributes);
+			_copy.code = code;
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -572,6 +1609,28 @@ public class MetaDef {
 			_diff = _diff && displayStringDiff("code", code, _cother.code, _out, _indent+1);
 			return _diff;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Plugin)) {
+				return false;
+			}
+			Plugin _cother = (Plugin)_other;
+			return attributeEquals(type, _cother.type)
+				&& attributeEquals(_class, _cother._class)
+				&& stringEquals(doc, _cother.doc)
+				&& elementArrayEquals(attributes, _cother.attributes)
+				&& stringEquals(code, _cother.code);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(type);
+			_h = 31 * _h + hashAttribute(_class);
+			_h = 31 * _h + hashString(doc);
+			_h = 31 * _h + hashElementArray(attributes);
+			_h = 31 * _h + hashString(code);
+			return _h;
+		}
 	}
 
 	/**
@@ -592,19 +1651,31 @@ public class MetaDef {
 			this._def = _def;
 			try {
 				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", MetaDef.class);
-				type = (String)_parser.getAttribute("type", "String", null, null, true);
-				defPackage = (String)_parser.getAttribute("defPackage", "String", null, null, true);
-				defClass = (String)_parser.getAttribute("defClass", "String", null, null, true);
-				dtdName = (String)_parser.getAttribute("dtdName", "String", null, null, false);
+				type = (String)_parser.getAttribute("type", _type_converter, null, null, true);
+				defPackage = (String)_parser.getAttribute("defPackage", _defPackage_converter, null, null, true);
+				defClass = (String)_parser.getAttribute("defClass", _defClass_converter, null, null, true);
+				dtdName = (String)_parser.getAttribute("dtdName", _dtdName_converter, null, null, false);
 				doc = _parser.getString(Doc, false);
 			} catch(org.eigenbase.xom.XOMException _ex) {
 				throw new org.eigenbase.xom.XOMException("In " + getName() + ": " + _ex.getMessage());
 			}
 		}
 
+		/** Converter for {@link #type}. */
+		public static final org.eigenbase.xom.AttributeConverter _type_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String type;  // required attribute
+		/** Converter for {@link #defPackage}. */
+		public static final org.eigenbase.xom.AttributeConverter _defPackage_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String defPackage;  // required attribute
+		/** Converter for {@link #defClass}. */
+		public static final org.eigenbase.xom.AttributeConverter _defClass_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String defClass;  // required attribute
+		/** Converter for {@link #dtdName}. */
+		public static final org.eigenbase.xom.AttributeConverter _dtdName_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String dtdName;  // optional attribute
 		public org.eigenbase.xom.DOMWrapper _def;
 
@@ -621,6 +1692,117 @@ public class MetaDef {
 			return "Import";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return 0;
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			return new org.eigenbase.xom.NodeDef[0];
+		}
+
+		/** Creates a builder for {@link Import}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Import} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String type;
+			private String defPackage;
+			private String defClass;
+			private String dtdName;
+			private String doc;
+
+			/** Sets {@link Import#type}. */
+			public Builder type(String value)
+			{
+				this.type = value;
+				return this;
+			}
+
+			/** Sets {@link Import#defPackage}. */
+			public Builder defPackage(String value)
+			{
+				this.defPackage = value;
+				return this;
+			}
+
+			/** Sets {@link Import#defClass}. */
+			public Builder defClass(String value)
+			{
+				this.defClass = value;
+				return this;
+			}
+
+			/** Sets {@link Import#dtdName}. */
+			public Builder dtdName(String value)
+			{
+				this.dtdName = value;
+				return this;
+			}
+
+			/** Sets {@link Import#doc}. */
+			public Builder doc(String value)
+			{
+				this.doc = value;
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Import}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Import build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Import _element = new Import();
+				try {
+					_element.type = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"type", type, _type_converter, null, null, true);
+					_element.defPackage = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"defPackage", defPackage, _defPackage_converter, null, null, true);
+					_element.defClass = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"defClass", defClass, _defClass_converter, null, null, true);
+					_element.dtdName = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"dtdName", dtdName, _dtdName_converter, null, null, false);
+					_element.doc = doc;
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Import.class) {
+				return super.deepCopy();
+			}
+			Import _copy = new Import();
+			_copy.type = type;
+			_copy.defPackage = defPackage;
+			_copy.defClass = defClass;
+			_copy.dtdName = dtdName;
+			_copy.doc = doc;
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -651,6 +1833,28 @@ public class MetaDef {
 			_diff = _diff && displayStringDiff("doc", doc, _cother.doc, _out, _indent+1);
 			return _diff;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Import)) {
+				return false;
+			}
+			Import _cother = (Import)_other;
+			return attributeEquals(type, _cother.type)
+				&& attributeEquals(defPackage, _cother.defPackage)
+				&& attributeEquals(defClass, _cother.defClass)
+				&& attributeEquals(dtdName, _cother.dtdName)
+				&& stringEquals(doc, _cother.doc);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(type);
+			_h = 31 * _h + hashAttribute(defPackage);
+			_h = 31 * _h + hashAttribute(defClass);
+			_h = 31 * _h + hashAttribute(dtdName);
+			_h = 31 * _h + hashString(doc);
+			return _h;
+		}
 	}
 
 	/**
@@ -689,10 +1893,10 @@ public class MetaDef {
 			try {
 				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", MetaDef.class);
 				org.eigenbase.xom.NodeDef[] _tempArray;
-				name = (String)_parser.getAttribute("name", "String", null, null, true);
-				type = (String)_parser.getAttribute("type", "String", "String", null, false);
-				required = (Boolean)_parser.getAttribute("required", "Boolean", "false", null, false);
-				_default = (String)_parser.getAttribute("default", "String", null, null, false);
+				name = (String)_parser.getAttribute("name", _name_converter, null, null, true);
+				type = (String)_parser.getAttribute("type", _type_converter, "String", null, false);
+				required = (Boolean)_parser.getAttribute("required", _required_converter, "false", null, false);
+				_default = (String)_parser.getAttribute("default", __default_converter, null, null, false);
 				doc = _parser.getString(Doc, false);
 				values = _parser.getStringArray("Value", 0, 0);
 			} catch(org.eigenbase.xom.XOMException _ex) {
@@ -700,9 +1904,21 @@ public class MetaDef {
 			}
 		}
 
+		/** Converter for {@link #name}. */
+		public static final org.eigenbase.xom.AttributeConverter _name_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String name;  // required attribute
+		/** Converter for {@link #type}. */
+		public static final org.eigenbase.xom.AttributeConverter _type_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String type;  // attribute default: String
+		/** Converter for {@link #required}. */
+		public static final org.eigenbase.xom.AttributeConverter _required_converter =
+			org.eigenbase.xom.AttributeConverters.get("Boolean");
 		public Boolean required;  // attribute default: false
+		/** Converter for {@link #_default}. */
+		public static final org.eigenbase.xom.AttributeConverter __default_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String _default;  // optional attribute
 		public org.eigenbase.xom.DOMWrapper _def;
 
@@ -714,6 +1930,144 @@ public class MetaDef {
 			return "Attribute";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return 0;
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			return new org.eigenbase.xom.NodeDef[0];
+		}
+
+		/** Creates a builder for {@link Attribute}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Attribute} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String name;
+			private String type;
+			private Boolean required;
+			private String _default;
+			private String doc;
+			private final java.util.ArrayList values = new java.util.ArrayList();
+
+			/** Sets {@link Attribute#name}. */
+			public Builder name(String value)
+			{
+				this.name = value;
+				return this;
+			}
+
+			/** Sets {@link Attribute#type}. */
+			public Builder type(String value)
+			{
+				this.type = value;
+				return this;
+			}
+
+			/** Sets {@link Attribute#required}. */
+			public Builder required(Boolean value)
+			{
+				this.required = value;
+				return this;
+			}
+
+			/** Sets {@link Attribute#_default}. */
+			public Builder _default(String value)
+			{
+				this._default = value;
+				return this;
+			}
+
+			/** Sets {@link Attribute#doc}. */
+			public Builder doc(String value)
+			{
+				this.doc = value;
+				return this;
+			}
+
+			/** Adds to {@link Attribute#values}. */
+			public Builder addValues(String value)
+			{
+				this.values.add(value);
+				return this;
+			}
+
+			/** Adds to {@link Attribute#values}. */
+			public Builder addValues(String[] values)
+			{
+				this.values.addAll(java.util.Arrays.asList(values));
+				return this;
+			}
+
+			/** Presizes {@link Attribute#values}. */
+			public Builder ensureValuesCapacity(int capacity)
+			{
+				this.values.ensureCapacity(capacity);
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Attribute}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Attribute build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Attribute _element = new Attribute();
+				try {
+					_element.name = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"name", name, _name_converter, null, null, true);
+					_element.type = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"type", type, _type_converter, "String", null, false);
+					_element.required = (Boolean) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"required", required, _required_converter, "false", null, false);
+					_element._default = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"default", _default, __default_converter, null, null, false);
+					_element.doc = doc;
+					org.eigenbase.xom.DOMElementParser.checkCount(
+						"Value", values.size(), 0, 0);
+					_element.values = (String[]) values.toArray(
+						new String[values.size()]);
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Attribute.class) {
+				return super.deepCopy();
+			}
+			Attribute _copy = new Attribute();
+			_copy.name = name;
+			_copy.type = type;
+			_copy.required = required;
+			_copy._default = _default;
+			_copy.doc = doc;
+			_copy.values = copyStrings(values);
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -747,6 +2101,30 @@ public class MetaDef {
 			_diff = _diff && displayStringArrayDiff("values", values, _cother.values, _out, _indent+1);
 			return _diff;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Attribute)) {
+				return false;
+			}
+			Attribute _cother = (Attribute)_other;
+			return attributeEquals(name, _cother.name)
+				&& attributeEquals(type, _cother.type)
+				&& attributeEquals(required, _cother.required)
+				&& attributeEquals(_default, _cother._default)
+				&& stringEquals(doc, _cother.doc)
+				&& stringArrayEquals(values, _cother.values);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(name);
+			_h = 31 * _h + hashAttribute(type);
+			_h = 31 * _h + hashAttribute(required);
+			_h = 31 * _h + hashAttribute(_default);
+			_h = 31 * _h + hashString(doc);
+			_h = 31 * _h + hashStringArray(values);
+			return _h;
+		}
 	}
 
 	/**
@@ -784,17 +2162,26 @@ public class MetaDef {
 			this._def = _def;
 			try {
 				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", MetaDef.class);
-				name = (String)_parser.getAttribute("name", "String", null, null, true);
-				type = (String)_parser.getAttribute("type", "String", null, null, true);
-				required = (Boolean)_parser.getAttribute("required", "Boolean", "false", null, false);
+				name = (String)_parser.getAttribute("name", _name_converter, null, null, true);
+				type = (String)_parser.getAttribute("type", _type_converter, null, null, true);
+				required = (Boolean)_parser.getAttribute("required", _required_converter, "false", null, false);
 				doc = _parser.getString(Doc, false);
 			} catch(org.eigenbase.xom.XOMException _ex) {
 				throw new org.eigenbase.xom.XOMException("In " + getName() + ": " + _ex.getMessage());
 			}
 		}
 
+		/** Converter for {@link #name}. */
+		public static final org.eigenbase.xom.AttributeConverter _name_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String name;  // required attribute
+		/** Converter for {@link #type}. */
+		public static final org.eigenbase.xom.AttributeConverter _type_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String type;  // required attribute
+		/** Converter for {@link #required}. */
+		public static final org.eigenbase.xom.AttributeConverter _required_converter =
+			org.eigenbase.xom.AttributeConverters.get("Boolean");
 		public Boolean required;  // attribute default: false
 		public org.eigenbase.xom.DOMWrapper _def;
 
@@ -805,6 +2192,106 @@ public class MetaDef {
 			return "Object";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return 0;
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			return new org.eigenbase.xom.NodeDef[0];
+		}
+
+		/** Creates a builder for {@link Object}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Object} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String name;
+			private String type;
+			private Boolean required;
+			private String doc;
+
+			/** Sets {@link Object#name}. */
+			public Builder name(String value)
+			{
+				this.name = value;
+				return this;
+			}
+
+			/** Sets {@link Object#type}. */
+			public Builder type(String value)
+			{
+				this.type = value;
+				return this;
+			}
+
+			/** Sets {@link Object#required}. */
+			public Builder required(Boolean value)
+			{
+				this.required = value;
+				return this;
+			}
+
+			/** Sets {@link Object#doc}. */
+			public Builder doc(String value)
+			{
+				this.doc = value;
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Object}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Object build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Object _element = new Object();
+				try {
+					_element.name = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"name", name, _name_converter, null, null, true);
+					_element.type = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"type", type, _type_converter, null, null, true);
+					_element.required = (Boolean) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"required", required, _required_converter, "false", null, false);
+					_element.doc = doc;
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Object.class) {
+				return super.deepCopy();
+			}
+			Object _copy = new Object();
+			_copy.name = name;
+			_copy.type = type;
+			_copy.required = required;
+			_copy.doc = doc;
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -832,6 +2319,26 @@ public class MetaDef {
 			_diff = _diff && displayStringDiff("doc", doc, _cother.doc, _out, _indent+1);
 			return _diff;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Object)) {
+				return false;
+			}
+			Object _cother = (Object)_other;
+			return attributeEquals(name, _cother.name)
+				&& attributeEquals(type, _cother.type)
+				&& attributeEquals(required, _cother.required)
+				&& stringEquals(doc, _cother.doc);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(name);
+			_h = 31 * _h + hashAttribute(type);
+			_h = 31 * _h + hashAttribute(required);
+			_h = 31 * _h + hashString(doc);
+			return _h;
+		}
 	}
 
 	/**
@@ -853,19 +2360,31 @@ public class MetaDef {
 			this._def = _def;
 			try {
 				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", MetaDef.class);
-				name = (String)_parser.getAttribute("name", "String", null, null, true);
-				type = (String)_parser.getAttribute("type", "String", null, null, true);
-				min = (Integer)_parser.getAttribute("min", "Integer", "0", null, false);
-				max = (Integer)_parser.getAttribute("max", "Integer", "0", null, false);
+				name = (String)_parser.getAttribute("name", _name_converter, null, null, true);
+				type = (String)_parser.getAttribute("type", _type_converter, null, null, true);
+				min = (Integer)_parser.getAttribute("min", _min_converter, "0", null, false);
+				max = (Integer)_parser.getAttribute("max", _max_converter, "0", null, false);
 				doc = _parser.getString(Doc, false);
 			} catch(org.eigenbase.xom.XOMException _ex) {
 				throw new org.eigenbase.xom.XOMException("In " + getName() + ": " + _ex.getMessage());
 			}
 		}
 
+		/** Converter for {@link #name}. */
+		public static final org.eigenbase.xom.AttributeConverter _name_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String name;  // required attribute
+		/** Converter for {@link #type}. */
+		public static final org.eigenbase.xom.AttributeConverter _type_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
 		public String type;  // required attribute
+		/** Converter for {@link #min}. */
+		public static final org.eigenbase.xom.AttributeConverter _min_converter =
+			org.eigenbase.xom.AttributeConverters.get("Integer");
 		public Integer min;  // attribute default: 0
+		/** Converter for {@link #max}. */
+		public static final org.eigenbase.xom.AttributeConverter _max_converter =
+			org.eigenbase.xom.AttributeConverters.get("Integer");
 		public Integer max;  // attribute default: 0
 		public org.eigenbase.xom.DOMWrapper _def;
 
@@ -876,6 +2395,117 @@ public class MetaDef {
 			return "Array";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return 0;
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			return new org.eigenbase.xom.NodeDef[0];
+		}
+
+		/** Creates a builder for {@link Array}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Array} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String name;
+			private String type;
+			private Integer min;
+			private Integer max;
+			private String doc;
+
+			/** Sets {@link Array#name}. */
+			public Builder name(String value)
+			{
+				this.name = value;
+				return this;
+			}
+
+			/** Sets {@link Array#type}. */
+			public Builder type(String value)
+			{
+				this.type = value;
+				return this;
+			}
+
+			/** Sets {@link Array#min}. */
+			public Builder min(Integer value)
+			{
+				this.min = value;
+				return this;
+			}
+
+			/** Sets {@link Array#max}. */
+			public Builder max(Integer value)
+			{
+				this.max = value;
+				return this;
+			}
+
+			/** Sets {@link Array#doc}. */
+			public Builder doc(String value)
+			{
+				this.doc = value;
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Array}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Array build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Array _element = new Array();
+				try {
+					_element.name = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"name", name, _name_converter, null, null, true);
+					_element.type = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"type", type, _type_converter, null, null, true);
+					_element.min = (Integer) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"min", min, _min_converter, "0", null, false);
+					_element.max = (Integer) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"max", max, _max_converter, "0", null, false);
+					_element.doc = doc;
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Array.class) {
+				return super.deepCopy();
+			}
+			Array _copy = new Array();
+			_copy.name = name;
+			_copy.type = type;
+			_copy.min = min;
+			_copy.max = max;
+			_copy.doc = doc;
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -906,6 +2536,28 @@ public class MetaDef {
 			_diff = _diff && displayStringDiff("doc", doc, _cother.doc, _out, _indent+1);
 			return _diff;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Array)) {
+				return false;
+			}
+			Array _cother = (Array)_other;
+			return attributeEquals(name, _cother.name)
+				&& attributeEquals(type, _cother.type)
+				&& attributeEquals(min, _cother.min)
+				&& attributeEquals(max, _cother.max)
+				&& stringEquals(doc, _cother.doc);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(name);
+			_h = 31 * _h + hashAttribute(type);
+			_h = 31 * _h + hashAttribute(min);
+			_h = 31 * _h + hashAttribute(max);
+			_h = 31 * _h + hashString(doc);
+			return _h;
+		}
 	}
 
 	/**
@@ -935,6 +2587,58 @@ public class MetaDef {
 			return "Any";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return 0;
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			return new org.eigenbase.xom.NodeDef[0];
+		}
+
+		/** Creates a builder for {@link Any}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Any} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			/**
+			 * Checks the values set so far and creates a {@link Any}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Any build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Any _element = new Any();
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Any.class) {
+				return super.deepCopy();
+			}
+			Any _copy = new Any();
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -949,6 +2653,14 @@ public class MetaDef {
 		{
 			return true;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			return _other instanceof Any;
+		}
+		protected int computeHashCode()
+		{
+			return 0;
+		}
 	}
 
 	/**
@@ -977,6 +2689,58 @@ public class MetaDef {
 			return "CData";
 		}
 
+		public org.eigenbase.xom.DOMWrapper getWrapper()
+		{
+			return _def;
+		}
+
+		public int getChildCount()
+		{
+			return 0;
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			return new org.eigenbase.xom.NodeDef[0];
+		}
+
+		/** Creates a builder for {@link CData}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link CData} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			/**
+			 * Checks the values set so far and creates a {@link CData}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public CData build()
+				throws org.eigenbase.xom.XOMException
+			{
+				CData _element = new CData();
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != CData.class) {
+				return super.deepCopy();
+			}
+			CData _copy = new CData();
+			_copy._def = _def;
+			return _copy;
+		}
+
 		public void display(java.io.PrintWriter _out, int _indent)
 		{
 			_out.println(getName());
@@ -991,6 +2755,144 @@ public class MetaDef {
 		{
 			return true;
 		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			return _other instanceof CData;
+		}
+		protected int computeHashCode()
+		{
+			return 0;
+		}
+	}
+
+	/** Prefix of the tags of this model. */
+	public static final String _prefix = "";
+
+	/**
+	 * Constructs the definition of an element of this model, or returns null
+	 * if its tag is not that of a concrete element class.
+	 */
+	public static org.eigenbase.xom.ElementDef _construct(
+		org.eigenbase.xom.DOMWrapper _def)
+		throws org.eigenbase.xom.XOMException
+	{
+		final String _tag = _def.getTagName();
+		switch (_tag.length()) {
+		case 3:
+			if (_tag.equals("Any")) {
+				return new Any(_def);
+			}
+			break;
+		case 5:
+			if (_tag.equals("Model")) {
+				return new Model(_def);
+			}
+			if (_tag.equals("Class")) {
+				return new Class(_def);
+			}
+			if (_tag.equals("Array")) {
+				return new Array(_def);
+			}
+			if (_tag.equals("CData")) {
+				return new CData(_def);
+			}
+			break;
+		case 6:
+			if (_tag.equals("Plugin")) {
+				return new Plugin(_def);
+			}
+			if (_tag.equals("Import")) {
+				return new Import(_def);
+			}
+			if (_tag.equals("Object")) {
+				return new Object(_def);
+			}
+			break;
+		case 7:
+			if (_tag.equals("Element")) {
+				return new Element(_def);
+			}
+			break;
+		case 9:
+			if (_tag.equals("Attribute")) {
+				return new Attribute(_def);
+			}
+			break;
+		case 13:
+			if (_tag.equals("StringElement")) {
+				return new StringElement(_def);
+			}
+			break;
+		}
+		return null;
+	}
+
+	/**
+	 * Binds the elements of this model as they are parsed; see
+	 * {@link org.eigenbase.xom.StreamingBinder}.
+	 */
+	public static class _Binder extends org.eigenbase.xom.StreamingBinder
+	{
+		public _Binder()
+		{
+			super("", new java.lang.String[] {
+				"Model",
+				"Element",
+				"Class",
+				"StringElement",
+				"Plugin",
+				"Import",
+				"Attribute",
+				"Object",
+				"Array",
+				"Any",
+				"CData"
+			}, new boolean[] {
+				true,
+				true,
+				true,
+				true,
+				true,
+				true,
+				true,
+				true,
+				true,
+				true,
+				true
+			});
+		}
+
+		protected org.eigenbase.xom.NodeDef construct(
+			int _index, org.eigenbase.xom.DOMWrapper _def)
+			throws org.eigenbase.xom.XOMException
+		{
+			switch (_index) {
+			case 0:
+				return new Model(_def);
+			case 1:
+				return new Element(_def);
+			case 2:
+				return new Class(_def);
+			case 3:
+				return new StringElement(_def);
+			case 4:
+				return new Plugin(_def);
+			case 5:
+				return new Import(_def);
+			case 6:
+				return new Attribute(_def);
+			case 7:
+				return new Object(_def);
+			case 8:
+				return new Array(_def);
+			case 9:
+				return new Any(_def);
+			case 10:
+				return new CData(_def);
+			default:
+				return null;
+			}
+		}
 	}
 
 
@@ -45,6 +45,7 @@ public class MetaGenerator {
     private Hashtable subclassMap;
     private Vector allTypes;
     private boolean testMode;
+    private boolean generateEnums;
 
     private static final String newLine = System.getProperty("line.separator");
     private static final char fileSep = System.getProperty("file.separator").charAt(0);
@@ -657,6 +658,40 @@ public class MetaGenerator {
             out.println("\t\t}");
             out.println();
 
+            // Create getWrapper(), getChildren() and getChildCount(), so
+            // that walking the tree needs no reflection.
+            if (def instanceof MetaDef.Element &&
+                booleanValue(
+                    new Boolean[] {
+                        ((MetaDef.Element) def).keepDef,
+                        model.defaultKeepDef,
+                        Boolean.FALSE})) {
+                out.println("\t\tpublic org.eigenbase.xom.DOMWrapper "
+                            + "getWrapper()");
+                out.println("\t\t{");
+                out.println("\t\t\treturn _def;");
+                out.println("\t\t}");
+                out.println();
+            }
+            if (hasGeneratedChildren(this)) {
+                writeJavaGetChildren(out, this);
+            }
+
+            // Create a builder, so that a model can be built in code
+            // without rendering and parsing XML.
+            if (def instanceof MetaDef.Element
+                && !(((MetaDef.Element) def)._abstract != null
+                     && ((MetaDef.Element) def)._abstract.booleanValue()))
+            {
+                writeJavaBuilder(out, this);
+            }
+
+            // Create deepCopy(), which copies fields directly rather than
+            // by reflection.
+            if (hasGeneratedDeepCopy(this)) {
+                writeJavaDeepCopy(out, this);
+            }
+
             // Create the display() function
             out.println("\t\tpublic void display(java.io.PrintWriter _out, "
                         + "int _indent)");
@@ -728,7 +763,7 @@ public class MetaGenerator {
                             + className + ")_other;");
             }
             int[] diffCount = {0};
-            for (int i = 0; i < newAttributes.length; i++) {
+            for (int i = 0; i < allAttributes.length; i++) {
                 writeJavaDisplayDiffAttribute(out, diffCount, allAttributes[i]);
             }
             if (def instanceof MetaDef.Plugin) {
@@ -750,6 +785,11 @@ public class MetaGenerator {
                 + ";");
             out.println("\t\t}");
 
+            // Create the structurallyEquals() and computeHashCode()
+            // functions, consistent with displayDiff().
+            writeJavaStructurallyEquals(out, this);
+            writeJavaComputeHashCode(out, this);
+
             // Add the code section, if defined
             if (code != null) {
                 writeJavaCode(out, 2, code);
@@ -1227,6 +1267,12 @@ public class MetaGenerator {
             writeJavaElement(out, model.elements[i]);
         }
 
+        // Create a factory which constructs elements without reflection.
+        writeJavaConstruct(out);
+
+        // Create a binder which constructs elements as they are parsed.
+        writeJavaBinder(out);
+
         // End the class
         out.println();
         out.println("}");
@@ -1647,19 +1693,794 @@ public class MetaGenerator {
         }
     }
 
+    /**
+     * Returns whether the class of a type has generated
+     * <code>getChildren()</code> and <code>getChildCount()</code> methods.
+     * Elements have them, unless they are plugins or have
+     * <code>&lt;Any&gt;</code> content, or extend a class that does not
+     * have them.
+     */
+    private boolean hasGeneratedChildren(TypeInfo info)
+    {
+        if (!(info.def instanceof MetaDef.Element)
+            || info.def instanceof MetaDef.Plugin
+            || info.isAny)
+        {
+            return false;
+        }
+        for (int i = 0; i < info.superInfos.length; i++) {
+            TypeInfo superInfo = info.superInfos[i];
+            if (!superInfo.isInterface() && !hasGeneratedChildren(superInfo)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the <code>getChildren()</code> and <code>getChildCount()</code>
+     * methods of an element class. They return the same children, in the
+     * same order, as {@link ElementDef#getChildren()} would find by
+     * reflection: the element and array fields declared in this class, then
+     * those of its superclass.
+     */
+    private void writeJavaGetChildren(PrintWriter out, TypeInfo info)
+        throws XOMException
+    {
+        // Find the fields that hold children.
+        int objectCount = 0;
+        Vector objectNames = new Vector();
+        Vector arrayNames = new Vector();
+        if (!info.isCData) {
+            for (int i = 0; i < info.newContent.length; i++) {
+                MetaDef.Content content = info.newContent[i];
+                if (content instanceof MetaDef.Object) {
+                    MetaDef.Object obj = (MetaDef.Object) content;
+                    if (!(getType(obj.type)
+                          instanceof MetaDef.StringElement)) {
+                        objectNames.addElement(getDeclaredName(obj.name));
+                        arrayNames.addElement(null);
+                        ++objectCount;
+                    }
+                } else if (content instanceof MetaDef.Array) {
+                    MetaDef.Array array = (MetaDef.Array) content;
+                    if (!(getType(array.type)
+                          instanceof MetaDef.StringElement)) {
+                        objectNames.addElement(null);
+                        arrayNames.addElement(getDeclaredName(array.name));
+                    }
+                }
+            }
+        }
+        boolean hasSuper = false;
+        for (int i = 0; i < info.superInfos.length; i++) {
+            if (!info.superInfos[i].isInterface()) {
+                hasSuper = true;
+            }
+        }
+
+        // getChildCount() adds the lengths of the arrays to the number of
+        // element fields.
+        StringBuffer count = new StringBuffer();
+        if (hasSuper) {
+            count.append("super.getChildCount()");
+        }
+        if (objectCount > 0) {
+            append(count, "", " + ", String.valueOf(objectCount));
+        }
+        for (int i = 0; i < arrayNames.size(); i++) {
+            String arrayName = (String) arrayNames.elementAt(i);
+            if (arrayName != null) {
+                append(
+                    count, "", " + ",
+                    "(" + arrayName + " == null ? 0 : "
+                    + arrayName + ".length)");
+            }
+        }
+        if (count.length() == 0) {
+            count.append("0");
+        }
+        out.println("\t\tpublic int getChildCount()");
+        out.println("\t\t{");
+        out.println("\t\t\treturn " + count + ";");
+        out.println("\t\t}");
+        out.println();
+
+        out.println("\t\tpublic org.eigenbase.xom.NodeDef[] getChildren()");
+        out.println("\t\t{");
+        StringBuffer length = new StringBuffer();
+        if (objectCount > 0) {
+            length.append(objectCount);
+        }
+        for (int i = 0; i < arrayNames.size(); i++) {
+            String arrayName = (String) arrayNames.elementAt(i);
+            if (arrayName != null) {
+                append(
+                    length, "", " + ",
+                    "(" + arrayName + " == null ? 0 : "
+                    + arrayName + ".length)");
+            }
+        }
+        if (hasSuper) {
+            out.println("\t\t\tfinal org.eigenbase.xom.NodeDef[] _super = "
+                        + "super.getChildren();");
+            append(length, "", " + ", "_super.length");
+        }
+        if (length.length() == 0) {
+            out.println("\t\t\treturn new org.eigenbase.xom.NodeDef[0];");
+            out.println("\t\t}");
+            out.println();
+            return;
+        }
+        out.println("\t\t\tfinal org.eigenbase.xom.NodeDef[] _children =");
+        out.println("\t\t\t\tnew org.eigenbase.xom.NodeDef["
+                    + length + "];");
+        out.println("\t\t\tint _n = 0;");
+        for (int i = 0; i < objectNames.size(); i++) {
+            String objectName = (String) objectNames.elementAt(i);
+            String arrayName = (String) arrayNames.elementAt(i);
+            if (objectName != null) {
+                out.println("\t\t\t_children[_n++] = " + objectName + ";");
+            } else {
+                out.println("\t\t\tif (" + arrayName + " != null) {");
+                out.println("\t\t\t\tjava.lang.System.arraycopy(" + arrayName
+                            + ", 0, _children, _n, " + arrayName
+                            + ".length);");
+                out.println("\t\t\t\t_n += " + arrayName + ".length;");
+                out.println("\t\t\t}");
+            }
+        }
+        if (hasSuper) {
+            out.println("\t\t\tjava.lang.System.arraycopy("
+                        + "_super, 0, _children, _n, _super.length);");
+        }
+        out.println("\t\t\treturn _children;");
+        out.println("\t\t}");
+        out.println();
+    }
+
+    /**
+     * Returns the fields of an element class that the generated
+     * <code>displayDiff</code> method compares, in the same order, so that
+     * <code>structurallyEquals</code> and <code>computeHashCode</code> can
+     * agree with it. Each is a pair: the kind of comparison, such as
+     * "Attribute" or "ElementArray", and the name of the field.
+     */
+    private Vector getComparedFields(TypeInfo info)
+        throws XOMException
+    {
+        Vector fields = new Vector();
+        for (int i = 0; i < info.allAttributes.length; i++) {
+            fields.addElement(
+                new String[] {
+                    "Attribute", getDeclaredName(info.allAttributes[i].name)});
+        }
+        if (info.def instanceof MetaDef.Plugin) {
+            fields.addElement(new String[] {"Attribute", "defPackage"});
+            fields.addElement(new String[] {"Attribute", "defClass"});
+            fields.addElement(new String[] {"ElementArray", "children"});
+        } else if (info.isAny) {
+            fields.addElement(new String[] {"ElementArray", "children"});
+        } else if (info.isCData) {
+            fields.addElement(new String[] {"String", "cdata"});
+        } else {
+            for (int i = 0; i < info.allContent.length; i++) {
+                MetaDef.Content content = info.allContent[i];
+                if (content instanceof MetaDef.Object) {
+                    MetaDef.Object obj = (MetaDef.Object) content;
+                    fields.addElement(
+                        new String[] {
+                            getType(obj.type) instanceof MetaDef.StringElement
+                                ? "String"
+                                : "Element",
+                            getDeclaredName(obj.name)});
+                } else if (content instanceof MetaDef.Array) {
+                    MetaDef.Array array = (MetaDef.Array) content;
+                    fields.addElement(
+                        new String[] {
+                            getType(array.type) instanceof
+                                MetaDef.StringElement
+                                ? "StringArray"
+                                : "ElementArray",
+                            getDeclaredName(array.name)});
+                } else {
+                    throw new XOMException(
+                        "Unrecognized content type definition: "
+                        + content.getClass().getName());
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Writes the <code>structurallyEquals</code> method of an element class.
+     * It compares the same fields as the generated <code>displayDiff</code>
+     * method, but stops at the first difference and builds no
+     * descriptions.
+     */
+    private void writeJavaStructurallyEquals(PrintWriter out, TypeInfo info)
+        throws XOMException
+    {
+        Vector fields = getComparedFields(info);
+        out.println("\t\tpublic boolean structurallyEquals("
+                    + "org.eigenbase.xom.ElementDef _other)");
+        out.println("\t\t{");
+        if (fields.isEmpty()) {
+            out.println("\t\t\treturn _other instanceof " + info.className
+                        + ";");
+            out.println("\t\t}");
+            return;
+        }
+        out.println("\t\t\tif (!(_other instanceof " + info.className
+                    + ")) {");
+        out.println("\t\t\t\treturn false;");
+        out.println("\t\t\t}");
+        out.println("\t\t\t" + info.className + " _cother = ("
+                    + info.className + ")_other;");
+        for (int i = 0; i < fields.size(); i++) {
+            String[] field = (String[]) fields.elementAt(i);
+            String kind = field[0];
+            out.println(
+                (i == 0 ? "\t\t\treturn " : "\t\t\t\t&& ")
+                + kind.substring(0, 1).toLowerCase() + kind.substring(1)
+                + "Equals(" + field[1] + ", _cother." + field[1] + ")"
+                + (i == fields.size() - 1 ? ";" : ""));
+        }
+        out.println("\t\t}");
+    }
+
+    /**
+     * Writes the <code>computeHashCode()</code> method of an element class.
+     * It combines the hashes of the same fields, in the same order, as the
+     * generated <code>displayDiff</code> method compares, so that elements
+     * that are equal have the same hash.
+     */
+    private void writeJavaComputeHashCode(PrintWriter out, TypeInfo info)
+        throws XOMException
+    {
+        Vector fields = getComparedFields(info);
+        out.println("\t\tprotected int computeHashCode()");
+        out.println("\t\t{");
+        if (fields.isEmpty()) {
+            out.println("\t\t\treturn 0;");
+        } else {
+            out.println("\t\t\tint _h = 0;");
+            for (int i = 0; i < fields.size(); i++) {
+                String[] field = (String[]) fields.elementAt(i);
+                out.println("\t\t\t_h = 31 * _h + hash" + field[0]
+                            + "(" + field[1] + ");");
+            }
+            out.println("\t\t\treturn _h;");
+        }
+        out.println("\t\t}");
+    }
+
+    /**
+     * Writes the <code>builder()</code> method and <code>Builder</code> class
+     * of a concrete element class.
+     *
+     * <p>The builder has a method to set each attribute and element, and
+     * methods to add to, and to presize, each array. It checks nothing until
+     * <code>build()</code> is called; then it applies default values and checks
+     * required attributes, allowable values, required elements and array
+     * sizes, using the same rules and messages as the parser, and
+     * creates the element by setting its fields directly.
+     */
+    private void writeJavaBuilder(PrintWriter out, TypeInfo info)
+        throws XOMException
+    {
+        // Describe each setter: its name, the Java type of its value, the
+        // field it sets and whether it is an array.
+        Vector names = new Vector();
+        Vector types = new Vector();
+        Vector arrays = new Vector();
+        Vector contents = new Vector();
+        for (int i = 0; i < info.allAttributes.length; i++) {
+            MetaDef.Attribute attr = info.allAttributes[i];
+            names.addElement(getDeclaredName(attr.name));
+            types.addElement(getAttributeType(attr));
+            arrays.addElement(Boolean.FALSE);
+            contents.addElement(attr);
+        }
+        if (info.isAny) {
+            names.addElement("children");
+            types.addElement(
+                "org.eigenbase.xom."
+                + (info.contentModel.equals("mixed")
+                   ? "NodeDef"
+                   : "ElementDef"));
+            arrays.addElement(Boolean.TRUE);
+            contents.addElement(null);
+        } else if (info.isCData) {
+            names.addElement("cdata");
+            types.addElement("String");
+            arrays.addElement(Boolean.FALSE);
+            contents.addElement(null);
+        } else {
+            for (int i = 0; i < info.allContent.length; i++) {
+                MetaDef.Content content = info.allContent[i];
+                if (content instanceof MetaDef.Object) {
+                    names.addElement(
+                        getDeclaredName(((MetaDef.Object) content).name));
+                    types.addElement(
+                        getContentJavaType(((MetaDef.Object) content).type));
+                    arrays.addElement(Boolean.FALSE);
+                } else if (content instanceof MetaDef.Array) {
+                    names.addElement(
+                        getDeclaredName(((MetaDef.Array) content).name));
+                    types.addElement(
+                        getContentJavaType(((MetaDef.Array) content).type));
+                    arrays.addElement(Boolean.TRUE);
+                } else {
+                    throw new XOMException(
+                        "Unrecognized content type definition: "
+                        + content.getClass().getName());
+                }
+                contents.addElement(content);
+            }
+        }
+
+        // builder()
+        out.println("\t\t/** Creates a builder for {@link " + info.className
+                    + "}. */");
+        out.println("\t\tpublic static Builder builder()");
+        out.println("\t\t{");
+        out.println("\t\t\treturn new Builder();");
+        out.println("\t\t}");
+        out.println();
+
+        // The Builder class, its fields and its setters.
+        out.println("\t\t/**");
+        out.println("\t\t * Builds a {@link " + info.className
+                    + "} in code. Values are checked when");
+        out.println("\t\t * {@link #build()} is called, not as they are set.");
+        out.println("\t\t */");
+        out.println("\t\tpublic static class Builder");
+        out.println("\t\t{");
+        for (int i = 0; i < names.size(); i++) {
+            String name = (String) names.elementAt(i);
+            String type = (String) types.elementAt(i);
+            if (((Boolean) arrays.elementAt(i)).booleanValue()) {
+                out.println("\t\t\tprivate final java.util.ArrayList " + name
+                            + " = new java.util.ArrayList();");
+            } else {
+                out.println("\t\t\tprivate " + type + " " + name + ";");
+            }
+        }
+        if (names.size() > 0) {
+            out.println();
+        }
+        for (int i = 0; i < names.size(); i++) {
+            String name = (String) names.elementAt(i);
+            String type = (String) types.elementAt(i);
+            if (((Boolean) arrays.elementAt(i)).booleanValue()) {
+                String upperName = XOMUtil.capitalize(name);
+                out.println("\t\t\t/** Adds to {@link " + info.className
+                            + "#" + name + "}. */");
+                out.println("\t\t\tpublic Builder add" + upperName
+                            + "(" + type + " value)");
+                out.println("\t\t\t{");
+                out.println("\t\t\t\tthis." + name + ".add(value);");
+                out.println("\t\t\t\treturn this;");
+                out.println("\t\t\t}");
+                out.println();
+                out.println("\t\t\t/** Adds to {@link " + info.className
+                            + "#" + name + "}. */");
+                out.println("\t\t\tpublic Builder add" + upperName
+                            + "(" + type + "[] values)");
+                out.println("\t\t\t{");
+                out.println("\t\t\t\tthis." + name + ".addAll("
+                            + "java.util.Arrays.asList(values));");
+                out.println("\t\t\t\treturn this;");
+                out.println("\t\t\t}");
+                out.println();
+                out.println("\t\t\t/** Presizes {@link " + info.className
+                            + "#" + name + "}. */");
+                out.println("\t\t\tpublic Builder ensure" + upperName
+                            + "Capacity(int capacity)");
+                out.println("\t\t\t{");
+                out.println("\t\t\t\tthis." + name
+                            + ".ensureCapacity(capacity);");
+                out.println("\t\t\t\treturn this;");
+                out.println("\t\t\t}");
+            } else {
+                out.println("\t\t\t/** Sets {@link " + info.className
+                            + "#" + name + "}. */");
+                out.println("\t\t\tpublic Builder " + name
+                            + "(" + type + " value)");
+                out.println("\t\t\t{");
+                out.println("\t\t\t\tthis." + name + " = value;");
+                out.println("\t\t\t\treturn this;");
+                out.println("\t\t\t}");
+            }
+            out.println();
+        }
+
+        // build()
+        out.println("\t\t\t/**");
+        out.println("\t\t\t * Checks the values set so far and creates a {@link "
+                    + info.className + "}.");
+        out.println("\t\t\t * The builder may be used again.");
+        out.println("\t\t\t *");
+        out.println("\t\t\t * @throws org.eigenbase.xom.XOMException if a "
+                    + "value is missing or invalid");
+        out.println("\t\t\t */");
+        out.println("\t\t\tpublic " + info.className + " build()");
+        out.println("\t\t\t\tthrows org.eigenbase.xom.XOMException");
+        out.println("\t\t\t{");
+        out.println("\t\t\t\t" + info.className + " _element = new "
+                    + info.className + "();");
+        if (names.size() > 0) {
+            out.println("\t\t\t\ttry {");
+        }
+        for (int i = 0; i < names.size(); i++) {
+            String name = (String) names.elementAt(i);
+            String type = (String) types.elementAt(i);
+            Object content = contents.elementAt(i);
+            if (content instanceof MetaDef.Attribute) {
+                MetaDef.Attribute attr = (MetaDef.Attribute) content;
+                out.println("\t\t\t\t\t_element." + name + " = (" + type
+                            + ") org.eigenbase.xom.DOMElementParser"
+                            + ".checkAttribute(");
+                out.print("\t\t\t\t\t\t\"" + attr.name + "\", " + name
+                          + ", _" + name + "_converter, ");
+                out.print(attr._default == null
+                          ? "null, "
+                          : "\"" + attr._default + "\", ");
+                out.print(attr.values == null || attr.values.length == 0
+                          || isEnumAttribute(attr)
+                          ? "null, "
+                          : "_" + name + "_values, ");
+                out.println(attr.required.booleanValue()
+                            ? "true);"
+                            : "false);");
+            } else if (((Boolean) arrays.elementAt(i)).booleanValue()) {
+                if (content instanceof MetaDef.Array) {
+                    MetaDef.Array array = (MetaDef.Array) content;
+                    out.println("\t\t\t\t\torg.eigenbase.xom.DOMElementParser"
+                                + ".checkCount(");
+                    out.println("\t\t\t\t\t\t\""
+                                + getTypeInfo(array.type, true).className
+                                + "\", " + name + ".size(), " + array.min
+                                + ", " + array.max + ");");
+                }
+                out.println("\t\t\t\t\t_element." + name + " = (" + type
+                            + "[]) " + name + ".toArray(");
+                out.println("\t\t\t\t\t\tnew " + type + "[" + name
+                            + ".size()]);");
+            } else if (content instanceof MetaDef.Object
+                       && ((MetaDef.Object) content).required.booleanValue())
+            {
+                MetaDef.Object obj = (MetaDef.Object) content;
+                out.println("\t\t\t\t\t_element." + name + " = (" + type
+                            + ") org.eigenbase.xom.DOMElementParser"
+                            + ".checkRequired(");
+                out.println("\t\t\t\t\t\t\""
+                            + getTypeInfo(obj.type, true).className
+                            + "\", " + name + ");");
+            } else {
+                out.println("\t\t\t\t\t_element." + name + " = " + name
+                            + ";");
+            }
+        }
+        if (names.size() > 0) {
+            out.println("\t\t\t\t} catch (org.eigenbase.xom.XOMException "
+                        + "_ex) {");
+            out.println("\t\t\t\t\tthrow new org.eigenbase.xom.XOMException("
+                        + "\"In \" + _element.getName() + \": \" "
+                        + "+ _ex.getMessage());");
+            out.println("\t\t\t\t}");
+        }
+        out.println("\t\t\t\treturn _element;");
+        out.println("\t\t\t}");
+        out.println("\t\t}");
+        out.println();
+    }
+
+    /**
+     * Returns whether the class of a type has a generated
+     * <code>deepCopy()</code> method. Concrete elements have one, unless
+     * they or a class they extend have a code section, which might declare
+     * fields that the method would not know to copy.
+     */
+    private boolean hasGeneratedDeepCopy(TypeInfo info)
+    {
+        if (!(info.def instanceof MetaDef.Element)) {
+            return false;
+        }
+        MetaDef.Element element = (MetaDef.Element) info.def;
+        if (element._abstract != null && element._abstract.booleanValue()) {
+            return false;
+        }
+        return !hasCode(info);
+    }
+
+    /**
+     * Returns whether a type, or a type it extends, has a code section.
+     */
+    private boolean hasCode(TypeInfo info)
+    {
+        if (info.code != null) {
+            return true;
+        }
+        for (int i = 0; i < info.superInfos.length; i++) {
+            if (hasCode(info.superInfos[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the <code>deepCopy()</code> method of a concrete element class.
+     * It creates an element and sets its fields directly: attributes,
+     * strings and the wrapper are shared, and elements and arrays are
+     * copied. An instance of a hand-written subclass is copied by
+     * {@link ElementDef#deepCopy()}, which knows its other fields.
+     */
+    private void writeJavaDeepCopy(PrintWriter out, TypeInfo info)
+        throws XOMException
+    {
+        out.println("\t\tpublic org.eigenbase.xom.ElementDef deepCopy()");
+        out.println("\t\t\tthrows org.eigenbase.xom.XOMException");
+        out.println("\t\t{");
+        out.println("\t\t\tif (getClass() != " + info.className
+                    + ".class) {");
+        out.println("\t\t\t\treturn super.deepCopy();");
+        out.println("\t\t\t}");
+        out.println("\t\t\t" + info.className + " _copy = new "
+                    + info.className + "();");
+        for (int i = 0; i < info.allAttributes.length; i++) {
+            String name = getDeclaredName(info.allAttributes[i].name);
+            out.println("\t\t\t_copy." + name + " = " + name + ";");
+        }
+        if (info.isAny) {
+            String type =
+                "org.eigenbase.xom."
+                + (info.contentModel.equals("mixed")
+                   ? "NodeDef"
+                   : "ElementDef");
+            out.println("\t\t\t_copy.children = (" + type
+                        + "[]) copyNodes(children);");
+        } else if (info.isCData) {
+            out.println("\t\t\t_copy.cdata = cdata;");
+        } else {
+            for (int i = 0; i < info.allContent.length; i++) {
+                MetaDef.Content content = info.allContent[i];
+                if (content instanceof MetaDef.Object) {
+                    MetaDef.Object obj = (MetaDef.Object) content;
+                    String name = getDeclaredName(obj.name);
+                    if (getType(obj.type) instanceof MetaDef.StringElement) {
+                        out.println("\t\t\t_copy." + name + " = " + name
+                                    + ";");
+                    } else {
+                        out.println("\t\t\t_copy." + name + " = ("
+                                    + getContentJavaType(obj.type)
+                                    + ") copyNode(" + name + ");");
+                    }
+                } else if (content instanceof MetaDef.Array) {
+                    MetaDef.Array array = (MetaDef.Array) content;
+                    String name = getDeclaredName(array.name);
+                    if (getType(array.type) instanceof MetaDef.StringElement) {
+                        out.println("\t\t\t_copy." + name
+                                    + " = copyStrings(" + name + ");");
+                    } else {
+                        out.println("\t\t\t_copy." + name + " = ("
+                                    + getContentJavaType(array.type)
+                                    + "[]) copyNodes(" + name + ");");
+                    }
+                } else {
+                    throw new XOMException(
+                        "Unrecognized content type definition: "
+                        + content.getClass().getName());
+                }
+            }
+        }
+        if (booleanValue(
+                new Boolean[] {
+                    ((MetaDef.Element) info.def).keepDef,
+                    model.defaultKeepDef,
+                    Boolean.FALSE}))
+        {
+            out.println("\t\t\t_copy._def = _def;");
+        }
+        out.println("\t\t\treturn _copy;");
+        out.println("\t\t}");
+        out.println();
+    }
+
+    /**
+     * Returns the Java type of the field that holds an element of a given
+     * type.
+     */
+    private String getContentJavaType(String typeName)
+        throws XOMException
+    {
+        MetaDef.Definition type = getType(typeName);
+        if (type instanceof MetaDef.Import) {
+            return getTypeInfo(((MetaDef.Import) type).type, true).impName;
+        } else if (type instanceof MetaDef.StringElement) {
+            return "String";
+        } else {
+            return getTypeInfo(typeName, true).className;
+        }
+    }
+
+    /**
+     * Returns the {@link TypeInfo} of each concrete element class of the
+     * model. Plugins and imports are not included; their parents construct
+     * them in the usual way.
+     */
+    private Vector getConcreteElementInfos()
+        throws XOMException
+    {
+        Vector infos = new Vector();
+        for (int i = 0; i < model.elements.length; i++) {
+            if (!(model.elements[i] instanceof MetaDef.Element)) {
+                continue;
+            }
+            MetaDef.Element element = (MetaDef.Element) model.elements[i];
+            if (element._abstract != null
+                && element._abstract.booleanValue())
+            {
+                continue;
+            }
+            infos.addElement(getTypeInfo(element.type, true));
+        }
+        return infos;
+    }
+
+    /**
+     * Writes the <code>_prefix</code> constant and the
+     * <code>_construct</code> method, which constructs an element of the
+     * model by calling the constructor of its class directly.
+     * {@link ElementDef#constructElement(DOMWrapper, Class, String)} calls
+     * it in preference to looking up the class and its constructor.
+     *
+     * <p>Tags are matched exactly, first on their length then on their
+     * content; a tag that differs in the case of its first letter is left
+     * for the caller to construct in the usual way.
+     *
+     * @param out PrintWriter to write the Java file.
+     */
+    private void writeJavaConstruct(PrintWriter out)
+        throws XOMException
+    {
+        Vector infos = getConcreteElementInfos();
+
+        // Group the tags by length.
+        SortedMap tagsByLength = new TreeMap();
+        for (int i = 0; i < infos.size(); i++) {
+            TypeInfo info = (TypeInfo) infos.elementAt(i);
+            Integer length = new Integer((prefix + info.className).length());
+            List infosOfLength = (List) tagsByLength.get(length);
+            if (infosOfLength == null) {
+                infosOfLength = new ArrayList();
+                tagsByLength.put(length, infosOfLength);
+            }
+            infosOfLength.add(info);
+        }
+
+        out.println("\t/** Prefix of the tags of this model. */");
+        out.println("\tpublic static final String _prefix = \""
+                    + prefix + "\";");
+        out.println();
+        out.println("\t/**");
+        out.println("\t * Constructs the definition of an element of this "
+                    + "model, or returns null");
+        out.println("\t * if its tag is not that of a concrete element "
+                    + "class.");
+        out.println("\t */");
+        out.println("\tpublic static org.eigenbase.xom.ElementDef "
+                    + "_construct(");
+        out.println("\t\torg.eigenbase.xom.DOMWrapper _def)");
+        out.println("\t\tthrows org.eigenbase.xom.XOMException");
+        out.println("\t{");
+        out.println("\t\tfinal String _tag = _def.getTagName();");
+        out.println("\t\tswitch (_tag.length()) {");
+        for (Iterator iter = tagsByLength.entrySet().iterator();
+             iter.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry) iter.next();
+            out.println("\t\tcase " + entry.getKey() + ":");
+            List infosOfLength = (List) entry.getValue();
+            for (int i = 0; i < infosOfLength.size(); i++) {
+                TypeInfo info = (TypeInfo) infosOfLength.get(i);
+                out.println("\t\t\tif (_tag.equals(\""
+                            + prefix + info.className + "\")) {");
+                out.println("\t\t\t\treturn new " + info.className
+                            + "(_def);");
+                out.println("\t\t\t}");
+            }
+            out.println("\t\t\tbreak;");
+        }
+        out.println("\t\t}");
+        out.println("\t\treturn null;");
+        out.println("\t}");
+        out.println();
+    }
+
+    /**
+     * Writes the <code>_Binder</code> class, a
+     * {@link org.eigenbase.xom.StreamingBinder} which constructs each
+     * concrete element class of the model by calling its constructor
+     * directly. Plugins and imports are not included; their parents
+     * construct them in the usual way.
+     *
+     * @param out PrintWriter to write the Java file.
+     */
+    private void writeJavaBinder(PrintWriter out)
+        throws XOMException
+    {
+        Vector binderInfos = getConcreteElementInfos();
+
+        out.println("\t/**");
+        out.println("\t * Binds the elements of this model as they are "
+                    + "parsed; see");
+        out.println("\t * {@link org.eigenbase.xom.StreamingBinder}.");
+        out.println("\t */");
+        out.println("\tpublic static class _Binder "
+                    + "extends org.eigenbase.xom.StreamingBinder");
+        out.println("\t{");
+        out.println("\t\tpublic _Binder()");
+        out.println("\t\t{");
+        out.println("\t\t\tsuper(\"" + prefix + "\", new java.lang.String[] {");
+        for (int i = 0; i < binderInfos.size(); i++) {
+            TypeInfo info = (TypeInfo) binderInfos.elementAt(i);
+            out.println("\t\t\t\t\"" + info.className + "\""
+                        + (i < binderInfos.size() - 1 ? "," : ""));
+        }
+        out.println("\t\t\t}, new boolean[] {");
+        for (int i = 0; i < binderInfos.size(); i++) {
+            TypeInfo info = (TypeInfo) binderInfos.elementAt(i);
+            boolean keepDef =
+                booleanValue(
+                    new Boolean[] {
+                        ((MetaDef.Element) info.def).keepDef,
+                        model.defaultKeepDef,
+                        Boolean.FALSE});
+            out.println("\t\t\t\t" + keepDef
+                        + (i < binderInfos.size() - 1 ? "," : ""));
+        }
+        out.println("\t\t\t});");
+        out.println("\t\t}");
+        out.println();
+        out.println("\t\tprotected org.eigenbase.xom.NodeDef construct(");
+        out.println("\t\t\tint _index, org.eigenbase.xom.DOMWrapper _def)");
+        out.println("\t\t\tthrows org.eigenbase.xom.XOMException");
+        out.println("\t\t{");
+        out.println("\t\t\tswitch (_index) {");
+        for (int i = 0; i < binderInfos.size(); i++) {
+            TypeInfo info = (TypeInfo) binderInfos.elementAt(i);
+            out.println("\t\t\tcase " + i + ":");
+            out.println("\t\t\t\treturn new " + info.className + "(_def);");
+        }
+        out.println("\t\t\tdefault:");
+        out.println("\t\t\t\treturn null;");
+        out.println("\t\t\t}");
+        out.println("\t\t}");
+        out.println("\t}");
+        out.println();
+    }
+
     public void writeJavaGetAttribute(PrintWriter out,
                                       MetaDef.Attribute attr)
         throws XOMException
     {
         out.print("\t\t\t\t" + getDeclaredName(attr.name) + " = ");
-        out.print("(" + attr.type + ")_parser.getAttribute(");
-        out.print("\"" + attr.name + "\", \"" + attr.type + "\", ");
+        out.print("(" + getAttributeType(attr) + ")_parser.getAttribute(");
+        out.print("\"" + attr.name + "\", _"
+                  + getDeclaredName(attr.name) + "_converter, ");
         if (attr._default == null) {
             out.print("null, ");
         } else {
             out.print("\"" + attr._default + "\", ");
         }
-        if (attr.values == null || attr.values.length == 0) {
+        if (attr.values == null || attr.values.length == 0
+            || isEnumAttribute(attr))
+        {
+            // An enum's converter checks the value itself.
             out.print("null, ");
         } else {
             out.print("_" + getDeclaredName(attr.name)
@@ -1692,8 +2513,21 @@ public class MetaGenerator {
             out.println("};");
         }
 
+        // Look up the converter once, when the class is initialized
+        if (isEnumAttribute(attr)) {
+            writeJavaDeclareEnum(out, attr);
+        } else {
+            out.println("\t\t/** Converter for {@link #"
+                    + getDeclaredName(attr.name) + "}. */");
+            out.println("\t\tpublic static final "
+                    + "org.eigenbase.xom.AttributeConverter _"
+                    + getDeclaredName(attr.name) + "_converter =");
+            out.println("\t\t\torg.eigenbase.xom.AttributeConverters.get(\""
+                    + attr.type + "\");");
+        }
+
         // Generate the declaration, including a quick comment
-        out.print("\t\tpublic " + attr.type + " "
+        out.print("\t\tpublic " + getAttributeType(attr) + " "
                   + getDeclaredName(attr.name) + ";  /" + "/ ");
         if (attr._default != null) {
             out.print("attribute default: " + attr._default);
@@ -1705,6 +2539,163 @@ public class MetaGenerator {
         out.println();
     }
 
+    /**
+     * Returns whether an attribute is held in a generated enum: that is,
+     * if enums are enabled, and the attribute is a String with a list of
+     * allowable values.
+     */
+    private boolean isEnumAttribute(MetaDef.Attribute attr)
+    {
+        return generateEnums
+            && attr.values != null
+            && attr.values.length > 0
+            && (attr.type.equals("String")
+                || attr.type.equals("java.lang.String"));
+    }
+
+    /**
+     * Returns the Java type of an attribute's field.
+     */
+    private String getAttributeType(MetaDef.Attribute attr)
+    {
+        return isEnumAttribute(attr) ? getEnumName(attr) : attr.type;
+    }
+
+    /**
+     * Returns the name of the enum generated for an attribute; for example,
+     * <code>ContentModelValue</code> for <code>contentModel</code>.
+     */
+    private String getEnumName(MetaDef.Attribute attr)
+    {
+        return XOMUtil.capitalize(toIdentifier(attr.name)) + "Value";
+    }
+
+    /**
+     * Converts a string to a Java identifier, replacing each character
+     * that cannot occur in an identifier with '_'.
+     */
+    private static String toIdentifier(String s)
+    {
+        StringBuffer buf = new StringBuffer();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (i == 0
+                ? Character.isJavaIdentifierStart(c)
+                : Character.isJavaIdentifierPart(c))
+            {
+                buf.append(c);
+            } else {
+                if (i == 0 && Character.isJavaIdentifierPart(c)) {
+                    buf.append('_');
+                    buf.append(c);
+                } else {
+                    buf.append('_');
+                }
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Writes the enum of an attribute's allowable values, and the converter
+     * which finds the constant for a value.
+     */
+    private void writeJavaDeclareEnum(PrintWriter out, MetaDef.Attribute attr)
+    {
+        String enumName = getEnumName(attr);
+        String declaredName = getDeclaredName(attr.name);
+
+        // Derive a distinct constant name for each value.
+        String[] constantNames = new String[attr.values.length];
+        Hashtable used = new Hashtable();
+        for (int i = 0; i < attr.values.length; i++) {
+            String name = toIdentifier(attr.values[i].toUpperCase());
+            if (name.length() == 0) {
+                name = "_";
+            }
+            String uniqueName = name;
+            for (int j = 2; used.containsKey(uniqueName); j++) {
+                uniqueName = name + "_" + j;
+            }
+            used.put(uniqueName, uniqueName);
+            constantNames[i] = uniqueName;
+        }
+
+        out.println("\t\t/** Constants for the allowable values of {@link #"
+                + declaredName + "}. */");
+        out.println("\t\tpublic enum " + enumName + " {");
+        for (int i = 0; i < attr.values.length; i++) {
+            out.println("\t\t\t" + constantNames[i] + "(\""
+                    + attr.values[i] + "\")"
+                    + (i < attr.values.length - 1 ? "," : ";"));
+        }
+        out.println();
+        out.println("\t\t\tprivate static final java.util.Map _map ="
+                + " new java.util.HashMap();");
+        out.println("\t\t\tstatic {");
+        out.println("\t\t\t\t" + enumName + "[] _constants = values();");
+        out.println("\t\t\t\tfor (int _i = 0; _i < _constants.length; "
+                + "_i++) {");
+        out.println("\t\t\t\t\t_map.put(_constants[_i].value, "
+                + "_constants[_i]);");
+        out.println("\t\t\t\t}");
+        out.println("\t\t\t}");
+        out.println();
+        out.println("\t\t\t/** Value of the attribute, as it appears in "
+                + "a document. */");
+        out.println("\t\t\tpublic final String value;");
+        out.println();
+        out.println("\t\t\t" + enumName + "(String value)");
+        out.println("\t\t\t{");
+        out.println("\t\t\t\tthis.value = value;");
+        out.println("\t\t\t}");
+        out.println();
+        out.println("\t\t\tpublic String toString()");
+        out.println("\t\t\t{");
+        out.println("\t\t\t\treturn value;");
+        out.println("\t\t\t}");
+        out.println();
+        out.println("\t\t\t/** Returns the constant with a given value, "
+                + "or null. */");
+        out.println("\t\t\tpublic static " + enumName
+                + " lookup(String value)");
+        out.println("\t\t\t{");
+        out.println("\t\t\t\treturn (" + enumName + ") _map.get(value);");
+        out.println("\t\t\t}");
+        out.println("\t\t}");
+
+        StringBuffer legalValues = new StringBuffer("{");
+        for (int i = 0; i < attr.values.length; i++) {
+            if (i > 0) {
+                legalValues.append(", ");
+            }
+            legalValues.append(attr.values[i]);
+        }
+        legalValues.append("}");
+        out.println("\t\t/** Converter for {@link #"
+                + declaredName + "}. */");
+        out.println("\t\tpublic static final "
+                + "org.eigenbase.xom.AttributeConverter _"
+                + declaredName + "_converter =");
+        out.println("\t\t\tnew org.eigenbase.xom.AttributeConverter() {");
+        out.println("\t\t\t\tpublic java.lang.Object convert(String value)");
+        out.println("\t\t\t\t\tthrows org.eigenbase.xom.XOMException");
+        out.println("\t\t\t\t{");
+        out.println("\t\t\t\t\tfinal " + enumName + " _constant = "
+                + enumName + ".lookup(value);");
+        out.println("\t\t\t\t\tif (_constant == null) {");
+        out.println("\t\t\t\t\t\tthrow new "
+                + "org.eigenbase.xom.XOMException(");
+        out.println("\t\t\t\t\t\t\t\"Value '\" + value + \"' of "
+                + "attribute '" + attr.name + "' has illegal value '\"");
+        out.println("\t\t\t\t\t\t\t+ value + \"'.  Legal values: "
+                + legalValues + "\");");
+        out.println("\t\t\t\t\t}");
+        out.println("\t\t\t\t\treturn _constant;");
+        out.println("\t\t\t\t}");
+        out.println("\t\t\t};");
+    }
+
     public void writeJavaDisplayAttribute(PrintWriter out,
                                           MetaDef.Attribute attr)
         throws XOMException
@@ -2186,6 +3177,24 @@ public class MetaGenerator {
                     + "children, _cother.children, _out, _indent+1);");
     }
 
+    /**
+     * Sets whether to generate an enum for each attribute of type String
+     * that has a list of allowable values.
+     *
+     * <p>If set, the attribute's field is of the enum type, whose constants
+     * are the allowable values, upper-cased. The enum finds the constant of
+     * a value by hashing, so values are validated in constant time, and
+     * may be compared by identity thereafter. If not set, the default, the
+     * field is a String, and its value is checked against each allowable
+     * value in turn.
+     *
+     * @param generateEnums Whether to generate enums
+     */
+    public void setGenerateEnums(boolean generateEnums)
+    {
+        this.generateEnums = generateEnums;
+    }
+
     /**
      * Write the name of the dtd file and java class to standard output.
      * This output is used by shell scripts to grab these values.
@@ -2201,6 +3210,9 @@ public class MetaGenerator {
     /**
      * Main function for MetaGenerator. Arguments:
      * <ol>
+     * <li>Optionally, <code>-enums</code>, to generate enums for
+     * attributes with lists of allowable values; see
+     * {@link #setGenerateEnums(boolean)}.
      * <li>Name of XML file describing input model.
      * <li>Name of output file directory.
      * </ol>
@@ -2225,10 +3237,15 @@ public class MetaGenerator {
             testMode = true;
             firstArg++;
         }
+        boolean generateEnums = false;
+        if (firstArg < args.length && args[firstArg].equals("-enums")) {
+            generateEnums = true;
+            firstArg++;
+        }
 
         if (args.length != 2 + firstArg) {
             System.err.println(
-                "Usage: java MetaGenerator [-debug] [-test] " +
+                "Usage: java MetaGenerator [-debug] [-test] [-enums] " +
                 "<XML model file> <output directory>");
             System.exit(2);
         }
@@ -2236,6 +3253,7 @@ public class MetaGenerator {
         try {
             MetaGenerator generator = new MetaGenerator(
                 args[0 + firstArg], testMode);
+            generator.setGenerateEnums(generateEnums);
             generator.writeFiles(args[1 + firstArg], null);
             generator.writeOutputs();
         } catch (XOMException ex) {
@@ -17,9 +17,14 @@
 */
 package org.eigenbase.xom;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * The <code>Parser</code> interface abstracts the behavior which the
@@ -80,6 +85,59 @@ public interface Parser {
      */
     DOMWrapper parse(Reader reader) throws XOMException;
 
+    /**
+     * Parses the contents of a file and returns a wrapped element.
+     *
+     * <p>The parsers in this package map the file into memory, and parse it
+     * as if by {@link #parse(java.nio.ByteBuffer)}, rather than read it
+     * through a stream. The default implementation reads the file through
+     * {@link #parse(java.io.InputStream)}, so that parsers written before
+     * this method was added still work.
+     *
+     * @param path Path of file
+     * @return Wrapped element
+     * @throws XOMException on error
+     */
+    default DOMWrapper parse(Path path) throws XOMException {
+        final InputStream is;
+        try {
+            is = Files.newInputStream(path);
+        } catch (IOException ex) {
+            throw new XOMException(ex, "Document parse failed");
+        }
+        try {
+            return parse(is);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Parses the remaining bytes of a buffer and returns a wrapped element.
+     * The position of the buffer is not changed.
+     *
+     * <p>If the parser is keeping positions, the source text of locations
+     * may be decoded from the buffer when it is requested, rather than
+     * copied onto the heap during the parse; the contents of the buffer
+     * must not change while the wrappers are in use.
+     *
+     * <p>The default implementation copies the bytes onto the heap and
+     * parses them through {@link #parse(java.io.InputStream)}.
+     *
+     * @param buffer Buffer containing an XML document
+     * @return Wrapped element
+     * @throws XOMException on error
+     */
+    default DOMWrapper parse(ByteBuffer buffer) throws XOMException {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return parse(new ByteArrayInputStream(bytes));
+    }
+
     /**
      * Creates a wrapper representing an XML element.
      *
@@ -0,0 +1,183 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * A <code>ParserPool</code> is a {@link Parser} that may be shared between
+ * threads.
+ *
+ * <p>Parsers are not thread-safe, and are relatively expensive to create.
+ * A pool gives each thread its own parser, created on the thread's first
+ * parse and reused for each subsequent parse, so threads never wait for
+ * one another. If a parse on a thread starts another parse on the same
+ * thread, the inner parse uses a new parser.
+ *
+ * <p>Settings made on the pool, such as
+ * {@link #setKeepPositions(boolean)}, are applied to a thread's parser
+ * before each parse. Each document has its own locator, so documents
+ * remain valid however many other documents the same parser goes on to
+ * parse.
+ *
+ * <p>By default the pool creates parsers by calling
+ * {@link XOMUtil#createDefaultParser()}. To pool parsers of a different
+ * kind, override {@link #createParser()}; for example,
+ *
+ * <blockquote><pre>Parser pool = new ParserPool() {
+ *     protected Parser createParser() throws XOMException {
+ *         StaxDOMParser parser = new StaxDOMParser();
+ *         parser.setFlat(true);
+ *         return parser;
+ *     }
+ * };</pre></blockquote>
+ *
+ * @author jhyde
+ */
+public class ParserPool implements Parser {
+    /** The idle parser of each thread. A parser is removed while it is in
+     * use. */
+    private final ThreadLocal/*<Parser>*/ parsers = new ThreadLocal();
+    private volatile boolean keepPositions;
+
+    /** Creates a ParserPool. */
+    public ParserPool() {
+    }
+
+    /**
+     * Creates a parser for the pool. Called at most once per thread, unless
+     * parses are nested.
+     *
+     * @return New parser
+     * @throws XOMException on error
+     */
+    protected Parser createParser() throws XOMException {
+        return XOMUtil.createDefaultParser();
+    }
+
+    /**
+     * Takes the calling thread's parser, creating one if the thread has no
+     * idle parser.
+     */
+    private Parser acquire() throws XOMException {
+        Parser parser = (Parser) parsers.get();
+        if (parser == null) {
+            parser = createParser();
+        } else {
+            parsers.set(null);
+        }
+        parser.setKeepPositions(keepPositions);
+        return parser;
+    }
+
+    /** Returns a parser to the calling thread. */
+    private void release(Parser parser) {
+        parsers.set(parser);
+    }
+
+    // implement Parser
+    public void setKeepPositions(boolean keepPositions) {
+        this.keepPositions = keepPositions;
+    }
+
+    // implement Parser
+    public boolean isKeepPositions() {
+        return keepPositions;
+    }
+
+    // implement Parser
+    public DOMWrapper parse(String sXml) throws XOMException {
+        final Parser parser = acquire();
+        try {
+            return parser.parse(sXml);
+        } finally {
+            release(parser);
+        }
+    }
+
+    // implement Parser
+    public DOMWrapper parse(InputStream is) throws XOMException {
+        final Parser parser = acquire();
+        try {
+            return parser.parse(is);
+        } finally {
+            release(parser);
+        }
+    }
+
+    // implement Parser
+    public DOMWrapper parse(URL url) throws XOMException {
+        final Parser parser = acquire();
+        try {
+            return parser.parse(url);
+        } finally {
+            release(parser);
+        }
+    }
+
+    // implement Parser
+    public DOMWrapper parse(Reader reader) throws XOMException {
+        final Parser parser = acquire();
+        try {
+            return parser.parse(reader);
+        } finally {
+            release(parser);
+        }
+    }
+
+    // implement Parser
+    public DOMWrapper parse(Path path) throws XOMException {
+        final Parser parser = acquire();
+        try {
+            return parser.parse(path);
+        } finally {
+            release(parser);
+        }
+    }
+
+    // implement Parser
+    public DOMWrapper parse(ByteBuffer buffer) throws XOMException {
+        final Parser parser = acquire();
+        try {
+            return parser.parse(buffer);
+        } finally {
+            release(parser);
+        }
+    }
+
+    // implement Parser
+    public DOMWrapper create(String tagName) {
+        final Parser parser;
+        try {
+            parser = acquire();
+        } catch (XOMException e) {
+            throw new AssertFailure(e, "Error creating parser");
+        }
+        try {
+            return parser.create(tagName);
+        } finally {
+            release(parser);
+        }
+    }
+}
+
+// End ParserPool.java
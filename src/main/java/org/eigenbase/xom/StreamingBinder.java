@@ -0,0 +1,123 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binds the elements of a document to the classes of a model while the
+ * document is being parsed.
+ *
+ * <p>{@link MetaGenerator} generates a subclass, <code>_Binder</code>, for
+ * each model; for example,
+ *
+ * <blockquote><pre>MetaDef.Model model = (MetaDef.Model)
+ *     new StaxDOMParser().bind(xml, new MetaDef._Binder());</pre></blockquote>
+ *
+ * <p>The parser binds each element when it reaches the element's end tag.
+ * If the element's class does not keep its wrapper (see the
+ * <code>keepDef</code> attribute of a model element), the parser then
+ * discards the element's children, so that the document as a whole is never
+ * held in memory, only the bound model and the wrappers of the elements
+ * that are still open.
+ *
+ * <p>Elements that the binder does not know, such as plugins, imported
+ * elements and elements that hold only text, are left to the constructor of
+ * their parent, along with everything inside them.
+ *
+ * <p>A binder holds no state, and may be used by several parses at once.
+ *
+ * @author jhyde
+ */
+public abstract class StreamingBinder {
+    private final String prefix;
+    private final Map/*<String, Integer>*/ indexes = new HashMap();
+    private final boolean[] keepWrappers;
+
+    /**
+     * Creates a StreamingBinder.
+     *
+     * @param prefix Prefix of each tag name
+     * @param names Names of the classes that this binder can construct, as
+     *   they appear in tag names after the prefix
+     * @param keepWrappers Whether each class keeps the wrapper it was
+     *   constructed from
+     */
+    protected StreamingBinder(
+        String prefix,
+        String[] names,
+        boolean[] keepWrappers)
+    {
+        this.prefix = prefix == null ? "" : prefix;
+        for (int i = 0; i < names.length; i++) {
+            indexes.put(names[i], new Integer(i));
+        }
+        this.keepWrappers = keepWrappers;
+    }
+
+    /**
+     * Constructs the definition of an element.
+     *
+     * @param index Index of the element's class in the array of names given
+     *   to the constructor
+     * @param wrapper Element
+     * @return Definition
+     * @throws XOMException if the element is not valid
+     */
+    protected abstract NodeDef construct(int index, DOMWrapper wrapper)
+        throws XOMException;
+
+    /**
+     * Returns whether this binder constructs elements with a given tag name.
+     *
+     * @param tagName Tag name
+     * @return Whether elements with this tag name are bound
+     */
+    public boolean binds(String tagName) {
+        return index(tagName) >= 0;
+    }
+
+    /**
+     * Returns the index of the class of elements with a given tag name, or
+     * -1. Mirrors {@link ElementDef#getElementClass}, which ignores the case
+     * of the first letter after the prefix.
+     */
+    int index(String tagName) {
+        if (!tagName.startsWith(prefix)) {
+            return -1;
+        }
+        final String name = tagName.substring(prefix.length());
+        Integer index = (Integer) indexes.get(name);
+        if (index == null && name.length() > 0
+            && Character.isLowerCase(name.charAt(0)))
+        {
+            index = (Integer) indexes.get(XOMUtil.capitalize(name));
+        }
+        return index == null ? -1 : index.intValue();
+    }
+
+    /**
+     * Returns whether the class with a given index keeps its wrapper.
+     */
+    boolean keepsWrapper(int index) {
+        return keepWrappers[index];
+    }
+}
+
+// End StreamingBinder.java
@@ -0,0 +1,214 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Table of symbols for tag names, ignoring case.
+ *
+ * <p>Each distinct tag name, after case-folding, has an integer symbol, so
+ * {@link DOMElementParser} can check whether an element has an expected
+ * name by comparing two integers, rather than by building the name and
+ * calling {@link String#equalsIgnoreCase(String)}. Names are folded in the
+ * same way as <code>equalsIgnoreCase</code>, character by character, so
+ * the two methods agree.
+ *
+ * <p>Only the names that generated code asks {@link DOMElementParser} for
+ * are registered; that is, the element names of the models in use. The
+ * tags of a document are looked up, but never added, so a document with
+ * many distinct tags does not grow the table. Once the names of a model
+ * have been registered, each lookup is a hash probe that allocates
+ * nothing.
+ *
+ * <p>The table is shared by all threads and all models. As a safeguard, it
+ * stops growing at {@link #MAX_SYMBOLS} entries; thereafter, new model
+ * names have no symbol, and callers fall back to comparing strings.
+ *
+ * @author jhyde
+ */
+public final class TagSymbols {
+    /** Symbol of a name that is not in the table. */
+    public static final int NONE = -1;
+
+    /** Largest number of names that the table holds. */
+    public static final int MAX_SYMBOLS = 1 << 16;
+
+    /** Table shared by all models. */
+    private static final TagSymbols INSTANCE = new TagSymbols(MAX_SYMBOLS);
+
+    /** Largest number of names that this table holds. */
+    private final int maxSymbols;
+
+    /** Symbol of each name, as written. */
+    private final ConcurrentHashMap/*<String, Integer>*/ names =
+        new ConcurrentHashMap();
+
+    /** Symbol of each case-folded name. */
+    private final ConcurrentHashMap/*<String, Integer>*/ folded =
+        new ConcurrentHashMap();
+
+    /** Symbols of prefixed names, by prefix then by unprefixed name. */
+    private final ConcurrentHashMap
+        /*<String, ConcurrentHashMap<String, Integer>>*/ prefixed =
+        new ConcurrentHashMap();
+
+    private final AtomicInteger nextSymbol = new AtomicInteger();
+
+    /**
+     * Creates a table. Tests create small tables; everything else uses the
+     * shared one.
+     *
+     * @param maxSymbols Largest number of names that the table holds
+     */
+    TagSymbols(int maxSymbols) {
+        this.maxSymbols = maxSymbols;
+    }
+
+    /**
+     * Registers a tag name of a model, and returns its symbol. Names that
+     * differ only in case have the same symbol.
+     *
+     * @param name Tag name
+     * @return Symbol, or {@link #NONE} if the table is full
+     */
+    public static int of(String name) {
+        return INSTANCE.register(name);
+    }
+
+    /**
+     * Registers a tag name of a model that has a prefix, and returns its
+     * symbol, without concatenating the prefix and name, except the first
+     * time.
+     *
+     * @param prefix Prefix
+     * @param name Name without prefix
+     * @return Symbol, or {@link #NONE} if the table is full
+     */
+    public static int of(String prefix, String name) {
+        return INSTANCE.register(prefix, name);
+    }
+
+    /**
+     * Returns whether the tag of an element in a document is a given model
+     * name, ignoring case. The model name is registered; the tag is not.
+     *
+     * @param prefix Prefix of model name
+     * @param name Model name without prefix
+     * @param tagName Tag of element
+     * @return Whether the names match
+     */
+    public static boolean matches(String prefix, String name, String tagName) {
+        return INSTANCE.match(prefix, name, tagName);
+    }
+
+    /** Returns the number of names in the shared table. */
+    static int size() {
+        return INSTANCE.names.size();
+    }
+
+    int register(String name) {
+        final Integer symbol = (Integer) names.get(name);
+        if (symbol != null) {
+            return symbol.intValue();
+        }
+        if (names.size() >= maxSymbols) {
+            return NONE;
+        }
+        final String foldedName = fold(name);
+        Integer foldedSymbol = (Integer) folded.get(foldedName);
+        if (foldedSymbol == null) {
+            foldedSymbol = new Integer(nextSymbol.getAndIncrement());
+            final Object previous =
+                folded.putIfAbsent(foldedName, foldedSymbol);
+            if (previous != null) {
+                foldedSymbol = (Integer) previous;
+            }
+        }
+        names.putIfAbsent(name, foldedSymbol);
+        return foldedSymbol.intValue();
+    }
+
+    int register(String prefix, String name) {
+        ConcurrentHashMap map = (ConcurrentHashMap) prefixed.get(prefix);
+        if (map == null) {
+            map = new ConcurrentHashMap();
+            final Object previous = prefixed.putIfAbsent(prefix, map);
+            if (previous != null) {
+                map = (ConcurrentHashMap) previous;
+            }
+        }
+        final Integer symbol = (Integer) map.get(name);
+        if (symbol != null) {
+            return symbol.intValue();
+        }
+        final int newSymbol = register(prefix + name);
+        if (newSymbol != NONE) {
+            map.putIfAbsent(name, new Integer(newSymbol));
+        }
+        return newSymbol;
+    }
+
+    /**
+     * Returns the symbol of a tag, without registering it, or
+     * {@link #NONE} if no registered name matches it ignoring case. If the
+     * tag is a new spelling of a registered name, and the table has room,
+     * the spelling is remembered, so that the next lookup is quicker.
+     */
+    int lookup(String tagName) {
+        final Integer symbol = (Integer) names.get(tagName);
+        if (symbol != null) {
+            return symbol.intValue();
+        }
+        final Integer foldedSymbol = (Integer) folded.get(fold(tagName));
+        if (foldedSymbol == null) {
+            return NONE;
+        }
+        if (names.size() < maxSymbols) {
+            names.putIfAbsent(tagName, foldedSymbol);
+        }
+        return foldedSymbol.intValue();
+    }
+
+    boolean match(String prefix, String name, String tagName) {
+        final int symbol = register(prefix, name);
+        if (symbol == NONE) {
+            // The table is full. Compare strings.
+            return (prefix + name).equalsIgnoreCase(tagName);
+        }
+        // The name is registered, so if the tag has no symbol, no name
+        // matches it.
+        return lookup(tagName) == symbol;
+    }
+
+    /**
+     * Folds the case of a name, as {@link String#equalsIgnoreCase(String)}
+     * does.
+     */
+    private static String fold(String name) {
+        final char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] =
+                Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
+
+// End TagSymbols.java
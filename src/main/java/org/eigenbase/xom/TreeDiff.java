@@ -0,0 +1,972 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * A <code>TreeDiff</code> compares two trees of {@link ElementDef}s and
+ * returns their differences as an edit script: a list of {@link Edit}s that
+ * a program can read, and that {@link #apply(ElementDef, List)} can apply.
+ *
+ * <p>{@link ElementDef#diff(ElementDef)} describes differences in text, and
+ * stops comparing two arrays as soon as their sizes differ. A
+ * <code>TreeDiff</code> instead aligns the elements of each pair of arrays,
+ * and reports which elements were deleted, inserted or moved, and, for
+ * elements that are in both arrays but have changed, how they changed. It
+ * aligns arrays in three steps:
+ *
+ * <ol>
+ * <li>Elements that have a key, and whose key is unique in both arrays, are
+ *     matched by key. The key of an element is the value of the first of
+ *     the {@link #setKeyFields(String[]) key fields} that its class has;
+ *     by default, its <code>name</code>.</li>
+ * <li>Other elements are matched to equal elements, using their structural
+ *     hash codes (see {@link ElementDef#hashCode()}), in order.</li>
+ * <li>The longest sequence of matched elements whose order is the same in
+ *     both arrays is kept in place; other matched elements have moved.
+ *     Between each pair of elements kept in place, unmatched elements of
+ *     the same class are paired in order, and are compared field by
+ *     field.</li>
+ * </ol>
+ *
+ * <p>Each step takes time roughly proportional to the size of the arrays
+ * (the third, to <i>n</i> log <i>n</i>), so two trees of a hundred
+ * thousand elements can be compared in well under a second.
+ *
+ * <p>Fields are found by reflection, once per class. The public fields of
+ * an element that hold elements, or arrays of elements, are compared as
+ * above; its other public fields, except its wrapper, are compared as
+ * values. An element that has no such fields, such as a
+ * {@link GenericDef}, is compared as a whole, using its XML.
+ *
+ * <p>The path of an edit identifies an element of the <em>before</em> tree;
+ * for example, <code>"/elements[3]/attributes[1]"</code> is the second
+ * attribute of the fourth element of the root, and <code>""</code> is the
+ * root. In an edit to an array, the old index is the position of the
+ * element in the before array, and the new index its position in the after
+ * array; elements of the array that are not deleted, inserted or moved keep
+ * their order, and fill the remaining positions.
+ *
+ * <p>A <code>TreeDiff</code> can be used for any number of comparisons, and
+ * by several threads at once if its key fields are not changed.
+ *
+ * @author jhyde
+ */
+public class TreeDiff
+{
+    private String[] keyFields = {"name"};
+
+    /** Creates a TreeDiff. */
+    public TreeDiff()
+    {
+    }
+
+    /**
+     * Sets the names of the fields that identify an element among the
+     * elements of an array. An element's key is the value of the first of
+     * these fields that its class has. The default is
+     * <code>{"name"}</code>; an empty array disables matching by key.
+     *
+     * @param keyFields Names of key fields
+     */
+    public void setKeyFields(String[] keyFields)
+    {
+        this.keyFields = (String[]) keyFields.clone();
+    }
+
+    /**
+     * Returns the names of the fields that identify an element among the
+     * elements of an array.
+     *
+     * @return Names of key fields
+     */
+    public String[] getKeyFields()
+    {
+        return (String[]) keyFields.clone();
+    }
+
+    /**
+     * Compares two trees and returns the edits that transform the first
+     * into the second. The list is empty if the trees are equal. If the
+     * roots cannot be compared field by field, because they are of
+     * different classes, the list deletes one root and inserts the other.
+     *
+     * @param before Tree before
+     * @param after Tree after
+     * @return List of {@link Edit}s
+     */
+    public List/*<Edit>*/ diff(ElementDef before, ElementDef after)
+    {
+        final Differ differ = new Differ();
+        if (differ.pairable(before, after)) {
+            if (!differ.nodeEquals(before, after)) {
+                differ.diffElements("", before, after);
+            }
+        } else if (!differ.nodeEquals(before, after)) {
+            differ.edits.add(
+                new Edit(Edit.DELETE, "", null, -1, -1, before, null));
+            differ.edits.add(
+                new Edit(Edit.INSERT, "", null, -1, -1, null, after));
+        }
+        return differ.edits;
+    }
+
+    /**
+     * Applies an edit script returned by {@link #diff} to a copy of the
+     * tree that it was computed from, and returns the patched copy. The
+     * tree itself is not modified, and elements inserted by the script are
+     * copied.
+     *
+     * @param before Tree that the edits were computed from
+     * @param edits List of {@link Edit}s
+     * @return Patched copy of <code>before</code>
+     * @throws XOMException if an edit does not fit the tree
+     */
+    public static ElementDef apply(ElementDef before, List/*<Edit>*/ edits)
+        throws XOMException
+    {
+        // Replacing the root replaces everything.
+        for (int i = 0; i < edits.size(); i++) {
+            final Edit edit = (Edit) edits.get(i);
+            if (edit.field == null && edit.kind == Edit.INSERT) {
+                return ((ElementDef) edit.newValue).deepCopy();
+            }
+        }
+        final ElementDef copy = before.deepCopy();
+
+        // Find the target of every edit before changing anything, because
+        // paths refer to positions in the before tree.
+        final List groups = new ArrayList();
+        final Map/*<ElementDef, Map<String, List<Edit>>>*/ groupMap =
+            new IdentityHashMap();
+        for (int i = 0; i < edits.size(); i++) {
+            final Edit edit = (Edit) edits.get(i);
+            final ElementDef target = resolve(copy, edit.path);
+            Map fieldMap = (Map) groupMap.get(target);
+            if (fieldMap == null) {
+                fieldMap = new HashMap();
+                groupMap.put(target, fieldMap);
+            }
+            List group = (List) fieldMap.get(edit.field);
+            if (group == null) {
+                group = new ArrayList();
+                fieldMap.put(edit.field, group);
+                groups.add(new Object[] {target, group});
+            }
+            group.add(edit);
+        }
+        for (int i = 0; i < groups.size(); i++) {
+            final Object[] pair = (Object[]) groups.get(i);
+            applyGroup((ElementDef) pair[0], (List) pair[1]);
+        }
+        return copy;
+    }
+
+    /**
+     * Applies the edits to one field of an element.
+     */
+    private static void applyGroup(ElementDef target, List edits)
+        throws XOMException
+    {
+        final String name = ((Edit) edits.get(0)).field;
+        final Field field = fields(target.getClass()).field(name);
+        if (field == null) {
+            throw new XOMException(
+                "Element " + target.getName() + " has no field " + name);
+        }
+        final Class type = field.getType();
+        if (isElementArray(type)) {
+            set(field, target, applyArray(
+                (NodeDef[]) get(field, target), type.getComponentType(),
+                edits));
+            return;
+        }
+        Object value = get(field, target);
+        for (int i = 0; i < edits.size(); i++) {
+            final Edit edit = (Edit) edits.get(i);
+            switch (edit.kind) {
+            case Edit.CHANGE:
+                value = edit.newValue instanceof Object[]
+                    ? ((Object[]) edit.newValue).clone()
+                    : edit.newValue;
+                break;
+            case Edit.DELETE:
+                value = null;
+                break;
+            case Edit.INSERT:
+                value = ElementDef.copyNode((NodeDef) edit.newValue);
+                break;
+            default:
+                throw new XOMException(
+                    "Cannot apply " + edit + " to a field that is not an"
+                    + " array");
+            }
+        }
+        set(field, target, value);
+    }
+
+    /**
+     * Applies the edits to an array of elements, and returns a new array.
+     */
+    private static NodeDef[] applyArray(
+        NodeDef[] nodes, Class componentType, List edits)
+        throws XOMException
+    {
+        if (nodes == null) {
+            nodes = new NodeDef[0];
+        } else {
+            componentType = nodes.getClass().getComponentType();
+        }
+        final boolean[] removed = new boolean[nodes.length];
+        final Map/*<Integer, NodeDef>*/ placed = new HashMap();
+        int length = nodes.length;
+        for (int i = 0; i < edits.size(); i++) {
+            final Edit edit = (Edit) edits.get(i);
+            switch (edit.kind) {
+            case Edit.DELETE:
+                removed[edit.oldIndex] = true;
+                --length;
+                break;
+            case Edit.INSERT:
+                placed.put(
+                    new Integer(edit.newIndex),
+                    ElementDef.copyNode((NodeDef) edit.newValue));
+                ++length;
+                break;
+            case Edit.MOVE:
+                removed[edit.oldIndex] = true;
+                placed.put(new Integer(edit.newIndex), nodes[edit.oldIndex]);
+                break;
+            default:
+                throw new XOMException(
+                    "Cannot apply " + edit + " to an array");
+            }
+        }
+        final NodeDef[] result =
+            (NodeDef[]) Array.newInstance(componentType, length);
+        int k = 0;
+        for (int j = 0; j < length; j++) {
+            final NodeDef node = (NodeDef) placed.get(new Integer(j));
+            if (node != null) {
+                result[j] = node;
+                continue;
+            }
+            while (k < nodes.length && removed[k]) {
+                ++k;
+            }
+            if (k == nodes.length) {
+                throw new XOMException("Edits do not fit array");
+            }
+            result[j] = nodes[k++];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the element of a tree at a path.
+     */
+    private static ElementDef resolve(ElementDef root, String path)
+        throws XOMException
+    {
+        ElementDef node = root;
+        int start = 1;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            final String segment = path.substring(start, end);
+            final int bracket = segment.indexOf('[');
+            final String name =
+                bracket < 0 ? segment : segment.substring(0, bracket);
+            final Field field = fields(node.getClass()).field(name);
+            if (field == null) {
+                throw new XOMException(
+                    "Path " + path + " does not fit tree: element "
+                    + node.getName() + " has no field " + name);
+            }
+            Object value = get(field, node);
+            if (bracket >= 0) {
+                final int index =
+                    Integer.parseInt(
+                        segment.substring(bracket + 1, segment.length() - 1));
+                value = value == null ? null : ((NodeDef[]) value)[index];
+            }
+            if (!(value instanceof ElementDef)) {
+                throw new XOMException(
+                    "Path " + path + " does not fit tree: " + segment
+                    + " is not an element");
+            }
+            node = (ElementDef) value;
+            start = end + 1;
+        }
+        return node;
+    }
+
+    /**
+     * State of one comparison: the edits found so far, and the hash codes
+     * of the nodes compared so far.
+     */
+    private class Differ
+    {
+        final List/*<Edit>*/ edits = new ArrayList();
+        final Map/*<NodeDef, Integer>*/ hashes = new IdentityHashMap();
+        final Map/*<Class, Field>*/ keys = new HashMap();
+
+        /**
+         * Compares two elements of the same class field by field.
+         */
+        void diffElements(String path, ElementDef before, ElementDef after)
+        {
+            final DiffFields fields = fields(before.getClass());
+            for (int i = 0; i < fields.values.length; i++) {
+                final Field field = fields.values[i];
+                final Object value1 = get(field, before);
+                final Object value2 = get(field, after);
+                if (!valueEquals(value1, value2)) {
+                    edits.add(
+                        new Edit(
+                            Edit.CHANGE, path, field.getName(), -1, -1,
+                            value1, value2));
+                }
+            }
+            for (int i = 0; i < fields.elements.length; i++) {
+                final Field field = fields.elements[i];
+                final NodeDef node1 = (NodeDef) get(field, before);
+                final NodeDef node2 = (NodeDef) get(field, after);
+                if (nodeEquals(node1, node2)) {
+                    continue;
+                }
+                if (pairable(node1, node2)) {
+                    diffElements(
+                        path + "/" + field.getName(),
+                        (ElementDef) node1, (ElementDef) node2);
+                    continue;
+                }
+                if (node1 != null) {
+                    edits.add(
+                        new Edit(
+                            Edit.DELETE, path, field.getName(), -1, -1,
+                            node1, null));
+                }
+                if (node2 != null) {
+                    edits.add(
+                        new Edit(
+                            Edit.INSERT, path, field.getName(), -1, -1,
+                            null, node2));
+                }
+            }
+            for (int i = 0; i < fields.arrays.length; i++) {
+                final Field field = fields.arrays[i];
+                diffArrays(
+                    path, field.getName(),
+                    (NodeDef[]) get(field, before),
+                    (NodeDef[]) get(field, after));
+            }
+        }
+
+        /**
+         * Aligns two arrays of elements, and adds edits for the elements
+         * that were deleted, inserted, moved or changed.
+         */
+        void diffArrays(
+            String path, String name, NodeDef[] before, NodeDef[] after)
+        {
+            if (before == null) {
+                before = new NodeDef[0];
+            }
+            if (after == null) {
+                after = new NodeDef[0];
+            }
+            final int[] newOf = new int[before.length];
+            final int[] oldOf = new int[after.length];
+            Arrays.fill(newOf, -1);
+            Arrays.fill(oldOf, -1);
+            matchKeys(before, after, newOf, oldOf);
+            matchEqual(before, after, newOf, oldOf);
+            final boolean[] stable = longestIncreasing(newOf);
+            pairGaps(before, after, newOf, oldOf, stable);
+
+            for (int i = 0; i < before.length; i++) {
+                final int j = newOf[i];
+                if (j < 0) {
+                    edits.add(
+                        new Edit(
+                            Edit.DELETE, path, name, i, -1, before[i], null));
+                    continue;
+                }
+                if (!stable[i]) {
+                    edits.add(
+                        new Edit(
+                            Edit.MOVE, path, name, i, j, before[i],
+                            after[j]));
+                }
+                if (!nodeEquals(before[i], after[j])) {
+                    diffElements(
+                        path + "/" + name + "[" + i + "]",
+                        (ElementDef) before[i], (ElementDef) after[j]);
+                }
+            }
+            for (int j = 0; j < after.length; j++) {
+                if (oldOf[j] < 0) {
+                    edits.add(
+                        new Edit(
+                            Edit.INSERT, path, name, -1, j, null, after[j]));
+                }
+            }
+        }
+
+        /**
+         * Matches elements whose keys are unique in both arrays.
+         */
+        void matchKeys(
+            NodeDef[] before, NodeDef[] after, int[] newOf, int[] oldOf)
+        {
+            if (keyFields.length == 0) {
+                return;
+            }
+            final Map/*<Object, Integer>*/ keys1 = keyIndexes(before);
+            if (keys1.isEmpty()) {
+                return;
+            }
+            final Map/*<Object, Integer>*/ keys2 = keyIndexes(after);
+            for (Iterator iter = keys1.entrySet().iterator();
+                 iter.hasNext();)
+            {
+                final Map.Entry entry = (Map.Entry) iter.next();
+                final int i = ((Integer) entry.getValue()).intValue();
+                final Integer j = (Integer) keys2.get(entry.getKey());
+                if (i >= 0 && j != null && j.intValue() >= 0) {
+                    newOf[i] = j.intValue();
+                    oldOf[j.intValue()] = i;
+                }
+            }
+        }
+
+        /**
+         * Returns the index of each element of an array by its key, or -1
+         * if several elements have the same key.
+         */
+        Map keyIndexes(NodeDef[] nodes)
+        {
+            final Map/*<Object, Integer>*/ map = new HashMap();
+            for (int i = 0; i < nodes.length; i++) {
+                final Object key = key(nodes[i]);
+                if (key != null
+                    && map.put(key, new Integer(i)) != null)
+                {
+                    map.put(key, new Integer(-1));
+                }
+            }
+            return map;
+        }
+
+        /**
+         * Returns the key of an element, or null. The key includes the
+         * class, so elements of different classes never match.
+         */
+        Object key(NodeDef node)
+        {
+            if (!(node instanceof ElementDef)) {
+                return null;
+            }
+            final Class clazz = node.getClass();
+            Field field;
+            if (keys.containsKey(clazz)) {
+                field = (Field) keys.get(clazz);
+            } else {
+                field = null;
+                final DiffFields fields = fields(clazz);
+                for (int i = 0; i < keyFields.length && field == null; i++) {
+                    field = fields.field(keyFields[i]);
+                    if (field != null && !fields.isValue(field)) {
+                        field = null;
+                    }
+                }
+                keys.put(clazz, field);
+            }
+            if (field == null) {
+                return null;
+            }
+            final Object value = get(field, node);
+            return value == null
+                ? null
+                : Arrays.asList(new Object[] {clazz, value});
+        }
+
+        /**
+         * Matches the remaining elements to equal elements, in order.
+         */
+        void matchEqual(
+            NodeDef[] before, NodeDef[] after, int[] newOf, int[] oldOf)
+        {
+            final Map/*<Integer, List<Integer>>*/ buckets = new HashMap();
+            for (int j = 0; j < after.length; j++) {
+                if (oldOf[j] >= 0 || after[j] == null) {
+                    continue;
+                }
+                final Integer hash = new Integer(hash(after[j]));
+                List bucket = (List) buckets.get(hash);
+                if (bucket == null) {
+                    bucket = new LinkedList();
+                    buckets.put(hash, bucket);
+                }
+                bucket.add(new Integer(j));
+            }
+            for (int i = 0; i < before.length; i++) {
+                if (newOf[i] >= 0 || before[i] == null) {
+                    continue;
+                }
+                final List bucket =
+                    (List) buckets.get(new Integer(hash(before[i])));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Iterator iter = bucket.iterator(); iter.hasNext();) {
+                    final int j = ((Integer) iter.next()).intValue();
+                    if (nodeEquals(before[i], after[j])) {
+                        newOf[i] = j;
+                        oldOf[j] = i;
+                        iter.remove();
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Pairs unmatched elements of the same class, in order, between
+         * each pair of consecutive elements that are kept in place.
+         */
+        void pairGaps(
+            NodeDef[] before,
+            NodeDef[] after,
+            int[] newOf,
+            int[] oldOf,
+            boolean[] stable)
+        {
+            int i = 0;
+            int j = 0;
+            while (i < before.length || j < after.length) {
+                // Find the end of the gap: the next stable pair, or the
+                // ends of the arrays.
+                int i2 = i;
+                while (i2 < before.length && !stable[i2]) {
+                    ++i2;
+                }
+                final int j2 = i2 < before.length ? newOf[i2] : after.length;
+                int next = j;
+                for (int p = i; p < i2; p++) {
+                    if (newOf[p] >= 0 || !isComparable(before[p])) {
+                        continue;
+                    }
+                    for (int q = next; q < j2; q++) {
+                        if (oldOf[q] < 0 && pairable(before[p], after[q])) {
+                            newOf[p] = q;
+                            oldOf[q] = p;
+                            stable[p] = true;
+                            next = q + 1;
+                            break;
+                        }
+                    }
+                }
+                i = i2 + 1;
+                j = j2 + 1;
+            }
+        }
+
+        /**
+         * Returns whether two nodes are elements of the same class that can
+         * be compared field by field.
+         */
+        boolean pairable(NodeDef node1, NodeDef node2)
+        {
+            return node1 != null
+                && node2 != null
+                && node1.getClass() == node2.getClass()
+                && isComparable(node1);
+        }
+
+        /**
+         * Returns whether two nodes are equal.
+         */
+        boolean nodeEquals(NodeDef node1, NodeDef node2)
+        {
+            if (node1 == node2) {
+                return true;
+            }
+            if (node1 == null
+                || node2 == null
+                || node1.getClass() != node2.getClass()
+                || hash(node1) != hash(node2))
+            {
+                return false;
+            }
+            if (!(node1 instanceof ElementDef)) {
+                return valueEquals(
+                    ((TextDef) node1).getText(), ((TextDef) node2).getText());
+            }
+            if (!isComparable(node1)) {
+                return ((ElementDef) node1).toXML().equals(
+                    ((ElementDef) node2).toXML());
+            }
+            return node1.equals(node2);
+        }
+
+        /**
+         * Returns the hash code of a node, computing it at most once.
+         */
+        int hash(NodeDef node)
+        {
+            Integer hash = (Integer) hashes.get(node);
+            if (hash == null) {
+                final int h;
+                if (!(node instanceof ElementDef)) {
+                    final String text = ((TextDef) node).getText();
+                    h = text == null ? 0 : text.hashCode();
+                } else if (!isComparable(node)) {
+                    h = ((ElementDef) node).toXML().hashCode();
+                } else {
+                    h = node.hashCode();
+                }
+                hash = new Integer(h);
+                hashes.put(node, hash);
+            }
+            return hash.intValue();
+        }
+    }
+
+    /**
+     * Returns which elements of a sequence are in its longest increasing
+     * subsequence, ignoring negative elements.
+     */
+    private static boolean[] longestIncreasing(int[] values)
+    {
+        // tails[k] is the index of the least value that ends an increasing
+        // subsequence of length k + 1.
+        final int[] tails = new int[values.length];
+        final int[] previous = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] < 0) {
+                continue;
+            }
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                ++length;
+            }
+        }
+        final boolean[] result = new boolean[values.length];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0;
+             i = previous[i])
+        {
+            result[i] = true;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether two values are equal. Arrays are equal if their
+     * elements are equal.
+     */
+    private static boolean valueEquals(Object value1, Object value2)
+    {
+        if (value1 == value2) {
+            return true;
+        }
+        if (value1 == null || value2 == null) {
+            return false;
+        }
+        if (value1 instanceof Object[] && value2 instanceof Object[]) {
+            return Arrays.equals((Object[]) value1, (Object[]) value2);
+        }
+        return value1.equals(value2);
+    }
+
+    /**
+     * Returns whether a node is an element that can be compared field by
+     * field.
+     */
+    private static boolean isComparable(NodeDef node)
+    {
+        return node instanceof ElementDef && !fields(node.getClass()).opaque;
+    }
+
+    private static boolean isElementArray(Class type)
+    {
+        return type.isArray()
+            && NodeDef.class.isAssignableFrom(type.getComponentType());
+    }
+
+    private static Object get(Field field, Object o)
+    {
+        try {
+            return field.get(o);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(
+                "Error while accessing field '" + field + "'", e);
+        }
+    }
+
+    private static void set(Field field, Object o, Object value)
+    {
+        try {
+            field.set(o, value);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(
+                "Error while accessing field '" + field + "'", e);
+        }
+    }
+
+    private static DiffFields fields(Class clazz)
+    {
+        return (DiffFields) DIFF_FIELDS.get(clazz);
+    }
+
+    /** Compared fields of each element class; see {@link DiffFields}. */
+    private static final ClassValue/*<DiffFields>*/ DIFF_FIELDS =
+        new ClassValue() {
+            protected Object computeValue(Class clazz) {
+                return new DiffFields(clazz);
+            }
+        };
+
+    /**
+     * The public fields of an element class that a diff compares, found by
+     * reflection once per class: those that hold values, elements, and
+     * arrays of elements. The wrapper, and static and transient fields, are
+     * not compared.
+     */
+    private static class DiffFields
+    {
+        final Field[] values;
+        final Field[] elements;
+        final Field[] arrays;
+        /** Whether the class has no compared fields, so that its instances
+         * must be compared as a whole. */
+        final boolean opaque;
+        private final Map/*<String, Field>*/ byName = new HashMap();
+
+        DiffFields(Class clazz)
+        {
+            final List valueList = new ArrayList();
+            final List elementList = new ArrayList();
+            final List arrayList = new ArrayList();
+            final Field[] fields = clazz.getFields();
+            for (int i = 0; i < fields.length; i++) {
+                final Field field = fields[i];
+                final int modifiers = field.getModifiers();
+                final Class type = field.getType();
+                if (Modifier.isStatic(modifiers)
+                    || Modifier.isTransient(modifiers)
+                    || DOMWrapper.class.isAssignableFrom(type)
+                    || byName.containsKey(field.getName()))
+                {
+                    continue;
+                }
+                byName.put(field.getName(), field);
+                if (NodeDef.class.isAssignableFrom(type)) {
+                    elementList.add(field);
+                } else if (isElementArray(type)) {
+                    arrayList.add(field);
+                } else {
+                    valueList.add(field);
+                }
+            }
+            values =
+                (Field[]) valueList.toArray(new Field[valueList.size()]);
+            elements =
+                (Field[]) elementList.toArray(new Field[elementList.size()]);
+            arrays =
+                (Field[]) arrayList.toArray(new Field[arrayList.size()]);
+            opaque = byName.isEmpty();
+        }
+
+        /** Returns the compared field with a given name, or null. */
+        Field field(String name)
+        {
+            return (Field) byName.get(name);
+        }
+
+        /** Returns whether a field holds a value, not elements. */
+        boolean isValue(Field field)
+        {
+            return Arrays.asList(values).contains(field);
+        }
+    }
+
+    /**
+     * One step of an edit script.
+     *
+     * <p>The path is that of an element of the before tree, and the field
+     * is the name of one of its fields, or null if the edit replaces the
+     * root. A {@link #CHANGE} edit sets a value; the others delete, insert
+     * or move an element of an array, or delete or insert the element of a
+     * field that holds a single element, in which case the indexes are
+     * -1.
+     */
+    public static class Edit
+    {
+        /** Inserts an element. */
+        public static final int INSERT = 0;
+        /** Deletes an element. */
+        public static final int DELETE = 1;
+        /** Moves an element to another position in its array. */
+        public static final int MOVE = 2;
+        /** Changes the value of a field, such as an attribute. */
+        public static final int CHANGE = 3;
+
+        private static final String[] KIND_NAMES = {
+            "insert", "delete", "move", "change",
+        };
+
+        private final int kind;
+        private final String path;
+        private final String field;
+        private final int oldIndex;
+        private final int newIndex;
+        private final Object oldValue;
+        private final Object newValue;
+
+        Edit(
+            int kind,
+            String path,
+            String field,
+            int oldIndex,
+            int newIndex,
+            Object oldValue,
+            Object newValue)
+        {
+            this.kind = kind;
+            this.path = path;
+            this.field = field;
+            this.oldIndex = oldIndex;
+            this.newIndex = newIndex;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        /** Returns the kind of edit: {@link #INSERT}, {@link #DELETE},
+         * {@link #MOVE} or {@link #CHANGE}. */
+        public int getKind()
+        {
+            return kind;
+        }
+
+        /** Returns the path of the element, in the before tree, whose field
+         * is edited. */
+        public String getPath()
+        {
+            return path;
+        }
+
+        /** Returns the name of the field that is edited, or null if the
+         * edit deletes or inserts the root. */
+        public String getField()
+        {
+            return field;
+        }
+
+        /** Returns the position of the element in the before array, or -1.
+         * Defined for {@link #DELETE} and {@link #MOVE} edits to
+         * arrays. */
+        public int getOldIndex()
+        {
+            return oldIndex;
+        }
+
+        /** Returns the position of the element in the after array, or -1.
+         * Defined for {@link #INSERT} and {@link #MOVE} edits to
+         * arrays. */
+        public int getNewIndex()
+        {
+            return newIndex;
+        }
+
+        /** Returns the value or element before the edit, or null. */
+        public Object getOldValue()
+        {
+            return oldValue;
+        }
+
+        /** Returns the value or element after the edit, or null. */
+        public Object getNewValue()
+        {
+            return newValue;
+        }
+
+        public String toString()
+        {
+            final StringBuffer buf = new StringBuffer();
+            buf.append(KIND_NAMES[kind]).append(' ').append(path);
+            if (field != null) {
+                buf.append('/').append(field);
+            }
+            switch (kind) {
+            case DELETE:
+                appendIndex(buf, oldIndex);
+                break;
+            case INSERT:
+                appendIndex(buf, newIndex);
+                buf.append(' ').append(((NodeDef) newValue).getName());
+                break;
+            case MOVE:
+                appendIndex(buf, oldIndex);
+                buf.append(" to ");
+                appendIndex(buf, newIndex);
+                break;
+            case CHANGE:
+                buf.append(": ").append(describe(oldValue)).append(" to ")
+                    .append(describe(newValue));
+                break;
+            }
+            return buf.toString();
+        }
+
+        private static void appendIndex(StringBuffer buf, int index)
+        {
+            if (index >= 0) {
+                buf.append('[').append(index).append(']');
+            }
+        }
+
+        private static String describe(Object value)
+        {
+            return value instanceof Object[]
+                ? Arrays.asList((Object[]) value).toString()
+                : String.valueOf(value);
+        }
+    }
+}
+
+// End TreeDiff.java
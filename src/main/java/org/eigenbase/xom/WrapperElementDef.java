@@ -113,6 +113,14 @@ public class WrapperElementDef extends ElementDef
         }
     }
 
+    // override ElementDef
+    public ElementDef deepCopy()
+    {
+        // Children are created from the wrapper each time they are asked
+        // for, so the copy needs only the same wrapper.
+        return new WrapperElementDef(_def, enclosure, prefix);
+    }
+
     // implement NodeDef
     public DOMWrapper getWrapper()
     {
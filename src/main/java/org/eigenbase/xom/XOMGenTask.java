@@ -72,6 +72,14 @@ import java.io.IOException;
  *       either absolute, or relative to <code>destdir</code>.</td>
  *     <td valign="top" align="center">Yes</td>
  *   </tr>
+ *   <tr>
+ *     <td valign="top"><a name="generateenums">generateenums</a></td>
+ *     <td valign="top">Whether to generate an enum for each String
+ *       attribute that has a list of allowable values; see
+ *       {@link MetaGenerator#setGenerateEnums(boolean)}. Default is
+ *       false.</td>
+ *     <td valign="top" align="center">No</td>
+ *   </tr>
  * </table>
  *
  * <h3>Example</h3>
@@ -93,6 +101,7 @@ public class XOMGenTask extends Task {
     String destDir;
     String dtdFileName;
     String className;
+    boolean generateEnums;
 
     public XOMGenTask()
     {}
@@ -140,6 +149,7 @@ public class XOMGenTask extends Task {
             final boolean testMode = false;
             MetaGenerator generator = new MetaGenerator(
                 modelFile.toString(), testMode, className);
+            generator.setGenerateEnums(generateEnums);
             generator.writeFiles(destinationDirectory.toString(), dtdFileName);
             generator.writeOutputs();
         } catch (XOMException e) {
@@ -172,6 +182,12 @@ public class XOMGenTask extends Task {
         this.dtdFileName = dtdname;
     }
 
+    /** See parameter
+     * <code><a href="#generateenums">generateenums</a></code>. */
+    public void setGenerateenums(boolean generateEnums) {
+        this.generateEnums = generateEnums;
+    }
+
     // ------------------------------------------------------------------------
 
     /**
@@ -130,19 +130,7 @@ public abstract class XOMUtil extends XMLUtil {
         } else {
             // Use reflection. We presume that the children are stored in the
             // first array field.
-            Field field = null;
-            Field[] fields = parent.getClass().getFields();
-            for (int i = 0; i < fields.length; i++) {
-                if (fields[i].getType().isArray()) {
-                    field = fields[i];
-                    break;
-                }
-            }
-            if (field == null) {
-                throw new XOMException(
-                    "cannot add field to " + parent.getClass() +
-                    ": it has no array field");
-            }
+            Field field = getChildArrayField(parent.getClass());
             try {
                 Object[] a = (Object[]) field.get(parent);
                 Object[] b = concatenate(a, children);
@@ -153,6 +141,37 @@ public abstract class XOMUtil extends XMLUtil {
         }
     }
 
+    /**
+     * Returns the field in which {@link #addChildren} stores the children of
+     * an element class: its first public array field.
+     *
+     * @throws XOMException if the class has no public array field
+     */
+    static Field getChildArrayField(Class clazz) throws XOMException
+    {
+        Field field = (Field) childArrayFields.get(clazz);
+        if (field == null) {
+            throw new XOMException(
+                "cannot add field to " + clazz + ": it has no array field");
+        }
+        return field;
+    }
+
+    /** The first public array field of each class, or null; found once per
+     * class rather than on every call to {@link #addChildren}. */
+    private static final ClassValue/*<Field>*/ childArrayFields =
+        new ClassValue() {
+            protected Object computeValue(Class clazz) {
+                Field[] fields = clazz.getFields();
+                for (int i = 0; i < fields.length; i++) {
+                    if (fields[i].getType().isArray()) {
+                        return fields[i];
+                    }
+                }
+                return null;
+            }
+        };
+
     public static void addChild(ElementDef parent, ElementDef child)
         throws XOMException
     {
@@ -165,6 +184,9 @@ public abstract class XOMUtil extends XMLUtil {
         addChildren(parent, new NodeDef[] {child});
     }
 
+    /** Class of the default parser; loaded on first use. */
+    private static Class defaultParserClass;
+
     /**
      * Creates a {@link Parser} of the default parser type.
      */
@@ -172,7 +194,12 @@ public abstract class XOMUtil extends XMLUtil {
     {
         String className = "org.eigenbase.xom.wrappers.JaxpDOMParser";
         try {
-            Class clazz = Class.forName(className);
+            Class clazz = defaultParserClass;
+            if (clazz == null) {
+                clazz = Class.forName(className);
+                // Benign race: several threads may load the same class.
+                defaultParserClass = clazz;
+            }
             return (Parser) clazz.newInstance();
         } catch (ClassNotFoundException e) {
             throw new XOMException(e, "Error while creating xml parser '" + className + "'");
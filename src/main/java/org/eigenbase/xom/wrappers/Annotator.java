@@ -30,10 +30,10 @@ import java.io.PrintWriter;
  *
  * @author jhyde
  */
-public class Annotator {
+public class Annotator implements Locator {
     private final List/*<LocInfo>*/ locInfoList = new ArrayList();
     private int[] lineStartPositions;
-    private final String xml;
+    private final CharSequence xml;
     private final Map/*<DOMWrapper, LocInfo>*/ wrapperLocMap =
         new HashMap();
     private final Map/*<Node, LocInfo>*/ nodeLocMap = new HashMap();
@@ -45,27 +45,30 @@ public class Annotator {
      * <p>For testing purposes, <code>wrapper</code> may be null. Parses the XML
      * but does not build the mapping from location information to DOM nodes.
      *
-     * @param xml XML source string
+     * @param xml XML source text; need not be a string, so that the text
+     *     can be decoded on demand from a buffer
      * @param def Wrapper around root DOM node
      */
-    Annotator(String xml, DOMWrapper def) {
+    Annotator(CharSequence xml, DOMWrapper def) {
         this.xml = xml;
         parse(xml);
         if (def != null) {
             seq = 0;
             populateMap(def);
-            assert this.nodeLocMap.size() == this.wrapperLocMap.size();
+            assert this.nodeLocMap.isEmpty()
+                || this.nodeLocMap.size() == this.wrapperLocMap.size();
         }
     }
 
+    // implement Locator
     public Location getLocation(DOMWrapper wrapper) {
         LocInfo location0 = (LocInfo) wrapperLocMap.get(wrapper);
-        if (location0 == null) {
+        if (location0 == null && wrapper instanceof W3CDOMWrapper) {
             location0 = (Annotator.LocInfo)
                 nodeLocMap.get(((W3CDOMWrapper) wrapper).node);
-            if (location0 == null) {
-                return null;
-            }
+        }
+        if (location0 == null) {
+            return null;
         }
         final LocInfo location = location0;
         return new Location() {
@@ -124,7 +127,7 @@ public class Annotator {
         STATE_COMMENT = 5,
         STATE_CDATA = 6;
 
-    void parse(String s)
+    void parse(CharSequence s)
     {
         final ArrayStack/*<LocInfo>*/ lockInfoStack = new ArrayStack();
         final List lineStartPositions = new ArrayList();
@@ -171,7 +174,7 @@ public class Annotator {
                             i += "<?".length();
                             continue loop;
                         case '!':
-                            if (s.startsWith("--", i + 2)) {
+                            if (startsWith(s, "--", i + 2)) {
                                 // ^<!--
                                 location =
                                     new LocInfo(
@@ -182,7 +185,7 @@ public class Annotator {
                                 i += "<!--".length();
                                 continue loop;
                             }
-                            if (s.startsWith("[CDATA[", i + 2)) {
+                            if (startsWith(s, "[CDATA[", i + 2)) {
                                 // ^<![CDATA[
                                 location =
                                     new LocInfo(
@@ -241,7 +244,7 @@ public class Annotator {
                         location = (LocInfo) lockInfoStack.pop();
                     } catch (IndexOutOfBoundsException e) {
                         throw new RuntimeException(
-                            "i=" + i + ", xml=" + xml.substring(i)
+                            "i=" + i + ", xml=" + xml.subSequence(i, xml.length())
                                 + ", nodeList=" + locInfoList,
                             e);
                     }
@@ -271,7 +274,7 @@ public class Annotator {
             case ']':
                 switch (state) {
                 case STATE_CDATA:
-                    if (s.startsWith("]>", i + 1)) {
+                    if (startsWith(s, "]>", i + 1)) {
                          // <![CDATA[ ... ^]]>
                         state = STATE_NORMAL;
                         i += "]]>".length();
@@ -286,7 +289,7 @@ public class Annotator {
             case '-':
                 switch (state) {
                 case STATE_COMMENT:
-                    if (s.startsWith("->", i + 1)) {
+                    if (startsWith(s, "->", i + 1)) {
                         // <!-- xxxxx^-->
                         i += "-->".length();
                         location.endTagEndPos = i;
@@ -356,6 +359,22 @@ public class Annotator {
         }
     }
 
+    /**
+     * Returns whether a character sequence contains a given string at a
+     * given position; like {@link String#startsWith(String, int)}.
+     */
+    private static boolean startsWith(CharSequence s, String prefix, int i) {
+        if (i + prefix.length() > s.length()) {
+            return false;
+        }
+        for (int j = 0; j < prefix.length(); j++) {
+            if (s.charAt(i + j) != prefix.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void populateMap(DOMWrapper def)
     {
         final int defType = def.getType();
@@ -377,7 +396,12 @@ public class Annotator {
             }
         }
         wrapperLocMap.put(def, location);
-        nodeLocMap.put(((W3CDOMWrapper) def).node, location);
+        if (def instanceof W3CDOMWrapper
+            && !((W3CDOMWrapper) def).isCaching())
+        {
+            // Another wrapper may be created later for the same node.
+            nodeLocMap.put(((W3CDOMWrapper) def).node, location);
+        }
         final DOMWrapper[] elementChildren = def.getElementChildren();
         for (int i = 0; i < elementChildren.length; i++) {
             DOMWrapper domWrapper = elementChildren[i];
@@ -472,8 +496,9 @@ public class Annotator {
          * @param xml Whole source XML
          * @return fragment of source XML
          */
-        public String getText(String xml) {
-            return xml.substring(
+        public String getText(CharSequence xml) {
+            return substring(
+                xml,
                 startTagStartPos,
                 endTagEndPos >= 0 ? endTagEndPos
                     : xml.length());
@@ -486,8 +511,9 @@ public class Annotator {
          * @param xml Whole source XML
          * @return fragment of source XML
          */
-        public String getHeadText(String xml) {
-            return xml.substring(
+        public String getHeadText(CharSequence xml) {
+            return substring(
+                xml,
                 startTagStartPos,
                 startTagEndPos >= 0 ? startTagEndPos
                     : endTagEndPos >= 0 ? endTagEndPos
@@ -506,7 +532,8 @@ public class Annotator {
          * @return Source text underlying a location
          */
         public String getText(boolean headOnly) {
-            return xml.substring(
+            return substring(
+                xml,
                 startTagStartPos,
                 headOnly && startTagEndPos >= 0
                     ? startTagEndPos
@@ -516,6 +543,10 @@ public class Annotator {
         }
     }
 
+    private static String substring(CharSequence s, int start, int end) {
+        return s.subSequence(start, end).toString();
+    }
+
     /**
      * Similar to {@link Stack} but based on {@link ArrayList} instead of
      * {@link Vector}, and therefore more efficient.
@@ -0,0 +1,109 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Input stream that reads the remaining bytes of a {@link ByteBuffer}.
+ *
+ * <p>The stream reads from a duplicate of the buffer, so it does not change
+ * the position of the buffer it was created with. It supports mark and
+ * reset.
+ *
+ * @author jhyde
+ */
+class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+        this.buffer.mark();
+    }
+
+    /**
+     * Maps a file into memory, read-only.
+     *
+     * @param path Path of file
+     * @return Buffer whose contents are the file
+     */
+    static ByteBuffer map(Path path) throws IOException {
+        final FileChannel channel =
+            FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(
+                    "File is too large to map: " + path + " (" + size
+                    + " bytes)");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            // The mapping remains valid after the channel is closed.
+            channel.close();
+        }
+    }
+
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        final int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    public long skip(long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        final int skipped = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    public int available() {
+        return buffer.remaining();
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public synchronized void mark(int readlimit) {
+        buffer.mark();
+    }
+
+    public synchronized void reset() {
+        buffer.reset();
+    }
+}
+
+// End ByteBufferInputStream.java
@@ -0,0 +1,319 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+/**
+ * Character sequence that decodes the text of a document from a
+ * {@link ByteBuffer} on demand, rather than holding a decoded copy on the
+ * heap.
+ *
+ * <p>If the document is in a single-byte encoding, character <i>i</i> is
+ * byte <i>i</i>. If it is in UTF-8, the sequence remembers the byte offset
+ * of every {@link #CHECKPOINT}th character, and decodes forward from the
+ * nearest checkpoint; it also remembers where the last access ended, so
+ * reading characters in order is cheap. Documents in other encodings are
+ * decoded into a string; see {@link #create(ByteBuffer, String)}.
+ *
+ * <p>Methods are synchronized, because access moves a cursor.
+ *
+ * @author jhyde
+ */
+final class ByteBufferText implements CharSequence {
+    /** Number of characters between checkpoints. */
+    private static final int CHECKPOINT = 1024;
+
+    private final ByteBuffer buffer;
+    private final boolean utf8;
+
+    /** Number of characters; -1 until the buffer has been indexed. */
+    private int length = -1;
+    /** Character index of each checkpoint. */
+    private int[] checkpointChars;
+    /** Byte offset of each checkpoint. */
+    private int[] checkpointBytes;
+
+    /** Character index of the cursor, which is always at the start of a
+     * code point. */
+    private int cursorChar;
+    /** Byte offset of the cursor. */
+    private int cursorByte;
+
+    private ByteBufferText(ByteBuffer buffer, boolean utf8) {
+        this.buffer = buffer;
+        this.utf8 = utf8;
+        if (!utf8) {
+            length = buffer.limit();
+        }
+    }
+
+    /**
+     * Returns the text of a document held in a buffer.
+     *
+     * <p>A byte order mark is skipped, so that character positions match
+     * those reported by the parser.
+     *
+     * @param buffer Buffer; its remaining bytes are the document
+     * @param encoding Name of the encoding of the document; if null, it is
+     *   detected from the document
+     * @return Text of document
+     */
+    static CharSequence create(ByteBuffer buffer, String encoding) {
+        final EncodingDetector detector = EncodingDetector.detect(buffer);
+        if (encoding == null) {
+            encoding = detector.encoding;
+        }
+        final ByteBuffer slice = buffer.duplicate();
+        if (encoding.equalsIgnoreCase(detector.encoding)
+            || detector.bomLength == 0)
+        {
+            slice.position(slice.position() + detector.bomLength);
+        }
+        Charset charset;
+        try {
+            charset = Charset.forName(encoding);
+        } catch (IllegalCharsetNameException e) {
+            charset = Charset.forName("UTF-8");
+        } catch (UnsupportedCharsetException e) {
+            charset = Charset.forName("UTF-8");
+        }
+        final String name = charset.name();
+        if (name.equals("UTF-8")) {
+            return new ByteBufferText(slice.slice(), true);
+        }
+        if (name.equals("ISO-8859-1") || name.equals("US-ASCII")) {
+            return new ByteBufferText(slice.slice(), false);
+        }
+        String s = charset.decode(slice).toString();
+        if (s.length() > 0 && s.charAt(0) == '\uFEFF') {
+            s = s.substring(1);
+        }
+        return s;
+    }
+
+    public synchronized int length() {
+        index();
+        return length;
+    }
+
+    public synchronized char charAt(int index) {
+        if (!utf8) {
+            return (char) (buffer.get(index) & 0xff);
+        }
+        seek(index);
+        final int c = codePoint(cursorByte);
+        if (c < 0x10000) {
+            return (char) c;
+        }
+        // A supplementary character occupies two chars.
+        return index == cursorChar
+            ? highSurrogate(c)
+            : lowSurrogate(c);
+    }
+
+    public synchronized CharSequence subSequence(int start, int end) {
+        if (start < 0 || end < start || end > length()) {
+            throw new IndexOutOfBoundsException(
+                "start " + start + ", end " + end + ", length " + length);
+        }
+        final StringBuffer buf = new StringBuffer(end - start);
+        if (!utf8) {
+            for (int i = start; i < end; i++) {
+                buf.append((char) (buffer.get(i) & 0xff));
+            }
+            return buf.toString();
+        }
+        if (start == end) {
+            return "";
+        }
+        seek(start);
+        int i = start;
+        if (i > cursorChar) {
+            // Start is the second half of a surrogate pair.
+            buf.append(lowSurrogate(codePoint(cursorByte)));
+            advance();
+            ++i;
+        }
+        while (i < end) {
+            final int c = codePoint(cursorByte);
+            if (c < 0x10000) {
+                buf.append((char) c);
+                ++i;
+            } else {
+                buf.append(highSurrogate(c));
+                if (++i < end) {
+                    buf.append(lowSurrogate(c));
+                    ++i;
+                }
+            }
+            if (i < end) {
+                advance();
+            }
+        }
+        return buf.toString();
+    }
+
+    public synchronized String toString() {
+        return subSequence(0, length()).toString();
+    }
+
+    /**
+     * Scans the buffer, if it has not been scanned already, to count the
+     * characters and record checkpoints.
+     */
+    private void index() {
+        if (length >= 0) {
+            return;
+        }
+        int[] chars = new int[16];
+        int[] bytes = new int[16];
+        int count = 0;
+        int c = 0;
+        int b = 0;
+        final int limit = buffer.limit();
+        while (b < limit) {
+            if (c >= count * CHECKPOINT) {
+                if (count == chars.length) {
+                    chars = grow(chars);
+                    bytes = grow(bytes);
+                }
+                chars[count] = c;
+                bytes[count] = b;
+                ++count;
+            }
+            c += codePoint(b) < 0x10000 ? 1 : 2;
+            b += width(b);
+        }
+        length = c;
+        checkpointChars = new int[count];
+        System.arraycopy(chars, 0, checkpointChars, 0, count);
+        checkpointBytes = new int[count];
+        System.arraycopy(bytes, 0, checkpointBytes, 0, count);
+    }
+
+    /**
+     * Moves the cursor to the code point that contains a given character.
+     */
+    private void seek(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException(
+                "index " + index + ", length " + length);
+        }
+        if (index < cursorChar || index >= cursorChar + CHECKPOINT) {
+            // Jump to the last checkpoint at or before the index.
+            int lo = 0;
+            int hi = checkpointChars.length - 1;
+            while (lo < hi) {
+                final int mid = (lo + hi + 1) >>> 1;
+                if (checkpointChars[mid] <= index) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (checkpointChars[lo] > cursorChar || index < cursorChar) {
+                cursorChar = checkpointChars[lo];
+                cursorByte = checkpointBytes[lo];
+            }
+        }
+        while (true) {
+            final int n = codePoint(cursorByte) < 0x10000 ? 1 : 2;
+            if (index < cursorChar + n) {
+                return;
+            }
+            cursorChar += n;
+            cursorByte += width(cursorByte);
+        }
+    }
+
+    /** Moves the cursor to the next code point. */
+    private void advance() {
+        cursorChar += codePoint(cursorByte) < 0x10000 ? 1 : 2;
+        cursorByte += width(cursorByte);
+    }
+
+    /**
+     * Returns the number of bytes in the UTF-8 sequence that starts at a
+     * given offset. A malformed sequence counts as one byte.
+     */
+    private int width(int b) {
+        final int b0 = buffer.get(b) & 0xff;
+        final int n =
+            b0 < 0x80 ? 1
+            : (b0 & 0xE0) == 0xC0 ? 2
+            : (b0 & 0xF0) == 0xE0 ? 3
+            : (b0 & 0xF8) == 0xF0 ? 4
+            : 1;
+        if (b + n > buffer.limit()) {
+            return 1;
+        }
+        for (int i = 1; i < n; i++) {
+            if ((buffer.get(b + i) & 0xC0) != 0x80) {
+                return 1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Decodes the code point whose UTF-8 sequence starts at a given offset.
+     * A malformed sequence decodes as U+FFFD.
+     */
+    private int codePoint(int b) {
+        final int b0 = buffer.get(b) & 0xff;
+        if (b0 < 0x80) {
+            return b0;
+        }
+        switch (width(b)) {
+        case 2:
+            return (b0 & 0x1F) << 6
+                | buffer.get(b + 1) & 0x3F;
+        case 3:
+            return (b0 & 0x0F) << 12
+                | (buffer.get(b + 1) & 0x3F) << 6
+                | buffer.get(b + 2) & 0x3F;
+        case 4:
+            return (b0 & 0x07) << 18
+                | (buffer.get(b + 1) & 0x3F) << 12
+                | (buffer.get(b + 2) & 0x3F) << 6
+                | buffer.get(b + 3) & 0x3F;
+        default:
+            return 0xFFFD;
+        }
+    }
+
+    private static char highSurrogate(int c) {
+        return (char) (((c - 0x10000) >> 10) + 0xD800);
+    }
+
+    private static char lowSurrogate(int c) {
+        return (char) (((c - 0x10000) & 0x3FF) + 0xDC00);
+    }
+
+    private static int[] grow(int[] a) {
+        final int[] a2 = new int[a.length * 2];
+        System.arraycopy(a, 0, a2, 0, a.length);
+        return a2;
+    }
+}
+
+// End ByteBufferText.java
@@ -0,0 +1,338 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import org.eigenbase.xom.*;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, immutable implementation of {@link DOMWrapper}, built by
+ * {@link StaxDOMParser} without an intermediate W3C DOM.
+ *
+ * <p>A node holds only what the <code>DOMWrapper</code> interface can
+ * observe: its type, tag name, attributes, text and children. Comments and
+ * processing instructions are not retained, because
+ * {@link W3CDOMWrapper#getChildren()} never returns them either.
+ *
+ * <p>Arrays returned by {@link #getChildren()} and
+ * {@link #getElementChildren()} are shared, and must not be modified.
+ *
+ * @author jhyde
+ */
+final class CompactDOMWrapper implements DOMWrapper {
+    static final DOMWrapper[] EMPTY_CHILDREN = new DOMWrapper[0];
+    static final String[] EMPTY_ATTRIBUTES = new String[0];
+
+    private final int type;
+    private final String tagName;
+    /** Attribute names and values, alternating. */
+    private final String[] attributes;
+    /** Text of a FREETEXT or CDATA node; null for an element. */
+    private final String text;
+    DOMWrapper[] children;
+    Locator locator;
+    /** Identifier of an element, unique within its document; -1 for a text
+     * node. */
+    int id = -1;
+
+    /**
+     * Creates an element node.
+     *
+     * @param tagName Tag name
+     * @param attributes Attribute names and values, alternating
+     */
+    CompactDOMWrapper(String tagName, String[] attributes) {
+        this.type = ELEMENT;
+        this.tagName = tagName;
+        this.attributes = attributes;
+        this.text = null;
+        this.children = EMPTY_CHILDREN;
+    }
+
+    /**
+     * Creates a text node.
+     *
+     * @param type Node type, {@link #FREETEXT} or {@link #CDATA}
+     * @param text Text
+     */
+    CompactDOMWrapper(int type, String text) {
+        this.type = type;
+        this.tagName = null;
+        this.attributes = EMPTY_ATTRIBUTES;
+        this.text = text;
+        this.children = EMPTY_CHILDREN;
+    }
+
+    // implement DOMWrapper
+    public int getType() {
+        return type;
+    }
+
+    // implement DOMWrapper
+    public String getTagName() {
+        return tagName;
+    }
+
+    /**
+     * Returns the attribute. Returns null if the attribute isn't defined,
+     * or is empty, or if this is not an element; same as
+     * {@link W3CDOMWrapper#getAttribute(String)}.
+     */
+    public String getAttribute(String attrName) {
+        for (int i = 0; i < attributes.length; i += 2) {
+            if (attributes[i].equals(attrName)) {
+                final String value = attributes[i + 1];
+                return value.length() == 0 ? null : value;
+            }
+        }
+        return null;
+    }
+
+    // implement DOMWrapper
+    public String[] getAttributeNames() {
+        final String[] names = new String[attributes.length / 2];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = attributes[i * 2];
+        }
+        return names;
+    }
+
+    // implement DOMWrapper
+    public String getText() {
+        if (text != null) {
+            return text;
+        }
+        if (children.length == 1) {
+            return children[0].getText();
+        }
+        final StringBuffer buf = new StringBuffer();
+        appendText(buf);
+        return buf.toString();
+    }
+
+    private void appendText(StringBuffer buf) {
+        if (text != null) {
+            buf.append(text);
+            return;
+        }
+        for (int i = 0; i < children.length; i++) {
+            ((CompactDOMWrapper) children[i]).appendText(buf);
+        }
+    }
+
+    // implement DOMWrapper
+    public String toXML() {
+        return XOMUtil.wrapperToXml(this, false);
+    }
+
+    // implement DOMWrapper
+    public DOMWrapper[] getChildren() {
+        return children;
+    }
+
+    // implement DOMWrapper
+    public DOMWrapper[] getElementChildren() {
+        int count = 0;
+        for (int i = 0; i < children.length; i++) {
+            if (children[i].getType() == ELEMENT) {
+                ++count;
+            }
+        }
+        if (count == children.length) {
+            return children;
+        }
+        final DOMWrapper[] elementChildren = new DOMWrapper[count];
+        count = 0;
+        for (int i = 0; i < children.length; i++) {
+            if (children[i].getType() == ELEMENT) {
+                elementChildren[count++] = children[i];
+            }
+        }
+        return elementChildren;
+    }
+
+    // implement DOMWrapper
+    public Location getLocation() {
+        return locator == null ? null : locator.getLocation(this);
+    }
+
+    /**
+     * Builds a tree of <code>CompactDOMWrapper</code>s.
+     *
+     * <p>Tag names, attribute names and white-space text are interned, so
+     * that each distinct string is held only once per document.
+     *
+     * <p>If the builder has a {@link StreamingBinder}, it binds each element
+     * at its end tag, and discards the children of elements that no longer
+     * need them. Elements that the binder does not bind, and everything
+     * inside them, are kept intact for their parent to bind.
+     */
+    static class Builder extends TreeBuilder {
+        private final BindingContext context;
+        private final StreamingBinder binder;
+        /** Number of open elements, counting from the outermost that the
+         * binder does not bind; 0 if all open elements are bound. */
+        private int opaqueDepth;
+        private Locator locator;
+        private final Map/*<String, String>*/ names = new HashMap();
+        private final List/*<CompactDOMWrapper>*/ nodeStack = new ArrayList();
+        private final List/*<List<DOMWrapper>>*/ childrenStack =
+            new ArrayList();
+        private final StringBuffer text = new StringBuffer();
+        private CompactDOMWrapper root;
+        private List/*<DOMWrapper>*/ children;
+        private int elementCount;
+
+        /** Creates a builder that does not bind. */
+        Builder() {
+            this(null, null);
+        }
+
+        /**
+         * Creates a builder.
+         *
+         * @param context Context that holds bound elements, or null
+         * @param binder Binder, or null to build a tree without binding
+         */
+        Builder(BindingContext context, StreamingBinder binder) {
+            this.context = context;
+            this.binder = binder;
+        }
+
+        int startElement(XMLStreamReader reader) {
+            flush();
+            final int attributeCount = reader.getAttributeCount();
+            final String[] attributes =
+                attributeCount == 0
+                    ? EMPTY_ATTRIBUTES
+                    : new String[attributeCount * 2];
+            for (int i = 0; i < attributeCount; i++) {
+                attributes[i * 2] =
+                    intern(
+                        qualify(
+                            reader.getAttributePrefix(i),
+                            reader.getAttributeLocalName(i)));
+                attributes[i * 2 + 1] = reader.getAttributeValue(i);
+            }
+            final CompactDOMWrapper node =
+                new CompactDOMWrapper(
+                    intern(qualify(reader.getPrefix(), reader.getLocalName())),
+                    attributes);
+            node.id = elementCount++;
+            node.locator = locator;
+            if (binder != null
+                && (opaqueDepth > 0 || !binder.binds(node.tagName)))
+            {
+                ++opaqueDepth;
+            }
+            if (children == null) {
+                root = node;
+            } else {
+                children.add(node);
+            }
+            nodeStack.add(node);
+            childrenStack.add(children);
+            children = new ArrayList();
+            return node.id;
+        }
+
+        void endElement() throws XOMException {
+            flush();
+            final CompactDOMWrapper element = (CompactDOMWrapper)
+                nodeStack.remove(nodeStack.size() - 1);
+            if (!children.isEmpty()) {
+                element.children = (DOMWrapper[]) children.toArray(
+                    new DOMWrapper[children.size()]);
+            }
+            children = (List) childrenStack.remove(childrenStack.size() - 1);
+            if (binder != null) {
+                if (opaqueDepth > 0) {
+                    --opaqueDepth;
+                } else if (context.bind(binder, element)) {
+                    element.children = EMPTY_CHILDREN;
+                }
+            }
+        }
+
+        void characters(char[] chars, int start, int length) {
+            if (children != null) {
+                text.append(chars, start, length);
+            }
+        }
+
+        void cdata(char[] chars, int start, int length) {
+            flush();
+            children.add(
+                new CompactDOMWrapper(
+                    CDATA, new String(chars, start, length)));
+        }
+
+        void other() {
+            flush();
+        }
+
+        private void flush() {
+            if (text.length() == 0) {
+                return;
+            }
+            final String s = isWhitespace(text)
+                ? intern(text.toString())
+                : text.toString();
+            text.setLength(0);
+            children.add(new CompactDOMWrapper(FREETEXT, s));
+        }
+
+        private String intern(String name) {
+            final String existing = (String) names.get(name);
+            if (existing != null) {
+                return existing;
+            }
+            names.put(name, name);
+            return name;
+        }
+
+        DOMWrapper getRoot() {
+            return root;
+        }
+
+        void setLocator(Locator locator) {
+            this.locator = locator;
+            if (root != null) {
+                setLocator(root, locator);
+            }
+        }
+
+        private static void setLocator(
+            CompactDOMWrapper wrapper,
+            Locator locator)
+        {
+            wrapper.locator = locator;
+            final DOMWrapper[] children = wrapper.children;
+            for (int i = 0; i < children.length; i++) {
+                setLocator((CompactDOMWrapper) children[i], locator);
+            }
+        }
+    }
+}
+
+// End CompactDOMWrapper.java
@@ -0,0 +1,149 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Detects the character encoding of an XML document from its byte order
+ * mark or XML declaration, as described in appendix F of the XML
+ * specification. UCS-4 and EBCDIC are not detected; a document without a
+ * byte order mark or an encoding declaration is assumed to be UTF-8.
+ *
+ * @author jhyde
+ */
+final class EncodingDetector {
+    /** Maximum number of bytes examined. */
+    private static final int LIMIT = 1024;
+
+    private static final Pattern ENCODING_PATTERN =
+        Pattern.compile("encoding\\s*=\\s*[\"']([^\"']*)[\"']");
+
+    /** Name of the encoding. */
+    final String encoding;
+    /** Length of the byte order mark, or 0 if there is none. */
+    final int bomLength;
+
+    private EncodingDetector(String encoding, int bomLength) {
+        this.encoding = encoding;
+        this.bomLength = bomLength;
+    }
+
+    /**
+     * Detects the encoding of a stream. Reads the start of the stream, then
+     * resets it, so the stream must support mark and reset.
+     */
+    static EncodingDetector detect(InputStream is) throws IOException {
+        is.mark(LIMIT);
+        final byte[] bytes = new byte[LIMIT];
+        int n = 0;
+        while (n < 4) {
+            final int x = is.read(bytes, n, 4 - n);
+            if (x < 0) {
+                break;
+            }
+            n += x;
+        }
+        if (isDeclaration(bytes, n)) {
+            // Read the XML declaration, which is in ASCII, up to '?>'.
+            int x;
+            while (n < LIMIT && (x = is.read()) >= 0) {
+                bytes[n++] = (byte) x;
+                if (x == '>') {
+                    break;
+                }
+            }
+        }
+        is.reset();
+        return detect(bytes, n);
+    }
+
+    /**
+     * Detects the encoding of a document held in a buffer. Does not change
+     * the buffer's position.
+     */
+    static EncodingDetector detect(ByteBuffer buffer) {
+        final byte[] bytes = new byte[Math.min(LIMIT, buffer.remaining())];
+        ((ByteBuffer) buffer.duplicate()).get(bytes);
+        return detect(bytes, bytes.length);
+    }
+
+    private static EncodingDetector detect(byte[] bytes, int n) {
+        if (n >= 3
+            && (bytes[0] & 0xff) == 0xEF
+            && (bytes[1] & 0xff) == 0xBB
+            && (bytes[2] & 0xff) == 0xBF)
+        {
+            return new EncodingDetector("UTF-8", 3);
+        }
+        if (n >= 2
+            && (bytes[0] & 0xff) == 0xFE
+            && (bytes[1] & 0xff) == 0xFF)
+        {
+            return new EncodingDetector("UTF-16BE", 2);
+        }
+        if (n >= 2
+            && (bytes[0] & 0xff) == 0xFF
+            && (bytes[1] & 0xff) == 0xFE)
+        {
+            return new EncodingDetector("UTF-16LE", 2);
+        }
+        if (n >= 4
+            && bytes[0] == 0 && bytes[1] == '<'
+            && bytes[2] == 0 && bytes[3] == '?')
+        {
+            return new EncodingDetector("UTF-16BE", 0);
+        }
+        if (n >= 4
+            && bytes[0] == '<' && bytes[1] == 0
+            && bytes[2] == '?' && bytes[3] == 0)
+        {
+            return new EncodingDetector("UTF-16LE", 0);
+        }
+        if (isDeclaration(bytes, n)) {
+            int end = 0;
+            while (end < n && bytes[end] != '>') {
+                ++end;
+            }
+            final String declaration;
+            try {
+                declaration = new String(bytes, 0, end, "ISO-8859-1");
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+            final Matcher matcher = ENCODING_PATTERN.matcher(declaration);
+            if (matcher.find()) {
+                return new EncodingDetector(matcher.group(1), 0);
+            }
+        }
+        return new EncodingDetector("UTF-8", 0);
+    }
+
+    private static boolean isDeclaration(byte[] bytes, int n) {
+        return n >= 4
+            && bytes[0] == '<' && bytes[1] == '?'
+            && bytes[2] == 'x' && bytes[3] == 'm';
+    }
+}
+
+// End EncodingDetector.java
@@ -0,0 +1,162 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import org.eigenbase.xom.*;
+
+/**
+ * Implementation of {@link DOMWrapper} that is a flyweight over a node in a
+ * {@link NodeTable}.
+ *
+ * <p>Two flyweights are equal if they refer to the same node of the same
+ * table.
+ *
+ * @author jhyde
+ */
+final class FlatDOMWrapper implements DOMWrapper {
+    private final NodeTable table;
+    final int node;
+
+    FlatDOMWrapper(NodeTable table, int node) {
+        this.table = table;
+        this.node = node;
+    }
+
+    public boolean equals(Object obj) {
+        return obj == this
+            || obj instanceof FlatDOMWrapper
+            && ((FlatDOMWrapper) obj).table == table
+            && ((FlatDOMWrapper) obj).node == node;
+    }
+
+    public int hashCode() {
+        return System.identityHashCode(table) * 31 + node;
+    }
+
+    // implement DOMWrapper
+    public int getType() {
+        return table.types[node];
+    }
+
+    // implement DOMWrapper
+    public String getTagName() {
+        final int tag = table.tags[node];
+        return tag < 0 ? null : table.symbols[tag];
+    }
+
+    /**
+     * Returns the attribute. Returns null if the attribute isn't defined,
+     * or is empty, or if this is not an element; same as
+     * {@link W3CDOMWrapper#getAttribute(String)}.
+     */
+    public String getAttribute(String attrName) {
+        final int end = table.attributeStarts[node + 1];
+        for (int i = table.attributeStarts[node]; i < end; i++) {
+            if (table.symbols[table.attributeNames[i]].equals(attrName)) {
+                final int length = table.attributeValueLengths[i];
+                return length == 0
+                    ? null
+                    : new String(
+                        table.chars, table.attributeValueStarts[i], length);
+            }
+        }
+        return null;
+    }
+
+    // implement DOMWrapper
+    public String[] getAttributeNames() {
+        final int start = table.attributeStarts[node];
+        final String[] names =
+            new String[table.attributeStarts[node + 1] - start];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = table.symbols[table.attributeNames[start + i]];
+        }
+        return names;
+    }
+
+    // implement DOMWrapper
+    public String getText() {
+        if (table.types[node] != ELEMENT) {
+            return table.text(node);
+        }
+        final int child = table.firstChildren[node];
+        if (child >= 0 && table.nextSiblings[child] < 0) {
+            return table.wrapper(child).getText();
+        }
+        final StringBuffer buf = new StringBuffer();
+        table.appendText(node, buf);
+        return buf.toString();
+    }
+
+    // implement DOMWrapper
+    public String toXML() {
+        return XOMUtil.wrapperToXml(this, false);
+    }
+
+    // implement DOMWrapper
+    public DOMWrapper[] getChildren() {
+        int count = 0;
+        for (int child = table.firstChildren[node];
+             child >= 0;
+             child = table.nextSiblings[child])
+        {
+            ++count;
+        }
+        final DOMWrapper[] children = new DOMWrapper[count];
+        count = 0;
+        for (int child = table.firstChildren[node];
+             child >= 0;
+             child = table.nextSiblings[child])
+        {
+            children[count++] = table.wrapper(child);
+        }
+        return children;
+    }
+
+    // implement DOMWrapper
+    public DOMWrapper[] getElementChildren() {
+        int count = 0;
+        for (int child = table.firstChildren[node];
+             child >= 0;
+             child = table.nextSiblings[child])
+        {
+            if (table.types[child] == ELEMENT) {
+                ++count;
+            }
+        }
+        final DOMWrapper[] children = new DOMWrapper[count];
+        count = 0;
+        for (int child = table.firstChildren[node];
+             child >= 0;
+             child = table.nextSiblings[child])
+        {
+            if (table.types[child] == ELEMENT) {
+                children[count++] = table.wrapper(child);
+            }
+        }
+        return children;
+    }
+
+    // implement DOMWrapper
+    public Location getLocation() {
+        final Locator locator = table.locator;
+        return locator == null ? null : locator.getLocation(this);
+    }
+}
+
+// End FlatDOMWrapper.java
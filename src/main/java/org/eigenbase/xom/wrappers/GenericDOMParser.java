@@ -26,21 +26,36 @@ import org.xml.sax.SAXParseException;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 
 /**
  * A <code>GenericDOMParser</code> is an abstract base class for {@link
  * XercesDOMParser} and {@link JaxpDOMParser}.
  *
+ * <p>State that belongs to a single parse, such as the errors reported and
+ * the positions of nodes, is held in a {@link ParseContext}, which becomes
+ * the locator of the wrappers that the parse creates. Documents therefore
+ * remain valid after the parser has gone on to parse other documents. A
+ * parser is not safe for use by several threads at once, because the
+ * underlying parser is not; use {@link org.eigenbase.xom.ParserPool} to
+ * share parsers between threads.
+ *
+ * <p>The parser is still an {@link ErrorHandler}, for compatibility, but
+ * its handler methods are deprecated: during a parse, they forward to the
+ * context of the parse; at other times, warnings and errors are ignored,
+ * as they were when the error buffer was reset at the start of each
+ * parse.
+ *
+ * <p>If {@link #setCacheWrappers(boolean) cacheWrappers} is set, the parser
+ * returns caching {@link W3CDOMWrapper}s, which create the wrapper of each
+ * node only once.
+ *
  * @author jhyde
  */
 abstract class GenericDOMParser
     implements ErrorHandler, org.eigenbase.xom.Parser, Locator
 {
-
-    // Used for capturing error messages as they occur.
-    StringWriter errorBuffer = null;
-    PrintWriter errorOut = null;
-
     /** The document which spawns elements. The constructor of the derived
      * class must set this. */
     protected Document document;
@@ -50,26 +65,47 @@ abstract class GenericDOMParser
     static final String VALIDATION_FEATURE =
             "http://xml.org/sax/features/validation";
     private boolean keepPositions;
-    private Annotator annotator;
+    private boolean cacheWrappers;
+    /** Context of the parse in progress, or null. */
+    private ParseContext activeContext;
 
     public DOMWrapper create(String tagName) {
         Element element = document.createElement(tagName);
-        return new W3CDOMWrapper(element, this);
+        return new W3CDOMWrapper(element, null);
     }
 
     public DOMWrapper parse(InputStream is) throws XOMException {
+        final ParseContext context = new ParseContext(cacheWrappers);
+        if (!keepPositions) {
+            Document document =
+                parseSource(new InputSource(is), context);
+            return context.wrap(document);
+        }
         TeeInputStream tis = new TeeInputStream(is);
         InputSource source = new InputSource(tis);
-        Document document = parseInputSource(source);
-        final W3CDOMWrapper wrapper =
-            new W3CDOMWrapper(document.getDocumentElement(), this);
-        if (keepPositions) {
-            String xmlString = new String(tis.getBytes());
-            annotator = new Annotator(xmlString, wrapper);
+        Document document = parseSource(source, context);
+        final W3CDOMWrapper wrapper = context.wrap(document);
+        try {
+            String xmlString = tis.getText(getEncoding(document));
+            context.annotator = new Annotator(xmlString, wrapper);
+        } catch (IOException e) {
+            throw new XOMException(e, "Document parse failed");
         }
         return wrapper;
     }
 
+    /**
+     * Returns the character encoding that the parser detected for a
+     * document, or null if not known.
+     */
+    private static String getEncoding(Document document) {
+        String encoding = document.getInputEncoding();
+        if (encoding == null) {
+            encoding = document.getXmlEncoding();
+        }
+        return encoding;
+    }
+
     public void setKeepPositions(boolean keepPositions) {
         this.keepPositions = keepPositions;
     }
@@ -78,56 +114,82 @@ abstract class GenericDOMParser
         return keepPositions;
     }
 
+    /**
+     * Sets whether the wrappers of parsed documents remember their children
+     * and attributes. The default is false.
+     *
+     * <p>Caching wrappers are faster if a document is read more than once,
+     * for example to compute positions and then to bind, and each node has a
+     * single wrapper; but the wrappers of the whole document stay in memory
+     * for as long as the root wrapper does.
+     *
+     * @param cacheWrappers Whether to create caching wrappers
+     */
+    public void setCacheWrappers(boolean cacheWrappers) {
+        this.cacheWrappers = cacheWrappers;
+    }
+
+    /**
+     * Returns whether the wrappers of parsed documents remember their
+     * children and attributes.
+     *
+     * @return Whether to create caching wrappers
+     */
+    public boolean isCacheWrappers() {
+        return cacheWrappers;
+    }
+
     public DOMWrapper parse(String xmlString) throws XOMException {
-        final DOMWrapper wrapper = parse(new StringReader(xmlString));
+        final ParseContext context = new ParseContext(cacheWrappers);
+        Document document = parseSource(
+            new InputSource(new StringReader(xmlString)), context);
+        final W3CDOMWrapper wrapper = context.wrap(document);
         if (keepPositions) {
-            annotator = new Annotator(xmlString, wrapper);
+            context.annotator = new Annotator(xmlString, wrapper);
         }
         return wrapper;
     }
 
     public DOMWrapper parse(Reader reader) throws XOMException {
-        Document document = parseInputSource(new InputSource(reader));
-        return new W3CDOMWrapper(document.getDocumentElement(), this);
+        final ParseContext context = new ParseContext(cacheWrappers);
+        Document document =
+            parseSource(new InputSource(reader), context);
+        return context.wrap(document);
     }
 
     /**
      * Parses the specified URI and returns the document.
      * @param in Input source
+     * @param context Context of this parse, which receives errors
      * @return Document
      * @throws org.eigenbase.xom.XOMException on error
      */
-    protected abstract Document parseInputSource(InputSource in)
-            throws XOMException;
-
-    /** Warning. */
-    public void warning(SAXParseException ex) {
-        errorOut.println("[Warning] " +
-                getLocationString(ex) + ": " +
-                ex.getMessage());
-    }
-
-    /** Error. */
-    public void error(SAXParseException ex) {
-        errorOut.println("[Error] " +
-                getLocationString(ex) + ": " +
-                ex.getMessage());
-    }
+    protected abstract Document parseInputSource(
+        InputSource in,
+        ParseContext context)
+        throws XOMException;
 
-    /** Fatal error. */
-    public void fatalError(SAXParseException ex)
-            throws SAXException {
-        errorOut.println("[Fatal Error] " +
-                getLocationString(ex) + ": " +
-                ex.getMessage());
-        throw ex;
+    /**
+     * Calls {@link #parseInputSource(InputSource, ParseContext)}, making the
+     * context the target of this parser's {@link ErrorHandler} methods while
+     * it runs.
+     */
+    private Document parseSource(InputSource in, ParseContext context)
+        throws XOMException
+    {
+        activeContext = context;
+        try {
+            return parseInputSource(in, context);
+        } finally {
+            activeContext = null;
+        }
     }
 
     /** Returns a string of the location.
      * @param ex Exception
      * @return Location string, e.g. "file.xml:4:72"
      */
-    private String getLocationString(SAXParseException ex) {
+    private static String getLocationString(SAXParseException ex) {
         StringBuffer str = new StringBuffer();
 
         String systemId = ex.getSystemId();
@@ -145,6 +207,33 @@ abstract class GenericDOMParser
         return str.toString();
     }
 
+    // implement Parser
+    public DOMWrapper parse(Path path) throws XOMException {
+        final ByteBuffer buffer;
+        try {
+            buffer = ByteBufferInputStream.map(path);
+        } catch (IOException ex) {
+            throw new XOMException(ex, "Document parse failed");
+        }
+        return parse(buffer);
+    }
+
+    // implement Parser
+    public DOMWrapper parse(ByteBuffer buffer) throws XOMException {
+        final ParseContext context = new ParseContext(cacheWrappers);
+        Document document = parseSource(
+            new InputSource(new ByteBufferInputStream(buffer)), context);
+        final W3CDOMWrapper wrapper = context.wrap(document);
+        if (keepPositions) {
+            // Read the source text from the buffer, rather than from a
+            // copy on the heap.
+            context.annotator = new Annotator(
+                ByteBufferText.create(buffer, getEncoding(document)),
+                wrapper);
+        }
+        return wrapper;
+    }
+
     // implement Parser
     public DOMWrapper parse(URL url)
             throws XOMException {
@@ -155,50 +244,122 @@ abstract class GenericDOMParser
         }
     }
 
-    // Helper: reset the error buffer to prepare for a new parse.
-    protected void prepareParse() {
-        errorBuffer = new StringWriter();
-        errorOut = new PrintWriter(errorBuffer);
+    /**
+     * Warning.
+     *
+     * @deprecated Errors are received by the context of each parse; this
+     * method forwards to the context of the parse in progress, if any
+     */
+    @Deprecated
+    public void warning(SAXParseException ex) {
+        final ParseContext context = activeContext;
+        if (context != null) {
+            context.warning(ex);
+        }
     }
 
-    // Helper: throw an exception with messages of any errors
-    // accumulated during the parse.
-    protected void handleErrors() throws XOMException {
-        errorOut.flush();
-        String errorStr = errorBuffer.toString();
-        if (errorStr.length() > 0) {
-            throw new XOMException("Document parse failed: " + errorStr);
+    /**
+     * Error.
+     *
+     * @deprecated Errors are received by the context of each parse; this
+     * method forwards to the context of the parse in progress, if any
+     */
+    @Deprecated
+    public void error(SAXParseException ex) {
+        final ParseContext context = activeContext;
+        if (context != null) {
+            context.error(ex);
         }
     }
 
-    // implement Locator
+    /**
+     * Fatal error.
+     *
+     * @deprecated Errors are received by the context of each parse; this
+     * method forwards to the context of the parse in progress, if any
+     */
+    @Deprecated
+    public void fatalError(SAXParseException ex)
+            throws SAXException {
+        final ParseContext context = activeContext;
+        if (context != null) {
+            context.fatalError(ex);
+        }
+        throw ex;
+    }
+
+    /**
+     * Returns the location of a wrapper. The wrapper's locator is the
+     * context of the parse that created it, so this method is equivalent
+     * to {@link DOMWrapper#getLocation()}.
+     */
     public Location getLocation(DOMWrapper wrapper) {
-        return annotator.getLocation(wrapper);
+        return wrapper.getLocation();
     }
 
     /**
-     * Input stream that keeps a copy of every byte that flows through it.
+     * State of a single parse: the errors reported by the underlying parser,
+     * and the positions of the nodes of the document.
      */
-    private static class TeeInputStream extends FilterInputStream {
-        private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    static class ParseContext implements ErrorHandler, Locator {
+        // Used for capturing error messages as they occur.
+        private final StringWriter errorBuffer = new StringWriter();
+        private final PrintWriter errorOut = new PrintWriter(errorBuffer);
+        /** Positions of nodes; null unless positions are being kept. */
+        private Annotator annotator;
+        private final boolean cacheWrappers;
 
-        TeeInputStream(InputStream in) {
-            super(in);
+        /**
+         * Creates a ParseContext.
+         *
+         * @param cacheWrappers Whether to create caching wrappers
+         */
+        ParseContext(boolean cacheWrappers) {
+            this.cacheWrappers = cacheWrappers;
         }
 
-        public int read() throws IOException {
-            int x = super.read();
-            baos.write(x);
-            return x;
+        /** Wraps the root element of a document. */
+        W3CDOMWrapper wrap(Document document) {
+            return new W3CDOMWrapper(
+                document.getDocumentElement(), this, cacheWrappers);
         }
 
-        /**
-         * Returns the bytes that have been read from this stream.
-         *
-         * @return Array of bytes that have been read from this stream
-         */
-        public byte[] getBytes() {
-            return baos.toByteArray();
+        /** Warning. */
+        public void warning(SAXParseException ex) {
+            errorOut.println("[Warning] " +
+                    getLocationString(ex) + ": " +
+                    ex.getMessage());
+        }
+
+        /** Error. */
+        public void error(SAXParseException ex) {
+            errorOut.println("[Error] " +
+                    getLocationString(ex) + ": " +
+                    ex.getMessage());
+        }
+
+        /** Fatal error. */
+        public void fatalError(SAXParseException ex)
+                throws SAXException {
+            errorOut.println("[Fatal Error] " +
+                    getLocationString(ex) + ": " +
+                    ex.getMessage());
+            throw ex;
+        }
+
+        // Helper: throw an exception with messages of any errors
+        // accumulated during the parse.
+        void handleErrors() throws XOMException {
+            errorOut.flush();
+            String errorStr = errorBuffer.toString();
+            if (errorStr.length() > 0) {
+                throw new XOMException("Document parse failed: " + errorStr);
+            }
+        }
+
+        // implement Locator
+        public Location getLocation(DOMWrapper wrapper) {
+            return annotator == null ? null : annotator.getLocation(wrapper);
         }
     }
 }
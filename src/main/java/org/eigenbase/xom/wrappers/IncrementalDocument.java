@@ -0,0 +1,291 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import org.eigenbase.xom.BindingContext;
+import org.eigenbase.xom.DOMWrapper;
+import org.eigenbase.xom.NodeDef;
+import org.eigenbase.xom.XOMException;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A document that is parsed and bound to a model, and re-parsed after each
+ * edit to its text.
+ *
+ * <p>An editor calls {@link #edit(int, int, String)} each time the user
+ * changes the text. Rather than parsing the whole document again, the
+ * document finds the innermost element that encloses the change, and
+ * parses just that element's new text. If the element is no longer
+ * well-formed on its own, it tries the element's parent, and so on up to
+ * the root. The new element replaces the old one in the tree, and the
+ * positions of the elements that follow it are shifted by the change in
+ * length, so {@link DOMWrapper#getLocation()} remains accurate throughout
+ * the tree.
+ *
+ * <p>The elements that enclose the change are then bound again, but the
+ * definitions of their other children are reused, so after editing one
+ * element of a large array, the cost is proportional to the depth of the
+ * element and the lengths of the arrays that enclose it, not to the size
+ * of the document.
+ *
+ * <p>The tree is updated in place: wrappers obtained from
+ * {@link #getRoot()} before an edit reflect the edit. Definitions are not;
+ * call {@link #getDef()} after each edit.
+ *
+ * <p>The table of positions grows by the size of each fragment that is
+ * parsed, until a change forces the whole document to be parsed again.
+ *
+ * @author jhyde
+ */
+public class IncrementalDocument {
+    private final StaxDOMParser parser;
+    private final Class rootClass;
+    /** Definition of each element, as recorded by the last binding. */
+    private final Map/*<DOMWrapper, NodeDef>*/ defs = new IdentityHashMap();
+    private String text;
+    /** Root element; null if the text is not well-formed. */
+    private CompactDOMWrapper root;
+    private LocationTable locations;
+    private NodeDef def;
+
+    /**
+     * Creates an IncrementalDocument.
+     *
+     * @param text Text of the document
+     * @param rootClass Class of the definition of the root element, for
+     *   example <code>MetaDef.Model.class</code>
+     * @throws XOMException if the document cannot be parsed, or is not valid
+     */
+    public IncrementalDocument(String text, Class rootClass)
+        throws XOMException
+    {
+        this.parser = new StaxDOMParser();
+        this.parser.setKeepPositions(true);
+        this.rootClass = rootClass;
+        this.text = text;
+        reparseAll();
+    }
+
+    /**
+     * Returns the current text of the document.
+     *
+     * @return Text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the root element of the document, or null if the last edit
+     * left the document malformed.
+     *
+     * @return Root element, or null
+     */
+    public DOMWrapper getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the definition of the root element of the document, or null if
+     * the last edit left the document malformed or invalid.
+     *
+     * @return Definition, or null
+     */
+    public NodeDef getDef() {
+        return def;
+    }
+
+    /**
+     * Replaces a region of the text of the document, and brings the tree
+     * and its definitions up to date.
+     *
+     * <p>If the new text is not well-formed or not valid, throws; the edit
+     * is applied nonetheless, and a later edit that corrects the text will
+     * bring the document up to date.
+     *
+     * @param offset Offset of the start of the region
+     * @param length Length of the region
+     * @param replacement Text to replace the region with
+     * @return Definition of the root element
+     * @throws XOMException if the document cannot be parsed, or is not valid
+     */
+    public NodeDef edit(int offset, int length, String replacement)
+        throws XOMException
+    {
+        if (offset < 0 || length < 0 || offset + length > text.length()) {
+            throw new IndexOutOfBoundsException(
+                "offset " + offset + ", length " + length
+                + ", text length " + text.length());
+        }
+        text = text.substring(0, offset)
+            + replacement
+            + text.substring(offset + length);
+        if (root == null) {
+            return reparseAll();
+        }
+        final int delta = replacement.length() - length;
+
+        // Elements that enclose the change, outermost first. The change must
+        // not touch the '<' that starts an element or the '>' that ends it.
+        final List/*<CompactDOMWrapper>*/ path = new ArrayList();
+        CompactDOMWrapper element = root;
+        while (element != null && encloses(element, offset, length)) {
+            path.add(element);
+            final DOMWrapper[] children = element.children;
+            element = null;
+            for (int i = 0; i < children.length; i++) {
+                final CompactDOMWrapper child =
+                    (CompactDOMWrapper) children[i];
+                if (child.id >= 0 && encloses(child, offset, length)) {
+                    element = child;
+                    break;
+                }
+            }
+        }
+
+        // Parse the innermost element that is well-formed on its own.
+        for (int i = path.size() - 1; i >= 0; i--) {
+            final CompactDOMWrapper old = (CompactDOMWrapper) path.get(i);
+            final int start = locations.getStart(old.id);
+            final int end = locations.getEnd(old.id);
+            final String fragmentText = text.substring(start, end + delta);
+            final CompactDOMWrapper fragment;
+            try {
+                fragment = (CompactDOMWrapper) parser.parse(fragmentText);
+            } catch (XOMException e) {
+                continue;
+            }
+            final LocationTable fragmentLocations =
+                (LocationTable) fragment.locator;
+            if (fragmentLocations.getStart(fragment.id) != 0
+                || fragmentLocations.getEnd(fragment.id)
+                != fragmentText.length())
+            {
+                // There is something other than an element; a comment,
+                // perhaps.
+                continue;
+            }
+            forget(old);
+            locations.shift(end, delta, text);
+            adopt(fragment, locations.merge(fragmentLocations, start));
+            if (i == 0) {
+                root = fragment;
+            } else {
+                final CompactDOMWrapper parent =
+                    (CompactDOMWrapper) path.get(i - 1);
+                final DOMWrapper[] children =
+                    (DOMWrapper[]) parent.children.clone();
+                for (int j = 0; j < children.length; j++) {
+                    if (children[j] == old) {
+                        children[j] = fragment;
+                    }
+                }
+                parent.children = children;
+            }
+            path.set(i, fragment);
+            return rebind(path.subList(0, i));
+        }
+        return reparseAll();
+    }
+
+    /**
+     * Returns whether a change lies strictly within an element.
+     */
+    private boolean encloses(
+        CompactDOMWrapper element,
+        int offset,
+        int length)
+    {
+        return locations.getStart(element.id) < offset
+            && offset + length < locations.getEnd(element.id);
+    }
+
+    /**
+     * Binds the document again, reusing the definitions of all elements
+     * except those on a path.
+     *
+     * @param ancestors Elements that enclose the change, outermost first
+     */
+    private NodeDef rebind(List/*<CompactDOMWrapper>*/ ancestors)
+        throws XOMException
+    {
+        final BindingContext context = new BindingContext();
+        context.setRecorder(defs);
+        for (int i = 0; i < ancestors.size(); i++) {
+            final CompactDOMWrapper ancestor =
+                (CompactDOMWrapper) ancestors.get(i);
+            final DOMWrapper[] children = ancestor.children;
+            for (int j = 0; j < children.length; j++) {
+                if (ancestors.contains(children[j])) {
+                    continue;
+                }
+                final NodeDef childDef = (NodeDef) defs.get(children[j]);
+                if (childDef != null) {
+                    context.reuse(children[j], childDef);
+                }
+            }
+        }
+        def = null;
+        def = context.construct(root, rootClass);
+        return def;
+    }
+
+    /**
+     * Parses and binds the whole document.
+     */
+    private NodeDef reparseAll() throws XOMException {
+        defs.clear();
+        root = null;
+        locations = null;
+        def = null;
+        root = (CompactDOMWrapper) parser.parse(text);
+        locations = (LocationTable) root.locator;
+        return rebind(new ArrayList());
+    }
+
+    /**
+     * Removes the definitions of an element and everything inside it.
+     */
+    private void forget(CompactDOMWrapper wrapper) {
+        defs.remove(wrapper);
+        final DOMWrapper[] children = wrapper.children;
+        for (int i = 0; i < children.length; i++) {
+            forget((CompactDOMWrapper) children[i]);
+        }
+    }
+
+    /**
+     * Moves the nodes of a fragment into the document's table of positions.
+     */
+    private void adopt(CompactDOMWrapper wrapper, int base) {
+        if (wrapper.id >= 0) {
+            wrapper.id += base;
+        }
+        wrapper.locator = locations;
+        final DOMWrapper[] children = wrapper.children;
+        for (int i = 0; i < children.length; i++) {
+            adopt((CompactDOMWrapper) children[i], base);
+        }
+    }
+}
+
+// End IncrementalDocument.java
@@ -36,6 +36,12 @@ import java.io.IOException;
  * @author jhyde
  */
 public class JaxpDOMParser extends GenericDOMParser {
+    /** Factories, configured for non-validating and validating parsers;
+     * created on first use. Discovering and configuring a factory is
+     * expensive, so it is done at most once per configuration. */
+    private static final DocumentBuilderFactory[] FACTORIES =
+        new DocumentBuilderFactory[2];
+
     private DocumentBuilder builder;
 
     /** Creates a non-validating parser. */
@@ -46,39 +52,67 @@ public class JaxpDOMParser extends GenericDOMParser {
     /** Creates a parser. */
     public JaxpDOMParser(boolean validating) throws XOMException {
         try {
-            DocumentBuilderFactory factory = createSecureDocBuilderFactory();
-            factory.setValidating(validating);
-            try {
-                factory.setAttribute(VALIDATION_FEATURE, new Boolean(validating));
-                factory.setAttribute(LOAD_EXTERNAL_DTD_FEATURE, new Boolean(validating));
-            } catch (IllegalArgumentException e) {
-                // Weblogic 6.1's parser complains 'No arguments are
-                // implemented'
+            final DocumentBuilderFactory factory = getFactory(validating);
+            // A factory is not guaranteed to be thread-safe.
+            synchronized (factory) {
+                builder = factory.newDocumentBuilder();
             }
-            builder = factory.newDocumentBuilder();
         } catch (ParserConfigurationException e) {
             throw new XOMException(e, "Error creating parser");
         } catch (FactoryConfigurationError e) {
             throw new XOMException(e, "Error creating parser");
         }
-        builder.setErrorHandler(this);
         document = builder.newDocument();
     }
 
-    protected Document parseInputSource(InputSource in) throws XOMException {
-        prepareParse();
+    protected Document parseInputSource(
+        InputSource in,
+        ParseContext context)
+        throws XOMException
+    {
+        builder.setErrorHandler(context);
         try {
             Document document = builder.parse(in);
-            handleErrors();
+            context.handleErrors();
             return document;
         } catch (SAXException e) {
             // Display any pending errors
-            handleErrors();
+            context.handleErrors();
             throw new XOMException(e, "Document parse failed");
         } catch (IOException e) {
             // Display any pending errors
-            handleErrors();
+            context.handleErrors();
             throw new XOMException(e, "Document parse failed");
+        } finally {
+            // Don't let a pooled builder keep the context (and its error
+            // buffer, annotator and document text) alive after the parse.
+            builder.setErrorHandler(this);
+        }
+    }
+
+    /**
+     * Returns the factory for validating or non-validating parsers,
+     * creating and configuring it if necessary.
+     */
+    private static DocumentBuilderFactory getFactory(boolean validating)
+        throws ParserConfigurationException
+    {
+        final int i = validating ? 1 : 0;
+        synchronized (FACTORIES) {
+            if (FACTORIES[i] == null) {
+                DocumentBuilderFactory factory =
+                    createSecureDocBuilderFactory();
+                factory.setValidating(validating);
+                try {
+                    factory.setAttribute(VALIDATION_FEATURE, new Boolean(validating));
+                    factory.setAttribute(LOAD_EXTERNAL_DTD_FEATURE, new Boolean(validating));
+                } catch (IllegalArgumentException e) {
+                    // Weblogic 6.1's parser complains 'No arguments are
+                    // implemented'
+                }
+                FACTORIES[i] = factory;
+            }
+            return FACTORIES[i];
         }
     }
 
@@ -91,7 +125,7 @@ public class JaxpDOMParser extends GenericDOMParser {
      * @throws ParserConfigurationException if feature can't be enabled
      *
      */
-    private DocumentBuilderFactory createSecureDocBuilderFactory() throws ParserConfigurationException {
+    private static DocumentBuilderFactory createSecureDocBuilderFactory() throws ParserConfigurationException {
         DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
         docBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
         docBuilderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
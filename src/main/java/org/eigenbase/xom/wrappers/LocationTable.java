@@ -0,0 +1,342 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import org.eigenbase.xom.DOMWrapper;
+import org.eigenbase.xom.Location;
+import org.eigenbase.xom.Locator;
+
+import java.util.Arrays;
+
+/**
+ * Positions of the elements of a document, recorded by
+ * {@link StaxDOMParser} as it parses.
+ *
+ * <p>Unlike {@link Annotator}, which scans the source text a second time
+ * after the parse and then matches what it finds to the tree, a
+ * <code>LocationTable</code> is populated from the parser's own line and
+ * column numbers, in the same pass that builds the tree. It does not need
+ * the source text, although if it has it, {@link Location#getText(boolean)}
+ * returns fragments of it; otherwise that method returns null.
+ *
+ * <p>Positions are held in arrays indexed by the identifier that the
+ * {@link TreeBuilder} assigned to each element.
+ *
+ * @author jhyde
+ */
+final class LocationTable implements Locator {
+    /** Offset of the '&lt;' that starts each element; -1 if unknown. */
+    private int[] starts = new int[64];
+    /** Offset just after the head of each element. */
+    private int[] headEnds = new int[64];
+    /** Offset just after the end of each element. */
+    private int[] ends = new int[64];
+    /** One more than the largest identifier recorded. */
+    private int size;
+    private int[] lineStarts;
+    private CharSequence source;
+
+    /** Reader that the document is being read from; null once parsing has
+     * finished. */
+    private PositionReader reader;
+    private int[] openElements = new int[16];
+    private int depth;
+
+    /**
+     * Creates a LocationTable.
+     *
+     * @param reader Reader from which the document will be read
+     */
+    LocationTable(PositionReader reader) {
+        this.reader = reader;
+        Arrays.fill(starts, -1);
+    }
+
+    /**
+     * Records the start of an element. Called when the parser is positioned
+     * at the end of its head.
+     *
+     * @param id Identifier of the element
+     * @param location Location of the parser
+     */
+    void startElement(int id, javax.xml.stream.Location location) {
+        ensureCapacity(id + 1);
+        final int headEnd = afterTag(offset(location));
+        // The first '<' looking back from the end of the head is the start
+        // of the element, because '<' cannot occur elsewhere in a tag.
+        int start = reader.lastIndexOf('<', headEnd);
+        if (start < 0) {
+            start = reader.getWindowStart();
+        }
+        starts[id] = start;
+        headEnds[id] = headEnd;
+        ends[id] = headEnd;
+        if (depth == openElements.length) {
+            openElements = grow(openElements, depth + 1);
+        }
+        openElements[depth++] = id;
+        reader.discardBefore(headEnd);
+    }
+
+    /**
+     * Records the end of an element.
+     *
+     * @param location Location of the parser
+     */
+    void endElement(javax.xml.stream.Location location) {
+        final int end = afterTag(offset(location));
+        ends[openElements[--depth]] = end;
+        reader.discardBefore(end);
+    }
+
+    /**
+     * Records that the parser has passed an event that is not the start or
+     * end of an element. The characters before it are no longer needed.
+     *
+     * @param location Location of the parser
+     */
+    void other(javax.xml.stream.Location location) {
+        // A parser may have consumed the '<' of the next tag before it
+        // reports the end of a run of text, so keep one character.
+        reader.discardBefore(offset(location) - 1);
+    }
+
+    /**
+     * Called when the document has been parsed.
+     *
+     * @param source Source text of the document, or null
+     */
+    void finish(CharSequence source) {
+        this.lineStarts = reader.getLineStarts();
+        this.source = source;
+        this.reader = null;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > starts.length) {
+            final int length = starts.length;
+            starts = grow(starts, n);
+            Arrays.fill(starts, length, starts.length, -1);
+            headEnds = grow(headEnds, n);
+            ends = grow(ends, n);
+        }
+        if (n > size) {
+            size = n;
+        }
+    }
+
+    /** Returns one more than the largest identifier recorded. */
+    int size() {
+        return size;
+    }
+
+    /** Returns the offset of the start of an element. */
+    int getStart(int id) {
+        return starts[id];
+    }
+
+    /** Returns the offset just after the end of an element. */
+    int getEnd(int id) {
+        return ends[id];
+    }
+
+    /**
+     * Adjusts the positions after the text of the document has been edited.
+     * Positions at or after <code>end</code> move by <code>delta</code>.
+     *
+     * @param end Offset, in the old text, of the end of the edited region
+     * @param delta Change in the length of the text
+     * @param source New text of the document
+     */
+    void shift(int end, int delta, CharSequence source) {
+        for (int i = 0; i < size; i++) {
+            if (starts[i] >= end) {
+                starts[i] += delta;
+            }
+            if (headEnds[i] >= end) {
+                headEnds[i] += delta;
+            }
+            if (ends[i] >= end) {
+                ends[i] += delta;
+            }
+        }
+        this.source = source;
+        this.lineStarts = lineStarts(source);
+    }
+
+    /**
+     * Copies the positions recorded by another table, for a fragment of the
+     * document, into this table. The identifiers of the fragment's elements
+     * are renumbered to follow those of this table.
+     *
+     * @param fragment Table of the fragment
+     * @param offset Offset of the fragment within the document
+     * @return Amount to add to the identifier of each element of the
+     *   fragment
+     */
+    int merge(LocationTable fragment, int offset) {
+        final int base = size;
+        ensureCapacity(base + fragment.size);
+        for (int i = 0; i < fragment.size; i++) {
+            if (fragment.starts[i] >= 0) {
+                starts[base + i] = fragment.starts[i] + offset;
+                headEnds[base + i] = fragment.headEnds[i] + offset;
+                ends[base + i] = fragment.ends[i] + offset;
+            }
+        }
+        return base;
+    }
+
+    /**
+     * Returns the offset of the start of each line of a piece of text. As
+     * in {@link PositionReader}, a line ends with a carriage return, a line
+     * feed, or both.
+     */
+    private static int[] lineStarts(CharSequence s) {
+        int[] lineStarts = new int[64];
+        int count = 1;
+        final int n = s.length();
+        for (int i = 0; i < n; i++) {
+            final char c = s.charAt(i);
+            if (c == '\r'
+                || c == '\n' && (i == 0 || s.charAt(i - 1) != '\r'))
+            {
+                if (count == lineStarts.length) {
+                    lineStarts = grow(lineStarts, count + 1);
+                }
+                lineStarts[count++] = i + 1;
+            } else if (c == '\n') {
+                // CR LF is one line ending; the line starts after LF.
+                lineStarts[count - 1] = i + 1;
+            }
+        }
+        final int[] a = new int[count];
+        System.arraycopy(lineStarts, 0, a, 0, count);
+        return a;
+    }
+
+    private int offset(javax.xml.stream.Location location) {
+        return reader.offset(
+            location.getLineNumber(), location.getColumnNumber());
+    }
+
+    /**
+     * Adjusts an offset that a parser reported as just after a tag, so that
+     * it is just after the '&gt;' that ends the tag. Some parsers are off by
+     * one column; the JDK's parser, for instance, on a line that follows a
+     * lone carriage return.
+     */
+    private int afterTag(int offset) {
+        if (reader.charAt(offset - 1) == '>') {
+            return offset;
+        }
+        if (reader.charAt(offset) == '>') {
+            return offset + 1;
+        }
+        if (reader.charAt(offset - 2) == '>') {
+            return offset - 1;
+        }
+        return offset;
+    }
+
+    private static int[] grow(int[] a, int n) {
+        final int[] a2 = new int[Math.max(n, a.length * 2)];
+        System.arraycopy(a, 0, a2, 0, a.length);
+        return a2;
+    }
+
+    /**
+     * Returns the identifier of a wrapper's node, or -1 if it was not
+     * built by {@link StaxDOMParser}.
+     */
+    private static int id(DOMWrapper wrapper) {
+        if (wrapper instanceof CompactDOMWrapper) {
+            return ((CompactDOMWrapper) wrapper).id;
+        }
+        if (wrapper instanceof FlatDOMWrapper) {
+            return ((FlatDOMWrapper) wrapper).node;
+        }
+        return -1;
+    }
+
+    // implement Locator
+    public Location getLocation(DOMWrapper wrapper) {
+        final int id = id(wrapper);
+        if (id < 0 || id >= starts.length || starts[id] < 0) {
+            return null;
+        }
+        return new Location() {
+            public int getStartLine() {
+                return getLine(getStartPos()) + 1;
+            }
+
+            public int getStartColumn() {
+                return getCol(getStartPos()) + 1;
+            }
+
+            public int getStartPos() {
+                return starts[id];
+            }
+
+            public int getEndLine() {
+                return getLine(getEndPos()) + 1;
+            }
+
+            public int getEndColumn() {
+                return getCol(getEndPos()) + 1;
+            }
+
+            public int getEndPos() {
+                return ends[id];
+            }
+
+            public String getText(boolean headOnly) {
+                if (source == null) {
+                    return null;
+                }
+                return source.subSequence(
+                    starts[id], headOnly ? headEnds[id] : ends[id])
+                    .toString();
+            }
+
+            public String toString() {
+                return "line " + getLine(getStartPos())
+                    + ", column " + getCol(getStartPos());
+            }
+        };
+    }
+
+    /**
+     * Returns the line that a character position falls on. The first line
+     * in a document is numbered 0.
+     */
+    private int getLine(int pos) {
+        final int index = Arrays.binarySearch(lineStarts, pos);
+        return index >= 0 ? index : -2 - index;
+    }
+
+    /**
+     * Returns the column that a character position falls on. The first
+     * column in a line is numbered 0.
+     */
+    private int getCol(int pos) {
+        return pos - lineStarts[getLine(pos)];
+    }
+}
+
+// End LocationTable.java
@@ -0,0 +1,348 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import org.eigenbase.xom.DOMWrapper;
+import org.eigenbase.xom.Locator;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable document stored as a table of nodes in parallel arrays.
+ *
+ * <p>Nodes are numbered in document order, the root element being node 0.
+ * For each node the table holds its type, parent, first child, next
+ * sibling, tag symbol, and the start of its attributes and its text.
+ * Tag and attribute names are held once each in a symbol table, and all
+ * text and attribute values live in one shared character buffer. Like
+ * {@link CompactDOMWrapper}, the table does not retain comments or
+ * processing instructions.
+ *
+ * <p>Nodes are accessed via {@link FlatDOMWrapper} flyweights, which hold
+ * only the table and a node number. The table creates each flyweight once,
+ * on first use, and every thread gets the same flyweight for a node, so
+ * wrappers may be used as keys of identity-based maps.
+ *
+ * @author jhyde
+ */
+final class NodeTable {
+    /** Node type, {@link DOMWrapper#ELEMENT}, {@link DOMWrapper#FREETEXT}
+     * or {@link DOMWrapper#CDATA}. */
+    final byte[] types;
+    /** Parent of each node; -1 for the root. */
+    final int[] parents;
+    /** First child of each node; -1 if none. */
+    final int[] firstChildren;
+    /** Next sibling of each node; -1 if none. */
+    final int[] nextSiblings;
+    /** Symbol of the tag of an element; -1 for text. */
+    final int[] tags;
+    /** Index of the first attribute of each node. The attributes of node
+     * <code>i</code> are in the range <code>[attributeStarts[i],
+     * attributeStarts[i + 1])</code>. */
+    final int[] attributeStarts;
+    /** Offset of the text of each node in {@link #chars}. The text of text
+     * node <code>i</code> is in the range <code>[textStarts[i],
+     * textStarts[i + 1])</code>. */
+    final int[] textStarts;
+    final int nodeCount;
+
+    final String[] symbols;
+    final int[] attributeNames;
+    final int[] attributeValueStarts;
+    final int[] attributeValueLengths;
+    final char[] chars;
+
+    Locator locator;
+    private final AtomicReferenceArray/*<FlatDOMWrapper>*/ wrappers;
+
+    private NodeTable(Builder builder) {
+        final int n = builder.nodeCount;
+        this.nodeCount = n;
+        this.types = new byte[n];
+        System.arraycopy(builder.types, 0, types, 0, n);
+        this.parents = trim(builder.parents, n);
+        this.firstChildren = trim(builder.firstChildren, n);
+        this.nextSiblings = trim(builder.nextSiblings, n);
+        this.tags = trim(builder.tags, n);
+        // Sentinels, so that the range of the last node can be computed.
+        builder.attributeStarts = grow(builder.attributeStarts, n + 1);
+        builder.attributeStarts[n] = builder.attributeCount;
+        this.attributeStarts = trim(builder.attributeStarts, n + 1);
+        builder.textStarts = grow(builder.textStarts, n + 1);
+        builder.textStarts[n] = builder.charCount;
+        this.textStarts = trim(builder.textStarts, n + 1);
+
+        this.symbols = (String[]) builder.symbolList.toArray(
+            new String[builder.symbolList.size()]);
+        final int a = builder.attributeCount;
+        this.attributeNames = trim(builder.attributeNames, a);
+        this.attributeValueStarts = trim(builder.attributeValueStarts, a);
+        this.attributeValueLengths = trim(builder.attributeValueLengths, a);
+        this.chars = new char[builder.charCount];
+        System.arraycopy(builder.chars, 0, chars, 0, builder.charCount);
+        this.wrappers = new AtomicReferenceArray(n);
+    }
+
+    /**
+     * Returns the flyweight for a node, creating it if necessary.
+     */
+    FlatDOMWrapper wrapper(int node) {
+        final FlatDOMWrapper wrapper = (FlatDOMWrapper) wrappers.get(node);
+        if (wrapper != null) {
+            return wrapper;
+        }
+        // If two threads race, both create a flyweight, but only the first
+        // is published, and both return it. Callers such as BindingContext
+        // key identity maps by wrapper, so a node must have one flyweight.
+        final FlatDOMWrapper newWrapper = new FlatDOMWrapper(this, node);
+        if (wrappers.compareAndSet(node, null, newWrapper)) {
+            return newWrapper;
+        }
+        return (FlatDOMWrapper) wrappers.get(node);
+    }
+
+    /** Returns the text of a text node. */
+    String text(int node) {
+        final int start = textStarts[node];
+        return new String(chars, start, textStarts[node + 1] - start);
+    }
+
+    /** Appends the text of a node and its descendants to a buffer. */
+    void appendText(int node, StringBuffer buf) {
+        if (types[node] != DOMWrapper.ELEMENT) {
+            final int start = textStarts[node];
+            buf.append(chars, start, textStarts[node + 1] - start);
+            return;
+        }
+        for (int child = firstChildren[node];
+             child >= 0;
+             child = nextSiblings[child])
+        {
+            appendText(child, buf);
+        }
+    }
+
+    private static int[] trim(int[] a, int n) {
+        if (a.length == n) {
+            return a;
+        }
+        final int[] a2 = new int[n];
+        System.arraycopy(a, 0, a2, 0, n);
+        return a2;
+    }
+
+    private static int[] grow(int[] a, int n) {
+        if (a.length >= n) {
+            return a;
+        }
+        final int[] a2 = new int[Math.max(n, a.length * 2)];
+        System.arraycopy(a, 0, a2, 0, a.length);
+        return a2;
+    }
+
+    private static char[] grow(char[] a, int n) {
+        if (a.length >= n) {
+            return a;
+        }
+        final char[] a2 = new char[Math.max(n, a.length * 2)];
+        System.arraycopy(a, 0, a2, 0, a.length);
+        return a2;
+    }
+
+    /**
+     * Builds a <code>NodeTable</code> from parse events.
+     */
+    static class Builder extends TreeBuilder {
+        private static final int INITIAL_SIZE = 64;
+
+        byte[] types = new byte[INITIAL_SIZE];
+        int[] parents = new int[INITIAL_SIZE];
+        int[] firstChildren = new int[INITIAL_SIZE];
+        int[] nextSiblings = new int[INITIAL_SIZE];
+        int[] tags = new int[INITIAL_SIZE];
+        int[] attributeStarts = new int[INITIAL_SIZE];
+        int[] textStarts = new int[INITIAL_SIZE];
+        int nodeCount;
+
+        private final Map/*<String, Integer>*/ symbolMap = new HashMap();
+        final List/*<String>*/ symbolList = new ArrayList();
+        int[] attributeNames = new int[INITIAL_SIZE];
+        int[] attributeValueStarts = new int[INITIAL_SIZE];
+        int[] attributeValueLengths = new int[INITIAL_SIZE];
+        int attributeCount;
+        char[] chars = new char[INITIAL_SIZE * 16];
+        int charCount;
+
+        /** Stack of open elements. */
+        private int[] openElements = new int[16];
+        /** Last child of each open element; -1 if none yet. */
+        private int[] lastChildren = new int[16];
+        private int depth;
+        /** Start of the text node being accumulated; -1 if none. */
+        private int textStart = -1;
+
+        private NodeTable table;
+        private Locator locator;
+
+        int startElement(XMLStreamReader reader) {
+            flush();
+            final int node = addNode(DOMWrapper.ELEMENT, charCount);
+            tags[node] =
+                symbol(qualify(reader.getPrefix(), reader.getLocalName()));
+            final int n = reader.getAttributeCount();
+            attributeNames = grow(attributeNames, attributeCount + n);
+            attributeValueStarts =
+                grow(attributeValueStarts, attributeCount + n);
+            attributeValueLengths =
+                grow(attributeValueLengths, attributeCount + n);
+            for (int i = 0; i < n; i++) {
+                attributeNames[attributeCount] =
+                    symbol(
+                        qualify(
+                            reader.getAttributePrefix(i),
+                            reader.getAttributeLocalName(i)));
+                final String value = reader.getAttributeValue(i);
+                attributeValueStarts[attributeCount] = charCount;
+                attributeValueLengths[attributeCount] = value.length();
+                chars = grow(chars, charCount + value.length());
+                value.getChars(0, value.length(), chars, charCount);
+                charCount += value.length();
+                ++attributeCount;
+            }
+            if (depth == openElements.length) {
+                openElements = grow(openElements, depth + 1);
+                lastChildren = grow(lastChildren, depth + 1);
+            }
+            openElements[depth] = node;
+            lastChildren[depth] = -1;
+            ++depth;
+            return node;
+        }
+
+        void endElement() {
+            flush();
+            --depth;
+        }
+
+        void characters(char[] chars, int start, int length) {
+            if (depth == 0) {
+                return;
+            }
+            if (textStart < 0) {
+                textStart = charCount;
+            }
+            append(chars, start, length);
+        }
+
+        void cdata(char[] chars, int start, int length) {
+            flush();
+            addNode(DOMWrapper.CDATA, charCount);
+            append(chars, start, length);
+        }
+
+        void other() {
+            flush();
+        }
+
+        private void flush() {
+            if (textStart >= 0) {
+                addNode(DOMWrapper.FREETEXT, textStart);
+                textStart = -1;
+            }
+        }
+
+        private void append(char[] chars, int start, int length) {
+            this.chars = grow(this.chars, charCount + length);
+            System.arraycopy(chars, start, this.chars, charCount, length);
+            charCount += length;
+        }
+
+        /**
+         * Adds a node as the last child of the current element, and returns
+         * its number.
+         */
+        private int addNode(int type, int textStart) {
+            final int node = nodeCount++;
+            if (node == types.length) {
+                final byte[] types2 = new byte[node * 2];
+                System.arraycopy(types, 0, types2, 0, node);
+                types = types2;
+                parents = grow(parents, node + 1);
+                firstChildren = grow(firstChildren, node + 1);
+                nextSiblings = grow(nextSiblings, node + 1);
+                tags = grow(tags, node + 1);
+                attributeStarts = grow(attributeStarts, node + 1);
+                textStarts = grow(textStarts, node + 1);
+            }
+            types[node] = (byte) type;
+            firstChildren[node] = -1;
+            nextSiblings[node] = -1;
+            tags[node] = -1;
+            attributeStarts[node] = attributeCount;
+            textStarts[node] = textStart;
+            if (depth == 0) {
+                parents[node] = -1;
+            } else {
+                final int parent = openElements[depth - 1];
+                parents[node] = parent;
+                final int previous = lastChildren[depth - 1];
+                if (previous < 0) {
+                    firstChildren[parent] = node;
+                } else {
+                    nextSiblings[previous] = node;
+                }
+                lastChildren[depth - 1] = node;
+            }
+            return node;
+        }
+
+        private int symbol(String name) {
+            final Integer id = (Integer) symbolMap.get(name);
+            if (id != null) {
+                return id.intValue();
+            }
+            final int symbol = symbolList.size();
+            symbolMap.put(name, new Integer(symbol));
+            symbolList.add(name);
+            return symbol;
+        }
+
+        DOMWrapper getRoot() {
+            if (table == null) {
+                table = new NodeTable(this);
+                table.locator = locator;
+            }
+            return table.nodeCount == 0 ? null : table.wrapper(0);
+        }
+
+        void setLocator(Locator locator) {
+            this.locator = locator;
+            if (table != null) {
+                table.locator = locator;
+            }
+        }
+    }
+}
+
+// End NodeTable.java
@@ -0,0 +1,234 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader that records where each line starts as characters flow through
+ * it, so that a line and column reported by a parser can be converted to a
+ * character offset.
+ *
+ * <p>It also keeps a window of the most recent characters, so that a caller
+ * can look back for the start of a construct whose end the parser has
+ * reported. The caller calls {@link #discardBefore(int)} when it no longer
+ * needs characters before a given offset. If the reader is created with
+ * <code>retain</code> true, it instead keeps every character, and
+ * {@link #getText()} returns the whole document.
+ *
+ * <p>As in {@link Annotator}, a line ends with a carriage return, a line
+ * feed, or a carriage return followed by a line feed.
+ *
+ * @author jhyde
+ */
+class PositionReader extends FilterReader {
+    private final boolean retain;
+
+    /** Offset of the start of each line; the first line starts at 0. */
+    private int[] lineStarts = new int[64];
+    private int lineCount = 1;
+    private boolean lastWasCr;
+
+    /** Recent characters. <code>window[0]</code> is at offset
+     * {@link #windowStart}. */
+    private char[] window = new char[8192];
+    private int windowStart;
+    private int windowLength;
+    /** Characters before this offset may be discarded. */
+    private int mark;
+
+    /**
+     * Creates a PositionReader.
+     *
+     * @param in Underlying reader
+     * @param retain Whether to keep every character read
+     */
+    PositionReader(Reader in, boolean retain) {
+        super(in);
+        this.retain = retain;
+    }
+
+    public int read() throws IOException {
+        final int c = in.read();
+        if (c >= 0) {
+            append(new char[] {(char) c}, 0, 1);
+        }
+        return c;
+    }
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        final int n = in.read(cbuf, off, len);
+        if (n > 0) {
+            append(cbuf, off, n);
+        }
+        return n;
+    }
+
+    public long skip(long n) throws IOException {
+        // Read rather than skip, so that line ends are seen.
+        final char[] buf = new char[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int x = read(buf, 0, (int) Math.min(n - skipped, buf.length));
+            if (x < 0) {
+                break;
+            }
+            skipped += x;
+        }
+        return skipped;
+    }
+
+    public boolean markSupported() {
+        return false;
+    }
+
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void append(char[] cbuf, int off, int len) {
+        final int offset = windowStart + windowLength;
+        for (int i = 0; i < len; i++) {
+            switch (cbuf[off + i]) {
+            case '\r':
+                addLine(offset + i + 1);
+                lastWasCr = true;
+                continue;
+            case '\n':
+                if (lastWasCr) {
+                    // CR LF is one line ending; the line starts after LF.
+                    lineStarts[lineCount - 1] = offset + i + 1;
+                } else {
+                    addLine(offset + i + 1);
+                }
+                break;
+            }
+            lastWasCr = false;
+        }
+        if (windowLength + len > window.length) {
+            if (!retain && mark > windowStart) {
+                // Slide the window forward, dropping characters before the
+                // mark.
+                final int drop = Math.min(mark - windowStart, windowLength);
+                System.arraycopy(
+                    window, drop, window, 0, windowLength - drop);
+                windowStart += drop;
+                windowLength -= drop;
+            }
+            if (windowLength + len > window.length) {
+                final char[] window2 =
+                    new char[Math.max(windowLength + len, window.length * 2)];
+                System.arraycopy(window, 0, window2, 0, windowLength);
+                window = window2;
+            }
+        }
+        System.arraycopy(cbuf, off, window, windowLength, len);
+        windowLength += len;
+    }
+
+    private void addLine(int offset) {
+        if (lineCount == lineStarts.length) {
+            final int[] lineStarts2 = new int[lineCount * 2];
+            System.arraycopy(lineStarts, 0, lineStarts2, 0, lineCount);
+            lineStarts = lineStarts2;
+        }
+        lineStarts[lineCount++] = offset;
+    }
+
+    /**
+     * Converts a line and column, both starting at 1, to a character offset.
+     * The line must have been read.
+     */
+    int offset(int line, int column) {
+        if (line < 1) {
+            return 0;
+        }
+        if (line > lineCount) {
+            line = lineCount;
+        }
+        return lineStarts[line - 1] + column - 1;
+    }
+
+    /**
+     * Returns the offset of the last occurrence of a character before a
+     * given offset, looking back no further than the characters retained.
+     * Returns -1 if not found.
+     */
+    int lastIndexOf(char c, int end) {
+        for (int i = Math.min(end, windowStart + windowLength) - 1;
+             i >= windowStart;
+             i--)
+        {
+            if (window[i - windowStart] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the character at a given offset, or 0 if it is not retained.
+     */
+    char charAt(int offset) {
+        return offset >= windowStart && offset < windowStart + windowLength
+            ? window[offset - windowStart]
+            : 0;
+    }
+
+    /** Returns the offset of the earliest character retained. */
+    int getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * Declares that characters before a given offset are no longer needed.
+     * They are discarded when the window next needs space.
+     */
+    void discardBefore(int offset) {
+        if (offset > mark) {
+            mark = offset;
+        }
+    }
+
+    /**
+     * Returns the offset of the start of each line, in an array whose
+     * length is the number of lines read.
+     */
+    int[] getLineStarts() {
+        final int[] a = new int[lineCount];
+        System.arraycopy(lineStarts, 0, a, 0, lineCount);
+        return a;
+    }
+
+    /**
+     * Returns all characters read. Only valid if the reader was created
+     * with <code>retain</code> true.
+     */
+    String getText() {
+        assert retain;
+        return new String(window, 0, windowLength);
+    }
+}
+
+// End PositionReader.java
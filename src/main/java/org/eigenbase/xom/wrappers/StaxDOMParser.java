@@ -0,0 +1,513 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import org.eigenbase.xom.*;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * A <code>StaxDOMParser</code> implements {@link org.eigenbase.xom.Parser}
+ * using a {@link XMLStreamReader StAX pull parser}.
+ *
+ * <p>Unlike {@link JaxpDOMParser} and {@link XercesDOMParser}, it does not
+ * build a W3C DOM and then wrap it. It builds a tree of compact, immutable
+ * {@link DOMWrapper} nodes directly from the parse events, retaining only
+ * what the wrapper interface exposes. Documents therefore occupy much less
+ * heap, and the resulting wrappers can be bound to generated
+ * {@link ElementDef} classes as usual. For very large documents, call
+ * {@link #setFlat(boolean)} to store the document in a flat node table.
+ *
+ * <p>If {@link #setKeepPositions(boolean) keepPositions} is set, the parser
+ * records the position of each element from the line and column numbers of
+ * the parse events, in the same pass that builds the tree. It keeps the
+ * source text of the document only if {@link #setKeepText(boolean)
+ * keepText} is also set, which is the default; without it,
+ * {@link Location#getText(boolean)} returns null.
+ *
+ * <p>The {@link #bind(InputStream, StreamingBinder) bind} methods bind a
+ * document to a model as they parse it, using the model's generated
+ * {@link StreamingBinder}, rather than building a tree for the caller to
+ * bind afterwards. Elements whose classes do not keep their wrappers are
+ * discarded once bound, so the whole document is never in memory at once.
+ * If the parser is {@link #setTrusted(boolean) trusted}, they bind without
+ * validating; if it has a {@link #setCanonicalizer(Canonicalizer)
+ * canonicalizer}, they share identical subtrees.
+ *
+ * <p>As with {@link JaxpDOMParser}, document type declarations are not
+ * allowed, and the parser does not validate. Each document has its own
+ * locator, but a parser, like its StAX factory, is not safe for use by
+ * several threads at once; use {@link ParserPool} to share parsers between
+ * threads.
+ *
+ * @author jhyde
+ */
+public class StaxDOMParser implements Parser {
+    private static final String REPORT_CDATA_EVENT =
+        "http://java.sun.com/xml/stream/properties/report-cdata-event";
+    private final XMLInputFactory factory;
+    private boolean keepPositions;
+    private boolean keepText = true;
+    private boolean flat;
+    private boolean trusted;
+    private Canonicalizer canonicalizer;
+
+    /** Creates a parser. */
+    public StaxDOMParser() throws XOMException {
+        try {
+            factory = XMLInputFactory.newInstance();
+        } catch (FactoryConfigurationError e) {
+            throw new XOMException(e, "Error creating parser");
+        }
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(
+            XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        if (factory.isPropertySupported(REPORT_CDATA_EVENT)) {
+            // Report CDATA sections as such, rather than as characters, so
+            // that they become CDATA wrappers, as they do in a W3C DOM.
+            factory.setProperty(REPORT_CDATA_EVENT, Boolean.TRUE);
+        }
+    }
+
+    // implement Parser
+    public void setKeepPositions(boolean keepPositions) {
+        this.keepPositions = keepPositions;
+    }
+
+    // implement Parser
+    public boolean isKeepPositions() {
+        return keepPositions;
+    }
+
+    /**
+     * Sets whether the locations of nodes can return the source text of
+     * the document. Has no effect unless positions are being kept.
+     *
+     * <p>The default is true. If false, the parser does not need to hold
+     * the whole document in memory in order to compute positions, and
+     * {@link Location#getText(boolean)} returns null.
+     *
+     * @param keepText Whether to keep the source text of the document
+     */
+    public void setKeepText(boolean keepText) {
+        this.keepText = keepText;
+    }
+
+    /**
+     * Returns whether the locations of nodes can return the source text of
+     * the document.
+     *
+     * @return Whether to keep the source text of the document
+     */
+    public boolean isKeepText() {
+        return keepText;
+    }
+
+    /**
+     * Sets whether to store documents in a flat node table.
+     *
+     * <p>By default, the parser builds a tree with one object per node. A
+     * flat node table instead holds all nodes in a few parallel arrays, and
+     * all text in a single character buffer; wrappers are flyweights that
+     * are created only when a node is accessed. It uses considerably less
+     * memory for large documents, at the cost of creating strings each time
+     * text or attribute values are read.
+     *
+     * @param flat Whether to store documents in a flat node table
+     */
+    public void setFlat(boolean flat) {
+        this.flat = flat;
+    }
+
+    /**
+     * Returns whether this parser stores documents in a flat node table.
+     *
+     * @return Whether to store documents in a flat node table
+     */
+    public boolean isFlat() {
+        return flat;
+    }
+
+    /**
+     * Sets whether the {@link #bind(InputStream, StreamingBinder) bind}
+     * methods trust documents to be valid, and bind them without checking
+     * array sizes, attribute values and element classes. See
+     * {@link BindingContext#setTrusted(boolean)}.
+     *
+     * <p>The default is false.
+     *
+     * @param trusted Whether to skip validation when binding
+     */
+    public void setTrusted(boolean trusted) {
+        this.trusted = trusted;
+    }
+
+    /**
+     * Returns whether the {@link #bind(InputStream, StreamingBinder) bind}
+     * methods trust documents to be valid.
+     *
+     * @return Whether to skip validation when binding
+     */
+    public boolean isTrusted() {
+        return trusted;
+    }
+
+    /**
+     * Sets the canonicalizer with which the
+     * {@link #bind(InputStream, StreamingBinder) bind} methods intern each
+     * element as it is bound. See
+     * {@link BindingContext#setCanonicalizer(Canonicalizer)}.
+     *
+     * <p>The default is null, which interns nothing.
+     *
+     * @param canonicalizer Canonicalizer, or null
+     */
+    public void setCanonicalizer(Canonicalizer canonicalizer) {
+        this.canonicalizer = canonicalizer;
+    }
+
+    /**
+     * Returns the canonicalizer with which the
+     * {@link #bind(InputStream, StreamingBinder) bind} methods intern each
+     * element, or null.
+     *
+     * @return Canonicalizer, or null
+     */
+    public Canonicalizer getCanonicalizer() {
+        return canonicalizer;
+    }
+
+    // implement Parser
+    public DOMWrapper parse(String xmlString) throws XOMException {
+        return parse(new StringReader(xmlString), xmlString, createBuilder());
+    }
+
+    // implement Parser
+    public DOMWrapper parse(InputStream is) throws XOMException {
+        return parse(is, createBuilder());
+    }
+
+    private DOMWrapper parse(InputStream is, TreeBuilder builder)
+        throws XOMException
+    {
+        if (!keepPositions) {
+            try {
+                return build(
+                    factory.createXMLStreamReader(is), builder, null);
+            } catch (XMLStreamException e) {
+                throw new XOMException(e, "Document parse failed");
+            }
+        }
+        // To compute offsets we need to count characters, not bytes, so
+        // decode the stream ourselves.
+        final Reader reader;
+        try {
+            reader = decode(is);
+        } catch (IOException e) {
+            throw new XOMException(e, "Document parse failed");
+        }
+        return parse(reader, null, builder);
+    }
+
+    // implement Parser
+    public DOMWrapper parse(URL url) throws XOMException {
+        InputStream is = null;
+        try {
+            is = url.openStream();
+            return parse(is);
+        } catch (IOException ex) {
+            throw new XOMException(ex, "Document parse failed");
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    // implement Parser
+    public DOMWrapper parse(Path path) throws XOMException {
+        final ByteBuffer buffer;
+        try {
+            buffer = ByteBufferInputStream.map(path);
+        } catch (IOException ex) {
+            throw new XOMException(ex, "Document parse failed");
+        }
+        return parse(buffer);
+    }
+
+    // implement Parser
+    public DOMWrapper parse(ByteBuffer buffer) throws XOMException {
+        final InputStream is = new ByteBufferInputStream(buffer);
+        if (!keepPositions) {
+            try {
+                return build(
+                    factory.createXMLStreamReader(is), createBuilder(), null);
+            } catch (XMLStreamException e) {
+                throw new XOMException(e, "Document parse failed");
+            }
+        }
+        final EncodingDetector detector = EncodingDetector.detect(buffer);
+        final Reader reader;
+        try {
+            is.skip(detector.bomLength);
+            reader = new InputStreamReader(is, detector.encoding);
+        } catch (IOException e) {
+            throw new XOMException(e, "Document parse failed");
+        }
+        // Source text is decoded from the buffer only when it is needed.
+        return parse(
+            reader,
+            keepText
+                ? ByteBufferText.create(buffer, detector.encoding)
+                : null,
+            createBuilder());
+    }
+
+    // implement Parser
+    public DOMWrapper parse(Reader reader) throws XOMException {
+        return parse(reader, null, createBuilder());
+    }
+
+    /**
+     * Parses a document from a string and binds it to a model as it goes.
+     *
+     * @param xmlString Document
+     * @param binder Binder generated for the model
+     * @return Definition of the root element
+     * @throws XOMException if the document cannot be parsed, or is not valid
+     */
+    public NodeDef bind(String xmlString, StreamingBinder binder)
+        throws XOMException
+    {
+        final BindingContext context = createContext();
+        return take(
+            context,
+            parse(
+                new StringReader(xmlString),
+                xmlString,
+                new CompactDOMWrapper.Builder(context, binder)));
+    }
+
+    /**
+     * Parses a document from a stream and binds it to a model as it goes.
+     *
+     * <p>The document is always built from compact wrappers, even if this
+     * parser is {@link #setFlat(boolean) flat}.
+     *
+     * @param is Stream
+     * @param binder Binder generated for the model
+     * @return Definition of the root element
+     * @throws XOMException if the document cannot be parsed, or is not valid
+     */
+    public NodeDef bind(InputStream is, StreamingBinder binder)
+        throws XOMException
+    {
+        final BindingContext context = createContext();
+        return take(
+            context,
+            parse(is, new CompactDOMWrapper.Builder(context, binder)));
+    }
+
+    /**
+     * Parses a document from a reader and binds it to a model as it goes.
+     *
+     * @param reader Reader
+     * @param binder Binder generated for the model
+     * @return Definition of the root element
+     * @throws XOMException if the document cannot be parsed, or is not valid
+     */
+    public NodeDef bind(Reader reader, StreamingBinder binder)
+        throws XOMException
+    {
+        final BindingContext context = createContext();
+        return take(
+            context,
+            parse(
+                reader,
+                null,
+                new CompactDOMWrapper.Builder(context, binder)));
+    }
+
+    /** Creates a context in which to bind a document. */
+    private BindingContext createContext() {
+        final BindingContext context = new BindingContext();
+        context.setTrusted(trusted);
+        context.setCanonicalizer(canonicalizer);
+        return context;
+    }
+
+    /**
+     * Returns the definition of the root element of a document that has
+     * been bound.
+     */
+    private static NodeDef take(BindingContext context, DOMWrapper root)
+        throws XOMException
+    {
+        final NodeDef def = context.take(root);
+        if (def == null) {
+            throw new XOMException(
+                "Root element <" + root.getTagName()
+                + "> is not an element of the model");
+        }
+        return def;
+    }
+
+    /**
+     * Parses a document from a reader.
+     *
+     * @param reader Reader
+     * @param source Source text of the document, if known, otherwise null
+     * @param builder Builder
+     * @return Root element
+     */
+    private DOMWrapper parse(
+        Reader reader,
+        CharSequence source,
+        TreeBuilder builder)
+        throws XOMException
+    {
+        try {
+            if (!keepPositions) {
+                return build(
+                    factory.createXMLStreamReader(reader), builder, null);
+            }
+            final PositionReader positionReader =
+                new PositionReader(reader, keepText && source == null);
+            final LocationTable locations =
+                new LocationTable(positionReader);
+            builder.setLocator(locations);
+            build(
+                factory.createXMLStreamReader(positionReader),
+                builder,
+                locations);
+            locations.finish(
+                !keepText ? null
+                    : source != null ? source
+                    : positionReader.getText());
+            return builder.getRoot();
+        } catch (XMLStreamException e) {
+            throw new XOMException(e, "Document parse failed");
+        }
+    }
+
+    // implement Parser
+    public DOMWrapper create(String tagName) {
+        return new CompactDOMWrapper(
+            tagName, CompactDOMWrapper.EMPTY_ATTRIBUTES);
+    }
+
+    /**
+     * Creates a builder for the kind of tree this parser produces.
+     */
+    private TreeBuilder createBuilder() {
+        return flat
+            ? (TreeBuilder) new NodeTable.Builder()
+            : new CompactDOMWrapper.Builder();
+    }
+
+    /**
+     * Sends the events of a stream reader to a builder, and returns the
+     * root element that it builds.
+     */
+    private static DOMWrapper build(
+        XMLStreamReader reader,
+        TreeBuilder builder,
+        LocationTable locations)
+        throws XOMException
+    {
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    final int id = builder.startElement(reader);
+                    if (locations != null) {
+                        locations.startElement(id, reader.getLocation());
+                    }
+                    continue;
+                case XMLStreamConstants.END_ELEMENT:
+                    builder.endElement();
+                    if (locations != null) {
+                        locations.endElement(reader.getLocation());
+                    }
+                    continue;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    builder.characters(
+                        reader.getTextCharacters(),
+                        reader.getTextStart(),
+                        reader.getTextLength());
+                    break;
+                case XMLStreamConstants.CDATA:
+                    builder.cdata(
+                        reader.getTextCharacters(),
+                        reader.getTextStart(),
+                        reader.getTextLength());
+                    break;
+                case XMLStreamConstants.DTD:
+                    throw new XOMException(
+                        "Document parse failed: DOCTYPE is disallowed");
+                default:
+                    builder.other();
+                    break;
+                }
+                if (locations != null) {
+                    locations.other(reader.getLocation());
+                }
+            }
+            return builder.getRoot();
+        } catch (XMLStreamException e) {
+            throw new XOMException(e, "Document parse failed");
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Creates a reader that decodes a stream of bytes, detecting the
+     * encoding using {@link EncodingDetector}. A byte order mark is
+     * consumed.
+     */
+    private static Reader decode(InputStream is) throws IOException {
+        final InputStream bis = new BufferedInputStream(is);
+        final EncodingDetector detector = EncodingDetector.detect(bis);
+        for (int i = 0; i < detector.bomLength; i++) {
+            bis.read();
+        }
+        return new InputStreamReader(bis, detector.encoding);
+    }
+}
+
+// End StaxDOMParser.java
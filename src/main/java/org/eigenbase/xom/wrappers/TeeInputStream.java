@@ -0,0 +1,197 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input stream that keeps a copy of every byte that flows through it, so
+ * that the source text of a document can be recovered after it has been
+ * parsed.
+ *
+ * <p>Bytes are copied in bulk into a list of chunks. Chunks grow
+ * geometrically, up to a limit, and unlike the buffer of a
+ * {@link ByteArrayOutputStream} they are never copied as more data
+ * arrives.
+ *
+ * @author jhyde
+ */
+class TeeInputStream extends FilterInputStream {
+    private static final int FIRST_CHUNK_SIZE = 8192;
+    private static final int MAX_CHUNK_SIZE = 1 << 20;
+
+    /** Full chunks. */
+    private final List/*<byte[]>*/ chunks = new ArrayList();
+    /** Chunk currently being filled. */
+    private byte[] chunk = new byte[FIRST_CHUNK_SIZE];
+    /** Number of bytes used in {@link #chunk}. */
+    private int chunkCount;
+    /** Total number of bytes read. */
+    private int count;
+
+    TeeInputStream(InputStream in) {
+        super(in);
+    }
+
+    public int read() throws IOException {
+        final int x = in.read();
+        if (x >= 0) {
+            if (chunkCount == chunk.length) {
+                nextChunk();
+            }
+            chunk[chunkCount++] = (byte) x;
+            ++count;
+        }
+        return x;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int n = in.read(b, off, len);
+        if (n > 0) {
+            copy(b, off, n);
+        }
+        return n;
+    }
+
+    public long skip(long n) throws IOException {
+        // Read rather than skip, so that the skipped bytes are copied.
+        if (n <= 0) {
+            return 0;
+        }
+        final byte[] buf = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int x =
+                read(buf, 0, (int) Math.min(n - skipped, buf.length));
+            if (x < 0) {
+                break;
+            }
+            skipped += x;
+        }
+        return skipped;
+    }
+
+    public boolean markSupported() {
+        return false;
+    }
+
+    public void mark(int readlimit) {
+    }
+
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void copy(byte[] b, int off, int len) {
+        count += len;
+        while (len > 0) {
+            if (chunkCount == chunk.length) {
+                nextChunk();
+            }
+            final int n = Math.min(len, chunk.length - chunkCount);
+            System.arraycopy(b, off, chunk, chunkCount, n);
+            chunkCount += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void nextChunk() {
+        chunks.add(chunk);
+        chunk = new byte[Math.min(chunk.length * 2, MAX_CHUNK_SIZE)];
+        chunkCount = 0;
+    }
+
+    /**
+     * Decodes the bytes that have been read from this stream.
+     *
+     * <p>A leading byte-order mark is removed, so that character positions
+     * in the result match those reported by the parser.
+     *
+     * @param encoding Name of the character encoding of the document, as
+     *   detected by the parser; if null or not supported, UTF-8 is assumed
+     * @return Text that has been read from this stream
+     */
+    String getText(String encoding) throws IOException {
+        Charset charset;
+        try {
+            charset = Charset.forName(encoding == null ? "UTF-8" : encoding);
+        } catch (IllegalCharsetNameException e) {
+            charset = Charset.forName("UTF-8");
+        } catch (UnsupportedCharsetException e) {
+            charset = Charset.forName("UTF-8");
+        }
+        final Reader reader =
+            new InputStreamReader(new ChunkInputStream(), charset);
+        final StringBuffer buf = new StringBuffer(count);
+        final char[] chars = new char[8192];
+        int n;
+        while ((n = reader.read(chars)) >= 0) {
+            buf.append(chars, 0, n);
+        }
+        if (buf.length() > 0 && buf.charAt(0) == '\uFEFF') {
+            buf.deleteCharAt(0);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Input stream that reads the bytes that have been copied, chunk by
+     * chunk.
+     */
+    private class ChunkInputStream extends InputStream {
+        private int chunkIndex;
+        private int offset;
+
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                final byte[] current;
+                final int limit;
+                if (chunkIndex < chunks.size()) {
+                    current = (byte[]) chunks.get(chunkIndex);
+                    limit = current.length;
+                } else if (chunkIndex == chunks.size()) {
+                    current = chunk;
+                    limit = chunkCount;
+                } else {
+                    return -1;
+                }
+                if (offset < limit) {
+                    final int n = Math.min(len, limit - offset);
+                    System.arraycopy(current, offset, b, off, n);
+                    offset += n;
+                    return n;
+                }
+                ++chunkIndex;
+                offset = 0;
+            }
+        }
+    }
+}
+
+// End TeeInputStream.java
@@ -0,0 +1,95 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom.wrappers;
+
+import org.eigenbase.xom.DOMWrapper;
+import org.eigenbase.xom.Locator;
+import org.eigenbase.xom.XOMException;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Receives the events of a parse from {@link StaxDOMParser} and builds a
+ * tree of {@link DOMWrapper}s.
+ *
+ * <p>Adjacent calls to {@link #characters} belong to the same text node;
+ * the text node ends at the next call to any other method.
+ *
+ * @author jhyde
+ */
+abstract class TreeBuilder {
+    /**
+     * Called when the reader is positioned on the start of an element.
+     * Attributes are read from the reader.
+     *
+     * @return Identifier of the element, unique within the document, by
+     *   which a {@link LocationTable} records its position
+     */
+    abstract int startElement(XMLStreamReader reader);
+
+    /**
+     * Called at the end of an element.
+     *
+     * @throws XOMException if the builder binds elements as it goes, and
+     *   the element is not valid
+     */
+    abstract void endElement() throws XOMException;
+
+    /** Called with a piece of character data. */
+    abstract void characters(char[] chars, int start, int length);
+
+    /** Called for a CDATA section. */
+    abstract void cdata(char[] chars, int start, int length);
+
+    /**
+     * Called for a node, such as a comment, that is not retained but
+     * nevertheless separates one text node from the next.
+     */
+    abstract void other();
+
+    /** Returns the root element. Called once the document has ended. */
+    abstract DOMWrapper getRoot();
+
+    /** Sets the locator of every node in the tree, including nodes that
+     * have not been built yet. */
+    abstract void setLocator(Locator locator);
+
+    /**
+     * Returns the qualified name of an element or attribute, given its
+     * prefix and local name.
+     */
+    static String qualify(String prefix, String localName) {
+        return prefix == null || prefix.length() == 0
+            ? localName
+            : prefix + ":" + localName;
+    }
+
+    /**
+     * Returns whether a piece of text consists entirely of white space.
+     */
+    static boolean isWhitespace(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isWhitespace(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
+
+// End TreeBuilder.java
@@ -24,11 +24,33 @@ import org.w3c.dom.*;
 /**
  * This implementation of DOMWrapper wraps any w3c DOM-compliant java
  * XML Parser.
+ *
+ * <p>A caching wrapper remembers its children, element children and
+ * attributes the first time they are asked for, and its children are
+ * caching wrappers too. Each node of the document then has exactly one
+ * wrapper, so wrappers can be used as keys of identity maps, and walking
+ * the tree a second time allocates nothing. Arrays returned by a caching
+ * wrapper are shared, and must not be modified. A caching wrapper, like the
+ * DOM beneath it, is not safe for use by several threads at once.
  */
 public class W3CDOMWrapper implements DOMWrapper {
+    private static final DOMWrapper[] EMPTY_CHILDREN = new DOMWrapper[0];
+    private static final String[] EMPTY_NAMES = new String[0];
 
     final Node node;
     private final Locator locator;
+    private final int type;
+    private final boolean caching;
+
+    /** Children; null until a caching wrapper is first asked for them. */
+    private DOMWrapper[] children;
+    /** Element children; null until a caching wrapper is first asked for
+     * them. */
+    private DOMWrapper[] elementChildren;
+    /** Attribute names and values; null until a caching wrapper is first
+     * asked for an attribute. */
+    private String[] attributeNames;
+    private String[] attributeValues;
 
     /**
      * W3CDOMWrapper parses XML based on a Node.  The Node may be either an
@@ -38,17 +60,30 @@ public class W3CDOMWrapper implements DOMWrapper {
      * @param locator Callback to find location of node. May be null.
      */
     public W3CDOMWrapper(Node node, Locator locator)
+    {
+        this(node, locator, false);
+    }
+
+    /**
+     * Creates a wrapper, optionally caching.
+     *
+     * @param node DOM Node
+     * @param locator Callback to find location of node. May be null.
+     * @param caching Whether to remember children and attributes
+     */
+    public W3CDOMWrapper(Node node, Locator locator, boolean caching)
     {
         this.node = node;
         this.locator = locator;
+        this.type = toType(node.getNodeType());
+        this.caching = caching;
     }
 
     /**
      * Map the Node's type to DOMWrapper's simplified concept of type.
      */
-    public int getType()
+    private static int toType(int nodeType)
     {
-        int nodeType = node.getNodeType();
         switch (nodeType) {
         case Node.ELEMENT_NODE:
             return ELEMENT;
@@ -63,13 +98,27 @@ public class W3CDOMWrapper implements DOMWrapper {
         }
     }
 
+    // implement DOMWrapper
+    public int getType()
+    {
+        return type;
+    }
+
+    /**
+     * Returns whether this wrapper remembers its children and attributes.
+     */
+    public boolean isCaching()
+    {
+        return caching;
+    }
+
     /**
      * Retrieve the tag name directly.  Return null immediately if not an
      * element.
      */
     public String getTagName()
     {
-        if (getType() != ELEMENT) {
+        if (type != ELEMENT) {
             return null;
         }
         return ((Element)node).getTagName();
@@ -82,10 +131,22 @@ public class W3CDOMWrapper implements DOMWrapper {
      */
     public String getAttribute(String attrName)
     {
-        if (getType() != ELEMENT) {
+        if (type != ELEMENT) {
             return null;
         }
-        String attrVal = ((Element)node).getAttribute(attrName);
+        String attrVal;
+        if (caching) {
+            cacheAttributes();
+            attrVal = null;
+            for (int i = 0; i < attributeNames.length; i++) {
+                if (attributeNames[i].equals(attrName)) {
+                    attrVal = attributeValues[i];
+                    break;
+                }
+            }
+        } else {
+            attrVal = ((Element)node).getAttribute(attrName);
+        }
         if (attrVal == null || attrVal.length() == 0) {
             return null;
         } else {
@@ -93,18 +154,55 @@ public class W3CDOMWrapper implements DOMWrapper {
         }
     }
 
-    // implement DOMWrapper
+    /**
+     * Returns the qualified names of the attributes. (The local name, which
+     * this method used to return, is null unless the parser is namespace
+     * aware.)
+     */
     public String[] getAttributeNames()
     {
+        if (caching) {
+            cacheAttributes();
+            return attributeNames;
+        }
+        if (type != ELEMENT) {
+            return EMPTY_NAMES;
+        }
         NamedNodeMap map = node.getAttributes();
         int count = map.getLength();
         String[] attributeNames = new String[count];
         for (int i = 0; i < count; i++) {
-            attributeNames[i] = map.item(i).getLocalName();
+            attributeNames[i] = map.item(i).getNodeName();
         }
         return attributeNames;
     }
 
+    /**
+     * Reads the names and values of all attributes, if they have not been
+     * read already.
+     */
+    private void cacheAttributes()
+    {
+        if (attributeNames != null) {
+            return;
+        }
+        if (type != ELEMENT) {
+            attributeValues = attributeNames = EMPTY_NAMES;
+            return;
+        }
+        NamedNodeMap map = node.getAttributes();
+        int count = map.getLength();
+        String[] values = new String[count];
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            final Node attribute = map.item(i);
+            names[i] = attribute.getNodeName();
+            values[i] = attribute.getNodeValue();
+        }
+        attributeValues = values;
+        attributeNames = names;
+    }
+
     /**
      * Recursively unwrap and create the contained text.  If the node is a
      * comment, return the comment text; but ignore comments inside elements.
@@ -151,8 +249,11 @@ public class W3CDOMWrapper implements DOMWrapper {
      */
     public DOMWrapper[] getChildren()
     {
-        if (getType() != ELEMENT) {
-            return new DOMWrapper[0];
+        if (children != null) {
+            return children;
+        }
+        if (type != ELEMENT) {
+            return caching ? (children = EMPTY_CHILDREN) : new DOMWrapper[0];
         }
         NodeList nodeList = node.getChildNodes();
 
@@ -171,11 +272,14 @@ public class W3CDOMWrapper implements DOMWrapper {
         for (int i = 0; i < nodeList.getLength(); i++) {
             Node nextNode = nodeList.item(i);
             if (nextNode instanceof Element || nextNode instanceof Text) {
-                ret[count++] = new W3CDOMWrapper(nextNode, locator);
+                ret[count++] = new W3CDOMWrapper(nextNode, locator, caching);
             }
         }
 
         // Done.
+        if (caching) {
+            children = ret;
+        }
         return ret;
     }
 
@@ -185,7 +289,33 @@ public class W3CDOMWrapper implements DOMWrapper {
      */
     public DOMWrapper[] getElementChildren()
     {
-        if (getType() != ELEMENT) {
+        if (elementChildren != null) {
+            return elementChildren;
+        }
+        if (caching) {
+            // Share the wrappers of the children, so that each node has
+            // one wrapper.
+            final DOMWrapper[] children = getChildren();
+            int count = 0;
+            for (int i = 0; i < children.length; i++) {
+                if (children[i].getType() == ELEMENT) {
+                    count++;
+                }
+            }
+            if (count == children.length) {
+                elementChildren = children;
+            } else {
+                elementChildren = new DOMWrapper[count];
+                count = 0;
+                for (int i = 0; i < children.length; i++) {
+                    if (children[i].getType() == ELEMENT) {
+                        elementChildren[count++] = children[i];
+                    }
+                }
+            }
+            return elementChildren;
+        }
+        if (type != ELEMENT) {
             return new DOMWrapper[0];
         }
         NodeList nodeList = node.getChildNodes();
@@ -215,7 +345,7 @@ public class W3CDOMWrapper implements DOMWrapper {
 
     public Location getLocation()
     {
-        return locator.getLocation(this);
+        return locator == null ? null : locator.getLocation(this);
     }
 }
 
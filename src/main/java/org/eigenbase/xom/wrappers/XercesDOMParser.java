@@ -58,33 +58,40 @@ public class XercesDOMParser extends GenericDOMParser {
             throw new XOMException(e, "Error setting up validation");
         }
 
-        parser.setErrorHandler(this);
         document = new DocumentImpl();
     }
 
     // implement GenericDOMParser
-    protected Document parseInputSource(InputSource in) throws XOMException {
-        prepareParse();
+    protected Document parseInputSource(
+        InputSource in,
+        ParseContext context)
+        throws XOMException
+    {
+        parser.setErrorHandler(context);
         try {
             parser.parse(in);
         } catch (SAXException ex) {
             // Display any pending errors
-            handleErrors();
+            context.handleErrors();
             throw new XOMException(ex, "Document parse failed");
         } catch (IOException ex) {
             // Display any pending errors
-            handleErrors();
+            context.handleErrors();
             throw new XOMException(ex, "Document parse failed");
+        } finally {
+            // Don't let a pooled parser keep the context (and its error
+            // buffer, annotator and document text) alive after the parse.
+            parser.setErrorHandler(this);
         }
 
-        handleErrors();
+        context.handleErrors();
         return parser.getDocument();
     }
 
     // implement Parser
     public DOMWrapper create(String tagName) {
         Node node = document.createElement(tagName);
-        return new W3CDOMWrapper(node, this);
+        return new W3CDOMWrapper(node, null);
     }
 }
 
@@ -0,0 +1,520 @@
+/*
+// This java file was automatically generated
+// from XOM model 'enum'
+// on Sat Oct 17 02:24:26 UTC 2026
+// Do not edit this file by hand.
+*/
+
+package org.eigenbase.xom;
+/**
+ * A drawing made of shapes.
+ * <p>This class was generated from XOM model 'enum' on Sat Oct 17 02:24:26 UTC 2026
+ */
+public class EnumDef {
+
+	public static java.lang.Class getXMLDefClass()
+	{
+		return EnumDef.class;
+	}
+
+	public static String[] _elements = {
+		"Drawing",
+		"Shape"
+	};
+
+	/**
+	 * Collection of shapes.
+	 */
+	public static class Drawing extends org.eigenbase.xom.ElementDef
+	{
+		public Drawing()
+		{
+		}
+
+		public Drawing(org.eigenbase.xom.DOMWrapper _def)
+			throws org.eigenbase.xom.XOMException
+		{
+			try {
+				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", EnumDef.class);
+				org.eigenbase.xom.NodeDef[] _tempArray;
+				name = (String)_parser.getAttribute("name", _name_converter, null, null, true);
+				_tempArray = _parser.getArray(Shape.class, 0, 0);
+				shapes = new Shape[_tempArray.length];
+				for (int _i = 0; _i < shapes.length; _i++)
+					shapes[_i] = (Shape)_tempArray[_i];
+			} catch(org.eigenbase.xom.XOMException _ex) {
+				throw new org.eigenbase.xom.XOMException("In " + getName() + ": " + _ex.getMessage());
+			}
+		}
+
+		/** Converter for {@link #name}. */
+		public static final org.eigenbase.xom.AttributeConverter _name_converter =
+			org.eigenbase.xom.AttributeConverters.get("String");
+		public String name;  // required attribute
+
+		public Shape[] shapes;  //optional array
+
+		public String getName()
+		{
+			return "Drawing";
+		}
+
+		public int getChildCount()
+		{
+			return (shapes == null ? 0 : shapes.length);
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			final org.eigenbase.xom.NodeDef[] _children =
+				new org.eigenbase.xom.NodeDef[(shapes == null ? 0 : shapes.length)];
+			int _n = 0;
+			if (shapes != null) {
+				java.lang.System.arraycopy(shapes, 0, _children, _n, shapes.length);
+				_n += shapes.length;
+			}
+			return _children;
+		}
+
+		/** Creates a builder for {@link Drawing}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Drawing} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private String name;
+			private final java.util.ArrayList shapes = new java.util.ArrayList();
+
+			/** Sets {@link Drawing#name}. */
+			public Builder name(String value)
+			{
+				this.name = value;
+				return this;
+			}
+
+			/** Adds to {@link Drawing#shapes}. */
+			public Builder addShapes(Shape value)
+			{
+				this.shapes.add(value);
+				return this;
+			}
+
+			/** Adds to {@link Drawing#shapes}. */
+			public Builder addShapes(Shape[] values)
+			{
+				this.shapes.addAll(java.util.Arrays.asList(values));
+				return this;
+			}
+
+			/** Presizes {@link Drawing#shapes}. */
+			public Builder ensureShapesCapacity(int capacity)
+			{
+				this.shapes.ensureCapacity(capacity);
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Drawing}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Drawing build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Drawing _element = new Drawing();
+				try {
+					_element.name = (String) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"name", name, _name_converter, null, null, true);
+					org.eigenbase.xom.DOMElementParser.checkCount(
+						"Shape", shapes.size(), 0, 0);
+					_element.shapes = (Shape[]) shapes.toArray(
+						new Shape[shapes.size()]);
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Drawing.class) {
+				return super.deepCopy();
+			}
+			Drawing _copy = new Drawing();
+			_copy.name = name;
+			_copy.shapes = (Shape[]) copyNodes(shapes);
+			return _copy;
+		}
+
+		public void display(java.io.PrintWriter _out, int _indent)
+		{
+			_out.println(getName());
+			displayAttribute(_out, "name", name, _indent+1);
+			displayElementArray(_out, "shapes", shapes, _indent+1);
+		}
+		public void displayXML(org.eigenbase.xom.XMLOutput _out, int _indent)
+		{
+			_out.beginTag("Drawing", new org.eigenbase.xom.XMLAttrVector()
+				.add("name", name)
+				);
+			displayXMLElementArray(_out, shapes);
+			_out.endTag("Drawing");
+		}
+		public boolean displayDiff(org.eigenbase.xom.ElementDef _other, java.io.PrintWriter _out, int _indent)
+		{
+			Drawing _cother = (Drawing)_other;
+			boolean _diff = displayAttributeDiff("name", name, _cother.name, _out, _indent+1);
+			_diff = _diff && displayElementArrayDiff("shapes", shapes, _cother.shapes, _out, _indent+1);
+			return _diff;
+		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Drawing)) {
+				return false;
+			}
+			Drawing _cother = (Drawing)_other;
+			return attributeEquals(name, _cother.name)
+				&& elementArrayEquals(shapes, _cother.shapes);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(name);
+			_h = 31 * _h + hashElementArray(shapes);
+			return _h;
+		}
+	}
+
+	/**
+	 * A shape. Its kind and color have lists of allowable values, so
+	 * each is held in an enum.
+	 */
+	public static class Shape extends org.eigenbase.xom.ElementDef
+	{
+		public Shape()
+		{
+		}
+
+		public Shape(org.eigenbase.xom.DOMWrapper _def)
+			throws org.eigenbase.xom.XOMException
+		{
+			try {
+				org.eigenbase.xom.DOMElementParser _parser = new org.eigenbase.xom.DOMElementParser(_def, "", EnumDef.class);
+				kind = (KindValue)_parser.getAttribute("kind", _kind_converter, null, null, true);
+				color = (ColorValue)_parser.getAttribute("color", _color_converter, "red", null, false);
+				size = (Integer)_parser.getAttribute("size", _size_converter, null, null, false);
+			} catch(org.eigenbase.xom.XOMException _ex) {
+				throw new org.eigenbase.xom.XOMException("In " + getName() + ": " + _ex.getMessage());
+			}
+		}
+
+		/** Allowable values for {@link #kind}. */
+		public static final String[] _kind_values = {"circle", "square", "half-moon"};
+		/** Constants for the allowable values of {@link #kind}. */
+		public enum KindValue {
+			CIRCLE("circle"),
+			SQUARE("square"),
+			HALF_MOON("half-moon");
+
+			private static final java.util.Map _map = new java.util.HashMap();
+			static {
+				KindValue[] _constants = values();
+				for (int _i = 0; _i < _constants.length; _i++) {
+					_map.put(_constants[_i].value, _constants[_i]);
+				}
+			}
+
+			/** Value of the attribute, as it appears in a document. */
+			public final String value;
+
+			KindValue(String value)
+			{
+				this.value = value;
+			}
+
+			public String toString()
+			{
+				return value;
+			}
+
+			/** Returns the constant with a given value, or null. */
+			public static KindValue lookup(String value)
+			{
+				return (KindValue) _map.get(value);
+			}
+		}
+		/** Converter for {@link #kind}. */
+		public static final org.eigenbase.xom.AttributeConverter _kind_converter =
+			new org.eigenbase.xom.AttributeConverter() {
+				public java.lang.Object convert(String value)
+					throws org.eigenbase.xom.XOMException
+				{
+					final KindValue _constant = KindValue.lookup(value);
+					if (_constant == null) {
+						throw new org.eigenbase.xom.XOMException(
+							"Value '" + value + "' of attribute 'kind' has illegal value '"
+							+ value + "'.  Legal values: {circle, square, half-moon}");
+					}
+					return _constant;
+				}
+			};
+		public KindValue kind;  // required attribute
+		/** Allowable values for {@link #color}. */
+		public static final String[] _color_values = {"red", "green"};
+		/** Constants for the allowable values of {@link #color}. */
+		public enum ColorValue {
+			RED("red"),
+			GREEN("green");
+
+			private static final java.util.Map _map = new java.util.HashMap();
+			static {
+				ColorValue[] _constants = values();
+				for (int _i = 0; _i < _constants.length; _i++) {
+					_map.put(_constants[_i].value, _constants[_i]);
+				}
+			}
+
+			/** Value of the attribute, as it appears in a document. */
+			public final String value;
+
+			ColorValue(String value)
+			{
+				this.value = value;
+			}
+
+			public String toString()
+			{
+				return value;
+			}
+
+			/** Returns the constant with a given value, or null. */
+			public static ColorValue lookup(String value)
+			{
+				return (ColorValue) _map.get(value);
+			}
+		}
+		/** Converter for {@link #color}. */
+		public static final org.eigenbase.xom.AttributeConverter _color_converter =
+			new org.eigenbase.xom.AttributeConverter() {
+				public java.lang.Object convert(String value)
+					throws org.eigenbase.xom.XOMException
+				{
+					final ColorValue _constant = ColorValue.lookup(value);
+					if (_constant == null) {
+						throw new org.eigenbase.xom.XOMException(
+							"Value '" + value + "' of attribute 'color' has illegal value '"
+							+ value + "'.  Legal values: {red, green}");
+					}
+					return _constant;
+				}
+			};
+		public ColorValue color;  // attribute default: red
+		/** Converter for {@link #size}. */
+		public static final org.eigenbase.xom.AttributeConverter _size_converter =
+			org.eigenbase.xom.AttributeConverters.get("Integer");
+		public Integer size;  // optional attribute
+
+
+		public String getName()
+		{
+			return "Shape";
+		}
+
+		public int getChildCount()
+		{
+			return 0;
+		}
+
+		public org.eigenbase.xom.NodeDef[] getChildren()
+		{
+			return new org.eigenbase.xom.NodeDef[0];
+		}
+
+		/** Creates a builder for {@link Shape}. */
+		public static Builder builder()
+		{
+			return new Builder();
+		}
+
+		/**
+		 * Builds a {@link Shape} in code. Values are checked when
+		 * {@link #build()} is called, not as they are set.
+		 */
+		public static class Builder
+		{
+			private KindValue kind;
+			private ColorValue color;
+			private Integer size;
+
+			/** Sets {@link Shape#kind}. */
+			public Builder kind(KindValue value)
+			{
+				this.kind = value;
+				return this;
+			}
+
+			/** Sets {@link Shape#color}. */
+			public Builder color(ColorValue value)
+			{
+				this.color = value;
+				return this;
+			}
+
+			/** Sets {@link Shape#size}. */
+			public Builder size(Integer value)
+			{
+				this.size = value;
+				return this;
+			}
+
+			/**
+			 * Checks the values set so far and creates a {@link Shape}.
+			 * The builder may be used again.
+			 *
+			 * @throws org.eigenbase.xom.XOMException if a value is missing or invalid
+			 */
+			public Shape build()
+				throws org.eigenbase.xom.XOMException
+			{
+				Shape _element = new Shape();
+				try {
+					_element.kind = (KindValue) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"kind", kind, _kind_converter, null, null, true);
+					_element.color = (ColorValue) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"color", color, _color_converter, "red", null, false);
+					_element.size = (Integer) org.eigenbase.xom.DOMElementParser.checkAttribute(
+						"size", size, _size_converter, null, null, false);
+				} catch (org.eigenbase.xom.XOMException _ex) {
+					throw new org.eigenbase.xom.XOMException("In " + _element.getName() + ": " + _ex.getMessage());
+				}
+				return _element;
+			}
+		}
+
+		public org.eigenbase.xom.ElementDef deepCopy()
+			throws org.eigenbase.xom.XOMException
+		{
+			if (getClass() != Shape.class) {
+				return super.deepCopy();
+			}
+			Shape _copy = new Shape();
+			_copy.kind = kind;
+			_copy.color = color;
+			_copy.size = size;
+			return _copy;
+		}
+
+		public void display(java.io.PrintWriter _out, int _indent)
+		{
+			_out.println(getName());
+			displayAttribute(_out, "kind", kind, _indent+1);
+			displayAttribute(_out, "color", color, _indent+1);
+			displayAttribute(_out, "size", size, _indent+1);
+		}
+		public void displayXML(org.eigenbase.xom.XMLOutput _out, int _indent)
+		{
+			_out.beginTag("Shape", new org.eigenbase.xom.XMLAttrVector()
+				.add("kind", kind)
+				.add("color", color)
+				.add("size", size)
+				);
+			_out.endTag("Shape");
+		}
+		public boolean displayDiff(org.eigenbase.xom.ElementDef _other, java.io.PrintWriter _out, int _indent)
+		{
+			Shape _cother = (Shape)_other;
+			boolean _diff = displayAttributeDiff("kind", kind, _cother.kind, _out, _indent+1);
+			_diff = _diff && displayAttributeDiff("color", color, _cother.color, _out, _indent+1);
+			_diff = _diff && displayAttributeDiff("size", size, _cother.size, _out, _indent+1);
+			return _diff;
+		}
+		public boolean structurallyEquals(org.eigenbase.xom.ElementDef _other)
+		{
+			if (!(_other instanceof Shape)) {
+				return false;
+			}
+			Shape _cother = (Shape)_other;
+			return attributeEquals(kind, _cother.kind)
+				&& attributeEquals(color, _cother.color)
+				&& attributeEquals(size, _cother.size);
+		}
+		protected int computeHashCode()
+		{
+			int _h = 0;
+			_h = 31 * _h + hashAttribute(kind);
+			_h = 31 * _h + hashAttribute(color);
+			_h = 31 * _h + hashAttribute(size);
+			return _h;
+		}
+	}
+
+	/** Prefix of the tags of this model. */
+	public static final String _prefix = "";
+
+	/**
+	 * Constructs the definition of an element of this model, or returns null
+	 * if its tag is not that of a concrete element class.
+	 */
+	public static org.eigenbase.xom.ElementDef _construct(
+		org.eigenbase.xom.DOMWrapper _def)
+		throws org.eigenbase.xom.XOMException
+	{
+		final String _tag = _def.getTagName();
+		switch (_tag.length()) {
+		case 5:
+			if (_tag.equals("Shape")) {
+				return new Shape(_def);
+			}
+			break;
+		case 7:
+			if (_tag.equals("Drawing")) {
+				return new Drawing(_def);
+			}
+			break;
+		}
+		return null;
+	}
+
+	/**
+	 * Binds the elements of this model as they are parsed; see
+	 * {@link org.eigenbase.xom.StreamingBinder}.
+	 */
+	public static class _Binder extends org.eigenbase.xom.StreamingBinder
+	{
+		public _Binder()
+		{
+			super("", new java.lang.String[] {
+				"Drawing",
+				"Shape"
+			}, new boolean[] {
+				false,
+				false
+			});
+		}
+
+		protected org.eigenbase.xom.NodeDef construct(
+			int _index, org.eigenbase.xom.DOMWrapper _def)
+			throws org.eigenbase.xom.XOMException
+		{
+			switch (_index) {
+			case 0:
+				return new Drawing(_def);
+			case 1:
+				return new Shape(_def);
+			default:
+				return null;
+			}
+		}
+	}
+
+
+}
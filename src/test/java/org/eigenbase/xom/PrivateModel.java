@@ -0,0 +1,81 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import java.io.PrintWriter;
+
+/**
+ * Model written by hand whose classes, constructors and factory method are
+ * not public, for testing that binding does not require them to be.
+ *
+ * @author jhyde
+ */
+class PrivateModel {
+    /** Prefix of the tags of this model. */
+    static final String _prefix = "";
+
+    /** Number of times that {@link #_construct} has been called. */
+    static int constructCount;
+
+    /**
+     * Constructs an {@link Item}, or returns null if the tag is not that of
+     * an item.
+     */
+    static ElementDef _construct(DOMWrapper _def) throws XOMException {
+        ++constructCount;
+        if (_def.getTagName().equals("Item")) {
+            return new Item(_def);
+        }
+        return null;
+    }
+
+    /** Element that {@link #_construct} constructs. */
+    static class Item extends ElementDef {
+        final String name;
+
+        Item(DOMWrapper _def) {
+            name = _def.getAttribute("name");
+        }
+
+        public void display(PrintWriter pw, int indent) {
+            pw.print(getName());
+        }
+    }
+
+    /** Element that {@link #_construct} does not know, and so is
+     * constructed by its constructor. */
+    static class Other extends ElementDef {
+        final String name;
+
+        Other(DOMWrapper _def) {
+            name = _def.getAttribute("name");
+        }
+
+        public void display(PrintWriter pw, int indent) {
+            pw.print(getName());
+        }
+    }
+
+    /** Element that cannot be constructed, because it is abstract. */
+    abstract static class Base extends ElementDef {
+        Base(DOMWrapper _def) {
+        }
+    }
+}
+
+// End PrivateModel.java
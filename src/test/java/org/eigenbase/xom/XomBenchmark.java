@@ -0,0 +1,894 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.xom;
+
+import org.eigenbase.xom.wrappers.JaxpDOMParser;
+import org.eigenbase.xom.wrappers.StaxDOMParser;
+import org.eigenbase.xom.wrappers.XercesDOMParser;
+
+import java.io.ByteArrayInputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Micro-benchmarks for the XOM module.
+ *
+ * <p>This is not a unit test. Run it from the command line, giving the name
+ * of a benchmark and, optionally, the size of the generated document:
+ *
+ * <blockquote><code>java org.eigenbase.xom.XomBenchmark parse
+ * 10000</code></blockquote>
+ *
+ * <p>Benchmarks are:<ul>
+ * <li><code>parse</code>: parse, walk and bind with each parser;</li>
+ * <li><code>positions</code>: parse a stream with and without keeping
+ *     positions;</li>
+ * <li><code>threads</code>: parse from several threads at once, creating
+ *     a parser per parse or sharing a {@link ParserPool};</li>
+ * <li><code>bind</code>: parse then bind, or bind while parsing with a
+ *     {@link StreamingBinder};</li>
+ * <li><code>parallel</code>: bind a parsed document using a
+ *     {@link BindingContext} with pools of increasing size;</li>
+ * <li><code>walk</code>: walk a tree of definitions, using the methods
+ *     generated in {@link MetaDef} and the reflective methods that
+ *     hand-written subclasses of {@link ElementDef} inherit;</li>
+ * <li><code>children</code>: add children one at a time to an element,
+ *     using {@link ElementDef#addChild(NodeDef)} and a
+ *     {@link ChildBuilder};</li>
+ * <li><code>builder</code>: build a model in code, using the generated
+ *     builders and by rendering XML and parsing it;</li>
+ * <li><code>trusted</code>: bind a document with and without validation
+ *     (see {@link BindingContext#setTrusted(boolean)});</li>
+ * <li><code>hash</code>: compute the hash code of a model, by serializing
+ *     it to XML, structurally, and once it is frozen;</li>
+ * <li><code>equals</code>: compare two models using
+ *     {@link ElementDef#displayDiff} and
+ *     {@link ElementDef#structurallyEquals(ElementDef)};</li>
+ * <li><code>copy</code>: copy a model by serialization, and using
+ *     {@link ElementDef#deepCopy()}, generated and reflective;</li>
+ * <li><code>canonical</code>: bind a model whose elements have identical
+ *     attributes, without sharing them, then sharing them using a
+ *     {@link Canonicalizer} after and while binding;</li>
+ * <li><code>diff</code>: compare two versions of a model using a
+ *     {@link TreeDiff}, with and without keys, and apply the edits.</li>
+ * </ul>
+ *
+ * <p>Each benchmark warms up before it measures, and reports the average
+ * time per operation.
+ */
+public class XomBenchmark {
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) throws Exception {
+        final String benchmark = args.length > 0 ? args[0] : "parse";
+        final int size = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        if (benchmark.equals("parse")) {
+            parse(size);
+        } else if (benchmark.equals("positions")) {
+            positions(size);
+        } else if (benchmark.equals("threads")) {
+            threads(size);
+        } else if (benchmark.equals("bind")) {
+            bind(size);
+        } else if (benchmark.equals("parallel")) {
+            parallel(size);
+        } else if (benchmark.equals("walk")) {
+            walk(size);
+        } else if (benchmark.equals("children")) {
+            children(size);
+        } else if (benchmark.equals("builder")) {
+            builder(size);
+        } else if (benchmark.equals("trusted")) {
+            trusted(size);
+        } else if (benchmark.equals("hash")) {
+            hash(size);
+        } else if (benchmark.equals("equals")) {
+            equals(size);
+        } else if (benchmark.equals("copy")) {
+            copy(size);
+        } else if (benchmark.equals("canonical")) {
+            canonical(size);
+        } else if (benchmark.equals("diff")) {
+            diff(size);
+        } else {
+            System.out.println(
+                "Usage: XomBenchmark"
+                + " {parse|positions|threads|bind|parallel|walk|children"
+                + "|builder|trusted|hash|equals|copy|canonical|diff}"
+                + " [size]");
+        }
+    }
+
+    /**
+     * Compares the parse time and retained heap of the parsers, the time to
+     * walk the parsed document, and the time to bind it to {@link MetaDef}.
+     */
+    static void parse(int size) throws Exception {
+        final String xml = XomTest.modelXml(size);
+        System.out.println(
+            "Document of " + size + " elements, " + xml.length() + " chars");
+        final StaxDOMParser flatParser = new StaxDOMParser();
+        flatParser.setFlat(true);
+        final JaxpDOMParser cachingParser = new JaxpDOMParser();
+        cachingParser.setCacheWrappers(true);
+        final Parser[] parsers = {
+            new JaxpDOMParser(),
+            cachingParser,
+            new XercesDOMParser(),
+            new StaxDOMParser(),
+            flatParser,
+        };
+        for (int i = 0; i < parsers.length; i++) {
+            final Parser parser = parsers[i];
+            final String name = parser.getClass().getName()
+                + (parser == flatParser ? " (flat)"
+                    : parser == cachingParser ? " (caching)"
+                    : "");
+            final Task parse = new Task() {
+                Object run() throws Exception {
+                    return parser.parse(xml);
+                }
+            };
+            time(name + " parse", parse);
+            final DOMWrapper def = parser.parse(xml);
+            time(
+                name + " bind",
+                new Task() {
+                    Object run() throws Exception {
+                        return new MetaDef.Model(def);
+                    }
+                });
+            time(
+                name + " walk",
+                new Task() {
+                    Object run() throws Exception {
+                        return new Integer(walk(def));
+                    }
+                });
+            System.out.println(
+                name + " retained heap: " + (retainedHeap(parse) >> 10)
+                + " KB");
+        }
+    }
+
+    /**
+     * Compares the time to parse a stream with and without keeping
+     * positions.
+     */
+    static void positions(int size) throws Exception {
+        final byte[] bytes = XomTest.modelXml(size).getBytes("UTF-8");
+        System.out.println(
+            "Document of " + size + " elements, " + bytes.length + " bytes");
+        final StaxDOMParser noTextParser = new StaxDOMParser();
+        noTextParser.setKeepText(false);
+        final Parser[] parsers = {
+            new JaxpDOMParser(),
+            new StaxDOMParser(),
+            noTextParser,
+        };
+        for (int i = 0; i < parsers.length; i++) {
+            final Parser parser = parsers[i];
+            for (int j = 0; j < 2; j++) {
+                parser.setKeepPositions(j == 1);
+                time(
+                    parser.getClass().getName()
+                    + (parser == noTextParser ? " (no text)" : "")
+                    + " keepPositions=" + parser.isKeepPositions(),
+                    new Task() {
+                        Object run() throws Exception {
+                            return parser.parse(
+                                new ByteArrayInputStream(bytes));
+                        }
+                    });
+            }
+        }
+    }
+
+    /**
+     * Compares the throughput of several threads parsing at once, with a new
+     * parser for each parse and with a shared {@link ParserPool}.
+     */
+    static void threads(int size) throws Exception {
+        final String xml = XomTest.modelXml(size);
+        final int threadCount = Runtime.getRuntime().availableProcessors();
+        System.out.println(
+            "Document of " + size + " elements, " + xml.length() + " chars, "
+            + threadCount + " threads");
+        final Parser jaxpPool = new ParserPool();
+        final Parser staxPool = new ParserPool() {
+            protected Parser createParser() throws XOMException {
+                return new StaxDOMParser();
+            }
+        };
+        final Object[][] cases = {
+            {"new parser per parse", null},
+            {"ParserPool (JaxpDOMParser)", jaxpPool},
+            {"ParserPool (StaxDOMParser)", staxPool},
+        };
+        for (int i = 0; i < cases.length; i++) {
+            final String name = (String) cases[i][0];
+            final Parser pool = (Parser) cases[i][1];
+            final Task parse = new Task() {
+                Object run() throws Exception {
+                    final Parser parser =
+                        pool == null ? XOMUtil.createDefaultParser() : pool;
+                    return parser.parse(xml);
+                }
+            };
+            time(
+                name,
+                new Task() {
+                    Object run() throws Exception {
+                        return new Integer(concurrently(threadCount, parse));
+                    }
+                });
+        }
+    }
+
+    /**
+     * Compares the time and retained heap of binding a document after
+     * parsing it and while parsing it. {@link MetaDef} keeps the wrapper of
+     * every element, so the last case uses a binder that lets the parser
+     * discard the children of each <code>Element</code>.
+     */
+    static void bind(int size) throws Exception {
+        final String xml = XomTest.modelXml(size);
+        System.out.println(
+            "Document of " + size + " elements, " + xml.length() + " chars");
+        final Parser jaxpParser = new JaxpDOMParser();
+        final StaxDOMParser staxParser = new StaxDOMParser();
+        final StreamingBinder discardingBinder =
+            new StreamingBinder(
+                "",
+                new String[] {"Model", "Element"},
+                new boolean[] {true, false})
+            {
+                protected NodeDef construct(int index, DOMWrapper wrapper)
+                    throws XOMException
+                {
+                    return index == 0
+                        ? (NodeDef) new MetaDef.Model(wrapper)
+                        : new MetaDef.Element(wrapper);
+                }
+            };
+        final Object[][] cases = {
+            {"JaxpDOMParser parse, then bind", jaxpParser, null},
+            {"StaxDOMParser parse, then bind", staxParser, null},
+            {"StaxDOMParser bind while parsing", staxParser,
+                new MetaDef._Binder()},
+            {"StaxDOMParser bind while parsing, discarding", staxParser,
+                discardingBinder},
+        };
+        for (int i = 0; i < cases.length; i++) {
+            final String name = (String) cases[i][0];
+            final Parser parser = (Parser) cases[i][1];
+            final StreamingBinder binder = (StreamingBinder) cases[i][2];
+            final Task bind = new Task() {
+                Object run() throws Exception {
+                    if (binder == null) {
+                        return new MetaDef.Model(parser.parse(xml));
+                    }
+                    return staxParser.bind(xml, binder);
+                }
+            };
+            time(name, bind);
+            System.out.println(
+                name + " retained heap: " + (retainedHeap(bind) >> 10)
+                + " KB");
+        }
+    }
+
+    /**
+     * Compares the time to compute the hash code of a model: by serializing
+     * it to XML, as {@link ElementDef#hashCode()} used to; structurally;
+     * and once the model is frozen.
+     */
+    static void hash(int size) throws Exception {
+        final String xml = XomTest.modelXml(size);
+        final MetaDef.Model model =
+            new MetaDef.Model(new StaxDOMParser().parse(xml));
+        final MetaDef.Model frozen =
+            new MetaDef.Model(new StaxDOMParser().parse(xml));
+        frozen.freeze();
+        time(
+            "toXML().hashCode()",
+            new Task() {
+                Object run() {
+                    return new Integer(model.toXML().hashCode());
+                }
+            });
+        time(
+            "structural hashCode()",
+            new Task() {
+                Object run() {
+                    return new Integer(model.hashCode());
+                }
+            });
+        time(
+            "frozen hashCode()",
+            new Task() {
+                Object run() {
+                    return new Integer(frozen.hashCode());
+                }
+            });
+    }
+
+    /**
+     * Compares the time and memory that {@link ElementDef#displayDiff} and
+     * {@link ElementDef#structurallyEquals(ElementDef)} take to compare two
+     * equal models, and two models that differ in their first element.
+     */
+    static void equals(int size) throws Exception {
+        final String xml = XomTest.modelXml(size);
+        final StaxDOMParser parser = new StaxDOMParser();
+        final MetaDef.Model model1 = new MetaDef.Model(parser.parse(xml));
+        final MetaDef.Model model2 = new MetaDef.Model(parser.parse(xml));
+        final MetaDef.Model model3 = new MetaDef.Model(parser.parse(xml));
+        ((MetaDef.Element) model3.elements[0]).type = "Different";
+        final MetaDef.Model[] others = {model2, model3};
+        for (int i = 0; i < others.length; i++) {
+            final MetaDef.Model other = others[i];
+            final String kind = i == 0 ? "equal" : "different";
+            final Task displayDiff = new Task() {
+                Object run() {
+                    return Boolean.valueOf(model1.displayDiff(other, null, 0));
+                }
+            };
+            final Task structurallyEquals = new Task() {
+                Object run() {
+                    return Boolean.valueOf(model1.structurallyEquals(other));
+                }
+            };
+            time(kind + " displayDiff", displayDiff);
+            System.out.println(
+                kind + " displayDiff allocated: "
+                + allocatedBytes(displayDiff) + " bytes");
+            time(kind + " structurallyEquals", structurallyEquals);
+            System.out.println(
+                kind + " structurallyEquals allocated: "
+                + allocatedBytes(structurallyEquals) + " bytes");
+        }
+    }
+
+    /**
+     * Compares the time and memory to copy a model: by serializing it and
+     * reading it back, as {@link ElementDef#deepCopy()} used to; with the
+     * generated <code>deepCopy()</code> methods; and, for a tree of
+     * hand-written elements, by reflection. Parsed wrappers are not
+     * serializable, so the model that is serialized has none.
+     */
+    static void copy(int size) throws Exception {
+        final String xml = XomTest.modelXml(size);
+        final MetaDef.Model model =
+            new MetaDef.Model(new StaxDOMParser().parse(xml));
+        final MetaDef.Model unwrapped = (MetaDef.Model) model.deepCopy();
+        removeWrappers(unwrapped);
+        final XomTest.HandWrittenDef handWritten =
+            XomTest.HandWrittenDef.copy(model);
+        final Task serialize = new Task() {
+            Object run() throws Exception {
+                final java.io.ByteArrayOutputStream buf =
+                    new java.io.ByteArrayOutputStream();
+                final java.io.ObjectOutputStream out =
+                    new java.io.ObjectOutputStream(buf);
+                out.writeObject(unwrapped);
+                out.flush();
+                return new java.io.ObjectInputStream(
+                    new ByteArrayInputStream(buf.toByteArray()))
+                    .readObject();
+            }
+        };
+        final Task generated = new Task() {
+            Object run() throws Exception {
+                return model.deepCopy();
+            }
+        };
+        final Task reflective = new Task() {
+            Object run() throws Exception {
+                return handWritten.deepCopy();
+            }
+        };
+        time("serialization copy", serialize);
+        System.out.println(
+            "serialization copy allocated: " + allocatedBytes(serialize)
+            + " bytes");
+        time("generated deepCopy()", generated);
+        System.out.println(
+            "generated deepCopy() allocated: " + allocatedBytes(generated)
+            + " bytes");
+        time("reflective deepCopy()", reflective);
+        System.out.println(
+            "reflective deepCopy() allocated: " + allocatedBytes(reflective)
+            + " bytes");
+    }
+
+    /**
+     * Compares the time to bind a model, and the heap that the model
+     * retains, without and with a {@link Canonicalizer}. Two of the three
+     * attributes of each element of the model are the same in every
+     * element. The document is parsed once, and is not counted in the heap.
+     */
+    static void canonical(int size) throws Exception {
+        final DOMWrapper def =
+            new StaxDOMParser().parse(XomTest.modelXml(size));
+        final Task[] tasks = {
+            new Task() {
+                Object run() throws Exception {
+                    return new MetaDef.Model(def);
+                }
+            },
+            new Task() {
+                Object run() throws Exception {
+                    return new Canonicalizer().canonicalize(
+                        new MetaDef.Model(def));
+                }
+            },
+            new Task() {
+                Object run() throws Exception {
+                    final BindingContext context = new BindingContext();
+                    context.setCanonicalizer(new Canonicalizer());
+                    return context.construct(def, MetaDef.Model.class);
+                }
+            },
+        };
+        final String[] names = {
+            "bind",
+            "bind, then canonicalize",
+            "bind while canonicalizing",
+        };
+        for (int i = 0; i < tasks.length; i++) {
+            final Task task = tasks[i];
+            time(names[i], task);
+            System.out.println(
+                names[i] + " distinct elements: "
+                + countDistinct((NodeDef) task.run(), new IdentityHashMap()));
+            // Hold several models at once; measuring one is too noisy.
+            final int count = 8;
+            final long heap = retainedHeap(
+                new Task() {
+                    Object run() throws Exception {
+                        final Object[] models = new Object[count];
+                        for (int j = 0; j < count; j++) {
+                            models[j] = task.run();
+                        }
+                        return models;
+                    }
+                });
+            System.out.println(
+                names[i] + " retained heap: " + (heap / count >> 10)
+                + " KB");
+        }
+    }
+
+    /**
+     * Compares the time to diff two versions of a model with a
+     * {@link TreeDiff}, matching elements by key and without keys, and to
+     * apply the edits. The second version deletes every hundredth element,
+     * moves every hundred-and-first to the end, changes an attribute of
+     * every fiftieth, and adds an element at the start.
+     */
+    static void diff(int size) throws Exception {
+        final String xml = XomTest.modelXml(size);
+        final StaxDOMParser parser = new StaxDOMParser();
+        final MetaDef.Model before = new MetaDef.Model(parser.parse(xml));
+        final MetaDef.Model after = new MetaDef.Model(parser.parse(xml));
+        final java.util.List list = new java.util.ArrayList();
+        final java.util.List moved = new java.util.ArrayList();
+        for (int i = 0; i < after.elements.length; i++) {
+            final MetaDef.Element element =
+                (MetaDef.Element) after.elements[i];
+            if (i % 50 == 0) {
+                element.attributes[0].required = Boolean.FALSE;
+            }
+            if (i % 100 == 0) {
+                continue;
+            }
+            if (i % 101 == 0) {
+                moved.add(element);
+                continue;
+            }
+            list.add(element);
+        }
+        list.addAll(moved);
+        final MetaDef.Element added =
+            (MetaDef.Element) ((ElementDef) before.elements[1]).deepCopy();
+        added.type = "Added";
+        list.add(0, added);
+        after.elements = (MetaDef.Definition[])
+            list.toArray(new MetaDef.Definition[list.size()]);
+        System.out.println(
+            "Models of " + countDistinct(before, new IdentityHashMap())
+            + " and " + countDistinct(after, new IdentityHashMap())
+            + " elements");
+
+        for (int i = 0; i < 2; i++) {
+            final TreeDiff treeDiff = new TreeDiff();
+            final String name = i == 0 ? "keyed diff" : "unkeyed diff";
+            if (i == 0) {
+                treeDiff.setKeyFields(new String[] {"name", "type"});
+            } else {
+                treeDiff.setKeyFields(new String[0]);
+            }
+            final java.util.List edits = treeDiff.diff(before, after);
+            System.out.println(name + ": " + edits.size() + " edits");
+            time(
+                name,
+                new Task() {
+                    Object run() {
+                        return treeDiff.diff(before, after);
+                    }
+                });
+            time(
+                name + " apply",
+                new Task() {
+                    Object run() throws Exception {
+                        return TreeDiff.apply(before, edits);
+                    }
+                });
+        }
+    }
+
+    /** Counts the distinct elements in a tree. */
+    private static int countDistinct(NodeDef node, Map seen) {
+        if (node == null || seen.put(node, node) != null) {
+            return 0;
+        }
+        int count = 1;
+        final NodeDef[] children = node.getChildren();
+        for (int i = 0; i < children.length; i++) {
+            count += countDistinct(children[i], seen);
+        }
+        return count;
+    }
+
+    /** Sets the <code>_def</code> field of each element of a tree to null. */
+    private static void removeWrappers(NodeDef node) throws Exception {
+        final NodeDef[] children = node.getChildren();
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] != null) {
+                removeWrappers(children[i]);
+            }
+        }
+        try {
+            node.getClass().getField("_def").set(node, null);
+        } catch (NoSuchFieldException e) {
+            // element does not keep its wrapper
+        }
+    }
+
+    /**
+     * Compares the time to bind a document with and without validation,
+     * both after and while parsing it. The modes alternate, and each is
+     * timed twice; the first round warms up the code that both share.
+     */
+    static void trusted(int size) throws Exception {
+        final String xml = XomTest.modelXml(size);
+        final StaxDOMParser parser = new StaxDOMParser();
+        final DOMWrapper def = parser.parse(xml);
+        for (int i = 0; i < 4; i++) {
+            final boolean trusted = i % 2 == 1;
+            final String mode = trusted ? "trusted" : "validating";
+            final BindingContext context = new BindingContext();
+            context.setTrusted(trusted);
+            time(
+                mode + " bind parsed document",
+                new Task() {
+                    Object run() throws Exception {
+                        return context.construct(def, MetaDef.Model.class);
+                    }
+                });
+            final StaxDOMParser bindingParser = new StaxDOMParser();
+            bindingParser.setTrusted(trusted);
+            time(
+                mode + " bind while parsing",
+                new Task() {
+                    Object run() throws Exception {
+                        return bindingParser.bind(xml, new MetaDef._Binder());
+                    }
+                });
+        }
+    }
+
+    /**
+     * Measures how the time to bind a parsed document scales with the
+     * number of threads in a {@link BindingContext}'s pool.
+     */
+    static void parallel(int size) throws Exception {
+        final DOMWrapper def =
+            new StaxDOMParser().parse(XomTest.modelXml(size));
+        final int processors = Runtime.getRuntime().availableProcessors();
+        System.out.println(
+            "Document of " + size + " elements, " + processors
+            + " processors");
+        time(
+            "sequential",
+            new Task() {
+                Object run() throws Exception {
+                    return new MetaDef.Model(def);
+                }
+            });
+        for (int threadCount = 1; threadCount <= processors;
+             threadCount *= 2)
+        {
+            final java.util.concurrent.ForkJoinPool pool =
+                new java.util.concurrent.ForkJoinPool(threadCount);
+            final BindingContext context = new BindingContext();
+            context.setPool(pool);
+            time(
+                threadCount + " threads",
+                new Task() {
+                    Object run() throws Exception {
+                        return context.construct(def, MetaDef.Model.class);
+                    }
+                });
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Compares the time to walk a tree of generated definitions with the
+     * time to walk a tree of the same shape whose class relies on the
+     * reflective methods of {@link ElementDef}.
+     */
+    static void walk(int size) throws Exception {
+        final MetaDef.Model model = new MetaDef.Model(
+            new StaxDOMParser().parse(XomTest.modelXml(size)));
+        final XomTest.HandWrittenDef hand = XomTest.HandWrittenDef.copy(model);
+        System.out.println(
+            "Tree of " + walk(model) + " definitions");
+        time(
+            "generated",
+            new Task() {
+                Object run() {
+                    return new Integer(walk(model));
+                }
+            });
+        time(
+            "reflective",
+            new Task() {
+                Object run() {
+                    return new Integer(walk(hand));
+                }
+            });
+    }
+
+    /**
+     * Compares the time to add children one at a time to an element using
+     * {@link ElementDef#addChild(NodeDef)}, which copies the element's array
+     * of children each time, with the time using a {@link ChildBuilder}.
+     */
+    static void children(final int size) throws Exception {
+        final MetaDef.Element[] elements = new MetaDef.Element[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = new MetaDef.Element();
+        }
+        time(
+            "addChild",
+            new Task() {
+                Object run() throws Exception {
+                    final MetaDef.Model model = new MetaDef.Model();
+                    model.elements = new MetaDef.Definition[0];
+                    for (int i = 0; i < size; i++) {
+                        model.addChild(elements[i]);
+                    }
+                    return model;
+                }
+            });
+        time(
+            "ChildBuilder",
+            new Task() {
+                Object run() throws Exception {
+                    final MetaDef.Model model = new MetaDef.Model();
+                    model.elements = new MetaDef.Definition[0];
+                    final ChildBuilder builder = new ChildBuilder(model);
+                    for (int i = 0; i < size; i++) {
+                        builder.add(elements[i]);
+                    }
+                    builder.finish();
+                    return model;
+                }
+            });
+    }
+
+    /**
+     * Compares the time to build the model that
+     * {@link XomTest#modelXml(int)} describes using the generated builders
+     * with the time to render it as XML and parse it.
+     */
+    static void builder(final int size) throws Exception {
+        time(
+            "XML",
+            new Task() {
+                Object run() throws Exception {
+                    return new MetaDef.Model(
+                        new StaxDOMParser().parse(XomTest.modelXml(size)));
+                }
+            });
+        time(
+            "builder",
+            new Task() {
+                Object run() throws Exception {
+                    final MetaDef.Model.Builder model = MetaDef.Model.builder()
+                        .name("bench")
+                        .dtdName("bench.dtd")
+                        .className("BenchDef")
+                        .packageName("bench")
+                        .root("Root")
+                        .version(new Double(1.0))
+                        .doc("A generated model.")
+                        .ensureElementsCapacity(size);
+                    for (int i = 0; i < size; i++) {
+                        model.addElements(
+                            MetaDef.Element.builder()
+                                .type("E" + i)
+                                .doc("Element number " + i
+                                    + " & its attributes.")
+                                .addAttributes(
+                                    MetaDef.Attribute.builder()
+                                        .name("a")
+                                        .type("String")
+                                        .required(Boolean.TRUE)
+                                        .build())
+                                .addAttributes(
+                                    MetaDef.Attribute.builder()
+                                        .name("b")
+                                        .type("Integer")
+                                        ._default(String.valueOf(i))
+                                        .build())
+                                .addAttributes(
+                                    MetaDef.Attribute.builder()
+                                        .name("c")
+                                        .type("Boolean")
+                                        .doc("Flag <c>.")
+                                        .build())
+                                .build());
+                    }
+                    return model.build();
+                }
+            });
+    }
+
+    /**
+     * Visits every definition under a node, calling {@link
+     * NodeDef#getWrapper()} on each, and returns the number of definitions.
+     */
+    static int walk(NodeDef node) {
+        int count = node.getWrapper() == null ? 0 : 1;
+        final NodeDef[] children = node.getChildren();
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] != null) {
+                count += walk(children[i]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Runs a task the same number of times in each of several threads, and
+     * returns the total number of times it ran.
+     */
+    static int concurrently(int threadCount, final Task task)
+        throws Exception
+    {
+        final int perThread = 20;
+        final Thread[] threads = new Thread[threadCount];
+        final Exception[] errors = new Exception[1];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < perThread; j++) {
+                            task.run();
+                        }
+                    } catch (Exception e) {
+                        synchronized (errors) {
+                            errors[0] = e;
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].join();
+        }
+        if (errors[0] != null) {
+            throw errors[0];
+        }
+        return threadCount * perThread;
+    }
+
+    /**
+     * Visits every node under a wrapper, and returns the number of nodes.
+     */
+    static int walk(DOMWrapper wrapper) {
+        int count = 1;
+        final DOMWrapper[] children = wrapper.getChildren();
+        for (int i = 0; i < children.length; i++) {
+            count += walk(children[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Runs a task repeatedly, and prints the average elapsed time.
+     */
+    static void time(String name, Task task) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            task.run();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+        final long nanos = (System.nanoTime() - start) / ITERATIONS;
+        System.out.println(name + ": " + (nanos / 1000) + " us/op");
+    }
+
+    /**
+     * Returns the number of bytes of heap retained by the result of a task.
+     */
+    static long retainedHeap(Task task) throws Exception {
+        final long before = usedHeap();
+        // Hold the result in a field; once this method is compiled, a local
+        // variable that is not used again would not keep it alive.
+        retained = task.run();
+        final long after = usedHeap();
+        retained = null;
+        return after - before;
+    }
+
+    /** The result whose size {@link #retainedHeap(Task)} is measuring. */
+    private static volatile Object retained;
+
+    /**
+     * Returns the number of bytes of heap that the current thread allocates
+     * while running a task, or -1 if the JVM cannot measure it.
+     */
+    static long allocatedBytes(Task task) throws Exception {
+        final java.lang.management.ThreadMXBean bean =
+            java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        final com.sun.management.ThreadMXBean sunBean =
+            (com.sun.management.ThreadMXBean) bean;
+        final long threadId = Thread.currentThread().getId();
+        final long before = sunBean.getThreadAllocatedBytes(threadId);
+        final Object result = task.run();
+        final long after = sunBean.getThreadAllocatedBytes(threadId);
+        XOMUtil.discard(result);
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Unit of work whose cost is to be measured. */
+    abstract static class Task {
+        abstract Object run() throws Exception;
+    }
+}
+
+// End XomBenchmark.java
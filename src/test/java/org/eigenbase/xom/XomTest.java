@@ -17,10 +17,20 @@
 */
 package org.eigenbase.xom;
 
+import org.eigenbase.xom.wrappers.IncrementalDocument;
+import org.eigenbase.xom.wrappers.JaxpDOMParser;
+import org.eigenbase.xom.wrappers.StaxDOMParser;
+import org.eigenbase.xom.wrappers.W3CDOMWrapper;
+
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -28,35 +38,1289 @@ import static org.junit.Assert.assertThat;
  */
 public class XomTest {
     @Test public void testFoo() throws XOMException {
-        final Parser xmlParser = XOMUtil.createDefaultParser();
-        xmlParser.setKeepPositions(true);
-        final String lineSep = System.getProperty("line.separator");
-        final String xml = "<Model" + lineSep
-            + "  name=\"meta\"" + lineSep
-            + "  dtdName=\"meta.dtd\"" + lineSep
-            + "  className=\"MetaDef\"" + lineSep
-            + "  packageName=\"org.eigenbase.xom\"" + lineSep
-            + "  root=\"Model\"" + lineSep
-            + "  version=\"1.0\"" + lineSep
-            + ">" + lineSep
-            + "  <!-- a comment" + lineSep
-            + "       spread across multiple lines -->" + lineSep
-            + "<Doc>" + lineSep
-            + "  This model is the XOM Meta Model.  It is the specification of the model used" + lineSep
-            + "  to define new XML-based models.  It is also an instance of itself." + lineSep
-            + "" + lineSep
-            + "</Doc>" + lineSep
-            + "" + lineSep
-            + "<Element type=\"Model\">" + lineSep
-            + "    <Doc>" + lineSep
-            + "       Contains a \"single\" apostrope '." + lineSep
-            + "    </Doc>" + lineSep
-            + "" + lineSep
-            + "    <Attribute name=\"name\" required=\"true\"/>" + lineSep
-            + "    <Attribute name=\"dtdName\"/>" + lineSep
-            + "</Element>" + lineSep
+        checkModel(XOMUtil.createDefaultParser());
+    }
+
+    /**
+     * Tests {@link StaxDOMParser}, which builds compact wrappers or a flat
+     * node table without a W3C DOM. Positions and the bound model should be
+     * the same as for the default parser.
+     */
+    @Test public void testStaxParser() throws XOMException {
+        final MetaDef.Model model2 =
+            new MetaDef.Model(XOMUtil.createDefaultParser().parse(modelXml()));
+        for (int i = 0; i < 2; i++) {
+            final StaxDOMParser parser = new StaxDOMParser();
+            parser.setFlat(i == 1);
+            final MetaDef.Model model = checkModel(parser);
+            assertThat(model.equals(model2), equalTo(true));
+            assertThat(model.toXML(), equalTo(model2.toXML()));
+        }
+    }
+
+    /**
+     * Tests that positions of a document read from a stream are computed
+     * using the document's encoding, not the platform's.
+     */
+    @Test public void testKeepPositionsEncoding() throws Exception {
+        final String xml =
+            "<?xml version=\"1.0\" encoding=\"UTF-16\"?>\n"
+            + "<Model name=\"caf\u00e9\">\n"
+            + "  <Doc>Cr\u00e8me br\u00fbl\u00e9e</Doc>\n"
+            + "  <Element type=\"X\"/>\n"
+            + "</Model>";
+        final byte[] bytes = xml.getBytes("UTF-16");
+        final Parser[] parsers = {
+            XOMUtil.createDefaultParser(), new StaxDOMParser()
+        };
+        for (int i = 0; i < parsers.length; i++) {
+            final Parser parser = parsers[i];
+            parser.setKeepPositions(true);
+            final DOMWrapper def =
+                parser.parse(new java.io.ByteArrayInputStream(bytes));
+            final DOMWrapper element = def.getElementChildren()[1];
+            final Location location = element.getLocation();
+            assertThat(location.getText(false), equalTo("<Element type=\"X\"/>"));
+            assertThat(location.getStartLine(), equalTo(4));
+            assertThat(location.getStartColumn(), equalTo(3));
+            assertThat(
+                def.getLocation().getText(true),
+                equalTo("<Model name=\"caf\u00e9\">"));
+        }
+    }
+
+    /**
+     * Tests that {@link StaxDOMParser} computes positions while it parses,
+     * without keeping the source text, including in a document whose lines
+     * end with lone carriage returns.
+     */
+    @Test public void testStaxPositionsWithoutText() throws XOMException {
+        final String xml =
+            "<?xml version=\"1.0\"?>\r<!-- comment -->\r"
+            + "<Model name=\"m\">\r  <Doc>text</Doc>\r"
+            + "  <Element\r    type=\"X\"/>\r</Model>\r";
+        final StaxDOMParser parser = new StaxDOMParser();
+        parser.setKeepPositions(true);
+        parser.setKeepText(false);
+        final DOMWrapper def = parser.parse(new java.io.StringReader(xml));
+        Location location = def.getLocation();
+        assertThat(location.getStartLine(), equalTo(3));
+        assertThat(location.getStartColumn(), equalTo(1));
+        assertThat(location.getEndLine(), equalTo(7));
+        assertThat(location.getEndColumn(), equalTo(9));
+        assertThat(location.getText(false), nullValue());
+        location = def.getElementChildren()[1].getLocation();
+        assertThat(location.getStartPos(), equalTo(xml.indexOf("<Element")));
+        assertThat(location.getEndPos(), equalTo(xml.indexOf("\r</Model>")));
+        assertThat(location.getStartLine(), equalTo(5));
+        assertThat(location.getStartColumn(), equalTo(3));
+        assertThat(location.getEndLine(), equalTo(6));
+        assertThat(location.getEndColumn(), equalTo(15));
+    }
+
+    /**
+     * Tests {@link Parser#parse(java.nio.file.Path)}, which maps the file
+     * into memory, and reads the text of locations from the mapped buffer.
+     */
+    @Test public void testParsePath() throws Exception {
+        final String xml = modelXml().replace("XOM Meta", "XOM M\u00e9ta");
+        final java.io.File file = java.io.File.createTempFile("xom", ".xml");
+        try {
+            final java.io.OutputStream out = new java.io.FileOutputStream(file);
+            out.write(xml.getBytes("UTF-8"));
+            out.close();
+            final Parser[] parsers = {
+                XOMUtil.createDefaultParser(), new StaxDOMParser()
+            };
+            for (int i = 0; i < parsers.length; i++) {
+                checkModel(parsers[i], file.toPath());
+                final DOMWrapper def = parsers[i].parse(file.toPath());
+                final Location location =
+                    def.getElementChildren()[0].getLocation();
+                assertThat(
+                    location.getText(false),
+                    equalTo(
+                        xml.substring(
+                            xml.indexOf("<Doc>"),
+                            xml.indexOf("</Doc>") + "</Doc>".length())));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests the default implementations of
+     * {@link Parser#parse(java.nio.file.Path)} and
+     * {@link Parser#parse(java.nio.ByteBuffer)}, which a parser that only
+     * implements the older methods inherits.
+     */
+    @Test public void testParseDefaultMethods() throws Exception {
+        final StaxDOMParser stax = new StaxDOMParser();
+        final Parser parser = new Parser() {
+            public void setKeepPositions(boolean keepPositions) {
+                stax.setKeepPositions(keepPositions);
+            }
+
+            public boolean isKeepPositions() {
+                return stax.isKeepPositions();
+            }
+
+            public DOMWrapper parse(String sXml) throws XOMException {
+                return stax.parse(sXml);
+            }
+
+            public DOMWrapper parse(java.io.InputStream is)
+                throws XOMException
+            {
+                return stax.parse(is);
+            }
+
+            public DOMWrapper parse(java.net.URL url) throws XOMException {
+                return stax.parse(url);
+            }
+
+            public DOMWrapper parse(java.io.Reader reader)
+                throws XOMException
+            {
+                return stax.parse(reader);
+            }
+
+            public DOMWrapper create(String tagName) {
+                return stax.create(tagName);
+            }
+        };
+        final String xml = modelXml();
+        final MetaDef.Model expected = new MetaDef.Model(stax.parse(xml));
+        final java.nio.ByteBuffer buffer =
+            java.nio.ByteBuffer.wrap(xml.getBytes("UTF-8"));
+        assertThat(new MetaDef.Model(parser.parse(buffer)).equals(expected),
+            equalTo(true));
+        assertThat(buffer.position(), equalTo(0));
+        final java.io.File file = java.io.File.createTempFile("xom", ".xml");
+        try {
+            final java.io.OutputStream out = new java.io.FileOutputStream(file);
+            out.write(xml.getBytes("UTF-8"));
+            out.close();
+            assertThat(
+                new MetaDef.Model(parser.parse(file.toPath())).equals(expected),
+                equalTo(true));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests that the DOM parsers are still {@link org.xml.sax.ErrorHandler}s,
+     * and that, outside a parse, their handler methods ignore warnings and
+     * errors but rethrow fatal errors.
+     */
+    @Test public void testParserErrorHandler() throws Exception {
+        final JaxpDOMParser parser = new JaxpDOMParser();
+        final org.xml.sax.ErrorHandler handler = parser;
+        final org.xml.sax.SAXParseException e =
+            new org.xml.sax.SAXParseException("bad", null, "foo.xml", 1, 2);
+        handler.warning(e);
+        handler.error(e);
+        try {
+            handler.fatalError(e);
+            assertThat("expected error", nullValue());
+        } catch (org.xml.sax.SAXParseException e2) {
+            assertThat(e2 == e, equalTo(true));
+        }
+
+        // Errors during a parse are still reported.
+        try {
+            parser.parse("<Foo>");
+            assertThat("expected error", nullValue());
+        } catch (XOMException e2) {
+            assertThat(e2.getMessage().startsWith("Document parse failed: "),
+                equalTo(true));
+        }
+        assertThat(parser.parse("<Foo/>").getTagName(), equalTo("Foo"));
+    }
+
+    /**
+     * Tests {@link ParserPool} from several threads, and that a document's
+     * locations survive its parser going on to parse other documents.
+     */
+    @Test public void testParserPool() throws Exception {
+        final Parser pool = new ParserPool();
+        pool.setKeepPositions(true);
+        final String xml = modelXml();
+        final DOMWrapper def = pool.parse(xml);
+        final Throwable[] errors = new Throwable[1];
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 10; j++) {
+                            final String xml2 =
+                                "<Model name=\"" + getName() + "\"/>";
+                            final DOMWrapper def2 = pool.parse(xml2);
+                            assertThat(
+                                def2.getLocation().getText(false),
+                                equalTo(xml2));
+                            checkModel(pool);
+                        }
+                    } catch (Throwable e) {
+                        errors[0] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertThat(errors[0], nullValue());
+        assertThat(def.getLocation().getEndPos(), equalTo(xml.length()));
+    }
+
+    /**
+     * Tests binding a document as it is parsed, with the generated
+     * {@link MetaDef._Binder} and with a binder that lets the parser discard
+     * the children of bound elements.
+     */
+    @Test public void testStreamingBind() throws XOMException {
+        final MetaDef.Model model2 =
+            new MetaDef.Model(XOMUtil.createDefaultParser().parse(modelXml()));
+        final StaxDOMParser parser = new StaxDOMParser();
+        parser.setKeepPositions(true);
+        final MetaDef.Model model = (MetaDef.Model)
+            parser.bind(modelXml(), new MetaDef._Binder());
+        assertThat(model.equals(model2), equalTo(true));
+        final Location location =
+            ((MetaDef.Element) model.elements[0]).attributes[1].getLocation();
+        assertThat(location.getStartLine(), equalTo(23));
+        assertThat(location.getStartColumn(), equalTo(5));
+
+        final StreamingBinder binder =
+            new StreamingBinder(
+                "",
+                new String[] {"Model", "Element"},
+                new boolean[] {true, false})
+            {
+                protected NodeDef construct(int index, DOMWrapper wrapper)
+                    throws XOMException
+                {
+                    return index == 0
+                        ? (NodeDef) new MetaDef.Model(wrapper)
+                        : new MetaDef.Element(wrapper);
+                }
+            };
+        final MetaDef.Model model3 = (MetaDef.Model)
+            parser.bind(
+                new java.io.StringReader(modelXml()), binder);
+        assertThat(model3.equals(model2), equalTo(true));
+        assertThat(model3._def.getElementChildren().length, equalTo(2));
+        assertThat(
+            ((MetaDef.Element) model3.elements[0])._def.getChildren().length,
+            equalTo(0));
+
+        try {
+            parser.bind("<Foo/>", binder);
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(
+                e.getMessage(),
+                equalTo("Root element <Foo> is not an element of the model"));
+        }
+    }
+
+    /**
+     * Tests a parser that creates caching {@link W3CDOMWrapper}s, which
+     * create each node's wrapper once.
+     */
+    @Test public void testCacheWrappers() throws XOMException {
+        final JaxpDOMParser parser = new JaxpDOMParser();
+        parser.setCacheWrappers(true);
+        final MetaDef.Model model = checkModel(parser);
+        final MetaDef.Model model2 =
+            new MetaDef.Model(new JaxpDOMParser().parse(modelXml()));
+        assertThat(model.equals(model2), equalTo(true));
+
+        final DOMWrapper def = parser.parse(modelXml());
+        final DOMWrapper element = def.getElementChildren()[1];
+        assertThat(element == def.getElementChildren()[1], equalTo(true));
+        assertThat(
+            element.getChildren()[1] == element.getElementChildren()[0],
+            equalTo(true));
+        assertThat(element.getAttribute("type"), equalTo("Model"));
+        assertThat(element.getAttribute("foo"), nullValue());
+        assertThat(element.getAttributeNames()[0], equalTo("type"));
+        assertThat(
+            element.getChildren()[0].getAttributeNames().length, equalTo(0));
+    }
+
+    /**
+     * Tests binding in parallel with a {@link BindingContext}: the model
+     * and the error for an invalid document should be the same as when
+     * binding on one thread.
+     */
+    @Test public void testParallelBind() throws XOMException {
+        final StaxDOMParser parser = new StaxDOMParser();
+        final java.util.concurrent.ForkJoinPool pool =
+            new java.util.concurrent.ForkJoinPool(4);
+        try {
+            final BindingContext context = new BindingContext();
+            context.setPool(pool);
+            context.setParallelThreshold(8);
+            final DOMWrapper def = parser.parse(modelXml(500));
+            final MetaDef.Model model = (MetaDef.Model)
+                context.construct(def, MetaDef.Model.class);
+            assertThat(model.elements.length, equalTo(500));
+            assertThat(model.equals(new MetaDef.Model(def)), equalTo(true));
+
+            // Elements 300 and 400 lack the required 'type' attribute.
+            final String xml = modelXml(500)
+                .replace("type=\"E300\"", "")
+                .replace("type=\"E400\"", "");
+            final DOMWrapper def2 = parser.parse(xml);
+            String expected = null;
+            try {
+                new MetaDef.Model(def2);
+            } catch (XOMException e) {
+                expected = e.getMessage();
+            }
+            assertThat(expected, notNullValue());
+            try {
+                context.construct(def2, MetaDef.Model.class);
+                assertThat("expected error", nullValue());
+            } catch (XOMException e) {
+                assertThat(e.getMessage(), equalTo(expected));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that {@link IncrementalDocument} binds again only the element
+     * that an edit changes and its ancestors, that the result and its
+     * positions are as if the whole document had been parsed, and that it
+     * recovers from an edit that leaves the document malformed.
+     */
+    @Test public void testIncrementalDocument() throws XOMException {
+        final IncrementalDocument doc =
+            new IncrementalDocument(modelXml(), MetaDef.Model.class);
+        final MetaDef.Model model = (MetaDef.Model) doc.getDef();
+        final MetaDef.Element element = (MetaDef.Element) model.elements[0];
+
+        // Rename the second attribute. Only it and its ancestors are bound
+        // again.
+        final int offset = doc.getText().indexOf("\"dtdName\"") + 1;
+        final MetaDef.Model model2 = (MetaDef.Model)
+            doc.edit(offset, "dtdName".length(), "schemaName");
+        final MetaDef.Element element2 =
+            (MetaDef.Element) model2.elements[0];
+        assertThat(element2.attributes[1].name, equalTo("schemaName"));
+        assertThat(element2.attributes[0] == element.attributes[0],
+            equalTo(true));
+        final StaxDOMParser parser = new StaxDOMParser();
+        parser.setKeepPositions(true);
+        final MetaDef.Model expected =
+            new MetaDef.Model(parser.parse(doc.getText()));
+        assertThat(model2.equals(expected), equalTo(true));
+        assertThat(doc.getDef() == model2, equalTo(true));
+
+        // Positions are as if the whole document had been parsed.
+        final MetaDef.Element expectedElement =
+            (MetaDef.Element) expected.elements[0];
+        checkSameLocation(model2, expected);
+        checkSameLocation(element2, expectedElement);
+        checkSameLocation(
+            element2.attributes[1], expectedElement.attributes[1]);
+        assertThat(element2.attributes[1].getLocation().getText(false),
+            equalTo("<Attribute name=\"schemaName\"/>"));
+
+        // An edit that leaves the document malformed throws, and a later
+        // edit that corrects it recovers.
+        final int end = doc.getText().indexOf("/>", offset);
+        try {
+            doc.edit(end, 2, ">");
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            // ok
+        }
+        assertThat(doc.getDef(), nullValue());
+        final MetaDef.Model model3 = (MetaDef.Model) doc.edit(end, 1, "/>");
+        assertThat(model3.equals(expected), equalTo(true));
+    }
+
+    /**
+     * Tests that {@link DOMElementParser#getPluginClass} resolves a plugin
+     * class, that a registered class is found until it is unregistered, and
+     * that a class with no <code>getXMLDefClass()</code> method is rejected
+     * each time it is asked for.
+     */
+    @Test public void testPluginClass() throws XOMException {
+        assertThat(
+            DOMElementParser.getPluginClass("org.eigenbase.xom", "MetaDef")
+                == MetaDef.class,
+            equalTo(true));
+        DOMElementParser.registerPluginClass(
+            "com.example", "NoSuchManager", MetaDef.class);
+        try {
+            assertThat(
+                DOMElementParser.getPluginClass("com.example", "NoSuchManager")
+                    == MetaDef.class,
+                equalTo(true));
+        } finally {
+            DOMElementParser.unregisterPluginClass(
+                "com.example", "NoSuchManager");
+        }
+        try {
+            DOMElementParser.getPluginClass("com.example", "NoSuchManager");
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(
+                e.getMessage().startsWith("Unable to locate plugin class"),
+                equalTo(true));
+        }
+        // A class without getXMLDefClass() is rejected every time.
+        for (int i = 0; i < 2; i++) {
+            try {
+                DOMElementParser.getPluginClass(XomTest.class);
+                assertThat("expected error", nullValue());
+            } catch (XOMException e) {
+                assertThat(
+                    e.getMessage().endsWith("getXMLDefClass() is not defined."),
+                    equalTo(true));
+            }
+        }
+    }
+
+    /**
+     * Tests that the generated hash codes are consistent with
+     * {@link ElementDef#equals(Object)}, and that a frozen tree caches its
+     * hash code.
+     */
+    @Test public void testHashCode() throws XOMException {
+        final StaxDOMParser parser = new StaxDOMParser();
+        final MetaDef.Model model1 =
+            new MetaDef.Model(parser.parse(modelXml()));
+        final MetaDef.Model model2 =
+            new MetaDef.Model(parser.parse(modelXml()));
+        assertThat(model1.equals(model2), equalTo(true));
+        checkSameHash(model1, model2);
+
+        // A null array equals, and has the same hash as, an empty one.
+        final MetaDef.Element element = new MetaDef.Element();
+        element.type = "E";
+        final MetaDef.Element element2 = new MetaDef.Element();
+        element2.type = "E";
+        element2.attributes = new MetaDef.Attribute[0];
+        assertThat(element.equals(element2), equalTo(true));
+        assertThat(element.hashCode(), equalTo(element2.hashCode()));
+
+        // Every attribute contributes to the hash, including those that
+        // Element inherits through an interface.
+        element.contentModel = "mixed";
+        element2.contentModel = "mixed";
+        assertThat(element.hashCode(), equalTo(element2.hashCode()));
+        element2.contentModel = "any";
+        assertThat(element.hashCode() == element2.hashCode(),
+            equalTo(false));
+        element2.contentModel = "mixed";
+        element2.keepDef = Boolean.TRUE;
+        assertThat(element.hashCode() == element2.hashCode(),
+            equalTo(false));
+
+        // Changing a field changes the hash, unless the tree is frozen.
+        final int hash = model1.hashCode();
+        ((MetaDef.Element) model1.elements[0]).type = "Changed";
+        assertThat(model1.equals(model2), equalTo(false));
+        assertThat(model1.hashCode() == hash, equalTo(false));
+        model2.freeze();
+        assertThat(model2.isFrozen(), equalTo(true));
+        assertThat(((ElementDef) model2.elements[0]).isFrozen(),
+            equalTo(true));
+        assertThat(model2.hashCode(), equalTo(hash));
+        ((MetaDef.Element) model2.elements[0]).type = "Changed";
+        assertThat(model2.hashCode(), equalTo(hash));
+    }
+
+    /**
+     * Tests that {@link ElementDef#structurallyEquals(ElementDef)} agrees
+     * with {@link ElementDef#displayDiff}.
+     */
+    @Test public void testStructurallyEquals() throws XOMException {
+        final StaxDOMParser parser = new StaxDOMParser();
+        final MetaDef.Model model1 =
+            new MetaDef.Model(parser.parse(modelXml(10)));
+        final MetaDef.Model model2 =
+            new MetaDef.Model(parser.parse(modelXml(10)));
+        assertThat(model1.structurallyEquals(model2), equalTo(true));
+        assertThat(model1.displayDiff(model2, null, 0), equalTo(true));
+        assertThat(model1.equals(null), equalTo(false));
+        assertThat(model1.equals(model1.elements[0]), equalTo(false));
+
+        // Change something deep in the tree, then change it back.
+        final MetaDef.Attribute attribute =
+            ((MetaDef.Element) model2.elements[9]).attributes[2];
+        final String doc = attribute.doc;
+        attribute.doc = doc + "!";
+        assertThat(model1.structurallyEquals(model2), equalTo(false));
+        assertThat(model1.displayDiff(model2, null, 0), equalTo(false));
+        attribute.doc = doc;
+        attribute.required = Boolean.TRUE;
+        assertThat(model1.structurallyEquals(model2), equalTo(false));
+        assertThat(model1.displayDiff(model2, null, 0), equalTo(false));
+        attribute.required = Boolean.FALSE;
+        assertThat(model1.structurallyEquals(model2), equalTo(true));
+
+        // Arrays of different lengths.
+        ((MetaDef.Element) model2.elements[9]).attributes =
+            new MetaDef.Attribute[] {attribute};
+        assertThat(model1.structurallyEquals(model2), equalTo(false));
+        assertThat(model1.displayDiff(model2, null, 0), equalTo(false));
+
+        // Elements that differ only in attributes declared after the first
+        // few, or inherited from an interface, are not equal.
+        final MetaDef.Element mixed = new MetaDef.Element(
+            parser.parse("<Element type='E' contentModel='mixed'/>"));
+        final MetaDef.Element any = new MetaDef.Element(
+            parser.parse("<Element type='E' contentModel='any'/>"));
+        assertThat(mixed.structurallyEquals(any), equalTo(false));
+        assertThat(mixed.displayDiff(any, null, 0), equalTo(false));
+        final MetaDef.Element keepDef = new MetaDef.Element(
+            parser.parse("<Element type='E' contentModel='mixed' "
+                + "keepDef='true'/>"));
+        assertThat(mixed.structurallyEquals(keepDef), equalTo(false));
+        assertThat(mixed.displayDiff(keepDef, null, 0), equalTo(false));
+        keepDef.keepDef = null;
+        assertThat(mixed.structurallyEquals(keepDef), equalTo(true));
+    }
+
+    /**
+     * Tests {@link ElementDef#deepCopy()} of generated, generic and
+     * hand-written elements.
+     */
+    @Test public void testDeepCopy() throws XOMException {
+        final StaxDOMParser parser = new StaxDOMParser();
+        final MetaDef.Model model =
+            new MetaDef.Model(parser.parse(modelXml(10)));
+        model.freeze();
+        final MetaDef.Model copy = (MetaDef.Model) model.deepCopy();
+        assertThat(copy.equals(model), equalTo(true));
+        assertThat(copy.isFrozen(), equalTo(false));
+        assertThat(copy.getWrapper() == model.getWrapper(), equalTo(true));
+        assertThat(copy.name == model.name, equalTo(true));
+
+        // The copy has its own elements and arrays.
+        final MetaDef.Element element = (MetaDef.Element) copy.elements[9];
+        assertThat(element == model.elements[9], equalTo(false));
+        assertThat(element.attributes ==
+            ((MetaDef.Element) model.elements[9]).attributes,
+            equalTo(false));
+        element.attributes[2].doc = "Changed";
+        assertThat(copy.equals(model), equalTo(false));
+        assertThat(model.equals(copy.deepCopy()), equalTo(false));
+
+        // A generic element is copied by its own method.
+        final GenericDef generic = new GenericDef("Foo");
+        generic.setAttribute("bar", "baz");
+        generic.addChild(new GenericDef("Child"));
+        generic.addChild(new TextDef("some text"));
+        final GenericDef genericCopy = (GenericDef) generic.deepCopy();
+        assertThat(genericCopy.toXML(), equalTo(generic.toXML()));
+        assertThat(genericCopy.getChildren()[0] == generic.getChildren()[0],
+            equalTo(false));
+
+        // A hand-written element is copied by reflection.
+        final HandWrittenDef handWritten =
+            HandWrittenDef.copy(model);
+        final HandWrittenDef handWrittenCopy =
+            (HandWrittenDef) handWritten.deepCopy();
+        assertThat(handWrittenCopy._def == handWritten._def, equalTo(true));
+        assertThat(handWrittenCopy.children == handWritten.children,
+            equalTo(false));
+        assertThat(handWrittenCopy.children.length,
+            equalTo(handWritten.children.length));
+        assertThat(handWrittenCopy.children[0]._def,
+            equalTo(handWritten.children[0]._def));
+    }
+
+    /**
+     * Tests that a {@link Canonicalizer} shares identical subtrees, after
+     * binding and while binding.
+     */
+    @Test public void testCanonicalizer() throws XOMException {
+        final String xml = modelXml(10);
+        final StaxDOMParser parser = new StaxDOMParser();
+        final MetaDef.Model expected = new MetaDef.Model(parser.parse(xml));
+        final Canonicalizer canonicalizer = new Canonicalizer();
+        final MetaDef.Model model = (MetaDef.Model)
+            canonicalizer.canonicalize(new MetaDef.Model(parser.parse(xml)));
+        assertThat(model.equals(expected), equalTo(true));
+        assertThat(model.isFrozen(), equalTo(true));
+        checkShared(model);
+
+        // Another copy of the model is replaced by the first.
+        final MetaDef.Model model2 = new MetaDef.Model(parser.parse(xml));
+        assertThat(canonicalizer.canonicalize(model2) == model,
+            equalTo(true));
+        assertThat(canonicalizer.canonicalize(model) == model,
+            equalTo(true));
+
+        // An element is not replaced by an equal element of another class.
+        final MetaDef.Any any = new MetaDef.Any();
+        assertThat(canonicalizer.intern(any) == any, equalTo(true));
+
+        // Elements that differ only in an inherited attribute are not
+        // merged.
+        final MetaDef.Element mixed = new MetaDef.Element(
+            parser.parse("<Element type='E' contentModel='mixed'/>"));
+        final MetaDef.Element anyContent = new MetaDef.Element(
+            parser.parse("<Element type='E' contentModel='any'/>"));
+        assertThat(canonicalizer.intern(mixed) == mixed, equalTo(true));
+        assertThat(canonicalizer.intern(anyContent) == anyContent,
+            equalTo(true));
+        assertThat(anyContent.contentModel, equalTo("any"));
+
+        // Bind, parsed and streaming, interning as we go.
+        final BindingContext context = new BindingContext();
+        context.setCanonicalizer(new Canonicalizer());
+        final MetaDef.Model model3 = (MetaDef.Model)
+            context.construct(parser.parse(xml), MetaDef.Model.class);
+        assertThat(model3.equals(expected), equalTo(true));
+        checkShared(model3);
+        parser.setCanonicalizer(canonicalizer);
+        assertThat(parser.bind(xml, new MetaDef._Binder()) == model,
+            equalTo(true));
+    }
+
+    /**
+     * Checks that the identical attributes of the elements of a model
+     * generated by {@link #modelXml(int)} are shared, and the others are
+     * not.
+     */
+    private static void checkShared(MetaDef.Model model) {
+        final MetaDef.Element element0 = (MetaDef.Element) model.elements[0];
+        final MetaDef.Element element1 = (MetaDef.Element) model.elements[1];
+        assertThat(element0 == element1, equalTo(false));
+        assertThat(element0.attributes[0] == element1.attributes[0],
+            equalTo(true));
+        assertThat(element0.attributes[1] == element1.attributes[1],
+            equalTo(false));
+        assertThat(element0.attributes[2] == element1.attributes[2],
+            equalTo(true));
+    }
+
+    /**
+     * Tests that {@link TreeDiff} finds inserted, deleted, moved and changed
+     * elements, and that applying its edit script gives the second tree.
+     */
+    @Test public void testTreeDiff() throws XOMException {
+        final String xml = modelXml(10);
+        final StaxDOMParser parser = new StaxDOMParser();
+        final MetaDef.Model before = new MetaDef.Model(parser.parse(xml));
+        final TreeDiff treeDiff = new TreeDiff();
+        treeDiff.setKeyFields(new String[] {"name", "type"});
+        assertThat(
+            treeDiff.diff(before, new MetaDef.Model(parser.parse(xml)))
+                .size(),
+            equalTo(0));
+
+        // Delete the third element, move the last to the front, change one
+        // of its attributes, and add an element at the end.
+        final MetaDef.Model after = new MetaDef.Model(parser.parse(xml));
+        final MetaDef.Element last = (MetaDef.Element) after.elements[9];
+        last.attributes[2].doc = "Changed";
+        final MetaDef.Element added =
+            (MetaDef.Element) ((ElementDef) after.elements[0]).deepCopy();
+        added.type = "New";
+        final List list = new ArrayList(Arrays.asList(after.elements));
+        list.remove(9);
+        list.remove(2);
+        list.add(0, last);
+        list.add(added);
+        after.elements = (MetaDef.Definition[])
+            list.toArray(new MetaDef.Definition[list.size()]);
+
+        final List edits = treeDiff.diff(before, after);
+        assertThat(edits.toString(),
+            equalTo("[delete /elements[2], "
+                + "move /elements[9] to [0], "
+                + "change /elements[9]/attributes[2]/doc: Flag <c>. to Changed, "
+                + "insert /elements[9] Element]"));
+        final TreeDiff.Edit edit = (TreeDiff.Edit) edits.get(1);
+        assertThat(edit.getKind(), equalTo(TreeDiff.Edit.MOVE));
+        assertThat(edit.getOldIndex(), equalTo(9));
+        assertThat(edit.getNewIndex(), equalTo(0));
+        assertThat(TreeDiff.apply(before, edits).equals(after),
+            equalTo(true));
+        assertThat(before.equals(new MetaDef.Model(parser.parse(xml))),
+            equalTo(true));
+
+        // A change to an attribute other than the first is found.
+        final MetaDef.Model after2 = new MetaDef.Model(parser.parse(xml));
+        ((MetaDef.Element) after2.elements[3]).contentModel = "mixed";
+        final List edits2 = treeDiff.diff(before, after2);
+        assertThat(edits2.toString(),
+            equalTo("[change /elements[3]/contentModel: sequential to mixed]"));
+        assertThat(TreeDiff.apply(before, edits2).equals(after2),
+            equalTo(true));
+
+        // Without keys, the script is different, but gives the same tree.
+        treeDiff.setKeyFields(new String[0]);
+        assertThat(
+            TreeDiff.apply(before, treeDiff.diff(before, after))
+                .equals(after),
+            equalTo(true));
+
+        // Roots of different classes.
+        final List rootEdits = treeDiff.diff(before, added);
+        assertThat(rootEdits.size(), equalTo(2));
+        assertThat(TreeDiff.apply(before, rootEdits).equals(added),
+            equalTo(true));
+    }
+
+    /**
+     * Checks that each element of two equal trees has the same hash as its
+     * counterpart.
+     */
+    private static void checkSameHash(NodeDef node1, NodeDef node2) {
+        assertThat(node1.equals(node2), equalTo(true));
+        assertThat(node1.hashCode(), equalTo(node2.hashCode()));
+        final NodeDef[] children1 = node1.getChildren();
+        final NodeDef[] children2 = node2.getChildren();
+        assertThat(children1.length, equalTo(children2.length));
+        for (int i = 0; i < children1.length; i++) {
+            if (children1[i] != null) {
+                checkSameHash(children1[i], children2[i]);
+            }
+        }
+    }
+
+    /**
+     * Tests that {@link TagSymbols} matches tag names ignoring case, falls
+     * back to comparing strings when its table is full, and does not
+     * register the tags of documents.
+     */
+    @Test public void testTagSymbols() throws XOMException {
+        // Tags match the names of the model whatever their case.
+        final StaxDOMParser parser = new StaxDOMParser();
+        final MetaDef.Element element = new MetaDef.Element(
+            parser.parse(
+                "<Element type='E'><DOC>Doc.</DOC>"
+                + "<Attribute name='a'/></Element>"));
+        assertThat(element.doc, equalTo("Doc."));
+        assertThat(element.attributes.length, equalTo(1));
+        final MetaDef.Element element2 = new MetaDef.Element(
+            parser.parse("<Element type='E'><dOc>Doc.</dOc></Element>"));
+        assertThat(element2.doc, equalTo("Doc."));
+
+        // Parsing a document with new tags does not grow the shared table.
+        final int size = TagSymbols.size();
+        final StringBuilder buf = new StringBuilder("<Model name='m'>");
+        for (int i = 0; i < 100; i++) {
+            buf.append("<Tag").append(i).append("/>");
+        }
+        buf.append("</Model>");
+        parser.parse(buf.toString());
+        assertThat(TagSymbols.size(), equalTo(size));
+
+        // A table with room for two names.
+        final TagSymbols symbols = new TagSymbols(2);
+        assertThat(symbols.match("", "Foo", "FOO"), equalTo(true));
+        assertThat(symbols.match("", "Foo", "Bar"), equalTo(false));
+        assertThat(symbols.lookup("Bar"), equalTo(TagSymbols.NONE));
+        assertThat(symbols.match("DM", "Bar", "dmbar"), equalTo(true));
+        assertThat(symbols.register("Baz"), equalTo(TagSymbols.NONE));
+
+        // The table is full, so new names are compared as strings, and a
+        // new spelling of a registered name still has its symbol.
+        assertThat(symbols.match("", "Baz", "BAZ"), equalTo(true));
+        assertThat(symbols.match("", "Baz", "Bar"), equalTo(false));
+        assertThat(symbols.match("", "Foo", "foo"), equalTo(true));
+        assertThat(symbols.lookup("fOO"), equalTo(symbols.register("Foo")));
+    }
+
+    /**
+     * Tests binding a model whose classes, constructors and
+     * <code>_construct</code> method are not public, and the error for an
+     * element whose class is abstract.
+     */
+    @Test public void testPrivateModel() throws XOMException {
+        final StaxDOMParser parser = new StaxDOMParser();
+        final int count = PrivateModel.constructCount;
+        final NodeDef item = ElementDef.constructElement(
+            parser.parse("<Item name='a'/>"), PrivateModel.class, "");
+        assertThat(((PrivateModel.Item) item).name, equalTo("a"));
+        assertThat(PrivateModel.constructCount, equalTo(count + 1));
+
+        // The factory does not know this element, so its constructor is
+        // called.
+        final NodeDef other = ElementDef.constructElement(
+            parser.parse("<Other name='b'/>"), PrivateModel.class, "");
+        assertThat(((PrivateModel.Other) other).name, equalTo("b"));
+        assertThat(PrivateModel.constructCount, equalTo(count + 2));
+
+        // As before, the message ends with that of the exception thrown by
+        // reflection.
+        try {
+            ElementDef.constructElement(
+                parser.parse("<Base/>"), PrivateModel.Base.class);
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(
+                e.getMessage().startsWith(
+                    "Unable to instantiate object of class "
+                    + PrivateModel.Base.class.getName() + ": "),
+                equalTo(true));
+        }
+    }
+
+    /**
+     * Tests a model generated with enums for the attributes that have lists
+     * of allowable values: binding, the error for a value that is not
+     * allowed, equality and copying. Also checks that {@link EnumDef} is
+     * what {@link XOMGenTask} generates from its model today.
+     */
+    @Test public void testGenerateEnums() throws Exception {
+        final StaxDOMParser parser = new StaxDOMParser();
+        final String xml = "<Drawing name='d'>"
+            + "<Shape kind='circle'/>"
+            + "<Shape kind='half-moon' color='green' size='3'/>"
+            + "</Drawing>";
+        final EnumDef.Drawing drawing =
+            new EnumDef.Drawing(parser.parse(xml));
+        assertThat(drawing.shapes.length, equalTo(2));
+        assertThat(drawing.shapes[0].kind == EnumDef.Shape.KindValue.CIRCLE,
+            equalTo(true));
+        assertThat(drawing.shapes[0].color == EnumDef.Shape.ColorValue.RED,
+            equalTo(true));
+        assertThat(drawing.shapes[1].kind,
+            equalTo(EnumDef.Shape.KindValue.HALF_MOON));
+        assertThat(drawing.shapes[1].color.value, equalTo("green"));
+        assertThat(drawing.shapes[1].size, equalTo(new Integer(3)));
+        assertThat(drawing.toXML().indexOf("kind=\"half-moon\"") >= 0,
+            equalTo(true));
+
+        // A value that is not allowed gives the same error as it would if
+        // the attribute were a String.
+        try {
+            new EnumDef.Shape(parser.parse("<Shape kind='triangle'/>"));
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(e.getMessage(),
+                equalTo("In Shape: Value 'triangle' of attribute 'kind' has "
+                    + "illegal value 'triangle'.  Legal values: "
+                    + "{circle, square, half-moon}"));
+        }
+
+        // Equality and hashing.
+        final EnumDef.Drawing drawing2 =
+            new EnumDef.Drawing(parser.parse(xml));
+        assertThat(drawing.equals(drawing2), equalTo(true));
+        assertThat(drawing.hashCode(), equalTo(drawing2.hashCode()));
+        drawing2.shapes[1].kind = EnumDef.Shape.KindValue.SQUARE;
+        assertThat(drawing.equals(drawing2), equalTo(false));
+
+        // A copy shares the constants, but not the elements.
+        final EnumDef.Drawing copy = (EnumDef.Drawing) drawing.deepCopy();
+        assertThat(copy.equals(drawing), equalTo(true));
+        assertThat(copy.shapes[1] == drawing.shapes[1], equalTo(false));
+        assertThat(copy.shapes[1].kind == drawing.shapes[1].kind,
+            equalTo(true));
+
+        // Regenerate the model, and compare, ignoring the time.
+        new java.io.File("target/xomgen/org/eigenbase/xom").mkdirs();
+        final XOMGenTask task = new XOMGenTask();
+        task.setProject(new org.apache.tools.ant.Project());
+        task.getProject().setBaseDir(new java.io.File("."));
+        task.setModel("src/test/java/org/eigenbase/xom/EnumModel.xml");
+        task.setDestdir("target/xomgen");
+        task.setClassname("org.eigenbase.xom.EnumDef");
+        task.setDtdname("enum.dtd");
+        task.setGenerateenums(true);
+        task.execute();
+        assertThat(
+            withoutTime(
+                readFile("target/xomgen/org/eigenbase/xom/EnumDef.java")),
+            equalTo(
+                withoutTime(
+                    readFile("src/test/java/org/eigenbase/xom/EnumDef.java"))));
+    }
+
+    private static String readFile(String fileName) throws Exception {
+        return new String(
+            java.nio.file.Files.readAllBytes(
+                java.nio.file.Paths.get(fileName)),
+            "UTF-8");
+    }
+
+    /** Removes the time of generation from generated code. */
+    private static String withoutTime(String s) {
+        return s.replaceAll(" on [A-Z][a-z][a-z] [A-Z][a-z][a-z] .*", "");
+    }
+
+    /**
+     * Tests {@link AttributeConverters}: built-in converters, a registered
+     * converter, converters that call a constructor that takes a string,
+     * and the errors for types that cannot be converted.
+     */
+    @Test public void testAttributeConverters() throws XOMException {
+        assertThat(AttributeConverters.get("Integer"),
+            equalTo(AttributeConverters.INTEGER));
+        assertThat(AttributeConverters.get("java.lang.Integer")
+            .convert("12"), equalTo((Object) new Integer(12)));
+
+        // A registered converter is used when an attribute is read.
+        final AttributeConverter uuidConverter = new AttributeConverter() {
+            public Object convert(String value) {
+                return java.util.UUID.fromString(value);
+            }
+        };
+        AttributeConverters.register("java.util.UUID", uuidConverter);
+        assertThat(AttributeConverters.get("java.util.UUID"),
+            equalTo(uuidConverter));
+        final String uuid = "123e4567-e89b-12d3-a456-426614174000";
+        final DOMElementParser elementParser = new DOMElementParser(
+            new StaxDOMParser().parse("<Foo id='" + uuid + "'/>"), "", null);
+        assertThat(
+            elementParser.getAttribute(
+                "id", AttributeConverters.get("java.util.UUID"), null, null,
+                true),
+            equalTo((Object) java.util.UUID.fromString(uuid)));
+
+        // A type that has a constructor that takes a string.
+        final AttributeConverter bigDecimalConverter =
+            AttributeConverters.get("java.math.BigDecimal");
+        assertThat(AttributeConverters.get("java.math.BigDecimal"),
+            equalTo(bigDecimalConverter));
+        assertThat(bigDecimalConverter.convert("1.50"),
+            equalTo((Object) new java.math.BigDecimal("1.50")));
+        try {
+            bigDecimalConverter.convert("x");
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(
+                e.getMessage().startsWith(
+                    "Unable to construct a java.math.BigDecimal from value "
+                    + "\"x\": "),
+                equalTo(true));
+        }
+
+        // Types that cannot be converted fail only when a value is
+        // converted.
+        final AttributeConverter objectConverter =
+            AttributeConverters.get("Object");
+        try {
+            objectConverter.convert("x");
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(
+                e.getMessage().startsWith(
+                    "Attribute type class java.lang.Object does not have a "
+                    + "constructor which takes a String: "),
+                equalTo(true));
+        }
+        try {
+            AttributeConverters.get("com.example.NoSuchType").convert("x");
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(
+                e.getMessage().startsWith(
+                    "Class could not be found for attribute type: "
+                    + "com.example.NoSuchType: "),
+                equalTo(true));
+        }
+    }
+
+    /**
+     * Tests that binding uses the <code>_construct</code> method and
+     * <code>_prefix</code> that are generated for a model, and falls back
+     * to the class of the tag for tags that the method does not recognize,
+     * for other prefixes, and for models that have no such method.
+     */
+    @Test public void testConstructFactory() throws XOMException {
+        final StaxDOMParser parser = new StaxDOMParser();
+        final DOMWrapper wrapper = parser.parse("<Attribute name='a'/>");
+        assertThat(MetaDef._prefix, equalTo(""));
+        final ElementDef attribute = MetaDef._construct(wrapper);
+        assertThat(((MetaDef.Attribute) attribute).name, equalTo("a"));
+        assertThat(MetaDef._construct(parser.parse("<Definition/>")),
+            nullValue());
+        assertThat(MetaDef._construct(parser.parse("<attribute name='a'/>")),
+            nullValue());
+
+        // Binding calls the factory if the prefix is the model's.
+        final BindingRegistry registry = BindingRegistry.of(MetaDef.class);
+        assertThat(registry.construct(wrapper, "") instanceof MetaDef.Attribute,
+            equalTo(true));
+        assertThat(registry.construct(wrapper, null) instanceof
+            MetaDef.Attribute, equalTo(true));
+        assertThat(registry.construct(wrapper, "X"), nullValue());
+
+        // Otherwise it finds the class of the tag.
+        final NodeDef lower = ElementDef.constructElement(
+            parser.parse("<attribute name='b'/>"), MetaDef.class, "");
+        assertThat(((MetaDef.Attribute) lower).name, equalTo("b"));
+        final NodeDef prefixed = ElementDef.constructElement(
+            parser.parse("<XAttribute name='c'/>"), MetaDef.class, "X");
+        assertThat(((MetaDef.Attribute) prefixed).name, equalTo("c"));
+
+        // XomTest has no factory, so its elements are constructed by their
+        // constructors.
+        final DOMWrapper plainWrapper = parser.parse("<PlainDef name='d'/>");
+        assertThat(
+            BindingRegistry.of(XomTest.class).construct(plainWrapper, ""),
+            nullValue());
+        final NodeDef plain =
+            ElementDef.constructElement(plainWrapper, XomTest.class, "");
+        assertThat(((PlainDef) plain).name, equalTo("d"));
+    }
+
+    /**
+     * Tests that a trusted binding gives the same result as a validating
+     * one for a valid document, and skips validation for an invalid one.
+     */
+    @Test public void testTrustedBind() throws XOMException {
+        final StaxDOMParser parser = new StaxDOMParser();
+        final MetaDef.Model expected =
+            new MetaDef.Model(parser.parse(modelXml()));
+        final BindingContext context = new BindingContext();
+        context.setTrusted(true);
+        assertThat(
+            context.construct(parser.parse(modelXml()), MetaDef.Model.class)
+                .equals(expected),
+            equalTo(true));
+        parser.setTrusted(true);
+        assertThat(
+            parser.bind(modelXml(), new MetaDef._Binder()).equals(expected),
+            equalTo(true));
+
+        // A model must have at least one element, and the content model of
+        // an element must be one of a few values.
+        final String invalid =
+            "<Model name='x' root='Root' version='1.0'>"
+            + "<Element type='E' contentModel='bad'/>"
             + "</Model>";
-        DOMWrapper def = xmlParser.parse(xml);
+        final String empty =
+            "<Model name='x' root='Root' version='1.0'></Model>";
+        parser.setTrusted(false);
+        try {
+            parser.bind(invalid, new MetaDef._Binder());
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(e.getMessage().indexOf("has illegal value 'bad'") >= 0,
+                equalTo(true));
+        }
+        try {
+            new MetaDef.Model(parser.parse(empty));
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(e.getMessage().indexOf("Expecting at least 1") >= 0,
+                equalTo(true));
+        }
+        parser.setTrusted(true);
+        final MetaDef.Model model =
+            (MetaDef.Model) parser.bind(invalid, new MetaDef._Binder());
+        assertThat(((MetaDef.Element) model.elements[0]).contentModel,
+            equalTo("bad"));
+        final MetaDef.Model emptyModel = (MetaDef.Model)
+            context.construct(parser.parse(empty), MetaDef.Model.class);
+        assertThat(emptyModel.elements.length, equalTo(0));
+    }
+
+    /**
+     * Tests the builders that {@link MetaGenerator} generates, by building in
+     * code a model that is equal to one that is parsed.
+     */
+    @Test public void testGeneratedBuilder() throws XOMException {
+        final MetaDef.Model parsed =
+            new MetaDef.Model(
+                new StaxDOMParser().parse(modelXml(1)));
+        final MetaDef.Element element = MetaDef.Element.builder()
+            .type("E0")
+            .doc("Element number 0 & its attributes.")
+            .ensureAttributesCapacity(3)
+            .addAttributes(
+                MetaDef.Attribute.builder()
+                    .name("a").type("String").required(Boolean.TRUE).build())
+            .addAttributes(
+                new MetaDef.Attribute[] {
+                    MetaDef.Attribute.builder()
+                        .name("b").type("Integer")._default("0").build(),
+                    MetaDef.Attribute.builder()
+                        .name("c").type("Boolean").doc("Flag <c>.").build()})
+            .build();
+        final MetaDef.Model.Builder builder = MetaDef.Model.builder()
+            .name("bench")
+            .dtdName("bench.dtd")
+            .className("BenchDef")
+            .packageName("bench")
+            .root("Root")
+            .version(new Double(1.0))
+            .doc("A generated model.")
+            .addElements(element);
+        final MetaDef.Model model = builder.build();
+        assertThat(model.toXML(), equalTo(parsed.toXML()));
+
+        // Defaults are applied when the element is built.
+        assertThat(element.contentModel, equalTo("sequential"));
+        assertThat(element.attributes[1].required, equalTo(Boolean.FALSE));
+
+        // Values are checked when the element is built, not when they are
+        // set.
+        final MetaDef.Model.Builder builder2 =
+            MetaDef.Model.builder().name("bench").root("Root");
+        try {
+            builder2.build();
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(e.getMessage(),
+                equalTo("In Model: Attribute 'version' is unset and has no"
+                    + " default value."));
+        }
+        builder2.version(new Double(1.0));
+        try {
+            builder2.build();
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(e.getMessage(),
+                equalTo("In Model: Expecting at least 1 <Definition> but"
+                    + " found 0"));
+        }
+        try {
+            MetaDef.Element.builder().type("E").contentModel("bad").build();
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(e.getMessage(),
+                equalTo("In Element: Value 'bad' of attribute 'contentModel'"
+                    + " has illegal value 'bad'.  Legal values: {sequential,"
+                    + " random, mixed, any, cdata}"));
+        }
+    }
+
+    /**
+     * Tests {@link ChildBuilder}, which adds children to an element without
+     * copying its array of children on each addition.
+     */
+    @Test public void testChildBuilder() throws XOMException {
+        final MetaDef.Model model = new MetaDef.Model();
+        model.elements = new MetaDef.Definition[] {new MetaDef.Element()};
+        final ChildBuilder builder = new ChildBuilder(model);
+        for (int i = 0; i < 1000; i++) {
+            final MetaDef.Element element = new MetaDef.Element();
+            element.type = "E" + i;
+            builder.add(element);
+        }
+        builder.addAll(new NodeDef[] {new MetaDef.Class()});
+        assertThat(builder.size(), equalTo(1002));
+        assertThat(model.elements.length, equalTo(1));
+        final NodeDef[] children = builder.finish();
+        assertThat(children == model.elements, equalTo(true));
+        assertThat(model.elements.length, equalTo(1002));
+        assertThat(((MetaDef.Element) model.elements[1000]).type,
+            equalTo("E999"));
+        assertThat(model.elements[1001] instanceof MetaDef.Class,
+            equalTo(true));
+
+        // A child of the wrong type is rejected when it is added.
+        try {
+            builder.add(new MetaDef.Attribute());
+            assertThat("expected error", nullValue());
+        } catch (ArrayStoreException e) {
+            // ok
+        }
+
+        // GenericDef stores its children as they are added.
+        final GenericDef generic = new GenericDef("root");
+        final ChildBuilder genericBuilder = new ChildBuilder(generic);
+        genericBuilder.add(new GenericDef("a"));
+        genericBuilder.add(new GenericDef("b"));
+        assertThat(generic.getChildren().length, equalTo(2));
+        assertThat(genericBuilder.finish().length, equalTo(2));
+
+        // An element with no array field has nowhere to put children.
+        try {
+            new ChildBuilder(new MetaDef.Any());
+            assertThat("expected error", nullValue());
+        } catch (XOMException e) {
+            assertThat(e.getMessage().indexOf("it has no array field") >= 0,
+                equalTo(true));
+        }
+    }
+
+    /**
+     * Checks that the generated getChildren, getChildCount and getWrapper
+     * methods agree with the fields that reflection finds.
+     */
+    @Test public void testGeneratedChildren() throws XOMException {
+        final DOMWrapper def =
+            new StaxDOMParser().parse(modelXml(3));
+        final MetaDef.Model model = new MetaDef.Model(def);
+        assertThat(model.getWrapper() == def, equalTo(true));
+        assertThat(checkChildren(model), equalTo(13));
+    }
+
+    private static int checkChildren(NodeDef node) {
+        if (!(node instanceof ElementDef)) {
+            return 1;
+        }
+        final java.util.List expected = new java.util.ArrayList();
+        final java.lang.reflect.Field[] fields = node.getClass().getFields();
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                final Class type = fields[i].getType();
+                if (NodeDef.class.isAssignableFrom(type)) {
+                    expected.add(fields[i].get(node));
+                } else if (type.isArray()
+                    && NodeDef.class.isAssignableFrom(type.getComponentType()))
+                {
+                    expected.addAll(
+                        java.util.Arrays.asList(
+                            (Object[]) fields[i].get(node)));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+        final NodeDef[] children = node.getChildren();
+        assertThat(java.util.Arrays.asList(children), equalTo(expected));
+        assertThat(((ElementDef) node).getChildCount(),
+            equalTo(children.length));
+        int count = 1;
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] != null) {
+                count += checkChildren(children[i]);
+            }
+        }
+        return count;
+    }
+
+    private static void checkSameLocation(NodeDef def, NodeDef expected) {
+        final Location location = def.getLocation();
+        final Location expectedLocation = expected.getLocation();
+        assertThat(location.getStartPos(),
+            equalTo(expectedLocation.getStartPos()));
+        assertThat(location.getEndPos(), equalTo(expectedLocation.getEndPos()));
+        assertThat(location.getStartLine(),
+            equalTo(expectedLocation.getStartLine()));
+        assertThat(location.getStartColumn(),
+            equalTo(expectedLocation.getStartColumn()));
+        assertThat(location.getEndLine(),
+            equalTo(expectedLocation.getEndLine()));
+        assertThat(location.getEndColumn(),
+            equalTo(expectedLocation.getEndColumn()));
+    }
+
+    private MetaDef.Model checkModel(Parser xmlParser) throws XOMException {
+        return checkModel(xmlParser, null);
+    }
+
+    private MetaDef.Model checkModel(Parser xmlParser, java.nio.file.Path path)
+        throws XOMException
+    {
+        xmlParser.setKeepPositions(true);
+        DOMWrapper def = path == null
+            ? xmlParser.parse(modelXml())
+            : xmlParser.parse(path);
         assertThat(def, notNullValue());
         final MetaDef.Model model = new MetaDef.Model(def);
         assertThat(model, notNullValue());
@@ -89,6 +1353,104 @@ public class XomTest {
         assertThat(location.getStartColumn(), equalTo(5));
         assertThat(location.getEndLine(), equalTo(23));
         assertThat(location.getEndColumn(), equalTo(32));
+        return model;
+    }
+
+    /** Element with no generated methods. */
+    public static class HandWrittenDef extends ElementDef {
+        public DOMWrapper _def;
+        public HandWrittenDef[] children;
+
+        public void display(java.io.PrintWriter pw, int indent) {
+            pw.print(getName());
+        }
+
+        static HandWrittenDef copy(NodeDef node) {
+            final HandWrittenDef copy = new HandWrittenDef();
+            if (node == null) {
+                copy.children = new HandWrittenDef[0];
+                return copy;
+            }
+            copy._def = node.getWrapper();
+            final NodeDef[] children = node.getChildren();
+            copy.children = new HandWrittenDef[children.length];
+            for (int i = 0; i < children.length; i++) {
+                copy.children[i] = copy(children[i]);
+            }
+            return copy;
+        }
+    }
+
+    /** Element whose enclosing class, {@link XomTest}, has no generated
+     * <code>_construct</code> method. */
+    public static class PlainDef extends ElementDef {
+        public String name;
+
+        public PlainDef(DOMWrapper _def) {
+            name = _def.getAttribute("name");
+        }
+
+        public void display(java.io.PrintWriter pw, int indent) {
+            pw.print(getName());
+        }
+    }
+
+    /**
+     * Generates a document conforming to {@link MetaDef} with a given number
+     * of elements.
+     */
+    static String modelXml(int elementCount) {
+        final StringBuffer buf = new StringBuffer();
+        buf.append("<?xml version=\"1.0\"?>\n")
+            .append("<Model name=\"bench\" dtdName=\"bench.dtd\"")
+            .append(" className=\"BenchDef\" packageName=\"bench\"")
+            .append(" root=\"Root\" version=\"1.0\">\n")
+            .append("<Doc>A generated model.</Doc>\n");
+        for (int i = 0; i < elementCount; i++) {
+            buf.append("  <Element type=\"E").append(i).append("\">\n")
+                .append("    <Doc>Element number ").append(i)
+                .append(" &amp; its attributes.</Doc>\n")
+                .append("    <Attribute name=\"a\" type=\"String\"")
+                .append(" required=\"true\"/>\n")
+                .append("    <Attribute name=\"b\" type=\"Integer\"")
+                .append(" default=\"").append(i).append("\"/>\n")
+                .append("    <Attribute name=\"c\" type=\"Boolean\">\n")
+                .append("      <Doc><![CDATA[Flag <c>.]]></Doc>\n")
+                .append("    </Attribute>\n")
+                .append("  </Element>\n");
+        }
+        buf.append("</Model>\n");
+        return buf.toString();
+    }
+
+    private static String modelXml() {
+        final String lineSep = System.getProperty("line.separator");
+        final String xml = "<Model" + lineSep
+            + "  name=\"meta\"" + lineSep
+            + "  dtdName=\"meta.dtd\"" + lineSep
+            + "  className=\"MetaDef\"" + lineSep
+            + "  packageName=\"org.eigenbase.xom\"" + lineSep
+            + "  root=\"Model\"" + lineSep
+            + "  version=\"1.0\"" + lineSep
+            + ">" + lineSep
+            + "  <!-- a comment" + lineSep
+            + "       spread across multiple lines -->" + lineSep
+            + "<Doc>" + lineSep
+            + "  This model is the XOM Meta Model.  It is the specification of the model used" + lineSep
+            + "  to define new XML-based models.  It is also an instance of itself." + lineSep
+            + "" + lineSep
+            + "</Doc>" + lineSep
+            + "" + lineSep
+            + "<Element type=\"Model\">" + lineSep
+            + "    <Doc>" + lineSep
+            + "       Contains a \"single\" apostrope '." + lineSep
+            + "    </Doc>" + lineSep
+            + "" + lineSep
+            + "    <Attribute name=\"name\" required=\"true\"/>" + lineSep
+            + "    <Attribute name=\"dtdName\"/>" + lineSep
+            + "</Element>" + lineSep
+            + "</Model>";
+        return xml;
     }
 }
 